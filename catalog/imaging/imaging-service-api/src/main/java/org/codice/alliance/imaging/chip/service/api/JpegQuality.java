@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.chip.service.api;
+
+/**
+ * Validation shared by the components that encode chips, thumbnails and overviews as JPEG.
+ */
+public final class JpegQuality {
+
+    private JpegQuality() {
+    }
+
+    /**
+     * @param jpegQuality the JPEG compression quality.
+     * @return the quality, if it is between 0.0 and 1.0.
+     * @throws IllegalArgumentException if the quality is outside of 0.0 to 1.0.
+     */
+    public static float validate(float jpegQuality) {
+        if (jpegQuality < 0.0f || jpegQuality > 1.0f) {
+            throw new IllegalArgumentException(String.format(
+                    "JPEG quality must be between 0.0 and 1.0 but was %f.",
+                    jpegQuality));
+        }
+        return jpegQuality;
+    }
+}
@@ -15,17 +15,26 @@ package org.codice.alliance.imaging.chip.transformer;
 
 import java.awt.image.BufferedImage;
 import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Iterator;
 
 import javax.activation.MimeType;
 import javax.activation.MimeTypeParseException;
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
 import javax.imageio.stream.ImageOutputStream;
 import javax.imageio.stream.MemoryCacheImageOutputStream;
 
+import org.codice.alliance.imaging.chip.service.api.JpegQuality;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.FileBackedOutputStream;
+
 import ddf.catalog.data.BinaryContent;
 import ddf.catalog.data.impl.BinaryContentImpl;
 import ddf.catalog.operation.ResourceResponse;
@@ -38,10 +47,64 @@ import ddf.catalog.transform.CatalogTransformerException;
  */
 public class CatalogOutputAdapter {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(CatalogOutputAdapter.class);
+
     private static final String IMAGE_JPG = "image/jpg";
 
+    private static final String IMAGE_PNG = "image/png";
+
     private static final String JPG = "jpg";
 
+    private static final String PNG = "png";
+
+    private static final float DEFAULT_JPEG_QUALITY = 0.75f;
+
+    private static final int DEFAULT_FILE_BACKED_THRESHOLD = 10 * 1024 * 1024;
+
+    private String chipFormat = JPG;
+
+    private float jpegQuality = DEFAULT_JPEG_QUALITY;
+
+    private int fileBackedThreshold = DEFAULT_FILE_BACKED_THRESHOLD;
+
+    /**
+     * @param chipFormat the image format chips are encoded in, either "jpg" or the lossless "png".
+     */
+    public void setChipFormat(String chipFormat) {
+        if (!JPG.equalsIgnoreCase(chipFormat) && !PNG.equalsIgnoreCase(chipFormat)) {
+            throw new IllegalArgumentException(String.format("unsupported chip format '%s'.",
+                    chipFormat));
+        }
+        this.chipFormat = chipFormat.toLowerCase();
+    }
+
+    public String getChipFormat() {
+        return chipFormat;
+    }
+
+    /**
+     * @param jpegQuality the JPEG compression quality between 0.0 and 1.0.
+     */
+    public void setJpegQuality(float jpegQuality) {
+        this.jpegQuality = JpegQuality.validate(jpegQuality);
+    }
+
+    public float getJpegQuality() {
+        return jpegQuality;
+    }
+
+    /**
+     * @param fileBackedThreshold the number of encoded bytes held in memory before the chip is
+     *                            written to a temporary file instead.
+     */
+    public void setFileBackedThreshold(int fileBackedThreshold) {
+        this.fileBackedThreshold = Math.max(0, fileBackedThreshold);
+    }
+
+    public int getFileBackedThreshold() {
+        return fileBackedThreshold;
+    }
+
     /**
      * @param resourceResponse a ResourceResponse object returned by CatalogFramework.
      * @return the requested BufferedImage.
@@ -61,20 +124,59 @@ public class CatalogOutputAdapter {
     }
 
     /**
+     * The image is encoded into memory until the file backed threshold is reached, after which it
+     * is written to a temporary file. The returned content reads directly from that buffer without
+     * copying it, and the temporary file is removed when the content stream is closed.
+     *
      * @param image the BufferedImage to be converted.
      * @return a BinaryContent object containing the image data.
-     * @throws IOException            when the BufferedImage can't be written to temporary in-memory space.
+     * @throws IOException            when the BufferedImage can't be written to temporary space.
      * @throws MimeTypeParseException
      */
     public BinaryContent getBinaryContent(BufferedImage image)
             throws IOException, MimeTypeParseException {
         validateArgument(image, "image");
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
-        ImageOutputStream imageOutputStream = new MemoryCacheImageOutputStream(os);
-        ImageIO.write(image, JPG, imageOutputStream);
-        InputStream fis = new ByteArrayInputStream(os.toByteArray());
-        BinaryContent binaryContent = new BinaryContentImpl(fis, new MimeType(IMAGE_JPG));
-        return binaryContent;
+        FileBackedOutputStream os = new FileBackedOutputStream(fileBackedThreshold, true);
+
+        try {
+            try (ImageOutputStream imageOutputStream = new MemoryCacheImageOutputStream(os)) {
+                writeImage(image, imageOutputStream);
+            }
+
+            InputStream inputStream = new ResettingInputStream(os.asByteSource()
+                    .openStream(), os);
+            String mimeType = PNG.equals(chipFormat) ? IMAGE_PNG : IMAGE_JPG;
+            return new BinaryContentImpl(inputStream, new MimeType(mimeType));
+        } catch (IOException | RuntimeException e) {
+            os.reset();
+            throw e;
+        }
+    }
+
+    private void writeImage(BufferedImage image, ImageOutputStream imageOutputStream)
+            throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(chipFormat);
+
+        if (!writers.hasNext()) {
+            throw new IOException(String.format("no image writer found for format '%s'.",
+                    chipFormat));
+        }
+
+        ImageWriter writer = writers.next();
+
+        try {
+            ImageWriteParam writeParam = writer.getDefaultWriteParam();
+
+            if (JPG.equals(chipFormat)) {
+                writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                writeParam.setCompressionQuality(jpegQuality);
+            }
+
+            writer.setOutput(imageOutputStream);
+            writer.write(null, new IIOImage(image, null, null), writeParam);
+        } finally {
+            writer.dispose();
+        }
     }
 
     private void validateArgument(Object value, String argumentName) {
@@ -99,4 +201,30 @@ public class CatalogOutputAdapter {
     public void wrapException(Exception exception) throws CatalogTransformerException {
         throw new CatalogTransformerException(exception);
     }
+
+    /**
+     * Releases the encoded image buffer, including any temporary file, once the content stream has
+     * been consumed and closed.
+     */
+    private static class ResettingInputStream extends FilterInputStream {
+        private final FileBackedOutputStream backingStream;
+
+        ResettingInputStream(InputStream inputStream, FileBackedOutputStream backingStream) {
+            super(inputStream);
+            this.backingStream = backingStream;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                try {
+                    backingStream.reset();
+                } catch (IOException e) {
+                    LOGGER.debug("unable to release the encoded image buffer.", e);
+                }
+            }
+        }
+    }
 }
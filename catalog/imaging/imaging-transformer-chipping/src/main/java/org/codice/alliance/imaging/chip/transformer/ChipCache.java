@@ -0,0 +1,493 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.chip.transformer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.activation.MimeType;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.hash.Hashing;
+
+import ddf.catalog.data.BinaryContent;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.impl.BinaryContentImpl;
+
+/**
+ * A size-bounded cache of encoded image chips. Chips are keyed by the metacard id, the metacard
+ * modified time, the requested chip rectangle and the format and JPEG quality the chip is encoded
+ * with, so any update to the metacard or to the encoding options invalidates its cached chips.
+ * Entries are held in memory up to {@link #setMaxMemoryBytes(long)} bytes. When a cache directory
+ * is configured, entries evicted from memory are spilled to disk, up to
+ * {@link #setMaxDiskBytes(long)} bytes, before being discarded. Chip files are named by a hash
+ * of their key, and any chip files left in the directory by a previous instance are removed when
+ * the cache is (re)initialized, so the disk limit holds across restarts.
+ */
+public class ChipCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChipCache.class);
+
+    private static final long DEFAULT_MAX_MEMORY_BYTES = 64L * 1024 * 1024;
+
+    private static final long DEFAULT_MAX_DISK_BYTES = 512L * 1024 * 1024;
+
+    private static final String CHIP_FILE_SUFFIX = ".chip";
+
+    private volatile long maxMemoryBytes = DEFAULT_MAX_MEMORY_BYTES;
+
+    private volatile long maxDiskBytes = DEFAULT_MAX_DISK_BYTES;
+
+    private volatile File cacheDirectory;
+
+    private volatile Cache<ChipKey, CachedChip> memoryCache;
+
+    private volatile Cache<ChipKey, CachedChipFile> diskCache;
+
+    private final CatalogOutputAdapter catalogOutputAdapter;
+
+    /**
+     * @param catalogOutputAdapter the adapter that encodes the chips, whose encoding options are
+     *                             part of the cache key.
+     */
+    public ChipCache(CatalogOutputAdapter catalogOutputAdapter) {
+        this.catalogOutputAdapter = catalogOutputAdapter;
+        init();
+    }
+
+    /**
+     * @param maxMemoryBytes the maximum number of encoded chip bytes held in memory. A value of
+     *                       zero disables the memory cache.
+     */
+    public void setMaxMemoryBytes(long maxMemoryBytes) {
+        this.maxMemoryBytes = Math.max(0, maxMemoryBytes);
+        init();
+    }
+
+    /**
+     * @param maxDiskBytes the maximum number of encoded chip bytes spilled to the cache directory.
+     */
+    public void setMaxDiskBytes(long maxDiskBytes) {
+        this.maxDiskBytes = Math.max(0, maxDiskBytes);
+        init();
+    }
+
+    /**
+     * @param cacheDirectory the directory used to hold chips evicted from memory. A blank value
+     *                       disables the disk cache.
+     */
+    public void setCacheDirectory(String cacheDirectory) {
+        this.cacheDirectory = StringUtils.isBlank(cacheDirectory) ? null : new File(cacheDirectory);
+        init();
+    }
+
+    /**
+     * @param metacard  the metacard being chipped. May not be null.
+     * @param arguments the chip arguments (x, y, w, h) as taken from the overview image.
+     * @return the cache key for the chip, or null if the chip can not be cached because the
+     * metacard has no id or modified time.
+     */
+    public ChipKey createKey(Metacard metacard, Map<String, Serializable> arguments) {
+        if (metacard == null) {
+            throw new IllegalArgumentException("method argument 'metacard' may not be null.");
+        }
+
+        Date modified = metacard.getModifiedDate();
+
+        if (metacard.getId() == null || modified == null || arguments == null) {
+            return null;
+        }
+
+        return new ChipKey(metacard.getId(),
+                modified.getTime(),
+                catalogOutputAdapter.getChipFormat(),
+                catalogOutputAdapter.getJpegQuality(),
+                arguments.get("x"),
+                arguments.get("y"),
+                arguments.get("w"),
+                arguments.get("h"));
+    }
+
+    /**
+     * @param key the cache key, may be null.
+     * @return a BinaryContent containing the cached chip, or null if the chip is not cached.
+     */
+    public BinaryContent get(ChipKey key) {
+        if (key == null) {
+            return null;
+        }
+
+        CachedChip cachedChip = memoryCache.getIfPresent(key);
+
+        if (cachedChip == null) {
+            cachedChip = readFromDisk(key);
+        }
+
+        if (cachedChip == null) {
+            LOGGER.debug("chip cache miss: {}", key);
+            return null;
+        }
+
+        LOGGER.debug("chip cache hit: {}", key);
+        return cachedChip.toBinaryContent();
+    }
+
+    /**
+     * Stores the encoded chip and returns an equivalent BinaryContent that can be handed to the
+     * caller, since reading the supplied content consumes it. Only chips that fit in the memory
+     * cache, and that were small enough to be encoded in memory, are copied to the heap. Larger
+     * chips are streamed to the disk cache when it is enabled, and are not cached otherwise.
+     *
+     * @param key     the cache key, may be null in which case the content is not cached.
+     * @param content the encoded chip. May not be null.
+     * @return a BinaryContent containing the chip.
+     * @throws IOException when the chip content can't be read.
+     */
+    public BinaryContent put(ChipKey key, BinaryContent content) throws IOException {
+        if (content == null) {
+            throw new IllegalArgumentException("method argument 'content' may not be null.");
+        }
+
+        if (key == null) {
+            return content;
+        }
+
+        long memoryLimit = Math.min(maxMemoryBytes, catalogOutputAdapter.getFileBackedThreshold());
+        InputStream inputStream = content.getInputStream();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        long length;
+
+        try {
+            length = IOUtils.copyLarge(new BoundedInputStream(inputStream, memoryLimit + 1),
+                    buffer);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(inputStream);
+            throw e;
+        }
+
+        if (length <= memoryLimit) {
+            inputStream.close();
+            CachedChip cachedChip = new CachedChip(buffer.toByteArray(), content.getMimeType());
+            memoryCache.put(key, cachedChip);
+            return cachedChip.toBinaryContent();
+        }
+
+        LOGGER.debug("chip {} is too large for the memory cache.", key);
+        InputStream chipStream = new SequenceInputStream(new ByteArrayInputStream(
+                buffer.toByteArray()), inputStream);
+
+        if (cacheDirectory == null || maxDiskBytes == 0) {
+            return new BinaryContentImpl(chipStream, content.getMimeType());
+        }
+
+        return streamToDisk(key, chipStream, content.getMimeType());
+    }
+
+    public long getHitCount() {
+        return memoryCache.stats()
+                .hitCount() + diskCache.stats()
+                .hitCount();
+    }
+
+    public long getMissCount() {
+        return diskCache.stats()
+                .missCount();
+    }
+
+    public long getEvictionCount() {
+        return memoryCache.stats()
+                .evictionCount() + diskCache.stats()
+                .evictionCount();
+    }
+
+    public void invalidateAll() {
+        memoryCache.invalidateAll();
+        diskCache.invalidateAll();
+    }
+
+    private synchronized void init() {
+        if (memoryCache != null) {
+            invalidateAll();
+        }
+
+        deleteChipFiles();
+
+        memoryCache = CacheBuilder.newBuilder()
+                .maximumWeight(maxMemoryBytes)
+                .weigher((ChipKey key, CachedChip chip) -> chip.bytes.length)
+                .removalListener(this::onMemoryRemoval)
+                .recordStats()
+                .build();
+
+        diskCache = CacheBuilder.newBuilder()
+                .maximumWeight(cacheDirectory == null ? 0 : maxDiskBytes)
+                .weigher((ChipKey key, CachedChipFile chipFile) -> chipFile.length)
+                .removalListener(this::onDiskRemoval)
+                .recordStats()
+                .build();
+    }
+
+    private void onMemoryRemoval(RemovalNotification<ChipKey, CachedChip> notification) {
+        if (notification.getCause() == RemovalCause.SIZE && maxMemoryBytes > 0) {
+            writeToDisk(notification.getKey(), notification.getValue());
+        }
+    }
+
+    private void onDiskRemoval(RemovalNotification<ChipKey, CachedChipFile> notification) {
+        CachedChipFile chipFile = notification.getValue();
+
+        // a replaced entry was rewritten to the same file name, so the file is still in use
+        if (notification.getCause() == RemovalCause.REPLACED) {
+            return;
+        }
+
+        if (chipFile != null && chipFile.file.exists() && !chipFile.file.delete()) {
+            LOGGER.debug("unable to delete cached chip file {}", chipFile.file);
+        }
+    }
+
+    private void writeToDisk(ChipKey key, CachedChip cachedChip) {
+        if (cacheDirectory == null || key == null || cachedChip == null
+                || cachedChip.bytes.length > maxDiskBytes) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(cacheDirectory.toPath());
+            File file = new File(cacheDirectory, getFileName(key));
+            Files.write(file.toPath(), cachedChip.bytes);
+            diskCache.put(key, new CachedChipFile(file, cachedChip.mimeType));
+        } catch (IOException e) {
+            LOGGER.warn("unable to write chip to the disk cache.", e);
+        }
+    }
+
+    /**
+     * Writes the chip straight to its file in the cache directory and returns a BinaryContent
+     * reading that file. A chip larger than the disk cache is not kept, its file is removed once
+     * the returned content has been read.
+     */
+    private BinaryContent streamToDisk(ChipKey key, InputStream chipStream, MimeType mimeType)
+            throws IOException {
+        File file = new File(cacheDirectory, getFileName(key));
+
+        try (InputStream inputStream = chipStream) {
+            Files.createDirectories(cacheDirectory.toPath());
+            Files.copy(inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            if (file.exists() && !file.delete()) {
+                LOGGER.debug("unable to delete partial chip file {}", file);
+            }
+            throw e;
+        }
+
+        if (file.length() > maxDiskBytes) {
+            LOGGER.debug("chip {} is too large for the disk cache.", key);
+            return new BinaryContentImpl(new DeletingFileInputStream(file), mimeType);
+        }
+
+        diskCache.put(key, new CachedChipFile(file, mimeType));
+        return new BinaryContentImpl(new FileInputStream(file), mimeType);
+    }
+
+    static String getFileName(ChipKey key) {
+        return Hashing.sha256()
+                .hashString(key.toString(), StandardCharsets.UTF_8)
+                .toString() + CHIP_FILE_SUFFIX;
+    }
+
+    /**
+     * Removes chip files that are not tracked by the current disk cache, such as those written
+     * before a restart.
+     */
+    private void deleteChipFiles() {
+        File directory = cacheDirectory;
+
+        if (directory == null) {
+            return;
+        }
+
+        File[] chipFiles = directory.listFiles((dir, name) -> name.endsWith(CHIP_FILE_SUFFIX));
+
+        if (chipFiles == null) {
+            return;
+        }
+
+        for (File chipFile : chipFiles) {
+            if (!chipFile.delete()) {
+                LOGGER.debug("unable to delete stale chip file {}", chipFile);
+            }
+        }
+    }
+
+    private CachedChip readFromDisk(ChipKey key) {
+        CachedChipFile chipFile = diskCache.getIfPresent(key);
+
+        if (chipFile == null) {
+            return null;
+        }
+
+        try {
+            CachedChip cachedChip = new CachedChip(Files.readAllBytes(chipFile.file.toPath()),
+                    chipFile.mimeType);
+            if (maxMemoryBytes > 0) {
+                diskCache.invalidate(key);
+                memoryCache.put(key, cachedChip);
+            }
+            return cachedChip;
+        } catch (IOException e) {
+            LOGGER.debug("unable to read cached chip file {}", chipFile.file, e);
+            diskCache.invalidate(key);
+        }
+
+        return null;
+    }
+
+    /**
+     * Identifies a chip by metacard id, metacard modified time, chip format, JPEG quality and chip
+     * rectangle.
+     */
+    public static final class ChipKey {
+        private final String metacardId;
+
+        private final long modified;
+
+        private final String chipFormat;
+
+        private final float jpegQuality;
+
+        private final String[] rectangle;
+
+        ChipKey(String metacardId, long modified, String chipFormat, float jpegQuality,
+                Serializable... rectangle) {
+            this.metacardId = metacardId;
+            this.modified = modified;
+            this.chipFormat = chipFormat;
+            this.jpegQuality = jpegQuality;
+            this.rectangle = Arrays.stream(rectangle)
+                    .map(Objects::toString)
+                    .toArray(String[]::new);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ChipKey)) {
+                return false;
+            }
+            ChipKey chipKey = (ChipKey) o;
+            return modified == chipKey.modified
+                    && Float.compare(jpegQuality, chipKey.jpegQuality) == 0
+                    && metacardId.equals(chipKey.metacardId)
+                    && Objects.equals(chipFormat, chipKey.chipFormat)
+                    && Arrays.equals(rectangle, chipKey.rectangle);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(metacardId,
+                    modified,
+                    chipFormat,
+                    jpegQuality,
+                    Arrays.hashCode(rectangle));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s@%d/%s/%s%s",
+                    metacardId,
+                    modified,
+                    chipFormat,
+                    jpegQuality,
+                    Arrays.toString(rectangle));
+        }
+    }
+
+    private static final class CachedChip {
+        private final byte[] bytes;
+
+        private final MimeType mimeType;
+
+        private CachedChip(byte[] bytes, MimeType mimeType) {
+            this.bytes = bytes;
+            this.mimeType = mimeType;
+        }
+
+        private BinaryContent toBinaryContent() {
+            return new BinaryContentImpl(new ByteArrayInputStream(bytes), mimeType);
+        }
+    }
+
+    /**
+     * Reads a chip file that is not tracked by the disk cache and removes it when closed.
+     */
+    private static final class DeletingFileInputStream extends FileInputStream {
+        private final File file;
+
+        private DeletingFileInputStream(File file) throws FileNotFoundException {
+            super(file);
+            this.file = file;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (file.exists() && !file.delete()) {
+                    LOGGER.debug("unable to delete uncached chip file {}", file);
+                }
+            }
+        }
+    }
+
+    private static final class CachedChipFile {
+        private final File file;
+
+        private final int length;
+
+        private final MimeType mimeType;
+
+        private CachedChipFile(File file, MimeType mimeType) {
+            this.file = file;
+            this.length = (int) Math.min(Integer.MAX_VALUE, file.length());
+            this.mimeType = mimeType;
+        }
+    }
+}
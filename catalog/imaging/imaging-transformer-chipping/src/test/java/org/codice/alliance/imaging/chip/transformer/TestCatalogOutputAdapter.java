@@ -96,6 +96,43 @@ public class TestCatalogOutputAdapter {
         assertThat(returnedImage.getHeight(), is(1024));
     }
 
+    @Test
+    public void testGetBinaryContentPng() throws IOException, MimeTypeParseException {
+        catalogOutputAdapter.setChipFormat("png");
+        BufferedImage suppliedImage = new BufferedImage(64, 32, BufferedImage.TYPE_3BYTE_BGR);
+        BinaryContent binaryContent = catalogOutputAdapter.getBinaryContent(suppliedImage);
+        assertThat(binaryContent.getMimeTypeValue(), is("image/png"));
+
+        BufferedImage returnedImage = ImageIO.read(binaryContent.getInputStream());
+        assertThat(returnedImage.getWidth(), is(64));
+        assertThat(returnedImage.getHeight(), is(32));
+    }
+
+    @Test
+    public void testGetBinaryContentFileBacked() throws IOException, MimeTypeParseException {
+        catalogOutputAdapter.setFileBackedThreshold(0);
+        catalogOutputAdapter.setJpegQuality(0.9f);
+        BufferedImage suppliedImage = new BufferedImage(64, 32, BufferedImage.TYPE_3BYTE_BGR);
+        BinaryContent binaryContent = catalogOutputAdapter.getBinaryContent(suppliedImage);
+        assertThat(binaryContent.getMimeTypeValue(), is("image/jpg"));
+
+        try (InputStream inputStream = binaryContent.getInputStream()) {
+            BufferedImage returnedImage = ImageIO.read(inputStream);
+            assertThat(returnedImage.getWidth(), is(64));
+            assertThat(returnedImage.getHeight(), is(32));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidChipFormat() {
+        catalogOutputAdapter.setChipFormat("gif");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidJpegQuality() {
+        catalogOutputAdapter.setJpegQuality(1.5f);
+    }
+
     private InputStream getInputStream(String filename) {
         assertNotNull("Test file missing", getClass().getResource(filename));
         return getClass().getResourceAsStream(filename);
@@ -0,0 +1,242 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.chip.transformer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.activation.MimeType;
+import javax.activation.MimeTypeParseException;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ddf.catalog.data.BinaryContent;
+import ddf.catalog.data.impl.BinaryContentImpl;
+import ddf.catalog.data.impl.MetacardImpl;
+
+public class TestChipCache {
+    private static final byte[] CHIP_BYTES = {1, 2, 3, 4, 5, 6, 7, 8};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private CatalogOutputAdapter catalogOutputAdapter;
+
+    private ChipCache chipCache;
+
+    private MetacardImpl metacard;
+
+    private Map<String, Serializable> args;
+
+    @Before
+    public void setUp() {
+        catalogOutputAdapter = new CatalogOutputAdapter();
+        chipCache = new ChipCache(catalogOutputAdapter);
+        metacard = new MetacardImpl();
+        metacard.setId("abc123");
+        metacard.setModifiedDate(new Date(1000L));
+        args = new HashMap<>();
+        args.put("x", 10);
+        args.put("y", 20);
+        args.put("w", 30);
+        args.put("h", 40);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateKeyNullMetacard() {
+        chipCache.createKey(null, args);
+    }
+
+    @Test
+    public void testCreateKeyNoModifiedDate() {
+        metacard.setModifiedDate(null);
+        assertThat(chipCache.createKey(metacard, args), is(nullValue()));
+    }
+
+    @Test
+    public void testKeyChangesWithModifiedDate() {
+        ChipCache.ChipKey original = chipCache.createKey(metacard, args);
+        metacard.setModifiedDate(new Date(2000L));
+        assertThat(chipCache.createKey(metacard, args), is(not(original)));
+    }
+
+    @Test
+    public void testKeyChangesWithChipFormat() {
+        ChipCache.ChipKey original = chipCache.createKey(metacard, args);
+        catalogOutputAdapter.setChipFormat("png");
+        assertThat(chipCache.createKey(metacard, args), is(not(original)));
+    }
+
+    @Test
+    public void testKeyChangesWithJpegQuality() {
+        ChipCache.ChipKey original = chipCache.createKey(metacard, args);
+        catalogOutputAdapter.setJpegQuality(0.5f);
+        assertThat(chipCache.createKey(metacard, args), is(not(original)));
+    }
+
+    @Test
+    public void testMiss() {
+        assertThat(chipCache.get(chipCache.createKey(metacard, args)), is(nullValue()));
+        assertThat(chipCache.getMissCount(), is(1L));
+    }
+
+    @Test
+    public void testPutAndGet() throws IOException, MimeTypeParseException {
+        ChipCache.ChipKey key = chipCache.createKey(metacard, args);
+        BinaryContent stored = chipCache.put(key, createContent());
+        assertThat(stored.getByteArray(), is(CHIP_BYTES));
+
+        BinaryContent cached = chipCache.get(chipCache.createKey(metacard, args));
+        assertThat(cached, is(notNullValue()));
+        assertThat(cached.getByteArray(), is(CHIP_BYTES));
+        assertThat(cached.getMimeType()
+                .toString(), is("image/jpg"));
+        assertThat(chipCache.getHitCount(), is(1L));
+    }
+
+    @Test
+    public void testPutNullKey() throws IOException, MimeTypeParseException {
+        BinaryContent content = createContent();
+        assertThat(chipCache.put(null, content), is(content));
+    }
+
+    @Test
+    public void testDiskCache() throws IOException, MimeTypeParseException {
+        chipCache.setCacheDirectory(temporaryFolder.getRoot()
+                .getAbsolutePath());
+        chipCache.setMaxMemoryBytes(0);
+
+        ChipCache.ChipKey key = chipCache.createKey(metacard, args);
+        chipCache.put(key, createContent());
+        assertThat(temporaryFolder.getRoot()
+                .list().length, is(1));
+
+        BinaryContent cached = chipCache.get(key);
+        assertThat(cached.getByteArray(), is(CHIP_BYTES));
+
+        chipCache.invalidateAll();
+        assertThat(temporaryFolder.getRoot()
+                .list().length, is(0));
+    }
+
+    @Test
+    public void testChipLargerThanMemoryCacheNotCached() throws IOException,
+            MimeTypeParseException {
+        chipCache.setMaxMemoryBytes(CHIP_BYTES.length - 1);
+
+        ChipCache.ChipKey key = chipCache.createKey(metacard, args);
+        BinaryContent stored = chipCache.put(key, createContent());
+        assertThat(stored.getByteArray(), is(CHIP_BYTES));
+        assertThat(chipCache.get(key), is(nullValue()));
+    }
+
+    @Test
+    public void testFileBackedChipStreamedToDisk() throws IOException, MimeTypeParseException {
+        chipCache.setCacheDirectory(temporaryFolder.getRoot()
+                .getAbsolutePath());
+        catalogOutputAdapter.setFileBackedThreshold(CHIP_BYTES.length - 1);
+
+        ChipCache.ChipKey key = chipCache.createKey(metacard, args);
+        BinaryContent stored = chipCache.put(key, createContent());
+        assertThat(stored.getByteArray(), is(CHIP_BYTES));
+        assertThat(temporaryFolder.getRoot()
+                .list(), is(new String[] {ChipCache.getFileName(key)}));
+
+        BinaryContent cached = chipCache.get(key);
+        assertThat(cached.getByteArray(), is(CHIP_BYTES));
+    }
+
+    @Test
+    public void testChipLargerThanDiskCacheRemovedAfterReading() throws IOException,
+            MimeTypeParseException {
+        chipCache.setCacheDirectory(temporaryFolder.getRoot()
+                .getAbsolutePath());
+        chipCache.setMaxMemoryBytes(0);
+        chipCache.setMaxDiskBytes(CHIP_BYTES.length - 1);
+
+        ChipCache.ChipKey key = chipCache.createKey(metacard, args);
+        BinaryContent stored = chipCache.put(key, createContent());
+        try (InputStream inputStream = stored.getInputStream()) {
+            assertThat(IOUtils.toByteArray(inputStream), is(CHIP_BYTES));
+        }
+
+        assertThat(chipCache.get(key), is(nullValue()));
+        assertThat(temporaryFolder.getRoot()
+                .list().length, is(0));
+    }
+
+    @Test
+    public void testMemoryEvictionSpillsToDisk() throws IOException, MimeTypeParseException {
+        chipCache.setCacheDirectory(temporaryFolder.getRoot()
+                .getAbsolutePath());
+        chipCache.setMaxMemoryBytes(CHIP_BYTES.length);
+
+        ChipCache.ChipKey firstKey = chipCache.createKey(metacard, args);
+        chipCache.put(firstKey, createContent());
+        args.put("x", 11);
+        chipCache.put(chipCache.createKey(metacard, args), createContent());
+
+        BinaryContent cached = chipCache.get(firstKey);
+        assertThat(cached, is(notNullValue()));
+        assertThat(cached.getByteArray(), is(CHIP_BYTES));
+    }
+
+    @Test
+    public void testDiskFileNameIsDerivedFromKey() throws IOException, MimeTypeParseException {
+        chipCache.setCacheDirectory(temporaryFolder.getRoot()
+                .getAbsolutePath());
+        chipCache.setMaxMemoryBytes(0);
+
+        ChipCache.ChipKey key = chipCache.createKey(metacard, args);
+        chipCache.put(key, createContent());
+        chipCache.put(chipCache.createKey(metacard, args), createContent());
+
+        assertThat(temporaryFolder.getRoot()
+                .list(), is(new String[] {ChipCache.getFileName(key)}));
+    }
+
+    @Test
+    public void testStaleDiskFilesRemovedOnStartup() throws IOException, MimeTypeParseException {
+        File stale = temporaryFolder.newFile("stale.chip");
+        File unrelated = temporaryFolder.newFile("unrelated.txt");
+
+        ChipCache restarted = new ChipCache(catalogOutputAdapter);
+        restarted.setCacheDirectory(temporaryFolder.getRoot()
+                .getAbsolutePath());
+
+        assertThat(stale.exists(), is(false));
+        assertThat(unrelated.exists(), is(true));
+    }
+
+    private BinaryContent createContent() throws MimeTypeParseException {
+        return new BinaryContentImpl(new ByteArrayInputStream(CHIP_BYTES),
+                new MimeType("image/jpg"));
+    }
+}
@@ -18,6 +18,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.util.HashMap;
+import java.util.Date;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiFunction;
@@ -27,24 +28,81 @@ import javax.imageio.ImageIO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import ddf.catalog.content.data.ContentItem;
 import ddf.catalog.data.BinaryContent;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.transform.CatalogTransformerException;
 import ddf.catalog.transform.MetacardTransformer;
 
+/**
+ * Supplies the decoded overview image of a metacard. Decoded overviews are cached by metacard id
+ * and modified time, bounded by the number of decoded pixel bytes, so repeated overlay requests
+ * skip both the resource retrieval and the image decode. Cached images are shared between callers
+ * and must be treated as read-only.
+ */
 public class OverviewSupplier
         implements BiFunction<Metacard, Map<String, Serializable>, Optional<BufferedImage>> {
     private static final Logger LOGGER = LoggerFactory.getLogger(OverviewSupplier.class);
 
+    private static final long DEFAULT_MAX_CACHE_BYTES = 128L * 1024 * 1024;
+
     private final MetacardTransformer resourceMetacardTransformer;
 
+    private Cache<String, BufferedImage> overviewCache;
+
     public OverviewSupplier(MetacardTransformer resourceMetacardTransformer) {
         this.resourceMetacardTransformer = resourceMetacardTransformer;
+        setMaxCacheBytes(DEFAULT_MAX_CACHE_BYTES);
+    }
+
+    /**
+     * @param maxCacheBytes the maximum number of decoded pixel bytes held in the overview cache. A
+     *                      value of zero disables caching.
+     */
+    public void setMaxCacheBytes(long maxCacheBytes) {
+        overviewCache = CacheBuilder.newBuilder()
+                .maximumWeight(Math.max(0, maxCacheBytes))
+                .weigher((String key, BufferedImage image) -> getDecodedSize(image))
+                .recordStats()
+                .build();
+    }
+
+    public long getHitCount() {
+        return overviewCache.stats()
+                .hitCount();
+    }
+
+    public long getMissCount() {
+        return overviewCache.stats()
+                .missCount();
     }
 
     @Override
     public Optional<BufferedImage> apply(Metacard metacard, Map<String, Serializable> arguments) {
+        final String cacheKey = getCacheKey(metacard);
+
+        if (cacheKey != null) {
+            final BufferedImage cachedImage = overviewCache.getIfPresent(cacheKey);
+
+            if (cachedImage != null) {
+                LOGGER.debug("overview cache hit: {}", cacheKey);
+                return Optional.of(cachedImage);
+            }
+        }
+
+        final Optional<BufferedImage> overview = readOverview(metacard);
+
+        if (cacheKey != null) {
+            overview.ifPresent(image -> overviewCache.put(cacheKey, image));
+        }
+
+        return overview;
+    }
+
+    private Optional<BufferedImage> readOverview(Metacard metacard) {
         try {
             final Map<String, Serializable> resourceTransformerArguments = new HashMap<>();
             resourceTransformerArguments.put(ContentItem.QUALIFIER, "overview");
@@ -59,4 +117,21 @@ public class OverviewSupplier
 
         return Optional.empty();
     }
+
+    private String getCacheKey(Metacard metacard) {
+        final Date modified = metacard.getModifiedDate();
+
+        if (metacard.getId() == null || modified == null) {
+            return null;
+        }
+
+        return metacard.getId() + "@" + modified.getTime();
+    }
+
+    private static int getDecodedSize(BufferedImage image) {
+        final long bytesPerPixel = Math.max(1, image.getColorModel()
+                .getPixelSize() / Byte.SIZE);
+        return (int) Math.min(Integer.MAX_VALUE,
+                (long) image.getWidth() * image.getHeight() * bytesPerPixel);
+    }
 }
@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.common;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.impl.AttributeImpl;
+
+/**
+ * Collects metacard attribute values while NITF segments are handled, so that multi-valued
+ * attributes are written to the metacard once rather than copied each time a value is added.
+ */
+public class AttributeAccumulator {
+
+    private final Map<String, List<Serializable>> attributeValues = new LinkedHashMap<>();
+
+    /**
+     * @param attributeName the metacard attribute name.
+     * @param value         the value to append to the attribute.
+     */
+    public void add(String attributeName, Serializable value) {
+        attributeValues.computeIfAbsent(attributeName, name -> new ArrayList<>())
+                .add(value);
+    }
+
+    /**
+     * @param attributeName the metacard attribute name.
+     * @return the values collected for the attribute, in the order they were added.
+     */
+    public List<Serializable> getValues(String attributeName) {
+        List<Serializable> values = attributeValues.get(attributeName);
+        return values == null ? Collections.emptyList() : Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Writes every collected attribute to the metacard, appending to any values the metacard
+     * already holds for the attribute.
+     *
+     * @param metacard the metacard to update.
+     */
+    public void writeTo(Metacard metacard) {
+        attributeValues.forEach((name, values) -> {
+            Attribute currentAttribute = metacard.getAttribute(name);
+
+            if (currentAttribute == null && values.size() == 1) {
+                metacard.setAttribute(new AttributeImpl(name, values.get(0)));
+                return;
+            }
+
+            List<Serializable> mergedValues = new ArrayList<>();
+
+            if (currentAttribute != null && currentAttribute.getValues() != null) {
+                mergedValues.addAll(currentAttribute.getValues());
+            }
+
+            mergedValues.addAll(values);
+            metacard.setAttribute(new AttributeImpl(name, mergedValues));
+        });
+
+        attributeValues.clear();
+    }
+}
@@ -15,15 +15,12 @@ package org.codice.alliance.transformer.nitf.common;
 
 import java.io.Serializable;
 import java.util.function.Function;
-import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import ddf.catalog.data.Attribute;
 import ddf.catalog.data.AttributeDescriptor;
 import ddf.catalog.data.Metacard;
-import ddf.catalog.data.impl.AttributeImpl;
 import ddf.catalog.data.impl.BasicTypes;
 
 public class SegmentHandler {
@@ -32,12 +29,25 @@ public class SegmentHandler {
 
     protected <T> void handleSegmentHeader(Metacard metacard, T segment,
             NitfAttribute[] attributes) {
+        AttributeAccumulator accumulator = new AttributeAccumulator();
+        handleSegmentHeader(accumulator, segment, attributes);
+        accumulator.writeTo(metacard);
+    }
 
-        Stream.of(attributes)
-                .forEach(attribute -> handleValue(metacard, attribute, segment));
+    /**
+     * Collects the segment's attribute values without touching the metacard. Transformers that
+     * handle many segments or TRE groups should share one accumulator and write it to the metacard
+     * once they are done.
+     */
+    protected <T> void handleSegmentHeader(AttributeAccumulator accumulator, T segment,
+            NitfAttribute[] attributes) {
+        for (NitfAttribute attribute : attributes) {
+            handleValue(accumulator, attribute, segment);
+        }
     }
 
-    private <T> void handleValue(Metacard metacard, NitfAttribute attribute, T segment) {
+    private <T> void handleValue(AttributeAccumulator accumulator, NitfAttribute attribute,
+            T segment) {
         Function<T, Serializable> accessor = attribute.getAccessorFunction();
         Serializable value = accessor.apply(segment);
 
@@ -55,24 +65,8 @@ public class SegmentHandler {
         }
 
         if (value != null) {
-            Attribute catalogAttribute = populateAttribute(metacard, descriptor.getName(), value);
             LOGGER.debug("Setting the metacard attribute [{}, {}]", descriptor.getName(), value);
-            metacard.setAttribute(catalogAttribute);
-        }
-    }
-
-    private Attribute populateAttribute(Metacard metacard, String attributeName,
-            Serializable value) {
-        Attribute currentAttribute = metacard.getAttribute(attributeName);
-
-        if (currentAttribute == null) {
-            currentAttribute = new AttributeImpl(attributeName, value);
-        } else {
-            AttributeImpl newAttribute = new AttributeImpl(currentAttribute);
-            newAttribute.addValue(value);
-            currentAttribute = newAttribute;
+            accumulator.add(descriptor.getName(), value);
         }
-
-        return currentAttribute;
     }
 }
@@ -14,12 +14,14 @@
 package org.codice.alliance.transformer.nitf.gmti;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Objects;
 
 import org.apache.commons.lang.StringUtils;
 import org.codice.alliance.catalog.core.api.types.Isr;
+import org.codice.alliance.transformer.nitf.common.AttributeAccumulator;
 import org.codice.alliance.transformer.nitf.common.SegmentHandler;
 import org.codice.imaging.nitf.core.common.NitfFormatException;
 import org.codice.imaging.nitf.core.common.TaggedRecordExtensionHandler;
@@ -29,10 +31,9 @@ import org.codice.imaging.nitf.fluent.NitfSegmentsFlow;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
 import com.vividsolutions.jts.geom.GeometryFactory;
-import com.vividsolutions.jts.io.ParseException;
-import com.vividsolutions.jts.io.WKTReader;
 
 import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
@@ -50,10 +51,23 @@ public class NitfGmtiTransformer extends SegmentHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NitfGmtiTransformer.class);
 
+    private static final int FIRST_ORDINATE_DIGITS = 2;
+
+    private static final int SECOND_ORDINATE_DIGITS = 3;
+
     // Handles locations that have either 6 or 7 decimal places
-    private static final String LOCATION_REGEX = "([+\\-]\\d{2}+\\.\\d{6,7}+)([+\\-]\\d{3}+\\.\\d{6,7})";
+    private static final int MIN_FRACTION_DIGITS = 6;
+
+    private static final int MAX_FRACTION_DIGITS = 7;
+
+    private static final double[] POWERS_OF_TEN = {1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7};
+
+    private static final AcftbAttribute[] ACFTB_ATTRIBUTES = AcftbAttribute.values();
+
+    private static final MtirpbAttribute[] MTIRPB_ATTRIBUTES = MtirpbAttribute.values();
 
-    private static final Pattern LOCATION_PATTERN = Pattern.compile(LOCATION_REGEX);
+    private static final IndexedMtirpbAttribute[] INDEXED_MTIRPB_ATTRIBUTES =
+            IndexedMtirpbAttribute.values();
 
     private GeometryFactory geometryFactory;
 
@@ -79,120 +93,166 @@ public class NitfGmtiTransformer extends SegmentHandler {
 
     private void handleHeader(TaggedRecordExtensionHandler header, Metacard metacard) {
         List<Tre> tres = header.getTREsRawStructure().getTREs();
+        AttributeAccumulator accumulator = new AttributeAccumulator();
 
         tres.stream().filter(tre -> ACFTB.equals(tre.getName().trim()))
-                .forEach(tre -> handleSegmentHeader(metacard, tre, AcftbAttribute.values()));
+                .forEach(tre -> handleSegmentHeader(accumulator, tre, ACFTB_ATTRIBUTES));
 
         tres.stream().filter(tre -> MTIRPB.equals(tre.getName().trim())).forEach(tre -> {
-            handleSegmentHeader(metacard, tre, MtirpbAttribute.values());
+            handleSegmentHeader(accumulator, tre, MTIRPB_ATTRIBUTES);
 
             try {
                 List<TreGroup> targets = tre.getEntry(TARGETS).getGroups();
 
-                targets.stream().forEach(group -> handleSegmentHeader(metacard, group,
-                        IndexedMtirpbAttribute.values()));
+                for (TreGroup group : targets) {
+                    handleSegmentHeader(accumulator, group, INDEXED_MTIRPB_ATTRIBUTES);
+                }
             } catch (NitfFormatException e) {
                 LOGGER.warn("Could not parse NITF target information: " + e.getMessage(), e);
             }
         });
+
+        accumulator.writeTo(metacard);
     }
 
     private void transformTargetLocation(Metacard metacard) {
-        String locationString = formatTargetLocation(metacard);
+        Attribute locationAttribute = metacard.getAttribute(
+                IndexedMtirpbAttribute.INDEXED_TARGET_LOCATION.getAttributeDescriptor().getName());
+
+        if (locationAttribute == null) {
+            return;
+        }
 
-        try {
-            LOGGER.debug("Formatted Target Location(s) = " + locationString);
+        List<Serializable> locations = locationAttribute.getValues();
+        List<Coordinate> coordinates = new ArrayList<>(locations.size());
 
-            if (locationString != null) {
-                // validate the wkt
-                WKTReader wktReader = new WKTReader(geometryFactory);
-                Geometry geometry = wktReader.read(locationString);
+        for (Serializable location : locations) {
+            Coordinate coordinate = parseLocation(Objects.toString(location, null));
 
-                LOGGER.debug("Setting the metacard attribute [{}, {}]", Core.LOCATION,
-                        geometry.toText());
-                metacard.setAttribute(new AttributeImpl(Core.LOCATION, geometry.toText()));
+            if (coordinate != null) {
+                coordinates.add(coordinate);
             }
+        }
 
-        } catch (ParseException e) {
-            LOGGER.warn(e.getMessage(), e);
+        if (coordinates.size() != locations.size()) {
+            LOGGER.warn("Could not parse {} of {} target locations.",
+                    locations.size() - coordinates.size(),
+                    locations.size());
+            return;
         }
-    }
 
-    private String formatTargetLocation(Metacard metacard) {
-        Attribute locationAttribute = metacard.getAttribute(
-                IndexedMtirpbAttribute.INDEXED_TARGET_LOCATION.getAttributeDescriptor().getName());
+        CoordinateSequence coordinateSequence = geometryFactory.getCoordinateSequenceFactory()
+                .create(coordinates.toArray(new Coordinate[coordinates.size()]));
+        String wkt = geometryFactory.createMultiPoint(coordinateSequence)
+                .toText();
 
-        if (locationAttribute != null) {
-            StringBuilder stringBuilder = new StringBuilder("MULTIPOINT (");
+        LOGGER.debug("Setting the metacard attribute [{}, {}]", Core.LOCATION, wkt);
+        metacard.setAttribute(new AttributeImpl(Core.LOCATION, wkt));
+    }
 
-            locationAttribute.getValues().stream().forEach(value -> {
-                parseLocation(stringBuilder, value.toString());
-                stringBuilder.append(",");
-            });
+    private void transformAircraftLocation(Metacard metacard) {
+        Attribute aircraftLocation = metacard
+                .getAttribute(MtirpbAttribute.AIRCRAFT_LOCATION.getAttributeDescriptor().getName());
 
-            stringBuilder.deleteCharAt(stringBuilder.lastIndexOf(","));
-            stringBuilder.append(")");
-            return stringBuilder.toString();
+        if (aircraftLocation == null || aircraftLocation.getValue() == null) {
+            return;
         }
 
-        return null;
-    }
+        String location = aircraftLocation.getValue().toString();
 
-    private void transformAircraftLocation(Metacard metacard) {
+        if (parseLocation(location) == null) {
+            LOGGER.warn("Could not parse the aircraft location: {}", location);
+            return;
+        }
 
-        String aircraftLocation = formatAircraftLocation(metacard);
+        int split = findLocationSplit(location);
 
-        try {
-            LOGGER.debug("Formatted Aircraft Location = " + aircraftLocation);
+        // the TRE digits are already valid WKT ordinates, so they are written without reformatting
+        String wkt = "POINT (" + location.substring(0, split) + " " + location.substring(split)
+                + ")";
 
-            if (aircraftLocation != null) {
-                // validate the wkt
-                WKTReader wktReader = new WKTReader(geometryFactory);
-                Geometry geometry = wktReader.read(aircraftLocation);
+        LOGGER.debug("Setting the metacard attribute [{}, {}]", Isr.DWELL_LOCATION, wkt);
+        metacard.setAttribute(new AttributeImpl(Isr.DWELL_LOCATION, wkt));
+    }
 
-                LOGGER.debug("Setting the metacard attribute [{}, {}]", Isr.DWELL_LOCATION,
-                        aircraftLocation);
-                metacard.setAttribute(new AttributeImpl(Isr.DWELL_LOCATION, aircraftLocation));
-            }
+    /**
+     * Parses a TRE location of the form {@code +dd.dddddd[d]+ddd.dddddd[d]} into a coordinate
+     * holding the first ordinate as x and the second as y.
+     *
+     * @return the coordinate, or null if the location is not well formed.
+     */
+    static Coordinate parseLocation(String location) {
+        if (StringUtils.isEmpty(location)) {
+            return null;
+        }
+
+        int split = findLocationSplit(location);
 
-        } catch (ParseException e) {
-            LOGGER.warn(e.getMessage(), e);
+        if (split < 0) {
+            return null;
         }
-    }
 
-    private String formatAircraftLocation(Metacard metacard) {
-        Attribute aircraftLocation = metacard
-                .getAttribute(MtirpbAttribute.AIRCRAFT_LOCATION.getAttributeDescriptor().getName());
+        double first = parseOrdinate(location, 0, split, FIRST_ORDINATE_DIGITS);
+        double second = parseOrdinate(location, split, location.length(), SECOND_ORDINATE_DIGITS);
 
-        if (aircraftLocation != null
-                && StringUtils.isNotEmpty(aircraftLocation.getValue().toString())) {
+        if (Double.isNaN(first) || Double.isNaN(second)) {
+            return null;
+        }
 
-            String unformattedAircraftLocation = aircraftLocation.getValue().toString();
+        return new Coordinate(first, second);
+    }
 
-            StringBuilder sb = new StringBuilder("POINT (");
-            parseLocation(sb, unformattedAircraftLocation);
-            sb.append(")");
+    private static int findLocationSplit(String location) {
+        for (int i = 1; i < location.length(); i++) {
+            char c = location.charAt(i);
 
-            return sb.toString();
+            if (c == '+' || c == '-') {
+                return i;
+            }
         }
 
-        return null;
+        return -1;
     }
 
-    private void parseLocation(StringBuilder stringBuilder, String locationString) {
+    /**
+     * Parses a signed decimal ordinate with a fixed number of integer digits and 6 or 7 fraction
+     * digits, returning NaN if the text does not have that form.
+     */
+    private static double parseOrdinate(String text, int start, int end, int integerDigits) {
+        int fractionStart = start + 1 + integerDigits + 1;
+        int fractionDigits = end - fractionStart;
+
+        if (fractionDigits < MIN_FRACTION_DIGITS || fractionDigits > MAX_FRACTION_DIGITS
+                || text.charAt(fractionStart - 1) != '.') {
+            return Double.NaN;
+        }
 
-        if (StringUtils.isEmpty(locationString)) {
-            return;
+        char sign = text.charAt(start);
+
+        if (sign != '+' && sign != '-') {
+            return Double.NaN;
         }
 
-        Matcher matcher = LOCATION_PATTERN.matcher(locationString);
+        long value = 0;
 
-        if (matcher.matches()) {
-            String lon = matcher.group(1);
-            String lat = matcher.group(2);
+        for (int i = start + 1; i < end; i++) {
+            if (i == fractionStart - 1) {
+                continue;
+            }
+
+            int digit = text.charAt(i) - '0';
 
-            stringBuilder.append(String.format("%s %s", lon, lat));
+            if (digit < 0 || digit > 9) {
+                return Double.NaN;
+            }
+
+            value = value * 10 + digit;
         }
+
+        // the scaled value and the power of ten are both exact, so the division is correctly
+        // rounded and matches Double.parseDouble
+        double ordinate = value / POWERS_OF_TEN[fractionDigits];
+        return sign == '-' ? -ordinate : ordinate;
     }
 
     public void setGeometryFactory(GeometryFactory geometryFactory) {
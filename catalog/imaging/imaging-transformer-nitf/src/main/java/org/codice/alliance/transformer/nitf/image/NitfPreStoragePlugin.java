@@ -16,30 +16,57 @@ package org.codice.alliance.transformer.nitf.image;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.stream.Collectors;
 
 import javax.activation.MimeTypeParseException;
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
 import javax.imageio.spi.IIORegistry;
+import javax.imageio.stream.ImageOutputStream;
 
 import org.apache.commons.io.FilenameUtils;
+import org.codice.alliance.imaging.chip.service.api.JpegQuality;
 import org.codice.alliance.transformer.nitf.MetacardFactory;
 import org.codice.imaging.nitf.core.common.NitfFormatException;
+import org.codice.imaging.nitf.core.image.ImageSegment;
 import org.codice.imaging.nitf.fluent.NitfParserInputFlow;
+import org.codice.imaging.nitf.fluent.NitfSegmentsFlow;
 import org.codice.imaging.nitf.render.NitfRenderer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.jaiimageio.jpeg2000.impl.J2KImageReaderSpi;
 import com.google.common.io.ByteSource;
+import com.google.common.io.FileBackedOutputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import ddf.catalog.content.data.ContentItem;
 import ddf.catalog.content.data.impl.ContentItemImpl;
 import ddf.catalog.content.operation.CreateStorageRequest;
+import ddf.catalog.content.operation.CreateStorageResponse;
 import ddf.catalog.content.operation.UpdateStorageRequest;
+import ddf.catalog.content.operation.UpdateStorageResponse;
+import ddf.catalog.content.plugin.PostCreateStoragePlugin;
+import ddf.catalog.content.plugin.PostUpdateStoragePlugin;
 import ddf.catalog.content.plugin.PreCreateStoragePlugin;
 import ddf.catalog.content.plugin.PreUpdateStoragePlugin;
 import ddf.catalog.data.Metacard;
@@ -50,9 +77,13 @@ import net.coobird.thumbnailator.Thumbnails;
 
 /**
  * This pre-storage plugin creates and stores the NITF thumbnail and NITF overview images.  The
- * thumbnail is stored with the Metacard while the overview is stored in the content store.
+ * thumbnail is stored with the Metacard while the overview is stored in the content store. Once
+ * the content has been stored, the post-storage side of the plugin releases the overview buffers,
+ * including any temporary files.
  */
-public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateStoragePlugin {
+public class NitfPreStoragePlugin
+        implements PreCreateStoragePlugin, PreUpdateStoragePlugin, PostCreateStoragePlugin,
+        PostUpdateStoragePlugin {
 
     private static final String IMAGE_JPEG = "image/jpeg";
 
@@ -66,13 +97,133 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
 
     private static final String OVERVIEW = "overview";
 
-    private static final String OVERVIEW_FILENAME_PATTERN = "%s-%s.%s";
+    private static final String DERIVED_FILENAME_PATTERN = "%s-%s.%s";
+
+    private static final String SEGMENT_THUMBNAIL_QUALIFIER_PATTERN = "thumbnail-%d";
+
+    private static final long DECODED_BYTES_PER_PIXEL = 4;
+
+    private static final long BUDGET_UNIT_BYTES = 1024 * 1024;
+
+    private static final long DEFAULT_RENDER_MEMORY_BYTES = Runtime.getRuntime()
+            .maxMemory() / 4;
+
+    private static final float DEFAULT_JPEG_QUALITY = 0.75f;
+
+    private static final int DEFAULT_FILE_BACKED_THRESHOLD = 10 * 1024 * 1024;
+
+    private float jpegQuality = DEFAULT_JPEG_QUALITY;
+
+    private int fileBackedThreshold = DEFAULT_FILE_BACKED_THRESHOLD;
+
+    private boolean renderSegmentThumbnails = false;
+
+    private int renderMemoryBudgetPermits;
+
+    private Semaphore renderMemoryBudget;
+
+    private volatile ExecutorService contentItemExecutor;
+
+    private volatile ExecutorService segmentExecutor;
+
+    /**
+     * Overview buffers waiting for their content item to be stored. The keys are weak so a
+     * request that fails before storage does not pin its buffer, which is then released when it
+     * is garbage collected.
+     */
+    private final Map<ContentItem, FileBackedOutputStream> overviewBuffers =
+            Collections.synchronizedMap(new WeakHashMap<>());
 
     static {
         IIORegistry.getDefaultInstance()
                 .registerServiceProvider(new J2KImageReaderSpi());
     }
 
+    public NitfPreStoragePlugin() {
+        setMaxThreads(0);
+        setMaxRenderMemoryBytes(0);
+    }
+
+    /**
+     * @param maxThreads the maximum number of content items, and of additional image segments,
+     *                   rendered concurrently, or 0 to use the number of available processors.
+     */
+    public synchronized void setMaxThreads(int maxThreads) {
+        int threads = maxThreads > 0 ?
+                maxThreads :
+                Runtime.getRuntime()
+                        .availableProcessors();
+        ExecutorService oldContentItemExecutor = contentItemExecutor;
+        ExecutorService oldSegmentExecutor = segmentExecutor;
+
+        contentItemExecutor = Executors.newFixedThreadPool(threads,
+                createThreadFactory("nitf-content-renderer-%d"));
+        segmentExecutor = Executors.newFixedThreadPool(threads,
+                createThreadFactory("nitf-segment-renderer-%d"));
+
+        // the old executors finish the renders already submitted to them
+        shutdown(oldContentItemExecutor);
+        shutdown(oldSegmentExecutor);
+    }
+
+    /**
+     * @param maxRenderMemoryBytes the estimated number of decoded image bytes that may be held by
+     *                             concurrent renders. A render whose decoded image is estimated
+     *                             to exceed the budget waits for the whole budget. 0 uses a
+     *                             quarter of the maximum heap size.
+     */
+    public synchronized void setMaxRenderMemoryBytes(long maxRenderMemoryBytes) {
+        long bytes = maxRenderMemoryBytes > 0 ? maxRenderMemoryBytes : DEFAULT_RENDER_MEMORY_BYTES;
+        renderMemoryBudgetPermits = (int) Math.max(1,
+                Math.min(Integer.MAX_VALUE, bytes / BUDGET_UNIT_BYTES));
+        renderMemoryBudget = new Semaphore(renderMemoryBudgetPermits, true);
+    }
+
+    /**
+     * @param renderSegmentThumbnails true to render a thumbnail for every image segment after the
+     *                                first and store it as a derived resource.
+     */
+    public void setRenderSegmentThumbnails(boolean renderSegmentThumbnails) {
+        this.renderSegmentThumbnails = renderSegmentThumbnails;
+    }
+
+    public synchronized void destroy() {
+        shutdownExecutors();
+    }
+
+    private void shutdownExecutors() {
+        shutdown(contentItemExecutor);
+        shutdown(segmentExecutor);
+    }
+
+    private static void shutdown(ExecutorService executor) {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private static ThreadFactory createThreadFactory(String nameFormat) {
+        return new ThreadFactoryBuilder().setNameFormat(nameFormat)
+                .setDaemon(true)
+                .build();
+    }
+
+    /**
+     * @param jpegQuality the JPEG compression quality of thumbnails and overviews, between 0.0
+     *                    and 1.0.
+     */
+    public void setJpegQuality(float jpegQuality) {
+        this.jpegQuality = JpegQuality.validate(jpegQuality);
+    }
+
+    /**
+     * @param fileBackedThreshold the number of encoded overview bytes held in memory before the
+     *                            overview is written to a temporary file instead.
+     */
+    public void setFileBackedThreshold(int fileBackedThreshold) {
+        this.fileBackedThreshold = Math.max(0, fileBackedThreshold);
+    }
+
     @Override
     public CreateStorageRequest process(CreateStorageRequest createStorageRequest)
             throws PluginExecutionException {
@@ -97,6 +248,40 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
         return updateStorageRequest;
     }
 
+    @Override
+    public CreateStorageResponse process(CreateStorageResponse createStorageResponse)
+            throws PluginExecutionException {
+        if (createStorageResponse != null && createStorageResponse.getRequest() != null) {
+            releaseOverviewBuffers(createStorageResponse.getRequest()
+                    .getContentItems());
+        }
+        return createStorageResponse;
+    }
+
+    @Override
+    public UpdateStorageResponse process(UpdateStorageResponse updateStorageResponse)
+            throws PluginExecutionException {
+        if (updateStorageResponse != null && updateStorageResponse.getRequest() != null) {
+            releaseOverviewBuffers(updateStorageResponse.getRequest()
+                    .getContentItems());
+        }
+        return updateStorageResponse;
+    }
+
+    private void releaseOverviewBuffers(List<ContentItem> contentItems) {
+        for (ContentItem contentItem : contentItems) {
+            FileBackedOutputStream outputStream = overviewBuffers.remove(contentItem);
+
+            if (outputStream != null) {
+                resetQuietly(outputStream);
+            }
+        }
+    }
+
+    int getPendingOverviewCount() {
+        return overviewBuffers.size();
+    }
+
     private boolean isNitfMimeType(String rawMimeType) {
         try {
             return MetacardFactory.MIME_TYPE.match(rawMimeType);
@@ -111,66 +296,189 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
 
     private void process(List<ContentItem> contentItems) {
         List<ContentItem> newContentItems = new LinkedList<>();
-        contentItems.forEach(contentItem -> process(contentItem).ifPresent(newContentItems::add));
+
+        if (contentItems.size() == 1) {
+            newContentItems.addAll(process(contentItems.get(0)));
+        } else {
+            List<Future<List<ContentItem>>> futures = new ArrayList<>(contentItems.size());
+            for (ContentItem contentItem : contentItems) {
+                futures.add(contentItemExecutor.submit(() -> process(contentItem)));
+            }
+            futures.forEach(future -> getResult(future).ifPresent(newContentItems::addAll));
+        }
+
         contentItems.addAll(newContentItems);
     }
 
-    private Optional<ContentItem> process(ContentItem contentItem) {
+    private List<ContentItem> process(ContentItem contentItem) {
         Metacard metacard = contentItem.getMetacard();
 
         if (!isNitfMimeType(contentItem.getMimeTypeRawData())) {
             LOGGER.debug("skipping content item: filename={} mimeType={}",
                     contentItem.getFilename(),
                     contentItem.getMimeTypeRawData());
-            return Optional.empty();
+            return Collections.emptyList();
         }
 
         try {
-            BufferedImage renderedImage = renderImage(contentItem);
-
-            if (renderedImage != null) {
-                addThumbnailToMetacard(metacard, renderedImage);
-                ContentItem overviewContentItem = createOverview(contentItem.getId(),
-                        renderedImage,
-                        metacard);
-
-                return Optional.ofNullable(overviewContentItem);
-            }
+            return renderImages(contentItem, metacard);
         } catch (IOException | ParseException | NitfFormatException | UnsupportedOperationException e) {
             LOGGER.warn(e.getMessage(), e);
         }
 
-        return Optional.empty();
+        return Collections.emptyList();
     }
 
-    private BufferedImage renderImage(ContentItem contentItem)
+    private List<ContentItem> renderImages(ContentItem contentItem, Metacard metacard)
             throws IOException, ParseException, NitfFormatException {
+        List<ContentItem> derivedContentItems = new ArrayList<>();
+
+        if (contentItem == null || contentItem.getInputStream() == null) {
+            return derivedContentItems;
+        }
+
+        List<ImageSegment> segments = new ArrayList<>();
+        NitfSegmentsFlow segmentsFlow =
+                new NitfParserInputFlow().inputStream(contentItem.getInputStream())
+                        .allData()
+                        .forEachImageSegment(segments::add);
+
+        try {
+            if (segments.isEmpty()) {
+                return derivedContentItems;
+            }
+
+            List<Future<Optional<ContentItem>>> segmentThumbnails = new ArrayList<>();
+
+            if (renderSegmentThumbnails) {
+                for (int i = 1; i < segments.size(); i++) {
+                    ImageSegment segment = segments.get(i);
+                    String qualifier = String.format(SEGMENT_THUMBNAIL_QUALIFIER_PATTERN, i + 1);
+                    segmentThumbnails.add(segmentExecutor.submit(() -> createSegmentThumbnail(
+                            contentItem.getId(),
+                            qualifier,
+                            segment,
+                            metacard)));
+                }
+            }
+
+            Semaphore budget = renderMemoryBudget;
+            int permits = acquireRenderBudget(budget, segments.get(0));
+
+            try {
+                BufferedImage renderedImage = new NitfRenderer().render(segments.get(0));
+
+                if (renderedImage != null) {
+                    addThumbnailToMetacard(metacard, renderedImage);
+                    ContentItem overviewContentItem = createOverview(contentItem.getId(),
+                            renderedImage,
+                            metacard);
+
+                    if (overviewContentItem != null) {
+                        derivedContentItems.add(overviewContentItem);
+                    }
+                }
+            } finally {
+                budget.release(permits);
+            }
+
+            for (Future<Optional<ContentItem>> future : segmentThumbnails) {
+                getResult(future).flatMap(thumbnail -> thumbnail)
+                        .ifPresent(derivedContentItems::add);
+            }
+        } finally {
+            segmentsFlow.end();
+        }
+
+        if (!derivedContentItems.isEmpty()) {
+            List<Serializable> derivedResourceUris = derivedContentItems.stream()
+                    .map(ContentItem::getUri)
+                    .collect(Collectors.toList());
+            metacard.setAttribute(new AttributeImpl(Core.DERIVED_RESOURCE_URI,
+                    derivedResourceUris));
+        }
+
+        return derivedContentItems;
+    }
+
+    /**
+     * Waits until enough of the render memory budget is available to hold the decoded image
+     * segment, so concurrent renders stay within the configured budget.
+     *
+     * @return the number of permits acquired, to be released once the decoded image is no longer
+     * referenced.
+     */
+    private int acquireRenderBudget(Semaphore budget, ImageSegment segment) throws IOException {
+        int permits = getRenderPermits(segment);
+
+        try {
+            budget.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+            throw new IOException("interrupted while waiting to render an image segment.", e);
+        }
+
+        return permits;
+    }
 
-        final ThreadLocal<BufferedImage> bufferedImage = new ThreadLocal<>();
+    private int getRenderPermits(ImageSegment segment) {
+        long decodedBytes = (long) segment.getNumberOfRows() * segment.getNumberOfColumns()
+                * DECODED_BYTES_PER_PIXEL;
+        long permits = (decodedBytes + BUDGET_UNIT_BYTES - 1) / BUDGET_UNIT_BYTES;
+        return (int) Math.max(1, Math.min(permits, renderMemoryBudgetPermits));
+    }
+
+    private Optional<ContentItem> createSegmentThumbnail(String id, String qualifier,
+            ImageSegment segment, Metacard metacard) {
+        Semaphore budget = renderMemoryBudget;
+
+        try {
+            int permits = acquireRenderBudget(budget, segment);
+
+            try {
+                BufferedImage renderedImage = new NitfRenderer().render(segment);
+
+                if (renderedImage != null) {
+                    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                    scaleImage(renderedImage, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, outputStream);
+                    return Optional.of(new ContentItemImpl(id,
+                            qualifier,
+                            ByteSource.wrap(outputStream.toByteArray()),
+                            IMAGE_JPEG,
+                            buildDerivedTitle(qualifier, metacard.getTitle()),
+                            outputStream.size(),
+                            metacard));
+                }
+            } finally {
+                budget.release(permits);
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.warn("unable to render thumbnail {} of {}", qualifier, id, e);
+        }
 
-        if (contentItem != null && contentItem.getInputStream() != null) {
-            NitfRenderer renderer = new NitfRenderer();
+        return Optional.empty();
+    }
 
-            new NitfParserInputFlow().inputStream(contentItem.getInputStream())
-                    .allData()
-                    .forEachImageSegment(segment -> {
-                        if (bufferedImage.get() == null) {
-                            try {
-                                bufferedImage.set(renderer.render(segment));
-                            } catch (IOException e) {
-                                LOGGER.error(e.getMessage(), e);
-                            }
-                        }
-                    })
-                    .end();
+    private <T> Optional<T> getResult(Future<T> future) {
+        try {
+            return Optional.ofNullable(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+            LOGGER.warn("interrupted while rendering NITF images.", e);
+        } catch (ExecutionException e) {
+            LOGGER.warn("unable to render NITF images.", e.getCause());
         }
 
-        return bufferedImage.get();
+        return Optional.empty();
     }
 
     private void addThumbnailToMetacard(Metacard metacard, BufferedImage bufferedImage) {
         try {
-            byte[] thumbnailImage = scaleImage(bufferedImage, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            scaleImage(bufferedImage, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT, outputStream);
+            byte[] thumbnailImage = outputStream.toByteArray();
 
             if (thumbnailImage.length > 0) {
                 metacard.setAttribute(new AttributeImpl(Core.THUMBNAIL, thumbnailImage));
@@ -181,46 +489,73 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
     }
 
     private ContentItem createOverview(String id, BufferedImage image, Metacard metacard) {
+        // The overview is streamed to memory, or to a temporary file once it grows past the
+        // threshold. The buffer is released once the content item has been stored, or here if
+        // the overview can't be encoded.
+        FileBackedOutputStream outputStream = new FileBackedOutputStream(fileBackedThreshold,
+                true);
+        ContentItem contentItem = null;
         try {
-            byte[] overviewBytes = scaleImage(image, image.getWidth(), image.getHeight());
-            ByteSource source = ByteSource.wrap(overviewBytes);
-            ContentItem contentItem = new ContentItemImpl(id,
+            scaleImage(image, image.getWidth(), image.getHeight(), outputStream);
+            ByteSource source = outputStream.asByteSource();
+            contentItem = new ContentItemImpl(id,
                     OVERVIEW,
                     source,
                     IMAGE_JPEG,
-                    buildOverviewTitle(metacard.getTitle()),
-                    overviewBytes.length,
+                    buildDerivedTitle(OVERVIEW, metacard.getTitle()),
+                    source.size(),
                     metacard);
-
-            metacard.setAttribute(new AttributeImpl(Core.DERIVED_RESOURCE_URI,
-                    contentItem.getUri()));
-
-            return contentItem;
+            overviewBuffers.put(contentItem, outputStream);
         } catch (IOException e) {
             LOGGER.error(e.getMessage(), e);
+        } finally {
+            if (contentItem == null) {
+                resetQuietly(outputStream);
+            }
         }
 
-        return null;
+        return contentItem;
+    }
+
+    private void resetQuietly(FileBackedOutputStream outputStream) {
+        try {
+            outputStream.reset();
+        } catch (IOException e) {
+            LOGGER.debug("unable to release the overview buffer.", e);
+        }
     }
 
-    private String buildOverviewTitle(String title) {
+    private String buildDerivedTitle(String qualifier, String title) {
         String rootFileName = FilenameUtils.getBaseName(title);
-        return String.format(OVERVIEW_FILENAME_PATTERN, OVERVIEW, rootFileName, JPG);
+        return String.format(DERIVED_FILENAME_PATTERN, qualifier, rootFileName, JPG);
     }
 
-    private byte[] scaleImage(final BufferedImage bufferedImage, int width, int height)
-            throws IOException {
+    private void scaleImage(final BufferedImage bufferedImage, int width, int height,
+            OutputStream outputStream) throws IOException {
         BufferedImage thumbnail = Thumbnails.of(bufferedImage)
                 .size(width, height)
                 .outputFormat(JPG)
                 .imageType(BufferedImage.TYPE_3BYTE_BGR)
                 .asBufferedImage();
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ImageIO.write(thumbnail, JPG, outputStream);
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(JPG);
+
+        if (!writers.hasNext()) {
+            throw new IOException("no JPEG image writer is available.");
+        }
+
+        ImageWriter writer = writers.next();
+
+        try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+            ImageWriteParam writeParam = writer.getDefaultWriteParam();
+            writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            writeParam.setCompressionQuality(jpegQuality);
+            writer.setOutput(imageOutputStream);
+            writer.write(null, new IIOImage(thumbnail, null, null), writeParam);
+        } finally {
+            writer.dispose();
+        }
+
         outputStream.flush();
-        byte[] thumbnailBytes = outputStream.toByteArray();
-        outputStream.close();
-        return thumbnailBytes;
     }
 }
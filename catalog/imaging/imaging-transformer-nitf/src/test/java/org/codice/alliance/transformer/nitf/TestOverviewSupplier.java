@@ -22,8 +22,12 @@ import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
+import java.awt.image.BufferedImage;
 import java.util.Collections;
+import java.util.Date;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -41,6 +45,8 @@ import ddf.catalog.transform.MetacardTransformer;
 public class TestOverviewSupplier {
     private OverviewSupplier supplier;
 
+    private MetacardTransformer resourceMetacardTransformer;
+
     private class IsMetacardWithDerivedOverviewResource extends ArgumentMatcher<Metacard> {
         private final OverviewPredicate predicate = new OverviewPredicate();
 
@@ -61,7 +67,7 @@ public class TestOverviewSupplier {
                 .getResourceAsStream("flower.jpg")).when(overviewContent)
                 .getInputStream();
 
-        final MetacardTransformer resourceMetacardTransformer = mock(MetacardTransformer.class);
+        resourceMetacardTransformer = mock(MetacardTransformer.class);
         doReturn(overviewContent).when(resourceMetacardTransformer)
                 .transform(argThat(isMetacardWithDerivedOverviewResource()),
                         eq(Collections.singletonMap(ContentItem.QUALIFIER, "overview")));
@@ -86,4 +92,42 @@ public class TestOverviewSupplier {
         assertThat(supplier.apply(new MetacardImpl(), null)
                 .isPresent(), is(false));
     }
+
+    @Test
+    public void testOverviewIsCached() throws CatalogTransformerException {
+        final Metacard metacard = new MetacardImpl();
+        metacard.setAttribute(new AttributeImpl(Core.ID, "abc123"));
+        metacard.setAttribute(new AttributeImpl(Core.MODIFIED, new Date()));
+        metacard.setAttribute(new AttributeImpl(Core.DERIVED_RESOURCE_URI,
+                "content:abc123#overview"));
+
+        final BufferedImage first = supplier.apply(metacard, null)
+                .get();
+        final BufferedImage second = supplier.apply(metacard, null)
+                .get();
+
+        assertThat(second, is(first));
+        assertThat(supplier.getHitCount(), is(1L));
+        assertThat(supplier.getMissCount(), is(1L));
+        verify(resourceMetacardTransformer, times(1)).transform(eq(metacard),
+                eq(Collections.singletonMap(ContentItem.QUALIFIER, "overview")));
+    }
+
+    @Test
+    public void testOverviewCacheDisabled() throws CatalogTransformerException {
+        supplier.setMaxCacheBytes(0);
+
+        final Metacard metacard = new MetacardImpl();
+        metacard.setAttribute(new AttributeImpl(Core.ID, "abc123"));
+        metacard.setAttribute(new AttributeImpl(Core.MODIFIED, new Date()));
+        metacard.setAttribute(new AttributeImpl(Core.DERIVED_RESOURCE_URI,
+                "content:abc123#overview"));
+
+        supplier.apply(metacard, null);
+        supplier.apply(metacard, null);
+
+        assertThat(supplier.getHitCount(), is(0L));
+        verify(resourceMetacardTransformer, times(2)).transform(eq(metacard),
+                eq(Collections.singletonMap(ContentItem.QUALIFIER, "overview")));
+    }
 }
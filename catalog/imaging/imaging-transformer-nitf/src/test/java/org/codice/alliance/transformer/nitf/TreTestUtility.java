@@ -104,6 +104,10 @@ public class TreTestUtility {
     }
 
     public static Tre createMtirpbTre() throws NitfFormatException {
+        return createMtirpbTre(1);
+    }
+
+    public static Tre createMtirpbTre(int targetCount) throws NitfFormatException {
         final String[] fieldNames =
                 {"MTI_DP", "MTI_PACKET_ID", "PATCH_NO", "WAMTI_FRAME_NO", "WAMTI_BAR_NO", "DATIME",
                         "ACFT_LOC", "ACFT_ALT", "ACFT_ALT_UNIT", "ACFT_HEADING", "MTI_LR",
@@ -123,7 +127,11 @@ public class TreTestUtility {
 
         TreGroup targetsGroup = createTreGroup(accumulator);
         TreEntry targetsEntry = new TreEntry("TARGETS");
-        targetsEntry.addGroup(targetsGroup);
+
+        for (int i = 0; i < targetCount; i++) {
+            targetsEntry.addGroup(targetsGroup);
+        }
+
         when(tre.getEntry("TARGETS")).thenReturn(targetsEntry);
         when(tre.getSource()).thenReturn(TreSource.UserDefinedHeaderData);
         when(tre.getRawData()).thenReturn(accumulator.toString()
@@ -14,8 +14,11 @@
 package org.codice.alliance.transformer.nitf.gmti;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 
 import java.io.File;
@@ -28,27 +31,38 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.codice.alliance.transformer.nitf.MetacardFactory;
 import org.codice.alliance.transformer.nitf.TreTestUtility;
 import org.codice.alliance.transformer.nitf.common.NitfHeaderTransformer;
 import org.codice.imaging.nitf.core.common.NitfFormatException;
+import org.codice.imaging.nitf.core.header.NitfHeader;
 import org.codice.imaging.nitf.fluent.NitfParserInputFlow;
 import org.codice.imaging.nitf.fluent.NitfSegmentsFlow;
 import org.junit.Before;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.GeometryFactory;
 
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.MetacardType;
 import ddf.catalog.data.impl.MetacardImpl;
 import ddf.catalog.data.impl.MetacardTypeImpl;
+import ddf.catalog.data.types.Core;
 import ddf.catalog.transform.CatalogTransformerException;
 
 public class TestNitfGmtiTransformer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestNitfGmtiTransformer.class);
+
     private static final String GMTI_TEST_NITF = "src/test/resources/gmti-test.ntf";
 
+    private static final int BENCHMARK_TARGET_COUNT = 10000;
+
     private MetacardFactory metacardFactory;
 
     private NitfHeaderTransformer nitfHeaderTransformer;
@@ -111,6 +125,69 @@ public class TestNitfGmtiTransformer {
                 .getValue(), is("MULTIPOINT ((52.1234567 -4.1234567))"));
     }
 
+    @Test
+    public void testParseLocation() {
+        Coordinate coordinate = NitfGmtiTransformer.parseLocation("+52.1234567-004.1234567");
+        assertThat(coordinate.x, is(52.1234567));
+        assertThat(coordinate.y, is(-4.1234567));
+
+        coordinate = NitfGmtiTransformer.parseLocation("-01.123456+179.999999");
+        assertThat(coordinate.x, is(-1.123456));
+        assertThat(coordinate.y, is(179.999999));
+    }
+
+    @Test
+    public void testParseInvalidLocation() {
+        assertThat(NitfGmtiTransformer.parseLocation(""), is(nullValue()));
+        assertThat(NitfGmtiTransformer.parseLocation("+52.12345-004.1234567"), is(nullValue()));
+        assertThat(NitfGmtiTransformer.parseLocation("+52.1234567-04.1234567"), is(nullValue()));
+        assertThat(NitfGmtiTransformer.parseLocation("+52.1234567004.1234567"), is(nullValue()));
+        assertThat(NitfGmtiTransformer.parseLocation("+5a.1234567-004.1234567"), is(nullValue()));
+    }
+
+    /**
+     * Transforms a synthetic MTIRPB with 10,000 targets. Target values are accumulated and written
+     * to the metacard once, so the transform time grows linearly with the target count.
+     */
+    @Test
+    public void testLargeTargetCountBenchmark()
+            throws IOException, CatalogTransformerException, NitfFormatException {
+        // warm up with a smaller report so the timed run excludes class loading
+        transformTargets(BENCHMARK_TARGET_COUNT / 10);
+
+        long start = System.nanoTime();
+        Metacard metacard = transformTargets(BENCHMARK_TARGET_COUNT);
+        long elapsed = System.nanoTime() - start;
+
+        LOGGER.info("transformed {} GMTI targets in {} ms",
+                BENCHMARK_TARGET_COUNT,
+                TimeUnit.NANOSECONDS.toMillis(elapsed));
+
+        String location = metacard.getAttribute(Core.LOCATION)
+                .getValue()
+                .toString();
+        assertThat(location.startsWith("MULTIPOINT"), is(true));
+        assertThat(location.split("\\),").length, is(BENCHMARK_TARGET_COUNT));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Metacard transformTargets(int targetCount)
+            throws IOException, CatalogTransformerException, NitfFormatException {
+        NitfHeader header = TreTestUtility.createFileHeader();
+        header.getTREsRawStructure()
+                .add(TreTestUtility.createMtirpbTre(targetCount));
+
+        NitfSegmentsFlow nitfSegmentsFlow = mock(NitfSegmentsFlow.class);
+        doAnswer(invocation -> {
+            ((Consumer<NitfHeader>) invocation.getArguments()[0]).accept(header);
+            return nitfSegmentsFlow;
+        }).when(nitfSegmentsFlow)
+                .fileHeader(any(Consumer.class));
+
+        return nitfGmtiTransformer.transform(nitfSegmentsFlow,
+                metacardFactory.createMetacard("101"));
+    }
+
     private void validateDate(Date date, String expectedDate) {
         assertNotNull(date);
         SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
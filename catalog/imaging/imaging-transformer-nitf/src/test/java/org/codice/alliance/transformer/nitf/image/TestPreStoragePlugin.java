@@ -15,6 +15,7 @@ package org.codice.alliance.transformer.nitf.image;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
@@ -27,6 +28,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.codice.alliance.transformer.nitf.MetacardFactory;
 import org.junit.Before;
@@ -35,6 +37,7 @@ import org.mockito.ArgumentCaptor;
 
 import ddf.catalog.content.data.ContentItem;
 import ddf.catalog.content.operation.CreateStorageRequest;
+import ddf.catalog.content.operation.CreateStorageResponse;
 import ddf.catalog.content.operation.UpdateStorageRequest;
 import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
@@ -48,6 +51,10 @@ public class TestPreStoragePlugin {
 
     private static final String GEO_NITF = "/i_3001a.ntf";
 
+    private static final String MULTI_SEGMENT_NITF = "/multiSegment.ntf";
+
+    private static final int MULTI_SEGMENT_ITEMS = 3;
+
     private NitfPreStoragePlugin nitfPreStoragePlugin = null;
 
     private CreateStorageRequest createStorageRequest = null;
@@ -105,6 +112,66 @@ public class TestPreStoragePlugin {
         validate();
     }
 
+    @Test
+    public void testSegmentThumbnailsWithBoundedResources() throws PluginExecutionException {
+        List<ContentItem> contentItems = new ArrayList<>();
+        List<Metacard> metacards = new ArrayList<>();
+        for (int i = 0; i < MULTI_SEGMENT_ITEMS; i++) {
+            Metacard itemMetacard = mock(Metacard.class);
+            ContentItem item = mock(ContentItem.class);
+            when(item.getMetacard()).thenReturn(itemMetacard);
+            when(item.getId()).thenReturn("multi" + i);
+            when(item.getInputStream()).thenReturn(getInputStream(MULTI_SEGMENT_NITF));
+            when(item.getMimeTypeRawData()).thenReturn(MetacardFactory.MIME_TYPE.toString());
+            contentItems.add(item);
+            metacards.add(itemMetacard);
+        }
+        when(createStorageRequest.getContentItems()).thenReturn(contentItems);
+
+        nitfPreStoragePlugin.setMaxThreads(2);
+        nitfPreStoragePlugin.setMaxRenderMemoryBytes(1);
+        nitfPreStoragePlugin.setRenderSegmentThumbnails(true);
+
+        try {
+            nitfPreStoragePlugin.process(createStorageRequest);
+        } finally {
+            nitfPreStoragePlugin.destroy();
+        }
+
+        // each item gains its overview and a thumbnail for its second image segment
+        assertThat(contentItems.size(), is(MULTI_SEGMENT_ITEMS * 3));
+        for (int i = 0; i < MULTI_SEGMENT_ITEMS; i++) {
+            String id = "multi" + i;
+            List<String> qualifiers = contentItems.stream()
+                    .filter(item -> id.equals(item.getId()) && item.getQualifier() != null)
+                    .map(ContentItem::getQualifier)
+                    .collect(Collectors.toList());
+            assertThat(qualifiers, containsInAnyOrder("overview", "thumbnail-2"));
+
+            ArgumentCaptor<Attribute> captor = ArgumentCaptor.forClass(Attribute.class);
+            verify(metacards.get(i), times(2)).setAttribute(captor.capture());
+            assertThat(captor.getAllValues()
+                    .get(0)
+                    .getName(), is(Core.THUMBNAIL));
+            assertThat(captor.getAllValues()
+                    .get(1)
+                    .getValues()
+                    .size(), is(2));
+        }
+    }
+
+    @Test
+    public void testOverviewBufferReleasedAfterStorage() throws PluginExecutionException {
+        nitfPreStoragePlugin.process(createStorageRequest);
+        assertThat(nitfPreStoragePlugin.getPendingOverviewCount(), is(1));
+
+        CreateStorageResponse createStorageResponse = mock(CreateStorageResponse.class);
+        when(createStorageResponse.getRequest()).thenReturn(createStorageRequest);
+        nitfPreStoragePlugin.process(createStorageResponse);
+
+        assertThat(nitfPreStoragePlugin.getPendingOverviewCount(), is(0));
+    }
+
     /**
      * Test that the plugin handles non-nitf content items
      *
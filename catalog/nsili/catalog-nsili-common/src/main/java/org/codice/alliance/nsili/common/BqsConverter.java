@@ -24,11 +24,16 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Stack;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
 import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ErrorNode;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
@@ -45,6 +50,8 @@ import org.opengis.filter.Filter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
 import com.vividsolutions.jts.geom.Coordinate;
@@ -57,8 +64,15 @@ import ddf.catalog.data.Metacard;
 import ddf.catalog.filter.FilterBuilder;
 import ddf.measure.Distance;
 
+/**
+ * Converts BQS queries into DDF filters. Converted filters are held in a bounded cache shared by
+ * all converters, keyed by the whitespace-normalized query text, so repeated queries from
+ * clients (hit counts followed by the same query, standing queries, paging) are only parsed once.
+ */
 public class BqsConverter {
 
+    public static final int DEFAULT_FILTER_CACHE_SIZE = 1000;
+
     private static final String BQS_SHORT_DATE_FORMAT = "yyyy/MM/dd";
 
     private static final String BQS_FULL_DATE_FORMAT = BQS_SHORT_DATE_FORMAT + " HH:mm:ss[.SSS]";
@@ -75,6 +89,9 @@ public class BqsConverter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BqsConverter.class);
 
+    private static volatile Cache<FilterKey, Filter> filterCache = createFilterCache(
+            DEFAULT_FILTER_CACHE_SIZE);
+
     public BqsConverter(FilterBuilder filterBuilder, boolean removeSourceLibrary) {
         if (filterBuilder == null) {
             throw new IllegalArgumentException("FilterBuilder must be set");
@@ -90,8 +107,82 @@ public class BqsConverter {
     }
 
     public Filter convertBQSToDDF(String query) {
-        query = query.trim();
+        query = normalize(query);
+
+        FilterKey filterKey = new FilterKey(filterBuilder, removeSourceLibrary, query);
+        Cache<FilterKey, Filter> cache = filterCache;
+        Filter filter = cache.getIfPresent(filterKey);
+        if (filter != null) {
+            LOGGER.debug("Using cached filter for query: {}", query);
+            return filter;
+        }
+
+        filter = parse(query);
+        cache.put(filterKey, filter);
+        return filter;
+    }
+
+    /**
+     * Sets the maximum number of converted filters held in the shared cache. A size of zero
+     * disables caching. Changing the size discards all cached filters.
+     *
+     * @param maxEntries maximum number of cached filters
+     */
+    public static void setFilterCacheSize(int maxEntries) {
+        filterCache = createFilterCache(Math.max(0, maxEntries));
+    }
+
+    public static long getFilterCacheHitCount() {
+        return filterCache.stats()
+                .hitCount();
+    }
+
+    public static long getFilterCacheMissCount() {
+        return filterCache.stats()
+                .missCount();
+    }
+
+    private static Cache<FilterKey, Filter> createFilterCache(int maxEntries) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Trims the query and collapses runs of whitespace outside of quoted strings, so queries that
+     * only differ in formatting share a cache entry.
+     *
+     * @param query the BQS query
+     * @return the normalized query
+     */
+    public static String normalize(String query) {
+        String trimmed = query.trim();
+        StringBuilder normalized = new StringBuilder(trimmed.length());
+        boolean quoted = false;
+        boolean lastWasSpace = false;
+
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            }
+
+            if (!quoted && Character.isWhitespace(c)) {
+                if (!lastWasSpace) {
+                    normalized.append(' ');
+                }
+                lastWasSpace = true;
+            } else {
+                normalized.append(c);
+                lastWasSpace = false;
+            }
+        }
+
+        return normalized.toString();
+    }
 
+    private Filter parse(String query) {
         LOGGER.debug("Original Query: {}", query);
 
         ANTLRInputStream inputStream = new ANTLRInputStream(query);
@@ -99,8 +190,28 @@ public class BqsConverter {
 
         CommonTokenStream tokens = new CommonTokenStream(lex); // a token stream
         BqsParser parser = new BqsParser(tokens); // transforms tokens into parse trees
+
+        // Try the faster SLL prediction first, only falling back to full LL prediction (and the
+        // default error recovery) when SLL can't parse the query.
+        parser.getInterpreter()
+                .setPredictionMode(PredictionMode.SLL);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+
+        ParseTree tree;
+        try {
+            tree = parser.query();
+        } catch (ParseCancellationException e) {
+            LOGGER.debug("SLL parse failed, retrying with LL prediction: {}", query);
+            tokens.reset();
+            parser = new BqsParser(tokens);
+            parser.getInterpreter()
+                    .setPredictionMode(PredictionMode.LL);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            tree = parser.query();
+        }
+
         BqsTreeWalkerListener bqsListener = new BqsTreeWalkerListener(filterBuilder);
-        ParseTree tree = parser.query();
         ParseTreeWalker.DEFAULT.walk(bqsListener, tree);
 
         Filter filter = bqsListener.getFilter();
@@ -118,6 +229,39 @@ public class BqsConverter {
         return filter;
     }
 
+    private static final class FilterKey {
+        private final Class<?> filterBuilderClass;
+
+        private final boolean removeSourceLibrary;
+
+        private final String query;
+
+        private FilterKey(FilterBuilder filterBuilder, boolean removeSourceLibrary, String query) {
+            this.filterBuilderClass = filterBuilder.getClass();
+            this.removeSourceLibrary = removeSourceLibrary;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FilterKey)) {
+                return false;
+            }
+            FilterKey filterKey = (FilterKey) o;
+            return removeSourceLibrary == filterKey.removeSourceLibrary
+                    && filterBuilderClass.equals(filterKey.filterBuilderClass) && query.equals(
+                    filterKey.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filterBuilderClass, removeSourceLibrary, query);
+        }
+    }
+
     class BqsTreeWalkerListener implements BqsListener {
         private Filter currFilter = null;
 
@@ -17,15 +17,21 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import org.junit.After;
 import org.junit.Test;
 import org.opengis.filter.Filter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import ddf.catalog.filter.proxy.builder.GeotoolsFilterBuilder;
 
 public class TestBqsConverter {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestBqsConverter.class);
+
     private static final String BASIC_BQS_UUID_QUERY = "(NSIL_COMMON.identifierUUID like 'Test')";
 
     private static final String BASIC_BQS_OR_QUERY =
@@ -136,8 +142,21 @@ public class TestBqsConverter {
 
     private static final String BQS_ONLY_SOURCE_LIBRARY = "NSIL_CARD.sourceLibrary LIKE 'TEST LAB DDF Space'";
 
+    private static final String[] BENCHMARK_CORPUS =
+            {BASIC_BQS_UUID_QUERY, BASIC_BQS_AND_QUERY, BASIC_BQS_GEO_POLY, BASIC_BQS_GEO_RECT,
+                    BASIC_BQS_GEO_CIRCLE, BASIC_BQS_GEO_WITHIN, BASIC_BQS_GEO_POINT_DMS,
+                    BQS_TEST_MANY_FIELDS, TEST_BQS_NON_REQ_FIELD, TEST_BQS_MASSIVE,
+                    BQS_AND_SOURCE_LIBRARY};
+
+    private static final int BENCHMARK_ITERATIONS = 200;
+
     private BqsConverter bqsConverter = new BqsConverter(new GeotoolsFilterBuilder(), true);
 
+    @After
+    public void tearDown() {
+        BqsConverter.setFilterCacheSize(BqsConverter.DEFAULT_FILTER_CACHE_SIZE);
+    }
+
     @Test
     public void testBasicBqsUUID() {
         Filter filter = bqsConverter.convertBQSToDDF(BASIC_BQS_UUID_QUERY);
@@ -350,6 +369,67 @@ public class TestBqsConverter {
                 containsString("anyText = *"));
     }
 
+    @Test
+    public void testNormalize() {
+        assertThat(BqsConverter.normalize("  NSIL_CARD.identifier   like\t'a  b'  "),
+                is("NSIL_CARD.identifier like 'a  b'"));
+    }
+
+    @Test
+    public void testCachedFilter() {
+        long hits = BqsConverter.getFilterCacheHitCount();
+        Filter filter = bqsConverter.convertBQSToDDF(BASIC_BQS_GEO_POLY);
+        Filter cached = new BqsConverter(new GeotoolsFilterBuilder(), true).convertBQSToDDF(
+                "  " + BASIC_BQS_GEO_POLY.replace(" and ", "  and\n "));
+
+        assertThat(cached, sameInstance(filter));
+        assertThat(BqsConverter.getFilterCacheHitCount(), is(hits + 1));
+    }
+
+    @Test
+    public void testCacheKeyedBySourceLibrary() {
+        Filter removed = bqsConverter.convertBQSToDDF(BQS_SOURCE_LIBRARY);
+        Filter kept = new BqsConverter(new GeotoolsFilterBuilder(), false).convertBQSToDDF(
+                BQS_SOURCE_LIBRARY);
+
+        assertThat(kept.toString(), is(not(removed.toString())));
+    }
+
+    @Test
+    public void testCacheDisabled() {
+        BqsConverter.setFilterCacheSize(0);
+        Filter filter = bqsConverter.convertBQSToDDF(BASIC_BQS_GEO_RECT);
+
+        assertThat(bqsConverter.convertBQSToDDF(BASIC_BQS_GEO_RECT), not(sameInstance(filter)));
+        assertThat(BqsConverter.getFilterCacheHitCount(), is(0L));
+    }
+
+    @Test
+    public void testConversionThroughput() {
+        BqsConverter.setFilterCacheSize(0);
+        long uncachedMillis = convertCorpus();
+
+        BqsConverter.setFilterCacheSize(BqsConverter.DEFAULT_FILTER_CACHE_SIZE);
+        long cachedMillis = convertCorpus();
+
+        LOGGER.info("Converted {} BQS queries: uncached {} ms, cached {} ms",
+                BENCHMARK_CORPUS.length * BENCHMARK_ITERATIONS,
+                uncachedMillis,
+                cachedMillis);
+        assertThat(BqsConverter.getFilterCacheHitCount(),
+                is((long) BENCHMARK_CORPUS.length * (BENCHMARK_ITERATIONS - 1)));
+    }
+
+    private long convertCorpus() {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            for (String query : BENCHMARK_CORPUS) {
+                assertThat(bqsConverter.convertBQSToDDF(query), notNullValue());
+            }
+        }
+        return System.currentTimeMillis() - start;
+    }
+
     @Test (expected = IllegalArgumentException.class)
     public void testNoFilterBuilder() {
         new BqsConverter(null, false);
@@ -20,6 +20,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.codice.alliance.nsili.common.CorbaUtils;
 import org.codice.alliance.nsili.common.GIAS.AccessCriteria;
@@ -40,6 +45,7 @@ import org.codice.alliance.nsili.common.UCO.InvalidInputParameter;
 import org.codice.alliance.nsili.common.UCO.ProcessingFault;
 import org.codice.alliance.nsili.common.UCO.SystemFault;
 import org.codice.alliance.nsili.common.UCO.exception_details;
+import org.codice.alliance.nsili.endpoint.managers.AccessManagerImpl;
 import org.codice.alliance.nsili.endpoint.managers.CatalogMgrImpl;
 import org.codice.alliance.nsili.endpoint.managers.CreationMgrImpl;
 import org.codice.alliance.nsili.endpoint.managers.DataModelMgrImpl;
@@ -53,6 +59,8 @@ import org.omg.PortableServer.POAPackage.ServantAlreadyActive;
 import org.omg.PortableServer.POAPackage.WrongPolicy;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import ddf.catalog.CatalogFramework;
 import ddf.catalog.data.Result;
 import ddf.catalog.filter.FilterBuilder;
@@ -62,6 +70,12 @@ public class LibraryImpl extends LibraryPOA {
 
     public static final String CARD_STATUS = NsiliConstants.NSIL_CARD + "." + NsiliConstants.STATUS;
 
+    private static final int QUERY_PREFETCH_THREADS = 4;
+
+    private static final long ORDER_THREAD_KEEP_ALIVE_SEC = 60;
+
+    private static final int RELATED_FILE_UPLOAD_THREADS = 8;
+
     private List<String> managers = Arrays.asList(NsiliManagerType.ORDER_MGR.getSpecName(),
             NsiliManagerType.CATALOG_MGR.getSpecName(),
             NsiliManagerType.CREATION_MGR.getSpecName(),
@@ -94,10 +108,86 @@ public class LibraryImpl extends LibraryPOA {
 
     private SecurityManager securityManager;
 
+    private long resultCursorTtlSec = CatalogMgrImpl.DEFAULT_RESULT_CURSOR_TTL_SEC;
+
+    private long availabilityCacheTtlSec = AccessManagerImpl.DEFAULT_AVAILABILITY_CACHE_TTL_SEC;
+
+    private ExecutorService queryPrefetchExecutor;
+
+    private ThreadPoolExecutor productRetrievalExecutor;
+
+    private ThreadPoolExecutor orderExecutor;
+
+    private ExecutorService relatedFileUploadExecutor;
+
+    private AccessManagerImpl accessManager;
+
     private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(LibraryImpl.class);
 
     public LibraryImpl(POA poa) {
         this.poa = poa;
+        this.queryPrefetchExecutor = Executors.newFixedThreadPool(QUERY_PREFETCH_THREADS,
+                new ThreadFactoryBuilder().setNameFormat("nsiliQueryPrefetch-%d")
+                        .setDaemon(true)
+                        .build());
+        this.productRetrievalExecutor = new ThreadPoolExecutor(
+                NsiliEndpoint.DEFAULT_PRODUCT_RETRIEVAL_THREADS,
+                NsiliEndpoint.DEFAULT_PRODUCT_RETRIEVAL_THREADS,
+                ORDER_THREAD_KEEP_ALIVE_SEC,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("nsiliProductRetrieval-%d")
+                        .setDaemon(true)
+                        .build());
+        this.productRetrievalExecutor.allowCoreThreadTimeOut(true);
+        this.orderExecutor = new ThreadPoolExecutor(NsiliEndpoint.DEFAULT_MAX_CONCURRENT_ORDERS,
+                NsiliEndpoint.DEFAULT_MAX_CONCURRENT_ORDERS,
+                ORDER_THREAD_KEEP_ALIVE_SEC,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("nsiliOrder-%d")
+                        .setDaemon(true)
+                        .build());
+        this.orderExecutor.allowCoreThreadTimeOut(true);
+        this.relatedFileUploadExecutor = Executors.newFixedThreadPool(RELATED_FILE_UPLOAD_THREADS,
+                new ThreadFactoryBuilder().setNameFormat("nsiliRelatedFileUpload-%d")
+                        .setDaemon(true)
+                        .build());
+    }
+
+    public void destroy() {
+        queryPrefetchExecutor.shutdownNow();
+        productRetrievalExecutor.shutdownNow();
+        orderExecutor.shutdownNow();
+        relatedFileUploadExecutor.shutdownNow();
+    }
+
+    /**
+     * @param maxConcurrentOrders the number of orders that are processed at the same time,
+     *                            additional orders are queued until a thread is available
+     */
+    public void setMaxConcurrentOrders(int maxConcurrentOrders) {
+        setPoolSize(orderExecutor, maxConcurrentOrders);
+    }
+
+    /**
+     * @param productRetrievalThreads the number of products retrieved at the same time across
+     *                                all orders, additional retrievals are queued until a thread
+     *                                is available
+     */
+    public void setProductRetrievalThreads(int productRetrievalThreads) {
+        setPoolSize(productRetrievalExecutor, productRetrievalThreads);
+    }
+
+    private void setPoolSize(ThreadPoolExecutor executor, int threads) {
+        int poolSize = Math.max(1, threads);
+        if (poolSize > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(poolSize);
+            executor.setCorePoolSize(poolSize);
+        } else {
+            executor.setCorePoolSize(poolSize);
+            executor.setMaximumPoolSize(poolSize);
+        }
     }
 
     public void setCatalogFramework(CatalogFramework catalogFramework) {
@@ -125,6 +215,10 @@ public class LibraryImpl extends LibraryPOA {
         if (querySources != null) {
             this.querySources.addAll(querySources);
         }
+
+        if (accessManager != null) {
+            accessManager.setQuerySources(this.querySources);
+        }
     }
 
     public void setRemoveSourceLibrary(boolean removeSourceLibrary) {
@@ -143,6 +237,17 @@ public class LibraryImpl extends LibraryPOA {
         this.outgoingValidationEnabled = outgoingValidationEnabled;
     }
 
+    public synchronized void setAvailabilityCacheTtlSec(long availabilityCacheTtlSec) {
+        this.availabilityCacheTtlSec = availabilityCacheTtlSec;
+        if (accessManager != null) {
+            accessManager.setAvailabilityCacheTtlSec(availabilityCacheTtlSec);
+        }
+    }
+
+    public void setResultCursorTtlSec(long resultCursorTtlSec) {
+        this.resultCursorTtlSec = resultCursorTtlSec;
+    }
+
     @Override
     public String[] get_manager_types() throws ProcessingFault, SystemFault {
         LOGGER.trace("get_manager_types() called");
@@ -162,6 +267,8 @@ public class LibraryImpl extends LibraryPOA {
             catalogMgr.setCatalogFramework(catalogFramework);
             catalogMgr.setOutgoingValidationEnabled(outgoingValidationEnabled);
             catalogMgr.setRemoveSourceLibrary(removeSourceLibrary);
+            catalogMgr.setResultCursorTtlSec(resultCursorTtlSec);
+            catalogMgr.setPrefetchExecutor(queryPrefetchExecutor);
             if (!CorbaUtils.isIdActive(poa,
                     managerId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)))) {
                 try {
@@ -179,6 +286,9 @@ public class LibraryImpl extends LibraryPOA {
             OrderMgrImpl orderMgr = new OrderMgrImpl();
             orderMgr.setCatalogFramework(catalogFramework);
             orderMgr.setFilterBuilder(filterBuilder);
+            orderMgr.setRetrievalExecutor(productRetrievalExecutor);
+            orderMgr.setOrderExecutor(orderExecutor);
+            orderMgr.setAccessManager(getAccessManager());
             if (!CorbaUtils.isIdActive(poa,
                     managerId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)))) {
                 try {
@@ -197,6 +307,8 @@ public class LibraryImpl extends LibraryPOA {
             productMgr.setCatalogFramework(catalogFramework);
             productMgr.setFilterBuilder(filterBuilder);
             productMgr.setOutgoingValidationEnabled(outgoingValidationEnabled);
+            productMgr.setAccessManager(getAccessManager());
+            productMgr.setRelatedFileUploadExecutor(relatedFileUploadExecutor);
             if (!CorbaUtils.isIdActive(poa,
                     managerId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)))) {
                 try {
@@ -293,6 +405,31 @@ public class LibraryImpl extends LibraryPOA {
         throw new NO_IMPLEMENT();
     }
 
+    /**
+     * @return the access manager shared by the managers of this library, so product lookups go
+     * through a single servant instead of one per manager
+     */
+    private synchronized AccessManagerImpl getAccessManager() {
+        if (accessManager == null) {
+            accessManager = new AccessManagerImpl();
+            accessManager.setCatalogFramework(catalogFramework);
+            accessManager.setFilterBuilder(filterBuilder);
+            accessManager.setQuerySources(querySources);
+            accessManager.setAvailabilityCacheTtlSec(availabilityCacheTtlSec);
+
+            String managerId = UUID.randomUUID()
+                    .toString();
+            try {
+                poa.activate_object_with_id(managerId.getBytes(Charset.forName(NsiliEndpoint.ENCODING)),
+                        accessManager);
+            } catch (ServantAlreadyActive | ObjectAlreadyActive | WrongPolicy e) {
+                LOGGER.error("Error activating AccessMgr: {}", e);
+            }
+        }
+
+        return accessManager;
+    }
+
     public static List<Result> getLatestResults(List<Result> results) {
         Map<String, Result> resultMap = new HashMap<>();
         if (results != null) {
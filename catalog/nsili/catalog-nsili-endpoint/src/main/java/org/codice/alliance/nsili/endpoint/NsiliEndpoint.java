@@ -20,7 +20,12 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.codice.alliance.nsili.common.BqsConverter;
 import org.codice.alliance.nsili.common.NsilCorbaExceptionUtil;
+import org.codice.alliance.nsili.endpoint.managers.AccessManagerImpl;
+import org.codice.alliance.nsili.endpoint.managers.CatalogMgrImpl;
+import org.codice.alliance.nsili.endpoint.managers.HitCountCache;
+import org.codice.alliance.nsili.endpoint.managers.MetacardCache;
 import org.codice.alliance.nsili.orb.api.CorbaOrb;
 import org.codice.alliance.nsili.orb.api.CorbaServiceListener;
 import org.codice.ddf.security.common.Security;
@@ -52,6 +57,10 @@ public class NsiliEndpoint implements CorbaServiceListener {
 
     public static final int DEFAULT_MAX_NUM_RESULTS = 500;
 
+    public static final int DEFAULT_MAX_CONCURRENT_ORDERS = 4;
+
+    public static final int DEFAULT_PRODUCT_RETRIEVAL_THREADS = 4;
+
     private static final String DEFAULT_IP_ADDRESS = "127.0.0.1";
 
     private int maxNumResults = DEFAULT_MAX_NUM_RESULTS;
@@ -90,6 +99,14 @@ public class NsiliEndpoint implements CorbaServiceListener {
 
     private boolean removeSourceLibrary = true;
 
+    private long resultCursorTtlSec = CatalogMgrImpl.DEFAULT_RESULT_CURSOR_TTL_SEC;
+
+    private long availabilityCacheTtlSec = AccessManagerImpl.DEFAULT_AVAILABILITY_CACHE_TTL_SEC;
+
+    private int maxConcurrentOrders = DEFAULT_MAX_CONCURRENT_ORDERS;
+
+    private int productRetrievalThreads = DEFAULT_PRODUCT_RETRIEVAL_THREADS;
+
     private static Subject guestSubject = null;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(NsiliEndpoint.class);
@@ -199,6 +216,46 @@ public class NsiliEndpoint implements CorbaServiceListener {
         }
     }
 
+    public void setResultCursorTtlSec(long resultCursorTtlSec) {
+        this.resultCursorTtlSec = resultCursorTtlSec;
+        if (library != null) {
+            library.setResultCursorTtlSec(resultCursorTtlSec);
+        }
+    }
+
+    public void setMaxConcurrentOrders(int maxConcurrentOrders) {
+        this.maxConcurrentOrders = maxConcurrentOrders;
+        if (library != null) {
+            library.setMaxConcurrentOrders(maxConcurrentOrders);
+        }
+    }
+
+    public void setProductRetrievalThreads(int productRetrievalThreads) {
+        this.productRetrievalThreads = productRetrievalThreads;
+        if (library != null) {
+            library.setProductRetrievalThreads(productRetrievalThreads);
+        }
+    }
+
+    public void setAvailabilityCacheTtlSec(long availabilityCacheTtlSec) {
+        this.availabilityCacheTtlSec = availabilityCacheTtlSec;
+        if (library != null) {
+            library.setAvailabilityCacheTtlSec(availabilityCacheTtlSec);
+        }
+    }
+
+    public void setMetacardCacheTtlSec(long metacardCacheTtlSec) {
+        MetacardCache.setTtlSec(metacardCacheTtlSec);
+    }
+
+    public void setHitCountCacheTtlSec(long hitCountCacheTtlSec) {
+        HitCountCache.setTtlSec(hitCountCacheTtlSec);
+    }
+
+    public void setBqsFilterCacheSize(int bqsFilterCacheSize) {
+        BqsConverter.setFilterCacheSize(bqsFilterCacheSize);
+    }
+
     public void setOrb(ORB orb) {
         this.orb = orb;
     }
@@ -215,8 +272,12 @@ public class NsiliEndpoint implements CorbaServiceListener {
         if (corbaOrb != null) {
             corbaOrb.removeCorbaServiceListener(this);
         }
+        if (library != null) {
+            library.destroy();
+        }
         library = null;
         iorString = "";
+        PooledHttpClient.shutdown();
     }
 
     @Override
@@ -240,6 +301,9 @@ public class NsiliEndpoint implements CorbaServiceListener {
             rootPOA.destroy(true, true);
         }
 
+        if (library != null) {
+            library.destroy();
+        }
         orb = null;
         library = null;
     }
@@ -272,6 +336,9 @@ public class NsiliEndpoint implements CorbaServiceListener {
         rootPOA.the_POAManager()
                 .activate();
 
+        if (library != null) {
+            library.destroy();
+        }
         library = new LibraryImpl(rootPOA);
         library.setCatalogFramework(framework);
         library.setFilterBuilder(filterBuilder);
@@ -281,6 +348,10 @@ public class NsiliEndpoint implements CorbaServiceListener {
         library.setLibraryVersion(libraryVersion);
         library.setRemoveSourceLibrary(removeSourceLibrary);
         library.setOutgoingValidationEnabled(outgoingValidationEnabled);
+        library.setResultCursorTtlSec(resultCursorTtlSec);
+        library.setAvailabilityCacheTtlSec(availabilityCacheTtlSec);
+        library.setMaxConcurrentOrders(maxConcurrentOrders);
+        library.setProductRetrievalThreads(productRetrievalThreads);
 
         libraryRef = rootPOA.servant_to_reference(library);
 
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the keep-alive HTTP client shared by the endpoint for outgoing product checks and
+ * deliveries, so connections to the same host are pooled and reused across requests.
+ */
+public class PooledHttpClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledHttpClient.class);
+
+    private static final int MAX_CONNECTIONS = 50;
+
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 10;
+
+    private static final int CONNECT_TIMEOUT_MSEC = 10000;
+
+    private static final int SOCKET_TIMEOUT_MSEC = 60000;
+
+    private static final long IDLE_CONNECTION_TIMEOUT_SEC = 30;
+
+    private static CloseableHttpClient httpClient;
+
+    private static PoolingHttpClientConnectionManager connectionManager;
+
+    private PooledHttpClient() {
+    }
+
+    public static synchronized CloseableHttpClient getHttpClient() {
+        if (httpClient == null) {
+            connectionManager = new PoolingHttpClientConnectionManager();
+            connectionManager.setMaxTotal(MAX_CONNECTIONS);
+            connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+
+            RequestConfig requestConfig = RequestConfig.custom()
+                    .setConnectTimeout(CONNECT_TIMEOUT_MSEC)
+                    .setSocketTimeout(SOCKET_TIMEOUT_MSEC)
+                    .build();
+
+            httpClient = HttpClients.custom()
+                    .useSystemProperties()
+                    .setConnectionManager(connectionManager)
+                    .setDefaultRequestConfig(requestConfig)
+                    .evictIdleConnections(IDLE_CONNECTION_TIMEOUT_SEC, TimeUnit.SECONDS)
+                    .build();
+        }
+
+        return httpClient;
+    }
+
+    /**
+     * Closes the shared client and its pooled connections. A new client is created on the next
+     * call to {@link #getHttpClient()}.
+     */
+    public static synchronized void shutdown() {
+        if (httpClient != null) {
+            try {
+                httpClient.close();
+            } catch (IOException e) {
+                LOGGER.debug("Unable to close the shared HTTP client", e);
+            }
+            httpClient = null;
+            connectionManager = null;
+        }
+    }
+}
@@ -15,12 +15,26 @@ package org.codice.alliance.nsili.endpoint.managers;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.net.URL;
-import java.net.URLConnection;
+import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.Callable;
-
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.util.EntityUtils;
 import org.apache.shiro.subject.ExecutionException;
 import org.codice.alliance.nsili.common.GIAS.AccessManagerPOA;
 import org.codice.alliance.nsili.common.GIAS.AvailabilityRequirement;
@@ -32,12 +46,17 @@ import org.codice.alliance.nsili.common.UCO.ProcessingFault;
 import org.codice.alliance.nsili.common.UCO.SystemFault;
 import org.codice.alliance.nsili.common.UID.Product;
 import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
+import org.codice.alliance.nsili.endpoint.PooledHttpClient;
 import org.omg.PortableServer.POAPackage.WrongAdapter;
 import org.omg.PortableServer.POAPackage.WrongPolicy;
 import org.opengis.filter.Filter;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import ddf.catalog.CatalogFramework;
+import ddf.catalog.content.data.ContentItem;
 import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.Result;
@@ -45,12 +64,17 @@ import ddf.catalog.filter.FilterBuilder;
 import ddf.catalog.operation.QueryResponse;
 import ddf.catalog.operation.impl.QueryImpl;
 import ddf.catalog.operation.impl.QueryRequestImpl;
+import ddf.security.Subject;
 import ddf.security.service.SecurityServiceException;
 
 public class AccessManagerImpl extends AccessManagerPOA {
 
     public static final int DEFAULT_TIMEOUT = -1;
 
+    public static final long DEFAULT_AVAILABILITY_CACHE_TTL_SEC = 60;
+
+    private static final int MAX_AVAILABILITY_ENTRIES = 10000;
+
     private static final int QUERY_AVAILABILITY_DELAY = 10;
 
     private static final int NUM_PRIORITIES = 1;
@@ -67,6 +91,9 @@ public class AccessManagerImpl extends AccessManagerPOA {
 
     private int defaultTimeout = DEFAULT_TIMEOUT;
 
+    private Cache<String, Boolean> availabilityCache =
+            createAvailabilityCache(DEFAULT_AVAILABILITY_CACHE_TTL_SEC);
+
     public AccessManagerImpl() {
 
     }
@@ -99,6 +126,10 @@ public class AccessManagerImpl extends AccessManagerPOA {
             try {
                 metacard = getMetacard(product);
                 if (metacard != null) {
+                    if (isLocalContent(metacard)) {
+                        return true;
+                    }
+
                     Attribute downloadUrlAttr = metacard.getAttribute(Metacard.RESOURCE_DOWNLOAD_URL);
                     if (downloadUrlAttr != null) {
                         return isUrlValid(downloadUrlAttr.getValue().toString());
@@ -183,14 +214,76 @@ public class AccessManagerImpl extends AccessManagerPOA {
     }
 
     public Metacard getMetacard(String id) {
-        Metacard metacard = null;
-        List<Result> results = new ArrayList<>();
+        return getMetacards(Collections.singletonList(id)).get(id);
+    }
+
+    /**
+     * Resolves the metacards for the given products with at most one catalog query.
+     *
+     * @param products the product references
+     * @return the metacards in product order, products that could not be resolved are skipped
+     */
+    public List<Metacard> getMetacards(List<Product> products)
+            throws UnsupportedEncodingException, WrongAdapter, WrongPolicy {
+        List<String> ids = new ArrayList<>(products.size());
+        for (Product product : products) {
+            if (product != null) {
+                ids.add(getProductId(product));
+            }
+        }
+
+        Map<String, Metacard> metacardsById = getMetacards(ids);
+
+        return ids.stream()
+                .map(metacardsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Resolves the metacards with the given ids. Metacards cached for the guest subject are
+     * returned without a query, the rest are retrieved with a single catalog query.
+     *
+     * @param ids the metacard ids
+     * @return the metacards found, keyed by id
+     */
+    public Map<String, Metacard> getMetacards(Collection<String> ids) {
+        Map<String, Metacard> metacards = new HashMap<>();
+
+        Subject subject;
+        try {
+            subject = NsiliEndpoint.getGuestSubject();
+        } catch (SecurityServiceException e) {
+            LOGGER.warn("Unable to query catalog {}", e);
+            LOGGER.debug("Catalog query exception details", e);
+            return metacards;
+        }
+
+        Set<String> missingIds = new LinkedHashSet<>();
+        for (String id : ids) {
+            Metacard metacard = MetacardCache.get(subject, id);
+            if (metacard != null) {
+                metacards.put(id, metacard);
+            } else if (id != null) {
+                missingIds.add(id);
+            }
+        }
+
+        if (missingIds.isEmpty()) {
+            return metacards;
+        }
 
-        Filter filter = filterBuilder.attribute(Metacard.ID).is().equalTo().text(id);
+        List<Filter> idFilters = missingIds.stream()
+                .map(id -> filterBuilder.attribute(Metacard.ID)
+                        .is()
+                        .equalTo()
+                        .text(id))
+                .collect(Collectors.toList());
+        Filter filter = idFilters.size() == 1 ? idFilters.get(0) : filterBuilder.anyOf(idFilters);
 
         QueryImpl catalogQuery = new QueryImpl(filter);
         catalogQuery.setRequestsTotalResultsCount(false);
-        catalogQuery.setPageSize(10);
+        catalogQuery.setPageSize(Math.max(10, missingIds.size()));
 
         QueryRequestImpl catalogQueryRequest;
 
@@ -201,39 +294,94 @@ public class AccessManagerImpl extends AccessManagerPOA {
         }
 
         try {
-            QueryResultsCallable
-                    queryCallable = new QueryResultsCallable(catalogQueryRequest);
-            results.addAll(NsiliEndpoint.getGuestSubject().execute(queryCallable));
-
-        } catch (ExecutionException | SecurityServiceException e) {
+            QueryResultsCallable queryCallable = new QueryResultsCallable(catalogQueryRequest);
+            for (Result result : subject.execute(queryCallable)) {
+                Metacard metacard = result.getMetacard();
+                if (metacard != null && missingIds.contains(metacard.getId())) {
+                    metacards.putIfAbsent(metacard.getId(), metacard);
+                    MetacardCache.put(subject, metacard);
+                }
+            }
+        } catch (ExecutionException e) {
             LOGGER.warn("Unable to query catalog {}", e);
             LOGGER.debug("Catalog query exception details", e);
         }
 
-        if (!results.isEmpty()) {
-            metacard = results.iterator().next().getMetacard();
-        }
+        return metacards;
+    }
 
-        return metacard;
+    /**
+     * @param availabilityCacheTtlSec number of seconds an available product URL is cached, 0
+     *                                disables caching. URLs that are not available are never
+     *                                cached, so a product shows up as soon as it is reachable.
+     */
+    public void setAvailabilityCacheTtlSec(long availabilityCacheTtlSec) {
+        this.availabilityCache = createAvailabilityCache(availabilityCacheTtlSec);
     }
 
     public boolean isUrlValid(String urlStr) {
-        if (urlStr != null) {
-            try {
-                URL url = new URL(urlStr);
-                URLConnection urlConnection = url.openConnection();
-                urlConnection.connect();
+        if (urlStr == null) {
+            return false;
+        }
 
-                int contentLength = urlConnection.getContentLength();
-                if (contentLength > 0) {
-                    return true;
-                }
-            } catch (IOException ignore) {}
+        if (availabilityCache.getIfPresent(urlStr) != null) {
+            return true;
+        }
+
+        boolean available = checkUrl(urlStr);
+        if (available) {
+            availabilityCache.put(urlStr, Boolean.TRUE);
+        }
+
+        return available;
+    }
+
+    private boolean isLocalContent(Metacard metacard) {
+        URI resourceUri = metacard.getResourceURI();
+        return resourceUri != null && ContentItem.CONTENT_SCHEME.equals(resourceUri.getScheme());
+    }
+
+    /**
+     * Checks the URL with a HEAD request over the shared keep-alive client. Servers that don't
+     * allow HEAD are checked with a GET whose body is not read.
+     */
+    private boolean checkUrl(String urlStr) {
+        try {
+            int statusCode = getStatusCode(new HttpHead(urlStr));
+            if (statusCode == HttpStatus.SC_METHOD_NOT_ALLOWED) {
+                statusCode = getStatusCode(new HttpGet(urlStr));
+            }
+            return statusCode >= HttpStatus.SC_OK
+                    && statusCode < HttpStatus.SC_MULTIPLE_CHOICES;
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.debug("Unable to check availability of {}", urlStr, e);
         }
 
         return false;
     }
 
+    private int getStatusCode(HttpUriRequest request) throws IOException {
+        try (CloseableHttpResponse response = PooledHttpClient.getHttpClient()
+                .execute(request)) {
+            int statusCode = response.getStatusLine()
+                    .getStatusCode();
+            if (request instanceof HttpGet) {
+                // Don't download the product just to check that it exists
+                request.abort();
+            } else {
+                EntityUtils.consume(response.getEntity());
+            }
+            return statusCode;
+        }
+    }
+
+    private static Cache<String, Boolean> createAvailabilityCache(long ttlSec) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(ttlSec > 0 ? MAX_AVAILABILITY_ENTRIES : 0)
+                .expireAfterWrite(Math.max(0, ttlSec), TimeUnit.SECONDS)
+                .build();
+    }
+
     class QueryResultsCallable implements Callable<List<Result>> {
         QueryRequestImpl catalogQueryRequest;
 
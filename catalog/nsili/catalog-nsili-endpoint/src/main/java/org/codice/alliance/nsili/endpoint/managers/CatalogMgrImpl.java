@@ -17,7 +17,8 @@ import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.codice.alliance.nsili.common.BqsConverter;
 import org.codice.alliance.nsili.common.GIAS.CatalogMgrPOA;
@@ -36,6 +37,7 @@ import org.codice.alliance.nsili.common.UCO.SystemFault;
 import org.codice.alliance.nsili.endpoint.LibraryImpl;
 import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
 import org.codice.alliance.nsili.endpoint.requests.HitCountRequestImpl;
+import org.codice.alliance.nsili.endpoint.requests.QueryResultCursor;
 import org.codice.alliance.nsili.endpoint.requests.SubmitQueryRequestImpl;
 import org.omg.CORBA.NO_IMPLEMENT;
 import org.omg.PortableServer.POA;
@@ -46,18 +48,22 @@ import org.opengis.filter.Filter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import ddf.catalog.CatalogFramework;
 import ddf.catalog.core.versioning.MetacardVersion;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.filter.FilterBuilder;
-import ddf.catalog.operation.QueryResponse;
-import ddf.catalog.operation.impl.QueryImpl;
-import ddf.catalog.operation.impl.QueryRequestImpl;
 
 public class CatalogMgrImpl extends CatalogMgrPOA {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CatalogMgrImpl.class);
 
+    public static final long DEFAULT_RESULT_CURSOR_TTL_SEC = 30;
+
+    private static final int MAX_RESULT_CURSORS = 100;
+
     private POA poa;
 
     private CatalogFramework catalogFramework;
@@ -74,12 +80,19 @@ public class CatalogMgrImpl extends CatalogMgrPOA {
 
     private boolean outgoingValidationEnabled;
 
+    private ExecutorService prefetchExecutor;
+
+    private long resultCursorTtlSec = DEFAULT_RESULT_CURSOR_TTL_SEC;
+
+    private Cache<String, QueryResultCursor> resultCursors;
+
     public CatalogMgrImpl(POA poa, FilterBuilder filterBuilder, List<String> querySources) {
         this.poa = poa;
         this.filterBuilder = filterBuilder;
         if (querySources != null) {
             this.querySources.addAll(querySources);
         }
+        this.resultCursors = createResultCursorCache(resultCursorTtlSec);
     }
 
     public void setCatalogFramework(CatalogFramework catalogFramework) {
@@ -88,10 +101,31 @@ public class CatalogMgrImpl extends CatalogMgrPOA {
 
     public void setMaxNumResults(int maxNumResults) {
         this.maxNumResults = maxNumResults;
+        resultCursors.invalidateAll();
     }
 
     public void setRemoveSourceLibrary(boolean removeSourceLibrary) {
         this.removeSourceLibrary = removeSourceLibrary;
+        resultCursors.invalidateAll();
+    }
+
+    /**
+     * @param prefetchExecutor executor used to fetch the next page of query results in the
+     *                         background, may be null to disable prefetching
+     */
+    public void setPrefetchExecutor(ExecutorService prefetchExecutor) {
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    /**
+     * Sets how long the results of a hit count are kept for a following submit_query of the same
+     * query. A value of 0 disables sharing results between the two requests.
+     *
+     * @param resultCursorTtlSec the time to keep results in seconds
+     */
+    public void setResultCursorTtlSec(long resultCursorTtlSec) {
+        this.resultCursorTtlSec = Math.max(0, resultCursorTtlSec);
+        this.resultCursors = createResultCursorCache(this.resultCursorTtlSec);
     }
 
     public void setOutgoingValidationEnabled(boolean outgoingValidationEnabled) {
@@ -146,6 +180,15 @@ public class CatalogMgrImpl extends CatalogMgrPOA {
         submitQueryRequest.setTimeout(defaultTimeout);
         submitQueryRequest.setOutgoingValidationEnabled(outgoingValidationEnabled);
 
+        QueryResultCursor resultCursor = resultCursors.asMap()
+                .remove(aQuery.bqs_query);
+        if (resultCursor == null) {
+            resultCursor = createResultCursor(aQuery, maxNumResults);
+        } else {
+            LOGGER.debug("Reusing hit count results for query: {}", aQuery.bqs_query);
+        }
+        submitQueryRequest.setResultCursor(resultCursor);
+
         submitQueryRequest.setResultAttributes(result_attributes);
 
         String queryId = UUID.randomUUID()
@@ -208,8 +251,48 @@ public class CatalogMgrImpl extends CatalogMgrPOA {
     }
 
     protected long getResultCount(Query aQuery) {
-        long resultCount = 0;
+        Long cachedCount = HitCountCache.get(aQuery.bqs_query, querySources, removeSourceLibrary);
+        if (cachedCount != null) {
+            LOGGER.debug("Using cached hit count for query: {}", aQuery.bqs_query);
+            return cachedCount;
+        }
+
+        Filter filter = createFilter(aQuery);
+
+        if (resultCursorTtlSec == 0) {
+            long resultCount = QueryResultCursor.queryHitCount(catalogFramework,
+                    filter,
+                    querySources,
+                    defaultTimeout);
+            HitCountCache.put(aQuery.bqs_query, querySources, removeSourceLibrary, resultCount);
+            return Math.max(0, resultCount);
+        }
+
+        //Fetch the first page along with the count so a following submit_query can reuse it
+        QueryResultCursor resultCursor = createResultCursor(filter, maxNumResults);
+        long resultCount = resultCursor.getHits();
+        resultCursors.put(aQuery.bqs_query, resultCursor);
+        if (resultCursor.hasHitCount()) {
+            HitCountCache.put(aQuery.bqs_query, querySources, removeSourceLibrary, resultCount);
+        }
 
+        return resultCount;
+    }
+
+    private QueryResultCursor createResultCursor(Query aQuery, int pageSize) {
+        return createResultCursor(createFilter(aQuery), pageSize);
+    }
+
+    private QueryResultCursor createResultCursor(Filter filter, int pageSize) {
+        return new QueryResultCursor(catalogFramework,
+                filter,
+                querySources,
+                pageSize,
+                defaultTimeout,
+                prefetchExecutor);
+    }
+
+    private Filter createFilter(Query aQuery) {
         BqsConverter bqsConverter = new BqsConverter(filterBuilder, removeSourceLibrary);
         Filter parsedFilter = bqsConverter.convertBQSToDDF(aQuery);
 
@@ -237,43 +320,13 @@ public class CatalogMgrImpl extends CatalogMgrPOA {
                                     .text(MetacardVersion.Action.DELETED.getKey())));
         }
 
-        QueryImpl catalogQuery = new QueryImpl(parsedFilter);
-
-        if (defaultTimeout > 0) {
-            catalogQuery.setTimeoutMillis(defaultTimeout * 1000);
-        }
-
-        catalogQuery.setPageSize(1);
-
-        QueryRequestImpl catalogQueryRequest = null;
-        if (querySources == null || querySources.isEmpty()) {
-            catalogQueryRequest = new QueryRequestImpl(catalogQuery);
-        } else {
-            catalogQueryRequest = new QueryRequestImpl(catalogQuery, false, querySources, null);
-        }
-
-        try {
-            QueryCountCallable queryCallable = new QueryCountCallable(catalogQueryRequest);
-            resultCount = NsiliEndpoint.getGuestSubject()
-                    .execute(queryCallable);
-        } catch (Exception e) {
-            LOGGER.warn("Unable to query catalog", e);
-        }
-
-        return resultCount;
+        return parsedFilter;
     }
 
-    class QueryCountCallable implements Callable<Long> {
-        QueryRequestImpl catalogQueryRequest;
-
-        public QueryCountCallable(QueryRequestImpl catalogQueryRequest) {
-            this.catalogQueryRequest = catalogQueryRequest;
-        }
-
-        @Override
-        public Long call() throws Exception {
-            QueryResponse queryResponse = catalogFramework.query(catalogQueryRequest);
-            return queryResponse.getHits();
-        }
+    private static Cache<String, QueryResultCursor> createResultCursorCache(long ttlSec) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(ttlSec > 0 ? MAX_RESULT_CURSORS : 0)
+                .expireAfterWrite(ttlSec, TimeUnit.SECONDS)
+                .build();
     }
 }
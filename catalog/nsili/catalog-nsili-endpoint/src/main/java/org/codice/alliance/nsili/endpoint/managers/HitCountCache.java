@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint.managers;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.codice.alliance.nsili.common.BqsConverter;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A short lived cache of hit counts, keyed by the normalized BQS query, the sources it was run
+ * against and whether the source library is removed from the query. Clients commonly poll
+ * hit_count for the same query, so caching the count for a few seconds answers repeated polls
+ * without querying the catalog again.
+ */
+public class HitCountCache {
+
+    public static final long DEFAULT_TTL_SEC = 5;
+
+    private static final int MAX_ENTRIES = 1000;
+
+    private static volatile Cache<HitCountKey, Long> cache = createCache(DEFAULT_TTL_SEC);
+
+    private HitCountCache() {
+    }
+
+    /**
+     * @param ttlSec number of seconds a hit count is cached, 0 disables caching
+     */
+    public static void setTtlSec(long ttlSec) {
+        cache = createCache(ttlSec);
+    }
+
+    public static void put(String bqsQuery, Collection<String> querySources,
+            boolean removeSourceLibrary, long hits) {
+        if (bqsQuery != null && hits >= 0) {
+            cache.put(new HitCountKey(bqsQuery, querySources, removeSourceLibrary), hits);
+        }
+    }
+
+    /**
+     * @param bqsQuery            the BQS query
+     * @param querySources        the sources the query is run against
+     * @param removeSourceLibrary whether the source library is removed from the query
+     * @return the cached hit count, or null if it is not cached
+     */
+    public static Long get(String bqsQuery, Collection<String> querySources,
+            boolean removeSourceLibrary) {
+        if (bqsQuery == null) {
+            return null;
+        }
+
+        return cache.getIfPresent(new HitCountKey(bqsQuery, querySources, removeSourceLibrary));
+    }
+
+    public static void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static Cache<HitCountKey, Long> createCache(long ttlSec) {
+        long maxEntries = ttlSec > 0 ? MAX_ENTRIES : 0;
+        return CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Math.max(0, ttlSec), TimeUnit.SECONDS)
+                .build();
+    }
+
+    private static class HitCountKey {
+        private final String bqsQuery;
+
+        private final Set<String> querySources = new TreeSet<>();
+
+        private final boolean removeSourceLibrary;
+
+        HitCountKey(String bqsQuery, Collection<String> querySources,
+                boolean removeSourceLibrary) {
+            this.bqsQuery = BqsConverter.normalize(bqsQuery);
+            if (querySources != null) {
+                this.querySources.addAll(querySources);
+            }
+            this.removeSourceLibrary = removeSourceLibrary;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof HitCountKey)) {
+                return false;
+            }
+            HitCountKey hitCountKey = (HitCountKey) o;
+            return removeSourceLibrary == hitCountKey.removeSourceLibrary
+                    && bqsQuery.equals(hitCountKey.bqsQuery)
+                    && querySources.equals(hitCountKey.querySources);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bqsQuery, querySources, removeSourceLibrary);
+        }
+    }
+}
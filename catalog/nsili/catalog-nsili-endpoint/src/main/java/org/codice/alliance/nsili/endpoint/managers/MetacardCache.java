@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint.managers;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import ddf.catalog.data.Metacard;
+import ddf.security.Subject;
+import ddf.security.service.SecurityServiceException;
+
+/**
+ * A short lived cache of the metacards behind the product references handed out to NSILI
+ * clients. Follow-up product operations (orders, parameters, related files and availability)
+ * usually reference products from a result page that was just returned, so caching those
+ * metacards avoids a catalog query per product.
+ * <p>
+ * Entries are tied to the subject the metacard was retrieved for and are only returned to that
+ * same subject, so a metacard is never served once the subject that was authorized to see it has
+ * been replaced.
+ */
+public class MetacardCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetacardCache.class);
+
+    public static final long DEFAULT_TTL_SEC = 60;
+
+    private static final int MAX_ENTRIES = 10000;
+
+    private static volatile Cache<String, CachedMetacard> cache = createCache(DEFAULT_TTL_SEC);
+
+    private MetacardCache() {
+    }
+
+    /**
+     * @param ttlSec number of seconds a metacard is cached, 0 disables caching
+     */
+    public static void setTtlSec(long ttlSec) {
+        cache = createCache(ttlSec);
+    }
+
+    public static void put(Subject subject, Metacard metacard) {
+        if (subject != null && metacard != null && metacard.getId() != null) {
+            cache.put(metacard.getId(), new CachedMetacard(subject, metacard));
+        }
+    }
+
+    public static void putAll(Subject subject, Collection<Metacard> metacards) {
+        metacards.forEach(metacard -> put(subject, metacard));
+    }
+
+    /**
+     * Caches metacards that were retrieved for, and handed out to, the endpoint's guest subject.
+     */
+    public static void putGuestMetacards(Collection<Metacard> metacards) {
+        if (metacards.isEmpty()) {
+            return;
+        }
+
+        try {
+            putAll(NsiliEndpoint.getGuestSubject(), metacards);
+        } catch (SecurityServiceException e) {
+            LOGGER.debug("Unable to get guest subject, metacards will not be cached", e);
+        }
+    }
+
+    /**
+     * @param subject the subject the metacard is retrieved for
+     * @param id      the metacard id
+     * @return the cached metacard, or null if it is not cached for the subject
+     */
+    public static Metacard get(Subject subject, String id) {
+        if (subject == null || id == null) {
+            return null;
+        }
+
+        CachedMetacard cachedMetacard = cache.getIfPresent(id);
+        if (cachedMetacard == null || cachedMetacard.subject != subject) {
+            return null;
+        }
+
+        return cachedMetacard.metacard;
+    }
+
+    public static void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static Cache<String, CachedMetacard> createCache(long ttlSec) {
+        long maxEntries = ttlSec > 0 ? MAX_ENTRIES : 0;
+        return CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Math.max(0, ttlSec), TimeUnit.SECONDS)
+                .build();
+    }
+
+    private static class CachedMetacard {
+        private final Subject subject;
+
+        private final Metacard metacard;
+
+        CachedMetacard(Subject subject, Metacard metacard) {
+            this.subject = subject;
+            this.metacard = metacard;
+        }
+    }
+}
@@ -17,6 +17,7 @@ import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 
 import org.codice.alliance.nsili.common.CorbaUtils;
 import org.codice.alliance.nsili.common.GIAS.AccessManagerHelper;
@@ -61,6 +62,10 @@ public class OrderMgrImpl extends OrderMgrPOA {
 
     private List<String> querySources = new ArrayList<>();
 
+    private ExecutorService retrievalExecutor;
+
+    private ExecutorService orderExecutor;
+
     public void setCatalogFramework(CatalogFramework catalogFramework) {
         this.catalogFramework = catalogFramework;
     }
@@ -76,6 +81,18 @@ public class OrderMgrImpl extends OrderMgrPOA {
         }
     }
 
+    public void setRetrievalExecutor(ExecutorService retrievalExecutor) {
+        this.retrievalExecutor = retrievalExecutor;
+    }
+
+    public void setOrderExecutor(ExecutorService orderExecutor) {
+        this.orderExecutor = orderExecutor;
+    }
+
+    public void setAccessManager(AccessManagerImpl accessManager) {
+        this.accessManager = accessManager;
+    }
+
     @Override
     public String[] get_package_specifications() throws ProcessingFault, SystemFault {
         List<String> supportedPackagingSpecs =
@@ -114,6 +131,8 @@ public class OrderMgrImpl extends OrderMgrPOA {
                 port,
                 getAccessManager(),
                 catalogFramework);
+        orderRequestImpl.setRetrievalExecutor(retrievalExecutor);
+        orderRequestImpl.setOrderExecutor(orderExecutor);
 
         String id = UUID.randomUUID()
                 .toString();
@@ -124,6 +143,8 @@ public class OrderMgrImpl extends OrderMgrPOA {
             LOGGER.error("order : Unable to activate orderRequest object. {}", e);
         }
 
+        orderRequestImpl.start();
+
         org.omg.CORBA.Object obj = _poa().create_reference_with_id(id.getBytes(Charset.forName(
                 NsiliEndpoint.ENCODING)), OrderRequestHelper.id());
 
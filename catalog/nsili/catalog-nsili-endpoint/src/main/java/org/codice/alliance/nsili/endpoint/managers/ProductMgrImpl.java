@@ -15,9 +15,10 @@ package org.codice.alliance.nsili.endpoint.managers;
 
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 
 import org.codice.alliance.nsili.endpoint.requests.GetParametersRequestImpl;
 import org.codice.alliance.nsili.endpoint.requests.GetRelatedFilesRequestImpl;
@@ -76,6 +77,8 @@ public class ProductMgrImpl extends ProductMgrPOA {
 
     private boolean outgoingValidationEnabled;
 
+    private ExecutorService relatedFileUploadExecutor;
+
     public ProductMgrImpl(List<String> querySources) {
         this.querySources = querySources;
     }
@@ -92,6 +95,14 @@ public class ProductMgrImpl extends ProductMgrPOA {
         this.outgoingValidationEnabled = outgoingValidationEnabled;
     }
 
+    public void setAccessManager(AccessManagerImpl accessManager) {
+        this.accessManager = accessManager;
+    }
+
+    public void setRelatedFileUploadExecutor(ExecutorService relatedFileUploadExecutor) {
+        this.relatedFileUploadExecutor = relatedFileUploadExecutor;
+    }
+
     @Override
     public GetParametersRequest get_parameters(Product prod, String[] desired_parameters,
             NameValue[] properties) throws ProcessingFault, InvalidInputParameter, SystemFault {
@@ -142,14 +153,7 @@ public class ProductMgrImpl extends ProductMgrPOA {
                 .toString();
 
         try {
-            List<Metacard> metacards = new ArrayList<>();
-            AccessManagerImpl accessMgr = getAccessManager();
-            for (Product product : products) {
-                Metacard metacard = accessMgr.getMetacard(accessMgr.getProductId(product));
-                if (metacard != null) {
-                    metacards.add(metacard);
-                }
-            }
+            List<Metacard> metacards = getAccessManager().getMetacards(Arrays.asList(products));
 
             Integer port = getPort(properties);
             GetRelatedFilesRequestImpl getRelatedFilesRequest = new GetRelatedFilesRequestImpl(
@@ -157,6 +161,7 @@ public class ProductMgrImpl extends ProductMgrPOA {
                     location,
                     type,
                     port);
+            getRelatedFilesRequest.setUploadExecutor(relatedFileUploadExecutor);
             _poa().activate_object_with_id(id.getBytes(Charset.forName(NsiliEndpoint.ENCODING)),
                     getRelatedFilesRequest);
         } catch (ServantAlreadyActive | ObjectAlreadyActive | WrongPolicy | WrongAdapter | UnsupportedEncodingException e) {
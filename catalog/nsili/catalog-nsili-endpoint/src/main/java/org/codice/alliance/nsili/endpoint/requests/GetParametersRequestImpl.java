@@ -40,6 +40,7 @@ import org.codice.alliance.nsili.common.UCO.Status;
 import org.codice.alliance.nsili.common.UCO.StringDAGHolder;
 import org.codice.alliance.nsili.common.UCO.SystemFault;
 import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
+import org.codice.alliance.nsili.endpoint.managers.MetacardCache;
 import org.codice.alliance.nsili.common.datamodel.NsiliDataModel;
 import org.omg.CORBA.NO_IMPLEMENT;
 import org.opengis.filter.Filter;
@@ -48,6 +49,7 @@ import org.slf4j.LoggerFactory;
 import ddf.catalog.CatalogFramework;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.Result;
+import ddf.catalog.data.impl.ResultImpl;
 import ddf.catalog.filter.FilterBuilder;
 import ddf.catalog.operation.Query;
 import ddf.catalog.operation.QueryRequest;
@@ -86,12 +88,15 @@ public class GetParametersRequestImpl extends GetParametersRequestPOA {
 
     @Override
     public State complete(DAGHolder parameters) throws ProcessingFault, SystemFault {
-        Filter filter = filterBuilder.attribute(Metacard.ID)
-                .is()
-                .equalTo()
-                .text(productIdStr);
-        Query query = new QueryImpl(filter);
-        Result result = getResult(query);
+        Result result = getCachedResult();
+        if (result == null) {
+            Filter filter = filterBuilder.attribute(Metacard.ID)
+                    .is()
+                    .equalTo()
+                    .text(productIdStr);
+            Query query = new QueryImpl(filter);
+            result = getResult(query);
+        }
 
         if (result != null) {
             Map<String, List<String>> mandatoryAttributes = new HashMap<>();
@@ -216,6 +221,19 @@ public class GetParametersRequestImpl extends GetParametersRequestPOA {
         return result;
     }
 
+    private Result getCachedResult() {
+        try {
+            Metacard metacard = MetacardCache.get(NsiliEndpoint.getGuestSubject(), productIdStr);
+            if (metacard != null) {
+                return new ResultImpl(metacard);
+            }
+        } catch (SecurityServiceException e) {
+            LOGGER.debug("Unable to get guest subject for the metacard cache", e);
+        }
+
+        return null;
+    }
+
     private boolean isParamContained(String[] params, String param) {
         for (String paramValue : params) {
             if (paramValue.equals(param)) {
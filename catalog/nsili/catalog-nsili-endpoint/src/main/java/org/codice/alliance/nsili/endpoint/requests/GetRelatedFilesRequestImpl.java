@@ -16,6 +16,13 @@ package org.codice.alliance.nsili.endpoint.requests;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.Header;
@@ -25,8 +32,8 @@ import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.entity.ByteArrayEntity;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
 import org.apache.tika.config.TikaConfig;
 import org.apache.tika.detect.DefaultDetector;
 import org.apache.tika.detect.Detector;
@@ -52,6 +59,7 @@ import org.codice.alliance.nsili.common.UCO.RequestDescription;
 import org.codice.alliance.nsili.common.UCO.State;
 import org.codice.alliance.nsili.common.UCO.Status;
 import org.codice.alliance.nsili.common.UCO.SystemFault;
+import org.codice.alliance.nsili.endpoint.PooledHttpClient;
 import org.codice.alliance.nsili.endpoint.managers.ProductMgrImpl;
 
 import ddf.catalog.data.Metacard;
@@ -62,6 +70,14 @@ public class GetRelatedFilesRequestImpl extends GetRelatedFilesRequestPOA {
 
     private static final Detector DETECTOR = new DefaultDetector(MimeTypes.getDefaultMimeTypes());
 
+    private static final byte[] JPEG_SIGNATURE = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G'};
+
+    private static final byte[] GIF_SIGNATURE = {'G', 'I', 'F', '8'};
+
+    private static final Map<String, MimeType> MIME_TYPES = new ConcurrentHashMap<>();
+
     private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(
             GetRelatedFilesRequestImpl.class);
 
@@ -75,10 +91,11 @@ public class GetRelatedFilesRequestImpl extends GetRelatedFilesRequestPOA {
 
     private HttpClient httpClient;
 
+    private ExecutorService uploadExecutor;
+
     public GetRelatedFilesRequestImpl(List<Metacard> metacards, FileLocation location, String type,
             Integer port) {
-        HttpClientBuilder clientBuilder = HttpClientBuilder.create();
-        httpClient = clientBuilder.build();
+        httpClient = PooledHttpClient.getHttpClient();
 
         setMetacards(metacards);
         setFileLocation(location);
@@ -102,23 +119,45 @@ public class GetRelatedFilesRequestImpl extends GetRelatedFilesRequestPOA {
         this.port = port;
     }
 
+    /**
+     * @param uploadExecutor executor used to upload the related files concurrently, may be null
+     *                       to upload them on the calling thread
+     */
+    public void setUploadExecutor(ExecutorService uploadExecutor) {
+        this.uploadExecutor = uploadExecutor;
+    }
+
     @Override
     public State complete(NameListHolder locations) throws ProcessingFault, SystemFault {
         List<String> fileNames = new ArrayList<>();
         if (type.equals(ProductMgrImpl.THUMBNAIL_RELATED_FILE)) {
             if (StringUtils.isNotBlank(location.host_name)) {
-                for (Metacard metacard : metacards) {
-                    if (metacard.getThumbnail() != null) {
-                        try {
-                            String thumbnailName = storeThumbnail(metacard);
-                            if (thumbnailName != null) {
-                                fileNames.add(thumbnailName);
+                List<Future<String>> uploads = new ArrayList<>();
+                try {
+                    for (Metacard metacard : metacards) {
+                        if (metacard.getThumbnail() != null) {
+                            if (uploadExecutor == null) {
+                                addFileName(fileNames, storeThumbnailQuietly(metacard));
+                            } else {
+                                uploads.add(submitUpload(metacard));
                             }
-                        } catch (IOException | MimeTypeException e) {
+                        }
+                    }
+
+                    for (Future<String> upload : uploads) {
+                        try {
+                            addFileName(fileNames, upload.get());
+                        } catch (ExecutionException e) {
                             LOGGER.error("Unable to store thumbnail: {}", e);
                             LOGGER.debug("Root Cause: ", e);
                         }
                     }
+                } catch (InterruptedException e) {
+                    Thread.currentThread()
+                            .interrupt();
+                    LOGGER.debug("Interrupted while storing thumbnails", e);
+                } finally {
+                    uploads.forEach(upload -> upload.cancel(true));
                 }
             }
         }
@@ -172,15 +211,41 @@ public class GetRelatedFilesRequestImpl extends GetRelatedFilesRequestPOA {
         return new _RequestManagerStub();
     }
 
+    private void addFileName(List<String> fileNames, String fileName) {
+        if (fileName != null) {
+            fileNames.add(fileName);
+        }
+    }
+
+    /**
+     * Stores the thumbnail on the calling thread if the upload executor rejects it.
+     */
+    private Future<String> submitUpload(Metacard metacard) {
+        try {
+            return uploadExecutor.submit(() -> storeThumbnailQuietly(metacard));
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Upload executor rejected thumbnail for {}", metacard.getId(), e);
+            return CompletableFuture.completedFuture(storeThumbnailQuietly(metacard));
+        }
+    }
+
+    private String storeThumbnailQuietly(Metacard metacard) {
+        try {
+            return storeThumbnail(metacard);
+        } catch (IOException | MimeTypeException e) {
+            LOGGER.error("Unable to store thumbnail: {}", e);
+            LOGGER.debug("Root Cause: ", e);
+        }
+
+        return null;
+    }
+
     private String storeThumbnail(Metacard metacard) throws IOException, MimeTypeException {
         String id = metacard.getId();
 
         byte[] thumbnailBytes = metacard.getThumbnail();
-        TikaInputStream tis = TikaInputStream.get(thumbnailBytes);
-        MediaType mediaType = DETECTOR.detect(tis, new Metadata());
-        MimeType mimeType = TikaConfig.getDefaultConfig()
-                .getMimeRepository()
-                .forName(mediaType.toString());
+        MediaType mediaType = getMediaType(thumbnailBytes);
+        MimeType mimeType = getMimeType(mediaType);
 
         String fileName = id + "-THUMBNAIL" + mimeType.getExtension();
 
@@ -197,6 +262,7 @@ public class GetRelatedFilesRequestImpl extends GetRelatedFilesRequestPOA {
         Header contentTypeHeader = new BasicHeader("Content-Type", mediaType.toString());
         httpPut.addHeader(contentTypeHeader);
         HttpResponse response = httpClient.execute(httpPut);
+        EntityUtils.consumeQuietly(response.getEntity());
         int statusCode = response.getStatusLine()
                 .getStatusCode();
         if (!(statusCode == HttpStatus.SC_OK || statusCode == HttpStatus.SC_CREATED
@@ -212,6 +278,51 @@ public class GetRelatedFilesRequestImpl extends GetRelatedFilesRequestPOA {
         return fileName;
     }
 
+    /**
+     * Thumbnails are created by the catalog as JPEG, PNG or GIF images, so those types are taken
+     * from the image signature. Tika is only used for anything else.
+     */
+    private MediaType getMediaType(byte[] thumbnailBytes) throws IOException {
+        if (startsWith(thumbnailBytes, JPEG_SIGNATURE)) {
+            return MediaType.image("jpeg");
+        } else if (startsWith(thumbnailBytes, PNG_SIGNATURE)) {
+            return MediaType.image("png");
+        } else if (startsWith(thumbnailBytes, GIF_SIGNATURE)) {
+            return MediaType.image("gif");
+        }
+
+        try (TikaInputStream tis = TikaInputStream.get(thumbnailBytes)) {
+            return DETECTOR.detect(tis, new Metadata());
+        }
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] signature) {
+        if (bytes.length < signature.length) {
+            return false;
+        }
+
+        for (int i = 0; i < signature.length; i++) {
+            if (bytes[i] != signature[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static MimeType getMimeType(MediaType mediaType) throws MimeTypeException {
+        String name = mediaType.toString();
+        MimeType mimeType = MIME_TYPES.get(name);
+        if (mimeType == null) {
+            mimeType = TikaConfig.getDefaultConfig()
+                    .getMimeRepository()
+                    .forName(name);
+            MIME_TYPES.putIfAbsent(name, mimeType);
+        }
+
+        return mimeType;
+    }
+
     public void setHttpClient(HttpClient httpClient) {
         this.httpClient = httpClient;
     }
@@ -13,29 +13,54 @@
  */
 package org.codice.alliance.nsili.endpoint.requests;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPut;
-import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.protocol.HTTP;
+import org.apache.http.util.EntityUtils;
 import org.apache.shiro.subject.ExecutionException;
 import org.codice.alliance.nsili.common.CB.Callback;
 import org.codice.alliance.nsili.common.GIAS.DelayEstimate;
@@ -51,6 +76,7 @@ import org.codice.alliance.nsili.common.GIAS.PackagingSpec;
 import org.codice.alliance.nsili.common.GIAS.ProductDetails;
 import org.codice.alliance.nsili.common.GIAS.RequestManager;
 import org.codice.alliance.nsili.common.GIAS._RequestManagerStub;
+import org.codice.alliance.nsili.common.NsilCorbaExceptionUtil;
 import org.codice.alliance.nsili.common.PackagingSpecFormatType;
 import org.codice.alliance.nsili.common.UCO.FileLocation;
 import org.codice.alliance.nsili.common.UCO.InvalidInputParameter;
@@ -59,9 +85,10 @@ import org.codice.alliance.nsili.common.UCO.RequestDescription;
 import org.codice.alliance.nsili.common.UCO.State;
 import org.codice.alliance.nsili.common.UCO.Status;
 import org.codice.alliance.nsili.common.UCO.SystemFault;
+import org.codice.alliance.nsili.common.UID.Product;
 import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
+import org.codice.alliance.nsili.endpoint.PooledHttpClient;
 import org.codice.alliance.nsili.endpoint.managers.AccessManagerImpl;
-import org.codice.ddf.platform.util.TemporaryFileBackedOutputStream;
 import org.kamranzafar.jtar.TarEntry;
 import org.kamranzafar.jtar.TarHeader;
 import org.kamranzafar.jtar.TarOutputStream;
@@ -71,7 +98,8 @@ import org.omg.PortableServer.POAPackage.WrongAdapter;
 import org.omg.PortableServer.POAPackage.WrongPolicy;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.io.ByteSource;
+import com.google.common.io.Closer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import ddf.catalog.CatalogFramework;
 import ddf.catalog.data.Metacard;
@@ -92,9 +120,9 @@ public class OrderRequestImpl extends OrderRequestPOA {
 
     private static final int DEFAULT_TAR_PERMISSION = 660;
 
-    private static final int MB = 1024 * 1024;
+    private static final long UNKNOWN_SIZE = -1;
 
-    private static final int MAX_MEMORY_SIZE = 100 * MB;
+    private static final int PIPE_BUFFER_SIZE = 64 * 1024;
 
     private OrderContents order;
 
@@ -106,6 +134,26 @@ public class OrderRequestImpl extends OrderRequestPOA {
 
     private int port;
 
+    private ExecutorService retrievalExecutor;
+
+    private ExecutorService orderExecutor;
+
+    private volatile Future<?> orderFuture;
+
+    private volatile State state = State.PENDING;
+
+    private final AtomicReference<OrderResult> result = new AtomicReference<>();
+
+    private volatile boolean cancelled;
+
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    private final AtomicLong bytesTotal = new AtomicLong();
+
+    private volatile long transferStartMillis;
+
+    private final Map<String, CallbackRegistration> callbacks = new ConcurrentHashMap<>();
+
     public OrderRequestImpl(OrderContents order, String protocol, int port,
             AccessManagerImpl accessManager, CatalogFramework catalogFramework) {
         this.order = order;
@@ -115,105 +163,71 @@ public class OrderRequestImpl extends OrderRequestPOA {
         this.catalogFramework = catalogFramework;
     }
 
+    /**
+     * @param retrievalExecutor executor used to retrieve the ordered products concurrently, may
+     *                          be null to retrieve them on the calling thread
+     */
+    public void setRetrievalExecutor(ExecutorService retrievalExecutor) {
+        this.retrievalExecutor = retrievalExecutor;
+    }
+
+    /**
+     * @param orderExecutor executor used to process the order in the background, may be null to
+     *                      process the order on the thread that calls complete
+     */
+    public void setOrderExecutor(ExecutorService orderExecutor) {
+        this.orderExecutor = orderExecutor;
+    }
+
+    /**
+     * Queues the order to the order executor, which resolves the products, then retrieves,
+     * packages and delivers them. Does nothing if no order executor is set, the order is invalid
+     * or it has already been started.
+     */
+    public synchronized void start() {
+        if (orderExecutor == null || orderFuture != null || result.get() != null
+                || !orderContainsSupportedDelivery() || order.prod_list == null) {
+            return;
+        }
+
+        try {
+            orderFuture = orderExecutor.submit(this::runOrder);
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Unable to queue order", e);
+            finish(State.ABORTED, new ArrayList<>());
+        }
+    }
+
     @Override
     public State complete(DeliveryManifestHolder deliveryManifestHolder)
             throws ProcessingFault, SystemFault {
-        DeliveryManifest deliveryManifest = new DeliveryManifest();
-        List<PackageElement> packageElements = new ArrayList<>();
-
-        if (orderContainsSupportedDelivery()) {
-            try {
-                String filename = null;
-                PackagingSpecFormatType packageFormatType = PackagingSpecFormatType.FILESUNC;
-
-                List<ResourceContainer> files = new ArrayList<>();
-
-                if (order.prod_list != null) {
-                    for (ProductDetails productDetails : order.prod_list) {
-                        if (productDetails != null) {
-                            Metacard metacard = accessManager.getMetacard(productDetails.aProduct);
-                            ResourceRequest resourceRequest =
-                                    new ResourceRequestById(metacard.getId());
-                            ResourceResponse resourceResponse;
-
-                            ResourceRequestCallable resourceRequestCallable =
-                                    new ResourceRequestCallable(resourceRequest,
-                                            metacard.getSourceId());
-                            resourceResponse = NsiliEndpoint.getGuestSubject().execute(resourceRequestCallable);
-
-                            if (resourceResponse != null
-                                    && resourceResponse.getResource() != null) {
-                                Resource resource = resourceResponse.getResource();
-                                ResourceContainer file =
-                                        new ResourceContainer(resource.getInputStream(),
-                                                resource.getName(),
-                                                resource.getSize(),
-                                                resource.getMimeTypeValue());
-                                files.add(file);
-
-                                // Alterations aren't supported, so we will only return original content
-                            }
-                        } else {
-                            LOGGER.info("Order requested for a null product detail");
-                        }
-                    }
-                } else {
-                    throw new BAD_OPERATION("No products specified for the order");
-                }
-
-                if (order.pSpec != null) {
-                    PackagingSpec packagingSpec = order.pSpec;
-                    filename = packagingSpec.package_identifier;
-                    packageFormatType =
-                            PackagingSpecFormatType.valueOf(packagingSpec.packaging_format_and_compression);
-                }
+        if (!orderContainsSupportedDelivery()) {
+            throw new NO_IMPLEMENT("Only HTTP(s) is supported");
+        }
 
-                if (order.del_list != null) {
-                    for (DeliveryDetails deliveryDetails : order.del_list) {
-                        Destination destination = deliveryDetails.dests;
-                        FileLocation httpDestination = destination.f_dest();
-                        if (httpDestination != null) {
-                            String outputName = filename;
-
-                            if (StringUtils.isBlank(outputName)) {
-                                if (StringUtils.isNotBlank(httpDestination.file_name)) {
-                                    outputName = httpDestination.file_name;
-                                } else {
-                                    outputName = UUID.randomUUID()
-                                            .toString();
-                                }
-                            }
+        if (order.prod_list == null) {
+            throw new BAD_OPERATION("No products specified for the order");
+        }
 
-                            List<String> filesSent = writeData(httpDestination,
-                                    packageFormatType,
-                                    files,
-                                    outputName);
-                            PackageElement packageElement = new PackageElement();
-                            packageElement.files = filesSent.toArray(new String[filesSent.size()]);
-                            packageElements.add(packageElement);
-                        }
-                    }
-                }
-            } catch (UnsupportedEncodingException | WrongAdapter | WrongPolicy e) {
-                LOGGER.error("Unable to get Metacard for product: {}", e);
-                LOGGER.debug("Metacard retrieval error details", e);
-            } catch (IOException | ExecutionException | SecurityServiceException e) {
-                LOGGER.error("Unable to retrieve resource: {}", e);
-                LOGGER.debug("Retrieve resource error details", e);
+        if (orderExecutor == null) {
+            synchronized (this) {
+                runOrder();
             }
         } else {
-            throw new NO_IMPLEMENT("Only HTTP(s) is supported");
+            start();
         }
 
-        if (order.pSpec != null) {
-            deliveryManifest.package_name = order.pSpec.package_identifier;
+        // The state and manifest are published together, so they always describe the same
+        // point of the order
+        OrderResult orderResult = result.get();
+        if (orderResult != null) {
+            deliveryManifestHolder.value = orderResult.getDeliveryManifest();
+            return orderResult.getState();
         }
 
-        deliveryManifest.elements =
-                packageElements.toArray(new PackageElement[packageElements.size()]);
-        deliveryManifestHolder.value = deliveryManifest;
-
-        return State.COMPLETED;
+        State currentState = state;
+        deliveryManifestHolder.value = createDeliveryManifest(new ArrayList<>());
+        return currentState;
     }
 
     @Override
@@ -228,27 +242,73 @@ public class OrderRequestImpl extends OrderRequestPOA {
 
     @Override
     public Status get_status() throws ProcessingFault, SystemFault {
-        return new Status();
+        State currentState = getState();
+        switch (currentState.value()) {
+        case State._PENDING:
+            return new Status(currentState, false, "Order is queued");
+        case State._IN_PROGRESS:
+            return new Status(currentState,
+                    false,
+                    String.format("Delivered %d of %d product bytes",
+                            bytesSent.get(),
+                            bytesTotal.get()));
+        case State._ABORTED:
+            return new Status(currentState, false, "Order could not be delivered");
+        case State._CANCELED:
+            return new Status(currentState, false, "Order has been cancelled");
+        default:
+            return new Status(currentState, false, "Order has been delivered");
+        }
     }
 
     @Override
     public DelayEstimate get_remaining_delay() throws ProcessingFault, SystemFault {
-        return new DelayEstimate();
+        if (isFinished()) {
+            return new DelayEstimate(0, true);
+        }
+
+        long sent = bytesSent.get();
+        long total = bytesTotal.get();
+        long elapsedMillis = System.currentTimeMillis() - transferStartMillis;
+        if (sent <= 0 || total <= 0 || elapsedMillis <= 0) {
+            return new DelayEstimate(0, false);
+        }
+
+        long remainingSecs = Math.max(0, total - sent) * elapsedMillis / sent / 1000;
+        return new DelayEstimate((int) Math.min(Integer.MAX_VALUE, remainingSecs), true);
     }
 
     @Override
     public void cancel() throws ProcessingFault, SystemFault {
+        cancelled = true;
+        Future<?> future = orderFuture;
+        if (future != null && future.cancel(true)) {
+            // When the order had already started it finishes itself, so only one of the two
+            // results is kept
+            finish(State.CANCELED, new ArrayList<>());
+        }
     }
 
     @Override
     public String register_callback(Callback acallback)
             throws InvalidInputParameter, ProcessingFault, SystemFault {
-        return "";
+        String id = UUID.randomUUID()
+                .toString();
+        CallbackRegistration registration = new CallbackRegistration(acallback);
+        callbacks.put(id, registration);
+
+        OrderResult orderResult = result.get();
+        if (orderResult != null) {
+            registration.notifyOnce(orderResult.getState());
+        }
+
+        return id;
     }
 
     @Override
     public void free_callback(String id)
             throws InvalidInputParameter, ProcessingFault, SystemFault {
+        callbacks.remove(id);
     }
 
     @Override
@@ -256,6 +316,161 @@ public class OrderRequestImpl extends OrderRequestPOA {
         return new _RequestManagerStub();
     }
 
+    private List<Metacard> getMetacards() {
+        List<Product> products = new ArrayList<>();
+        for (ProductDetails productDetails : order.prod_list) {
+            if (productDetails != null) {
+                products.add(productDetails.aProduct);
+            } else {
+                LOGGER.info("Order requested for a null product detail");
+            }
+        }
+
+        try {
+            return accessManager.getMetacards(products);
+        } catch (UnsupportedEncodingException | WrongAdapter | WrongPolicy e) {
+            LOGGER.error("Unable to get Metacard for product: {}", e);
+            LOGGER.debug("Metacard retrieval error details", e);
+            return null;
+        }
+    }
+
+    private void runOrder() {
+        if (result.get() != null) {
+            return;
+        }
+
+        List<Metacard> metacards = getMetacards();
+        if (metacards != null) {
+            processOrder(metacards);
+        } else {
+            finish(State.ABORTED, new ArrayList<>());
+        }
+    }
+
+    private void processOrder(List<Metacard> metacards) {
+        state = State.IN_PROGRESS;
+        State finalState = State.COMPLETED;
+        List<PackageElement> packageElements = new ArrayList<>();
+
+        try {
+            String filename = null;
+            PackagingSpecFormatType packageFormatType = PackagingSpecFormatType.FILESUNC;
+
+            // Alterations aren't supported, so we will only return original content
+            List<ResourceContainer> files = getResources(metacards);
+
+            if (order.pSpec != null) {
+                PackagingSpec packagingSpec = order.pSpec;
+                filename = packagingSpec.package_identifier;
+                packageFormatType =
+                        PackagingSpecFormatType.valueOf(packagingSpec.packaging_format_and_compression);
+            }
+
+            if (order.del_list != null) {
+                List<String> outputNames = new ArrayList<>();
+                Map<String, List<FileLocation>> destinations = new LinkedHashMap<>();
+                for (DeliveryDetails deliveryDetails : order.del_list) {
+                    Destination destination = deliveryDetails.dests;
+                    FileLocation httpDestination = destination.f_dest();
+                    if (httpDestination != null) {
+                        String outputName = filename;
+
+                        if (StringUtils.isBlank(outputName)) {
+                            if (StringUtils.isNotBlank(httpDestination.file_name)) {
+                                outputName = httpDestination.file_name;
+                            } else {
+                                outputName = UUID.randomUUID()
+                                        .toString();
+                            }
+                        }
+
+                        outputNames.add(outputName);
+                        destinations.computeIfAbsent(outputName, name -> new ArrayList<>())
+                                .add(httpDestination);
+                    }
+                }
+
+                Map<String, List<String>> filesSentByName = writeData(destinations,
+                        packageFormatType,
+                        files);
+
+                for (String outputName : outputNames) {
+                    List<String> filesSent = filesSentByName.get(outputName);
+                    PackageElement packageElement = new PackageElement();
+                    packageElement.files = filesSent.toArray(new String[filesSent.size()]);
+                    packageElements.add(packageElement);
+                }
+            }
+        } catch (IOException | ExecutionException e) {
+            LOGGER.error("Unable to retrieve resource: {}", e);
+            LOGGER.debug("Retrieve resource error details", e);
+            finalState = State.ABORTED;
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to complete order", e);
+            finalState = State.ABORTED;
+        }
+
+        if (cancelled) {
+            finalState = State.CANCELED;
+        }
+
+        finish(finalState, packageElements);
+    }
+
+    /**
+     * Publishes the final state of the order and notifies the callbacks. Only the first result
+     * is kept, so callbacks are notified once when a cancellation races with the order.
+     */
+    private void finish(State finalState, List<PackageElement> packageElements) {
+        OrderResult orderResult = new OrderResult(finalState,
+                createDeliveryManifest(packageElements));
+        if (result.compareAndSet(null, orderResult)) {
+            callbacks.values()
+                    .forEach(registration -> registration.notifyOnce(finalState));
+        }
+    }
+
+    private DeliveryManifest createDeliveryManifest(List<PackageElement> packageElements) {
+        DeliveryManifest manifest = new DeliveryManifest();
+        if (order.pSpec != null) {
+            manifest.package_name = order.pSpec.package_identifier;
+        }
+
+        manifest.elements = packageElements.toArray(new PackageElement[packageElements.size()]);
+        return manifest;
+    }
+
+    private State getState() {
+        OrderResult orderResult = result.get();
+        return orderResult != null ? orderResult.getState() : state;
+    }
+
+    private boolean isFinished() {
+        return result.get() != null;
+    }
+
+    /**
+     * Describes the ordered products from their metacards, in the same order as the metacards.
+     * Nothing is retrieved here, each product is retrieved when the packager reaches it.
+     */
+    private List<ResourceContainer> getResources(List<Metacard> metacards) {
+        List<ResourceContainer> files = new ArrayList<>();
+        ResourceContainer previous = null;
+        for (Metacard metacard : metacards) {
+            ResourceContainer file = new ResourceContainer(metacard,
+                    new ResourceRequestCallable(new ResourceRequestById(metacard.getId()),
+                            metacard.getSourceId()));
+            if (previous != null) {
+                previous.setNext(file);
+            }
+            files.add(file);
+            previous = file;
+        }
+
+        return files;
+    }
+
     private boolean orderContainsSupportedDelivery() {
         if (order.del_list != null) {
             for (DeliveryDetails deliveryDetails : order.del_list) {
@@ -270,457 +485,694 @@ public class OrderRequestImpl extends OrderRequestPOA {
         return false;
     }
 
-    private List<String> writeData(FileLocation destination,
-            PackagingSpecFormatType packagingSpecFormatType, List<ResourceContainer> files,
-            String filename) throws IOException {
-
-        List<String> sentFiles = new ArrayList<>();
+    /**
+     * Streams the ordered files in the requested packaging to every destination. Each package is
+     * encoded once while it is being sent, so nothing is staged locally, and the encoded bytes are
+     * split to all destinations that receive the same package.
+     *
+     * @param destinations            the destinations grouped by output file name
+     * @param packagingSpecFormatType the requested packaging
+     * @param files                   the ordered files
+     * @return the names of the files sent, keyed by output file name
+     * @throws IOException when the files can't be packaged or sent
+     */
+    private Map<String, List<String>> writeData(Map<String, List<FileLocation>> destinations,
+            PackagingSpecFormatType packagingSpecFormatType, List<ResourceContainer> files)
+            throws IOException {
+        Map<String, List<String>> sentFiles = new HashMap<>();
+        ExecutorService deliveryExecutor = null;
+
+        try (Closer closer = Closer.create()) {
+            for (ResourceContainer file : files) {
+                closer.register(file);
+            }
 
-        if (!files.isEmpty()) {
-            if (files.size() > 1) {
-                int totalNum = files.size() + 1;
-                String totalNumPortion = String.format(FILE_COUNT_FORMAT, totalNum);
+            long filesBytes = files.stream()
+                    .mapToLong(file -> Math.max(0, file.getSize()))
+                    .sum();
+            bytesTotal.set(filesBytes * destinations.size());
+            transferStartMillis = System.currentTimeMillis();
+
+            int maxDestinations = destinations.values()
+                    .stream()
+                    .mapToInt(List::size)
+                    .max()
+                    .orElse(0);
+            if (maxDestinations > 1) {
+                deliveryExecutor = Executors.newFixedThreadPool(maxDestinations,
+                        new ThreadFactoryBuilder().setNameFormat("nsiliOrderDelivery-%d")
+                                .setDaemon(true)
+                                .build());
+            }
 
-                switch (packagingSpecFormatType) {
-                case FILESUNC: {
-                    int currNum = 1;
-                    for (ResourceContainer file : files) {
-                        String currNumPortion = String.format(FILE_COUNT_FORMAT, currNum);
-                        String currFileName =
-                                filename + "." + currNumPortion + "." + totalNumPortion;
-                        writeFile(destination,
-                                file.getInputStream(),
-                                file.getSize(),
-                                currFileName,
-                                file.getMimeTypeValue());
-                        currNum++;
-                        sentFiles.add(currFileName);
-                    }
-                }
-                break;
-                case FILESCOMPRESS: {
-                    int currNum = 1;
-                    for (ResourceContainer file : files) {
-                        try (TemporaryFileBackedOutputStream fos = new TemporaryFileBackedOutputStream(
-                                MAX_MEMORY_SIZE);
-                                ZipOutputStream zipOut = new ZipOutputStream(fos)) {
-                            getZip(zipOut, file.getInputStream(), file.getName());
-                            ByteSource contents = fos.asByteSource();
-                            String currNumPortion = String.format(FILE_COUNT_FORMAT, currNum);
-                            String currFileName =
-                                    filename + "." + currNumPortion + "." + totalNumPortion
-                                            + packagingSpecFormatType.getExtension();
-                            writeFile(destination,
-                                    contents.openStream(),
-                                    contents.size(),
-                                    currFileName,
-                                    packagingSpecFormatType.getContentType());
-                            sentFiles.add(currFileName);
-                            currNum++;
-                        }
-                    }
-                }
-                break;
-                case FILESZIP: {
-                    try (TemporaryFileBackedOutputStream fos = new TemporaryFileBackedOutputStream(
-                            MAX_MEMORY_SIZE);
-                            ZipOutputStream zipOut = new ZipOutputStream(fos)) {
-                        getZip(zipOut, files);
-                        ByteSource zip = fos.asByteSource();
-                        writeFile(destination, packagingSpecFormatType, filename, sentFiles, zip);
-                    }
-                }
-                break;
-                case FILESGZIP: {
-                    int currNum = 1;
-                    for (ResourceContainer file : files) {
-                        try (TemporaryFileBackedOutputStream fos = new TemporaryFileBackedOutputStream(
-                                MAX_MEMORY_SIZE);
-                                GZIPOutputStream zipOut = new GZIPOutputStream(fos)) {
-                            getGzip(zipOut, file.getInputStream());
-                            ByteSource contents = fos.asByteSource();
-                            String currNumPortion = String.format(FILE_COUNT_FORMAT, currNum);
-                            String currFileName =
-                                    filename + "." + currNumPortion + "." + totalNumPortion
-                                            + packagingSpecFormatType.getExtension();
-                            writeFile(destination,
-                                    contents.openStream(),
-                                    contents.size(),
-                                    currFileName,
-                                    packagingSpecFormatType.getContentType());
-                            sentFiles.add(currFileName);
-                            currNum++;
-                        }
-                    }
-                }
-                break;
-                case TARUNC: {
-                    try (TemporaryFileBackedOutputStream fos = new TemporaryFileBackedOutputStream(
-                            MAX_MEMORY_SIZE);
-                            TarOutputStream tarOut = new TarOutputStream(fos)) {
-                        getTar(tarOut, files);
-                        ByteSource tar = fos.asByteSource();
-                        writeFile(destination, packagingSpecFormatType, filename, sentFiles, tar);
-                    }
-                }
-                break;
-                case TARZIP: {
-                    try (TemporaryFileBackedOutputStream tarFos = new TemporaryFileBackedOutputStream(
-                            MAX_MEMORY_SIZE);
-                            TarOutputStream tarOut = new TarOutputStream(tarFos)) {
-                        getTar(tarOut, files);
-                        try (TemporaryFileBackedOutputStream zipFos = new TemporaryFileBackedOutputStream(
-                                MAX_MEMORY_SIZE);
-                                ZipOutputStream zipOut = new ZipOutputStream(zipFos)) {
-                            getZip(zipOut,
-                                    tarFos.asByteSource()
-                                            .openStream(),
-                                    filename + ".tar");
-                            ByteSource zip = zipFos.asByteSource();
-                            writeFile(destination,
-                                    packagingSpecFormatType,
-                                    filename,
-                                    sentFiles,
-                                    zip);
-                        }
-                    }
-                }
-                break;
-                case TARGZIP: {
-                    try (TemporaryFileBackedOutputStream tarFos = new TemporaryFileBackedOutputStream(
-                            MAX_MEMORY_SIZE);
-                            TarOutputStream tarOut = new TarOutputStream(tarFos)) {
-                        getTar(tarOut, files);
-                        try (TemporaryFileBackedOutputStream gzipFos = new TemporaryFileBackedOutputStream(
-                                MAX_MEMORY_SIZE);
-                                GZIPOutputStream zipOut = new GZIPOutputStream(gzipFos)) {
-                            getGzip(zipOut,
-                                    tarFos.asByteSource()
-                                            .openStream());
-                            ByteSource zip = gzipFos.asByteSource();
-                            writeFile(destination,
-                                    packagingSpecFormatType,
-                                    filename,
-                                    sentFiles,
-                                    zip);
-                        }
-                    }
+            for (Map.Entry<String, List<FileLocation>> entry : destinations.entrySet()) {
+                List<PackageFile> packageFiles = new ArrayList<>();
+                if (!files.isEmpty()) {
+                    packageFiles = createPackage(packagingSpecFormatType, files, entry.getKey());
                 }
-                break;
-                case TARCOMPRESS: {
-                    try (TemporaryFileBackedOutputStream tarFos = new TemporaryFileBackedOutputStream(
-                            MAX_MEMORY_SIZE);
-                            TarOutputStream tarOut = new TarOutputStream(tarFos)) {
-                        getTar(tarOut, files);
-                        try (TemporaryFileBackedOutputStream zipFos = new TemporaryFileBackedOutputStream(
-                                MAX_MEMORY_SIZE);
-                                ZipOutputStream zipOut = new ZipOutputStream(zipFos)) {
-                            getZip(zipOut,
-                                    tarFos.asByteSource()
-                                            .openStream(),
-                                    filename + ".tar");
-                            writeFile(destination,
-                                    packagingSpecFormatType,
-                                    filename,
-                                    sentFiles,
-                                    zipFos.asByteSource());
-                        }
+
+                List<String> sent = new ArrayList<>();
+                for (PackageFile packageFile : packageFiles) {
+                    if (cancelled) {
+                        throw new InterruptedIOException("Order has been cancelled");
                     }
+                    writeToAll(entry.getValue(), packageFile, deliveryExecutor);
+                    sent.add(packageFile.getName());
                 }
-                break;
-                default:
-                    break;
-                }
+                sentFiles.put(entry.getKey(), sent);
+            }
+        } finally {
+            if (deliveryExecutor != null) {
+                deliveryExecutor.shutdownNow();
+            }
+        }
 
-            } else {
-                ResourceContainer file = files.iterator()
-                        .next();
-
-                switch (packagingSpecFormatType) {
-                case FILESUNC: {
-                    writeFile(destination,
-                            file.getInputStream(),
-                            file.getSize(),
-                            filename,
-                            file.getMimeTypeValue());
-                    sentFiles.add(filename);
-                }
-                break;
-                case FILESCOMPRESS: {
-                    try (TemporaryFileBackedOutputStream fos = new TemporaryFileBackedOutputStream(
-                            MAX_MEMORY_SIZE);
-                            ZipOutputStream zipOut = new ZipOutputStream(fos)) {
-                        getZip(zipOut, file.getInputStream(), file.getName());
-                        ByteSource contents = fos.asByteSource();
+        return sentFiles;
+    }
 
+    /**
+     * Sends a package file to the destinations. A single destination is written on the calling
+     * thread. Otherwise each destination is sent from its own thread, reading from a pipe, while
+     * the package is encoded once on the calling thread into all of the pipes.
+     */
+    private void writeToAll(List<FileLocation> destinations, PackageFile packageFile,
+            ExecutorService deliveryExecutor) throws IOException {
+        packageFile.open();
+        if (destinations.size() == 1) {
+            writeFile(destinations.get(0),
+                    packageFile.getWriter(),
+                    packageFile.getSize(),
+                    packageFile.getName(),
+                    packageFile.getContentType());
+            return;
+        }
+
+        List<Future<?>> deliveries = new ArrayList<>();
+        boolean delivered = false;
+
+        try {
+            OutputStream packageOut = null;
+            for (FileLocation destination : destinations) {
+                PipedOutputStream pipeOut = new PipedOutputStream();
+                PipedInputStream pipeIn = new PipedInputStream(pipeOut, PIPE_BUFFER_SIZE);
+                packageOut = packageOut == null ? pipeOut : new TeeOutputStream(packageOut,
+                        pipeOut);
+                deliveries.add(deliveryExecutor.submit(() -> {
+                    // Closing the pipe makes the encoder fail rather than block when this
+                    // destination stops reading
+                    try (InputStream in = pipeIn) {
                         writeFile(destination,
-                                packagingSpecFormatType,
-                                filename,
-                                sentFiles,
-                                contents);
-                    }
-                }
-                break;
-                case TARUNC:
-                    try (TemporaryFileBackedOutputStream fos = new TemporaryFileBackedOutputStream(
-                            MAX_MEMORY_SIZE);
-                            TarOutputStream tarOut = new TarOutputStream(fos)) {
-                        getTar(tarOut, file);
-                        ByteSource contents = fos.asByteSource();
-                        writeFile(destination,
-                                packagingSpecFormatType,
-                                filename,
-                                sentFiles,
-                                contents);
-                    }
-                    break;
-                case TARZIP: {
-                    try (TemporaryFileBackedOutputStream tarFos = new TemporaryFileBackedOutputStream(
-                            MAX_MEMORY_SIZE);
-                            TarOutputStream tarOut = new TarOutputStream(tarFos)) {
-                        getTar(tarOut, file);
-                        try (TemporaryFileBackedOutputStream zipFos = new TemporaryFileBackedOutputStream(
-                                MAX_MEMORY_SIZE);
-                                ZipOutputStream zipOut = new ZipOutputStream(zipFos)) {
-                            getZip(zipOut,
-                                    tarFos.asByteSource()
-                                            .openStream(),
-                                    filename + ".tar");
-                            ByteSource contents = zipFos.asByteSource();
-
-                            writeFile(destination,
-                                    packagingSpecFormatType,
-                                    filename,
-                                    sentFiles,
-                                    contents);
-                        }
-                    }
-                }
-                break;
-                case FILESZIP:
-                    try (TemporaryFileBackedOutputStream fos = new TemporaryFileBackedOutputStream(
-                            MAX_MEMORY_SIZE);
-                            GZIPOutputStream zipOut = new GZIPOutputStream(fos)) {
-                        getGzip(zipOut, file.getInputStream());
-                        ByteSource contents = fos.asByteSource();
-                        writeFile(destination,
-                                packagingSpecFormatType,
-                                filename,
-                                sentFiles,
-                                contents);
-                    }
-                    break;
-                case TARGZIP: {
-                    try (TemporaryFileBackedOutputStream tarFos = new TemporaryFileBackedOutputStream(
-                            MAX_MEMORY_SIZE);
-                            TarOutputStream tarOut = new TarOutputStream(tarFos)) {
-                        getTar(tarOut, file);
-                        try (TemporaryFileBackedOutputStream gzipFos = new TemporaryFileBackedOutputStream(
-                                MAX_MEMORY_SIZE);
-                                GZIPOutputStream zipOut = new GZIPOutputStream(gzipFos)) {
-                            getGzip(zipOut,
-                                    tarFos.asByteSource()
-                                            .openStream());
-                            ByteSource contents = gzipFos.asByteSource();
-                            writeFile(destination,
-                                    packagingSpecFormatType,
-                                    filename,
-                                    sentFiles,
-                                    contents);
-                        }
-                    }
-                }
-                break;
-                case FILESGZIP:
-                    try (TemporaryFileBackedOutputStream fos = new TemporaryFileBackedOutputStream(
-                            MAX_MEMORY_SIZE);
-                            GZIPOutputStream zipOut = new GZIPOutputStream(fos)) {
-                        getGzip(zipOut, file.getInputStream());
-                        ByteSource contents = fos.asByteSource();
-                        writeFile(destination,
-                                packagingSpecFormatType,
-                                filename,
-                                sentFiles,
-                                contents);
-                    }
-                    break;
-                case TARCOMPRESS: {
-                    try (TemporaryFileBackedOutputStream tarFos = new TemporaryFileBackedOutputStream(
-                            MAX_MEMORY_SIZE);
-                            TarOutputStream tarOut = new TarOutputStream(tarFos)) {
-                        getTar(tarOut, file);
-                        try (TemporaryFileBackedOutputStream zipFos = new TemporaryFileBackedOutputStream(
-                                MAX_MEMORY_SIZE);
-                                ZipOutputStream zipOut = new ZipOutputStream(zipFos)) {
-                            getZip(zipOut,
-                                    tarFos.asByteSource()
-                                            .openStream(),
-                                    filename + ".tar");
-                            ByteSource contents = zipFos.asByteSource();
-
-                            writeFile(destination,
-                                    packagingSpecFormatType,
-                                    filename,
-                                    sentFiles,
-                                    contents);
-                        }
+                                out -> IOUtils.copy(in, out),
+                                packageFile.getSize(),
+                                packageFile.getName(),
+                                packageFile.getContentType());
                     }
-                }
-                break;
-                default:
-                    break;
-                }
+                    return null;
+                }));
+            }
+
+            try (OutputStream out = packageOut) {
+                packageFile.getWriter()
+                        .write(out);
+            }
+
+            for (Future<?> delivery : deliveries) {
+                awaitDelivery(delivery);
+            }
+            delivered = true;
+        } finally {
+            if (!delivered) {
+                // Interrupting the readers aborts the requests instead of ending them as if the
+                // package was complete
+                deliveries.forEach(delivery -> delivery.cancel(true));
             }
         }
+    }
 
-        return sentFiles;
+    private void awaitDelivery(Future<?> delivery) throws IOException {
+        try {
+            delivery.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+            throw new InterruptedIOException("Interrupted while delivering the order");
+        } catch (java.util.concurrent.ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Unable to deliver the order", cause);
+        }
+    }
+
+    /**
+     * Describes the files of the requested packaging. Each package is encoded in a single pass
+     * when it is written, with nested formats (such as a tar inside a zip) streamed through each
+     * other rather than staged separately.
+     */
+    private List<PackageFile> createPackage(PackagingSpecFormatType packagingSpecFormatType,
+            List<ResourceContainer> files, String filename) {
+        List<PackageFile> packageFiles = new ArrayList<>();
+        String extension = packagingSpecFormatType.getExtension();
+        String contentType = packagingSpecFormatType.getContentType();
+
+        switch (packagingSpecFormatType) {
+        case FILESUNC:
+            for (int i = 0; i < files.size(); i++) {
+                packageFiles.add(new PackageFile(getFileName(filename, i, files.size()),
+                        files.get(i)));
+            }
+            break;
+        case FILESCOMPRESS:
+            for (int i = 0; i < files.size(); i++) {
+                List<ResourceContainer> file = Collections.singletonList(files.get(i));
+                String name = getFileName(filename, i, files.size()) + extension;
+                packageFiles.add(new PackageFile(name,
+                        contentType,
+                        UNKNOWN_SIZE,
+                        out -> writeZip(out, file)));
+            }
+            break;
+        case FILESGZIP:
+            for (int i = 0; i < files.size(); i++) {
+                ResourceContainer file = files.get(i);
+                String name = getFileName(filename, i, files.size()) + extension;
+                packageFiles.add(new PackageFile(name,
+                        contentType,
+                        UNKNOWN_SIZE,
+                        out -> writeGzip(out, file)));
+            }
+            break;
+        case FILESZIP:
+            packageFiles.add(new PackageFile(filename + extension,
+                    contentType,
+                    UNKNOWN_SIZE,
+                    out -> writeZip(out, files)));
+            break;
+        case TARUNC:
+            packageFiles.add(new PackageFile(filename + extension,
+                    contentType,
+                    UNKNOWN_SIZE,
+                    out -> writeTar(out, files)));
+            break;
+        case TARZIP:
+        case TARCOMPRESS:
+            packageFiles.add(new PackageFile(filename + extension,
+                    contentType,
+                    UNKNOWN_SIZE,
+                    out -> writeTarZip(out, files, filename + ".tar")));
+            break;
+        case TARGZIP:
+            packageFiles.add(new PackageFile(filename + extension,
+                    contentType,
+                    UNKNOWN_SIZE,
+                    out -> writeTarGzip(out, files)));
+            break;
+        default:
+            break;
+        }
+
+        return packageFiles;
     }
 
-    private void writeFile(FileLocation destination,
-            PackagingSpecFormatType packagingSpecFormatType, String filename,
-            List<String> sentFiles, ByteSource contents) throws IOException {
-        String filenameWithExt = filename + packagingSpecFormatType.getExtension();
-        writeFile(destination,
-                contents.openStream(),
-                contents.size(),
-                filenameWithExt,
-                packagingSpecFormatType.getContentType());
-        sentFiles.add(filenameWithExt);
+    private String getFileName(String filename, int index, int numFiles) {
+        if (numFiles > 1) {
+            String totalNumPortion = String.format(FILE_COUNT_FORMAT, numFiles + 1);
+            String currNumPortion = String.format(FILE_COUNT_FORMAT, index + 1);
+            return filename + "." + currNumPortion + "." + totalNumPortion;
+        }
+
+        return filename;
     }
 
-    protected void writeFile(FileLocation destination, InputStream fileData, long size, String name,
-            String contentType) throws IOException {
-        CloseableHttpClient httpClient = null;
+    /**
+     * Sends a package file to the destination with an HTTP PUT on the shared connection pool.
+     *
+     * @param destination the destination of the file
+     * @param fileData    writes the file contents
+     * @param size        the size of the file in bytes, or -1 when it isn't known in advance
+     * @param name        the name of the file
+     * @param contentType the content type of the file
+     * @throws IOException when the file can't be written or the destination doesn't accept it
+     */
+    protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
+            String name, String contentType) throws IOException {
         String urlPath =
                 protocol + "://" + destination.host_name + ":" + port + "/" + destination.path_name
                         + "/" + name;
 
         LOGGER.debug("Writing ordered file to URL: {}", urlPath);
 
-        try {
-            HttpPut putMethod = new HttpPut(urlPath);
-            putMethod.addHeader(HTTP.CONTENT_TYPE, contentType);
-            HttpEntity httpEntity = new InputStreamEntity(fileData, size);
-            putMethod.setEntity(httpEntity);
-
-            if (destination.user_name != null && destination.password != null) {
-                CredentialsProvider credsProvider = new BasicCredentialsProvider();
-                credsProvider.setCredentials(new AuthScope(destination.host_name, port),
-                        new UsernamePasswordCredentials(destination.user_name,
-                                destination.password));
-                httpClient = HttpClients.custom()
-                        .setDefaultCredentialsProvider(credsProvider)
-                        .build();
-            } else {
-                httpClient = HttpClients.createDefault();
-            }
+        HttpPut putMethod = new HttpPut(urlPath);
+        putMethod.addHeader(HTTP.CONTENT_TYPE, contentType);
+        HttpEntity httpEntity = new PackageEntity(fileData, size);
+        putMethod.setEntity(httpEntity);
+
+        HttpClientContext context = HttpClientContext.create();
+        if (destination.user_name != null && destination.password != null) {
+            CredentialsProvider credsProvider = new BasicCredentialsProvider();
+            credsProvider.setCredentials(new AuthScope(destination.host_name, port),
+                    new UsernamePasswordCredentials(destination.user_name, destination.password));
+            context.setCredentialsProvider(credsProvider);
+        }
 
-            httpClient.execute(putMethod);
-            fileData.close();
-            putMethod.releaseConnection();
-        } finally {
-            if (httpClient != null) {
-                httpClient.close();
+        try (CloseableHttpResponse response = PooledHttpClient.getHttpClient()
+                .execute(putMethod, context)) {
+            EntityUtils.consumeQuietly(response.getEntity());
+            int statusCode = response.getStatusLine()
+                    .getStatusCode();
+            if (!(statusCode == HttpStatus.SC_OK || statusCode == HttpStatus.SC_CREATED
+                    || statusCode == HttpStatus.SC_ACCEPTED
+                    || statusCode == HttpStatus.SC_NO_CONTENT)) {
+                throw new IOException(String.format("Unable to PUT file %s: code: %d, status: %s",
+                        urlPath,
+                        statusCode,
+                        response.getStatusLine()
+                                .getReasonPhrase()));
             }
         }
     }
 
-    private void getTar(TarOutputStream tarOut, List<ResourceContainer> files) throws IOException {
+    private void writeTar(OutputStream out, List<ResourceContainer> files) throws IOException {
         long modTime = System.currentTimeMillis() / 1000;
         int permissions = DEFAULT_TAR_PERMISSION;
 
-        for (ResourceContainer file : files) {
-            TarHeader fileHeader = TarHeader.createHeader(file.getName(),
-                    file.getSize(),
-                    modTime,
-                    false,
-                    permissions);
-            tarOut.putNextEntry(new TarEntry(fileHeader));
-            IOUtils.copy(file.getInputStream(), tarOut);
+        try (TarOutputStream tarOut = new TarOutputStream(out)) {
+            for (ResourceContainer file : files) {
+                file.open();
+                TarHeader fileHeader = TarHeader.createHeader(file.getName(),
+                        file.getSize(),
+                        modTime,
+                        false,
+                        permissions);
+                tarOut.putNextEntry(new TarEntry(fileHeader));
+                copy(file, tarOut);
+            }
         }
+    }
 
-        tarOut.flush();
+    private void writeTarZip(OutputStream out, List<ResourceContainer> files, String tarName)
+            throws IOException {
+        try (ZipOutputStream zipOut = new ZipOutputStream(out)) {
+            zipOut.putNextEntry(new ZipEntry(tarName));
+            writeTar(new CloseShieldOutputStream(zipOut), files);
+            zipOut.closeEntry();
+        }
     }
 
-    private void getTar(TarOutputStream tarOut, ResourceContainer file) throws IOException {
-        long modTime = System.currentTimeMillis() / 1000;
-        int permissions = DEFAULT_TAR_PERMISSION;
+    private void writeTarGzip(OutputStream out, List<ResourceContainer> files)
+            throws IOException {
+        try (GZIPOutputStream zipOut = new GZIPOutputStream(out)) {
+            writeTar(new CloseShieldOutputStream(zipOut), files);
+        }
+    }
 
-        TarHeader fileHeader = TarHeader.createHeader(file.getName(),
-                file.getSize(),
-                modTime,
-                false,
-                permissions);
-        tarOut.putNextEntry(new TarEntry(fileHeader));
-        IOUtils.copy(file.getInputStream(), tarOut);
+    private void writeGzip(OutputStream out, ResourceContainer file) throws IOException {
+        try (GZIPOutputStream zipOut = new GZIPOutputStream(out)) {
+            copy(file, zipOut);
+        }
+    }
 
-        tarOut.flush();
+    private void writeZip(OutputStream out, List<ResourceContainer> files) throws IOException {
+        Set<String> addedFiles = new HashSet<>();
 
+        try (ZipOutputStream zipOut = new ZipOutputStream(out)) {
+            for (ResourceContainer file : files) {
+                file.open();
+                if (addedFiles.add(file.getName())) {
+                    zipOut.putNextEntry(new ZipEntry(file.getName()));
+                    copy(file, zipOut);
+                    zipOut.closeEntry();
+                }
+            }
+        }
     }
 
-    private void getGzip(GZIPOutputStream zipOut, InputStream data) throws IOException {
-        IOUtils.copy(data, zipOut);
-        zipOut.flush();
+    private void copy(ResourceContainer file, OutputStream out) throws IOException {
+        file.copyTo(out);
     }
 
-    private void getZip(ZipOutputStream zipOut, InputStream data, String name) throws IOException {
-
-        ZipEntry zipEntry = new ZipEntry(name);
-        zipOut.putNextEntry(zipEntry);
-        IOUtils.copy(data, zipOut);
+    /**
+     * Counts the product bytes read by the delivery so progress can be reported while it is
+     * running.
+     */
+    private class ProgressInputStream extends ProxyInputStream {
+        ProgressInputStream(InputStream inputStream) {
+            super(inputStream);
+        }
 
-        zipOut.flush();
+        @Override
+        protected void afterRead(int n) {
+            if (n > 0) {
+                bytesSent.addAndGet(n);
+            }
+        }
+    }
 
+    /**
+     * Writes the contents of a package file. The contents are encoded as they are written.
+     */
+    @FunctionalInterface
+    public interface PackageWriter {
+        void write(OutputStream out) throws IOException;
     }
 
-    private void getZip(ZipOutputStream zipOut, List<ResourceContainer> files) throws IOException {
+    /**
+     * Streams a package file into the request body as it is written. The length is sent when it
+     * is known, otherwise the body is chunked.
+     */
+    private static class PackageEntity extends AbstractHttpEntity {
+        private final PackageWriter packageWriter;
 
-        List<String> addedFiles = new ArrayList<>();
-        for (ResourceContainer file : files) {
-            if (!addedFiles.contains(file.getName())) {
-                ZipEntry zipEntry = new ZipEntry(file.getName());
-                zipOut.putNextEntry(zipEntry);
-                IOUtils.copy(file.getInputStream(), zipOut);
-                addedFiles.add(file.getName());
-            }
+        private final long size;
+
+        PackageEntity(PackageWriter packageWriter, long size) {
+            this.packageWriter = packageWriter;
+            this.size = size;
+            setChunked(size < 0);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        @Override
+        public long getContentLength() {
+            return size;
+        }
+
+        @Override
+        public InputStream getContent() {
+            throw new UnsupportedOperationException("Package contents can only be written");
         }
 
-        zipOut.flush();
+        @Override
+        public void writeTo(OutputStream outstream) throws IOException {
+            // The encoders close their streams to write trailers, the request body stays open
+            packageWriter.write(new CloseShieldOutputStream(outstream));
+        }
 
+        @Override
+        public boolean isStreaming() {
+            return true;
+        }
     }
 
-    class ResourceContainer {
-        private InputStream inputStream;
+    /**
+     * A file of the requested packaging. An uncompressed product is sent as is, so its size and
+     * content type are the ones of the product once it has been opened.
+     */
+    private static class PackageFile {
+        private final String name;
 
-        private String name;
+        private final String contentType;
 
-        private String mimeTypeValue;
+        private final long size;
 
-        private long size;
+        private final PackageWriter writer;
 
-        public ResourceContainer(InputStream inputStream, String name, long size,
-                String mimeTypeValue) {
-            this.inputStream = inputStream;
+        private final ResourceContainer file;
+
+        PackageFile(String name, String contentType, long size, PackageWriter writer) {
             this.name = name;
-            this.mimeTypeValue = mimeTypeValue;
+            this.contentType = contentType;
             this.size = size;
+            this.writer = writer;
+            this.file = null;
         }
 
-        public InputStream getInputStream() {
-            return inputStream;
+        PackageFile(String name, ResourceContainer file) {
+            this.name = name;
+            this.contentType = null;
+            this.size = UNKNOWN_SIZE;
+            this.writer = out -> file.copyTo(out);
+            this.file = file;
+        }
+
+        void open() throws IOException {
+            if (file != null) {
+                file.open();
+            }
         }
 
-        public String getName() {
+        String getName() {
             return name;
         }
 
-        public String getMimeTypeValue() {
+        String getContentType() {
+            return file != null ? file.getMimeTypeValue() : contentType;
+        }
+
+        long getSize() {
+            return file != null ? file.getSize() : size;
+        }
+
+        PackageWriter getWriter() {
+            return writer;
+        }
+    }
+
+    private static class OrderResult {
+        private final State state;
+
+        private final DeliveryManifest deliveryManifest;
+
+        OrderResult(State state, DeliveryManifest deliveryManifest) {
+            this.state = state;
+            this.deliveryManifest = deliveryManifest;
+        }
+
+        State getState() {
+            return state;
+        }
+
+        DeliveryManifest getDeliveryManifest() {
+            return deliveryManifest;
+        }
+    }
+
+    /**
+     * A registered callback, which is notified of the final state of the order at most once.
+     */
+    private static class CallbackRegistration {
+        private final Callback callback;
+
+        private final AtomicBoolean notified = new AtomicBoolean();
+
+        CallbackRegistration(Callback callback) {
+            this.callback = callback;
+        }
+
+        void notifyOnce(State callbackState) {
+            if (!notified.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                callback._notify(callbackState, new RequestDescription());
+            } catch (InvalidInputParameter | SystemFault | ProcessingFault e) {
+                LOGGER.error("Unable to notify callback {}",
+                        NsilCorbaExceptionUtil.getExceptionDetails(e));
+                LOGGER.debug("Callback notification exception details", e);
+            } catch (RuntimeException e) {
+                LOGGER.debug("Unable to notify callback", e);
+            }
+        }
+    }
+
+    /**
+     * An ordered product. It is described from its metacard until the packager reaches it, and
+     * only then is it retrieved. When a retrieval executor is set, opening a product also starts
+     * retrieving the next one, so the retrievals overlap with the delivery while no more than two
+     * products of the order are open.
+     */
+    class ResourceContainer implements Closeable {
+        private final ResourceRequestCallable resourceRequestCallable;
+
+        private ResourceContainer next;
+
+        private Future<?> retrieval;
+
+        private Resource resource;
+
+        private boolean closed;
+
+        private volatile String name;
+
+        private volatile String mimeTypeValue;
+
+        private volatile long size;
+
+        ResourceContainer(Metacard metacard, ResourceRequestCallable resourceRequestCallable) {
+            this.resourceRequestCallable = resourceRequestCallable;
+            this.name = StringUtils.defaultIfBlank(metacard.getTitle(), metacard.getId());
+            this.size = getResourceSize(metacard);
+        }
+
+        void setNext(ResourceContainer next) {
+            this.next = next;
+        }
+
+        /**
+         * Retrieves the product unless it is already open, and starts retrieving the next one.
+         * The name, content type and size are the ones of the retrieved product afterwards.
+         */
+        void open() throws IOException {
+            boolean opened;
+            Future<?> pending;
+            synchronized (this) {
+                opened = resource != null;
+                if (!opened) {
+                    prefetch();
+                }
+                pending = retrieval;
+            }
+
+            if (next != null) {
+                next.prefetch();
+            }
+
+            if (opened) {
+                return;
+            } else if (pending != null) {
+                awaitRetrieval(pending);
+            } else {
+                setResource(retrieve());
+            }
+        }
+
+        /**
+         * Returns the product contents. Each call after the contents have been read retrieves
+         * the product again, so it is never copied locally.
+         */
+        InputStream getInputStream() throws IOException {
+            open();
+            synchronized (this) {
+                Resource current = resource;
+                resource = null;
+                if (current == null) {
+                    throw new IOException("Ordered product " + name + " has been closed");
+                }
+                return new ProgressInputStream(current.getInputStream());
+            }
+        }
+
+        void copyTo(OutputStream out) throws IOException {
+            try (InputStream inputStream = getInputStream()) {
+                IOUtils.copy(inputStream, out);
+            }
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getMimeTypeValue() {
             return mimeTypeValue;
         }
 
-        public long getSize() {
+        long getSize() {
             return size;
         }
+
+        private synchronized void prefetch() {
+            if (retrievalExecutor == null || resource != null || retrieval != null || closed) {
+                return;
+            }
+
+            try {
+                retrieval = retrievalExecutor.submit(() -> {
+                    setResource(retrieve());
+                    return null;
+                });
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("Unable to retrieve ordered product {} in the background", name, e);
+            }
+        }
+
+        private void awaitRetrieval(Future<?> pending) throws IOException {
+            try {
+                pending.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                        .interrupt();
+                throw new InterruptedIOException("Interrupted while retrieving ordered product "
+                        + name);
+            } catch (CancellationException e) {
+                throw new IOException("Ordered product " + name + " has been closed", e);
+            } catch (java.util.concurrent.ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException("Unable to retrieve ordered product " + name, cause);
+            }
+        }
+
+        private Resource retrieve() throws IOException {
+            ResourceResponse resourceResponse;
+            try {
+                resourceResponse = NsiliEndpoint.getGuestSubject()
+                        .execute(resourceRequestCallable);
+            } catch (ExecutionException | SecurityServiceException e) {
+                throw new IOException("Unable to retrieve ordered product " + name, e);
+            }
+
+            if (resourceResponse == null || resourceResponse.getResource() == null) {
+                throw new IOException("Ordered product " + name + " is no longer available");
+            }
+            return resourceResponse.getResource();
+        }
+
+        /**
+         * Keeps a retrieved product until it is read. A product retrieved after the order has
+         * been closed is closed right away.
+         */
+        private synchronized void setResource(Resource retrieved) throws IOException {
+            retrieval = null;
+            if (closed) {
+                IOUtils.closeQuietly(retrieved.getInputStream());
+                throw new IOException("Ordered product " + name + " has been closed");
+            }
+
+            resource = retrieved;
+            if (StringUtils.isNotBlank(retrieved.getName())) {
+                name = retrieved.getName();
+            }
+            mimeTypeValue = retrieved.getMimeTypeValue();
+            size = retrieved.getSize();
+        }
+
+        private long getResourceSize(Metacard metacard) {
+            try {
+                return Long.parseLong(metacard.getResourceSize());
+            } catch (NumberFormatException e) {
+                return UNKNOWN_SIZE;
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            closed = true;
+            if (retrieval != null) {
+                // A retrieval that is already running closes its product when it completes
+                retrieval.cancel(false);
+                retrieval = null;
+            }
+
+            if (resource != null) {
+                InputStream inputStream = resource.getInputStream();
+                resource = null;
+                if (inputStream != null) {
+                    inputStream.close();
+                }
+            }
+        }
     }
 
     class ResourceRequestCallable implements Callable<ResourceResponse> {
@@ -0,0 +1,267 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.endpoint.requests;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.shiro.subject.ExecutionException;
+import org.codice.alliance.nsili.endpoint.LibraryImpl;
+import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
+import org.opengis.filter.Filter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.Futures;
+
+import ddf.catalog.CatalogFramework;
+import ddf.catalog.data.Result;
+import ddf.catalog.operation.QueryResponse;
+import ddf.catalog.operation.impl.QueryImpl;
+import ddf.catalog.operation.impl.QueryRequestImpl;
+import ddf.security.service.SecurityServiceException;
+
+/**
+ * A short-lived, server-side cursor over the results of a single catalog query. The first page is
+ * requested with the total result count, so a hit count followed by the same query only executes
+ * the query once. When a prefetch executor is supplied, the next page is requested in the
+ * background as soon as a full page has been handed out.
+ */
+public class QueryResultCursor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryResultCursor.class);
+
+    private final CatalogFramework catalogFramework;
+
+    private final Filter filter;
+
+    private final List<String> querySources = new ArrayList<>();
+
+    private final int initialPageSize;
+
+    private final long timeout;
+
+    private final ExecutorService prefetchExecutor;
+
+    private int offset = 0;
+
+    private long hits = -1;
+
+    private boolean hitCountFailed;
+
+    private Future<QueryResponse> pendingPage;
+
+    private int pendingOffset;
+
+    private int pendingPageSize;
+
+    /**
+     * @param catalogFramework the framework to query
+     * @param filter           the complete catalog filter
+     * @param querySources     the sources to query, an empty list queries the local catalog
+     * @param initialPageSize  the page size used when the hit count is requested first
+     * @param timeout          the query timeout in seconds, values less than 1 use the default
+     * @param prefetchExecutor the executor used to prefetch pages, may be null to disable
+     *                         prefetching
+     */
+    public QueryResultCursor(CatalogFramework catalogFramework, Filter filter,
+            List<String> querySources, int initialPageSize, long timeout,
+            ExecutorService prefetchExecutor) {
+        this.catalogFramework = catalogFramework;
+        this.filter = filter;
+        if (querySources != null) {
+            this.querySources.addAll(querySources);
+        }
+        this.initialPageSize = Math.max(1, initialPageSize);
+        this.timeout = timeout;
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    /**
+     * @return the total number of hits reported for the query, or 0 if the query failed
+     */
+    public synchronized long getHits() {
+        if (hits < 0) {
+            if (offset == 0 && pendingPage == null) {
+                pendingOffset = 0;
+                pendingPageSize = initialPageSize;
+                pendingPage = Futures.immediateFuture(query(0, initialPageSize));
+            }
+
+            QueryResponse response;
+            if (pendingPage != null && pendingOffset == 0) {
+                response = await(pendingPage);
+            } else {
+                response = query(0, 1);
+            }
+            hitCountFailed = response == null;
+            hits = response == null ? 0 : response.getHits();
+        }
+
+        return hits;
+    }
+
+    /**
+     * @return true if {@link #getHits()} returned the count reported by the catalog, false if the
+     * count has not been requested yet or the query failed
+     */
+    public synchronized boolean hasHitCount() {
+        return hits >= 0 && !hitCountFailed;
+    }
+
+    /**
+     * Returns the next page of results and advances the cursor.
+     *
+     * @param pageSize the maximum number of results to return
+     * @return the latest version of each result on the page
+     */
+    public synchronized List<Result> nextPage(int pageSize) {
+        pageSize = Math.max(1, pageSize);
+
+        QueryResponse response;
+        if (pendingPage != null && pendingOffset == offset && pendingPageSize == pageSize) {
+            response = await(pendingPage);
+        } else {
+            if (pendingPage != null) {
+                pendingPage.cancel(true);
+            }
+            response = query(offset, pageSize);
+        }
+        pendingPage = null;
+
+        if (response == null || response.getResults() == null) {
+            return new ArrayList<>();
+        }
+
+        if (offset == 0 && hits < 0) {
+            hits = response.getHits();
+        }
+
+        List<Result> results = response.getResults();
+        offset += results.size();
+
+        if (results.size() >= pageSize) {
+            prefetch(offset, pageSize);
+        }
+
+        return LibraryImpl.getLatestResults(results);
+    }
+
+    /**
+     * Cancels any outstanding prefetch.
+     */
+    public synchronized void close() {
+        if (pendingPage != null) {
+            pendingPage.cancel(true);
+            pendingPage = null;
+        }
+    }
+
+    private void prefetch(int pageOffset, int pageSize) {
+        if (prefetchExecutor == null) {
+            return;
+        }
+
+        try {
+            pendingPage = prefetchExecutor.submit(() -> query(pageOffset, pageSize));
+            pendingOffset = pageOffset;
+            pendingPageSize = pageSize;
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Unable to prefetch results at offset {}", pageOffset, e);
+        }
+    }
+
+    private QueryResponse await(Future<QueryResponse> page) {
+        try {
+            return page.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+        } catch (java.util.concurrent.ExecutionException e) {
+            LOGGER.warn("Unable to query catalog", e);
+        }
+        return null;
+    }
+
+    /**
+     * Requests the total result count with a page of a single result. The catalog has no way to
+     * ask for the count alone, so this is the same query as the first page of a search with the
+     * smallest page size. The returned result is not used.
+     *
+     * @param catalogFramework the framework to query
+     * @param filter           the complete catalog filter
+     * @param querySources     the sources to query, an empty list queries the local catalog
+     * @param timeout          the query timeout in seconds, values less than 1 use the default
+     * @return the total number of hits, or -1 if the query failed
+     */
+    public static long queryHitCount(CatalogFramework catalogFramework, Filter filter,
+            List<String> querySources, long timeout) {
+        QueryResponse response = query(catalogFramework,
+                filter,
+                querySources,
+                timeout,
+                0,
+                1,
+                new HashMap<>());
+        return response == null ? -1 : response.getHits();
+    }
+
+    private QueryResponse query(int pageOffset, int pageSize) {
+        return query(catalogFramework,
+                filter,
+                querySources,
+                timeout,
+                pageOffset,
+                pageSize,
+                new HashMap<>());
+    }
+
+    private static QueryResponse query(CatalogFramework catalogFramework, Filter filter,
+            List<String> querySources, long timeout, int pageOffset, int pageSize,
+            Map<String, Serializable> properties) {
+        QueryImpl catalogQuery = new QueryImpl(filter);
+        catalogQuery.setRequestsTotalResultsCount(pageOffset == 0);
+        catalogQuery.setPageSize(pageSize);
+        catalogQuery.setStartIndex(pageOffset + 1);
+
+        if (timeout > 0) {
+            catalogQuery.setTimeoutMillis(timeout * 1000);
+        }
+
+        QueryRequestImpl catalogQueryRequest;
+        if (querySources == null || querySources.isEmpty()) {
+            catalogQueryRequest = new QueryRequestImpl(catalogQuery, properties);
+        } else {
+            catalogQueryRequest = new QueryRequestImpl(catalogQuery,
+                    false,
+                    querySources,
+                    properties);
+        }
+
+        try {
+            return NsiliEndpoint.getGuestSubject()
+                    .execute(() -> catalogFramework.query(catalogQueryRequest));
+        } catch (ExecutionException | SecurityServiceException e) {
+            LOGGER.warn("Unable to query catalog {}", filter, e);
+        }
+
+        return null;
+    }
+}
@@ -19,9 +19,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.Callable;
 
-import org.apache.shiro.subject.ExecutionException;
 import org.codice.alliance.nsili.common.BqsConverter;
 import org.codice.alliance.nsili.common.CB.Callback;
 import org.codice.alliance.nsili.common.DagParsingException;
@@ -45,6 +43,7 @@ import org.codice.alliance.nsili.common.UCO.SystemFault;
 import org.codice.alliance.nsili.common.datamodel.NsiliDataModel;
 import org.codice.alliance.nsili.endpoint.LibraryImpl;
 import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
+import org.codice.alliance.nsili.endpoint.managers.MetacardCache;
 import org.omg.CORBA.NO_IMPLEMENT;
 import org.opengis.filter.Filter;
 import org.slf4j.Logger;
@@ -55,10 +54,6 @@ import ddf.catalog.core.versioning.MetacardVersion;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.Result;
 import ddf.catalog.filter.FilterBuilder;
-import ddf.catalog.operation.QueryResponse;
-import ddf.catalog.operation.impl.QueryImpl;
-import ddf.catalog.operation.impl.QueryRequestImpl;
-import ddf.security.service.SecurityServiceException;
 
 public class SubmitQueryRequestImpl extends SubmitQueryRequestPOA {
 
@@ -86,6 +81,8 @@ public class SubmitQueryRequestImpl extends SubmitQueryRequestPOA {
 
     private boolean outgoingValidationEnabled;
 
+    private QueryResultCursor resultCursor;
+
     public SubmitQueryRequestImpl(Query query, FilterBuilder filterBuilder,
             BqsConverter bqsConverter, CatalogFramework catalogFramework,
             List<String> querySources) {
@@ -126,6 +123,17 @@ public class SubmitQueryRequestImpl extends SubmitQueryRequestPOA {
         this.outgoingValidationEnabled = outgoingValidationEnabled;
     }
 
+    /**
+     * Sets the cursor used to page through the query results, such as one already opened to
+     * answer a hit count for the same query. When not set a cursor is opened on the first call to
+     * complete_DAG_results.
+     *
+     * @param resultCursor the cursor over the results of this request's query
+     */
+    public void setResultCursor(QueryResultCursor resultCursor) {
+        this.resultCursor = resultCursor;
+    }
+
     @Override
     public State complete_DAG_results(DAGListHolder results) throws ProcessingFault, SystemFault {
         DAG[] noResults = new DAG[0];
@@ -133,7 +141,7 @@ public class SubmitQueryRequestImpl extends SubmitQueryRequestPOA {
 
         List<DAG> dags = new ArrayList<>();
         int totalHits = 0;
-        List<Result> queryResults = getResults(query, totalHitsReturned);
+        List<Result> queryResults = getResults(query);
 
         LOGGER.debug("Query: {} return NSILI results: {}", query.bqs_query, queryResults.size());
 
@@ -143,6 +151,7 @@ public class SubmitQueryRequestImpl extends SubmitQueryRequestPOA {
             mandatoryAttributes =
                     nsiliDataModel.getRequiredAttrsForView(NsiliConstants.NSIL_ALL_VIEW);
         }
+        List<Metacard> handedOutMetacards = new ArrayList<>();
         for (Result result : queryResults) {
             try {
                 DAG dag = ResultDAGConverter.convertResult(result,
@@ -152,6 +161,7 @@ public class SubmitQueryRequestImpl extends SubmitQueryRequestPOA {
                         mandatoryAttributes);
                 if (dag != null) {
                     dags.add(dag);
+                    handedOutMetacards.add(result.getMetacard());
                     totalHits++;
                     totalHitsReturned++;
                 }
@@ -164,6 +174,8 @@ public class SubmitQueryRequestImpl extends SubmitQueryRequestPOA {
                 break;
             }
         }
+        MetacardCache.putGuestMetacards(handedOutMetacards);
+
         if (!dags.isEmpty()) {
             results.value = dags.toArray(new DAG[0]);
             LOGGER.debug("Number of results being returned: {}, requested: {}",
@@ -212,7 +224,9 @@ public class SubmitQueryRequestImpl extends SubmitQueryRequestPOA {
 
     @Override
     public void cancel() throws ProcessingFault, SystemFault {
-
+        if (resultCursor != null) {
+            resultCursor.close();
+        }
     }
 
     @Override
@@ -251,9 +265,20 @@ public class SubmitQueryRequestImpl extends SubmitQueryRequestPOA {
         }
     }
 
-    protected List<Result> getResults(Query aQuery, int offset) {
-        List<Result> results = new ArrayList<>();
+    protected List<Result> getResults(Query aQuery) {
+        if (resultCursor == null) {
+            resultCursor = new QueryResultCursor(catalogFramework,
+                    getCatalogFilter(aQuery),
+                    querySources,
+                    maxNumReturnedHits,
+                    timeout,
+                    null);
+        }
+
+        return resultCursor.nextPage(maxNumReturnedHits);
+    }
 
+    private Filter getCatalogFilter(Query aQuery) {
         Filter parsedFilter = bqsConverter.convertBQSToDDF(aQuery);
 
         //Always need to ask for the DEFAULT_TAG or we get non-resource metacards
@@ -280,62 +305,6 @@ public class SubmitQueryRequestImpl extends SubmitQueryRequestPOA {
                                     .text(MetacardVersion.Action.DELETED.getKey())));
         }
 
-        QueryImpl catalogQuery = new QueryImpl(parsedFilter);
-        catalogQuery.setRequestsTotalResultsCount(false);
-        catalogQuery.setPageSize(maxNumReturnedHits);
-
-        if (offset > 0) {
-            catalogQuery.setStartIndex(offset);
-        }
-
-        if (timeout > 0) {
-            catalogQuery.setTimeoutMillis(timeout * 1000);
-        }
-
-        QueryRequestImpl catalogQueryRequest;
-        if (querySources == null || querySources.isEmpty()) {
-            catalogQueryRequest = new QueryRequestImpl(catalogQuery);
-        } else {
-            catalogQueryRequest = new QueryRequestImpl(catalogQuery, false, querySources, null);
-        }
-
-        try {
-            QueryResultsCallable queryCallable = new QueryResultsCallable(catalogQueryRequest);
-            List<Result> queryResults = LibraryImpl.getLatestResults(NsiliEndpoint.getGuestSubject()
-                    .execute(queryCallable));
-            results.addAll(queryResults);
-
-        } catch (ExecutionException | SecurityServiceException e) {
-            LOGGER.warn("Unable to query catalog {}", e);
-            LOGGER.debug("Catalog query exception details", e);
-        }
-
-        return results;
-    }
-
-    class QueryResultsCallable implements Callable<List<Result>> {
-        QueryRequestImpl catalogQueryRequest;
-
-        public QueryResultsCallable(QueryRequestImpl catalogQueryRequest) {
-            this.catalogQueryRequest = catalogQueryRequest;
-        }
-
-        @Override
-        public List<Result> call() throws Exception {
-            List<Result> results = new ArrayList<>();
-
-            try {
-                QueryResponse queryResponse = catalogFramework.query(catalogQueryRequest);
-                if (queryResponse.getResults() != null) {
-                    results.addAll(queryResponse.getResults());
-                }
-                return results;
-            } catch (Exception e) {
-                LOGGER.error("Unable to query catalog: {}", catalogQueryRequest.getQuery(), e);
-                throw e;
-            }
-        }
+        return parsedFilter;
     }
-
 }
-
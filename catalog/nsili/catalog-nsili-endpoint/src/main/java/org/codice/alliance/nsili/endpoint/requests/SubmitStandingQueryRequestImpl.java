@@ -60,6 +60,7 @@ import org.codice.alliance.nsili.common.UCO.Time;
 import org.codice.alliance.nsili.common.datamodel.NsiliDataModel;
 import org.codice.alliance.nsili.endpoint.LibraryImpl;
 import org.codice.alliance.nsili.endpoint.NsiliEndpoint;
+import org.codice.alliance.nsili.endpoint.managers.MetacardCache;
 import org.codice.alliance.nsili.endpoint.managers.RequestManagerImpl;
 import org.codice.alliance.nsili.transformer.DAGConverter;
 import org.joda.time.DateTime;
@@ -600,6 +601,7 @@ public class SubmitStandingQueryRequestImpl extends SubmitStandingQueryRequestPO
                 mandatoryAttributes =
                         nsiliDataModel.getRequiredAttrsForView(NsiliConstants.NSIL_ALL_VIEW);
             }
+            List<Metacard> handedOutMetacards = new ArrayList<>();
             for (Result catalogResult : catalogResults) {
                 try {
                     DAG dag = ResultDAGConverter.convertResult(catalogResult,
@@ -608,6 +610,7 @@ public class SubmitStandingQueryRequestImpl extends SubmitStandingQueryRequestPO
                             resultAttributes,
                             mandatoryAttributes);
                     dags.add(dag);
+                    handedOutMetacards.add(catalogResult.getMetacard());
                 } catch (DagParsingException dpe) {
                     LOGGER.error("DAG could not be parsed and will not be returned to caller: {}",
                             dpe);
@@ -615,6 +618,8 @@ public class SubmitStandingQueryRequestImpl extends SubmitStandingQueryRequestPO
                 }
             }
 
+            MetacardCache.putGuestMetacards(handedOutMetacards);
+
             if (!dags.isEmpty()) {
                 result = new DAGQueryResult(System.currentTimeMillis(), dags);
             }
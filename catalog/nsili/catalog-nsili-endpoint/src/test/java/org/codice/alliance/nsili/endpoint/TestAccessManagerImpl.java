@@ -14,17 +14,31 @@
 package org.codice.alliance.nsili.endpoint;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToIntFunction;
 
 import org.codice.alliance.nsili.common.CorbaUtils;
 import org.codice.alliance.nsili.common.GIAS.ProductMgrHelper;
@@ -36,6 +50,7 @@ import org.codice.alliance.nsili.common.UCO.DAG;
 import org.codice.alliance.nsili.common.UID.Product;
 import org.codice.alliance.nsili.common.UID.ProductHelper;
 import org.codice.alliance.nsili.endpoint.managers.AccessManagerImpl;
+import org.codice.alliance.nsili.endpoint.managers.MetacardCache;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -48,6 +63,9 @@ import org.omg.PortableServer.POAPackage.WrongPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.Result;
 import ddf.catalog.data.impl.AttributeImpl;
@@ -57,6 +75,7 @@ import ddf.catalog.filter.proxy.builder.GeotoolsFilterBuilder;
 import ddf.catalog.operation.QueryRequest;
 import ddf.catalog.operation.QueryResponse;
 import ddf.catalog.operation.impl.QueryResponseImpl;
+import ddf.security.Subject;
 import ddf.security.service.SecurityServiceException;
 
 public class TestAccessManagerImpl extends TestNsiliCommon {
@@ -162,6 +181,36 @@ public class TestAccessManagerImpl extends TestNsiliCommon {
         assertThat(avail, is(false));
     }
 
+    @Test
+    public void testIsAvailableLocalContent() throws Exception {
+        MetacardImpl testMetacard = new MetacardImpl();
+        testMetacard.setId(testMetacardId);
+        testMetacard.setResourceURI(new URI("content:" + testMetacardId));
+        testMetacard.setAttribute(new AttributeImpl(Metacard.RESOURCE_DOWNLOAD_URL,
+                "http://localhost:20999/not/present"));
+        Result testResult = new ResultImpl(testMetacard);
+
+        List<Result> results = new ArrayList<>();
+        results.add(testResult);
+        QueryResponse testResponse = new QueryResponseImpl(null, results, results.size());
+        when(mockCatalogFramework.query(any(QueryRequest.class))).thenReturn(testResponse);
+
+        DAG dag = ResultDAGConverter.convertResult(testResult,
+                orb,
+                rootPOA,
+                new ArrayList<>(),
+                new HashMap<>());
+        Product product = ProductHelper.extract(dag.nodes[0].value);
+        assertThat(accessManager.is_available(product, null), is(true));
+    }
+
+    @Test
+    public void testIsUrlValidWithoutCache() throws IOException {
+        accessManager.setAvailabilityCacheTtlSec(0);
+        assertThat(accessManager.isUrlValid("http://localhost:2000/not/present"), is(false));
+        assertThat(accessManager.isUrlValid("not a url"), is(false));
+    }
+
     @Test
     public void testIsUrlValidBadUrls() throws IOException {
         boolean valid = accessManager.isUrlValid(null);
@@ -172,6 +221,63 @@ public class TestAccessManagerImpl extends TestNsiliCommon {
 
     }
 
+    @Test
+    public void testIsUrlValidFallsBackToGet() throws Exception {
+        List<String> methods = new CopyOnWriteArrayList<>();
+        HttpServer server = startServer(methods,
+                exchange -> "HEAD".equals(exchange.getRequestMethod()) ?
+                        HttpURLConnection.HTTP_BAD_METHOD :
+                        HttpURLConnection.HTTP_OK);
+        try {
+            assertThat(accessManager.isUrlValid(getUrl(server)), is(true));
+            assertThat(methods, contains("HEAD", "GET"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testIsUrlValidUsesHead() throws Exception {
+        List<String> methods = new CopyOnWriteArrayList<>();
+        HttpServer server = startServer(methods, exchange -> HttpURLConnection.HTTP_OK);
+        try {
+            assertThat(accessManager.isUrlValid(getUrl(server)), is(true));
+            assertThat(methods, contains("HEAD"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testIsUrlValidCachesAvailableUrl() throws Exception {
+        List<String> methods = new CopyOnWriteArrayList<>();
+        HttpServer server = startServer(methods, exchange -> HttpURLConnection.HTTP_OK);
+        try {
+            assertThat(accessManager.isUrlValid(getUrl(server)), is(true));
+            assertThat(accessManager.isUrlValid(getUrl(server)), is(true));
+            assertThat(methods.size(), is(1));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testIsUrlValidDoesNotCacheUnavailableUrl() throws Exception {
+        List<String> methods = new CopyOnWriteArrayList<>();
+        AtomicBoolean available = new AtomicBoolean(false);
+        HttpServer server = startServer(methods, exchange -> available.get() ?
+                HttpURLConnection.HTTP_OK :
+                HttpURLConnection.HTTP_NOT_FOUND);
+        try {
+            assertThat(accessManager.isUrlValid(getUrl(server)), is(false));
+            available.set(true);
+            assertThat(accessManager.isUrlValid(getUrl(server)), is(true));
+            assertThat(methods.size(), is(2));
+        } finally {
+            server.stop(0);
+        }
+    }
+
     @Test
     public void testQueryAvailDelay() throws Exception {
         int delay = accessManager.query_availability_delay(null, null, null);
@@ -202,6 +308,65 @@ public class TestAccessManagerImpl extends TestNsiliCommon {
         assertThat(timeout, is(-1));
     }
 
+    @Test
+    public void testGetMetacardsWithSingleQuery() throws Exception {
+        MetacardImpl testMetacard = new MetacardImpl();
+        testMetacard.setId(testMetacardId);
+        MetacardImpl otherMetacard = new MetacardImpl();
+        otherMetacard.setId("other");
+        List<Result> results = new ArrayList<>();
+        results.add(new ResultImpl(testMetacard));
+        results.add(new ResultImpl(otherMetacard));
+        when(mockCatalogFramework.query(any(QueryRequest.class))).thenReturn(new QueryResponseImpl(
+                null,
+                results,
+                results.size()));
+
+        Map<String, Metacard> metacards = accessManager.getMetacards(Arrays.asList(testMetacardId,
+                "other",
+                "missing"));
+        assertThat(metacards.size(), is(2));
+        assertThat(metacards.get("other"), is(otherMetacard));
+        verify(mockCatalogFramework, times(1)).query(any(QueryRequest.class));
+    }
+
+    @Test
+    public void testGetMetacardFromCache() throws Exception {
+        MetacardImpl cachedMetacard = new MetacardImpl();
+        cachedMetacard.setId("cached");
+        MetacardCache.put(mockSubject, cachedMetacard);
+
+        assertThat(accessManager.getMetacard("cached"), is(cachedMetacard));
+        verify(mockCatalogFramework, never()).query(any(QueryRequest.class));
+    }
+
+    @Test
+    public void testCachedMetacardNotSharedAcrossSubjects() throws Exception {
+        MetacardImpl cachedMetacard = new MetacardImpl();
+        cachedMetacard.setId("cached");
+        MetacardCache.put(mock(Subject.class), cachedMetacard);
+
+        assertThat(accessManager.getMetacard("cached"), nullValue());
+        verify(mockCatalogFramework, times(1)).query(any(QueryRequest.class));
+    }
+
+    private HttpServer startServer(List<String> methods, ToIntFunction<HttpExchange> statusCode)
+            throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            methods.add(exchange.getRequestMethod());
+            exchange.sendResponseHeaders(statusCode.applyAsInt(exchange), -1);
+            exchange.close();
+        });
+        server.start();
+        return server;
+    }
+
+    private String getUrl(HttpServer server) {
+        return "http://localhost:" + server.getAddress()
+                .getPort() + "/product";
+    }
+
     private void setupAccessMgrMocks() throws Exception {
         int testTotalHits = 5;
         List<Result> results = new ArrayList<>(testTotalHits);
@@ -215,6 +380,8 @@ public class TestAccessManagerImpl extends TestNsiliCommon {
 
     @After
     public void tearDown() {
+        MetacardCache.invalidateAll();
+
         if (orbRunThread != null) {
             orbRunThread.interrupt();
             orbRunThread = null;
@@ -19,6 +19,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
@@ -28,9 +30,11 @@ import java.util.UUID;
 
 import org.codice.alliance.nsili.endpoint.managers.AccessManagerImpl;
 import org.codice.alliance.nsili.endpoint.managers.CatalogMgrImpl;
+import org.codice.alliance.nsili.endpoint.managers.HitCountCache;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.omg.CORBA.IntHolder;
 import org.omg.CORBA.NO_IMPLEMENT;
 import org.omg.CORBA.ORB;
@@ -92,6 +96,7 @@ public class TestCatalogMgrImpl extends TestNsiliCommon {
         }
 
         testQuery = new Query(NsiliConstants.NSIL_ALL_VIEW, bqsQuery);
+        HitCountCache.invalidateAll();
 
         catalogMgr = new CatalogMgrImpl(rootPOA, new GeotoolsFilterBuilder(), null);
         catalogMgr.setCatalogFramework(mockCatalogFramework);
@@ -153,6 +158,106 @@ public class TestCatalogMgrImpl extends TestNsiliCommon {
         assertThat(dagListHolder.value.length, is(2));
     }
 
+    @Test
+    public void testQueryReusesHitCountResults() throws Exception {
+        catalogMgr.setMaxNumResults(999);
+        HitCountRequest hitCountRequest = catalogMgr.hit_count(testQuery, null);
+        IntHolder hitHolder = new IntHolder();
+        hitCountRequest.complete(hitHolder);
+
+        SubmitQueryRequest submitQueryRequest = catalogMgr.submit_query(testQuery,
+                null,
+                null,
+                null);
+        DAGListHolder dagListHolder = new DAGListHolder();
+        submitQueryRequest.complete_DAG_results(dagListHolder);
+
+        assertThat(hitHolder.value, greaterThan(0));
+        assertThat(dagListHolder.value.length, is(2));
+        verify(mockCatalogFramework, times(1)).query(any(QueryRequest.class));
+    }
+
+    @Test
+    public void testQueryWithoutSharedResults() throws Exception {
+        catalogMgr.setResultCursorTtlSec(0);
+        HitCountRequest hitCountRequest = catalogMgr.hit_count(testQuery, null);
+        hitCountRequest.complete(new IntHolder());
+
+        SubmitQueryRequest submitQueryRequest = catalogMgr.submit_query(testQuery,
+                null,
+                null,
+                null);
+        submitQueryRequest.complete_DAG_results(new DAGListHolder());
+
+        verify(mockCatalogFramework, times(2)).query(any(QueryRequest.class));
+    }
+
+    @Test
+    public void testHitCountOnlyQuery() throws Exception {
+        catalogMgr.setResultCursorTtlSec(0);
+        HitCountRequest hitCountRequest = catalogMgr.hit_count(testQuery, null);
+        IntHolder hitHolder = new IntHolder();
+        hitCountRequest.complete(hitHolder);
+
+        ArgumentCaptor<QueryRequest> requestCaptor = ArgumentCaptor.forClass(QueryRequest.class);
+        verify(mockCatalogFramework).query(requestCaptor.capture());
+        QueryRequest queryRequest = requestCaptor.getValue();
+        assertThat(hitHolder.value, greaterThan(0));
+        assertThat(queryRequest.getQuery()
+                .getPageSize(), is(1));
+        assertThat(queryRequest.getQuery()
+                .requestsTotalResultsCount(), is(true));
+    }
+
+    @Test
+    public void testRepeatedHitCountUsesCache() throws Exception {
+        catalogMgr.setResultCursorTtlSec(0);
+        for (int i = 0; i < 3; i++) {
+            IntHolder hitHolder = new IntHolder();
+            catalogMgr.hit_count(testQuery, null)
+                    .complete(hitHolder);
+            assertThat(hitHolder.value, greaterThan(0));
+        }
+
+        verify(mockCatalogFramework, times(1)).query(any(QueryRequest.class));
+    }
+
+    @Test
+    public void testHitCountCacheIgnoresWhitespace() throws Exception {
+        catalogMgr.setResultCursorTtlSec(0);
+        catalogMgr.hit_count(testQuery, null)
+                .complete(new IntHolder());
+        Query reformattedQuery = new Query(testQuery.view, "  " + testQuery.bqs_query + "\n");
+        catalogMgr.hit_count(reformattedQuery, null)
+                .complete(new IntHolder());
+
+        verify(mockCatalogFramework, times(1)).query(any(QueryRequest.class));
+    }
+
+    @Test
+    public void testHitCountCacheKeyedOnRemoveSourceLibrary() throws Exception {
+        catalogMgr.setResultCursorTtlSec(0);
+        catalogMgr.hit_count(testQuery, null)
+                .complete(new IntHolder());
+        catalogMgr.setRemoveSourceLibrary(false);
+        catalogMgr.hit_count(testQuery, null)
+                .complete(new IntHolder());
+
+        verify(mockCatalogFramework, times(2)).query(any(QueryRequest.class));
+    }
+
+    @Test
+    public void testHitCountCacheDisabled() throws Exception {
+        HitCountCache.setTtlSec(0);
+        catalogMgr.setResultCursorTtlSec(0);
+        catalogMgr.hit_count(testQuery, null)
+                .complete(new IntHolder());
+        catalogMgr.hit_count(testQuery, null)
+                .complete(new IntHolder());
+
+        verify(mockCatalogFramework, times(2)).query(any(QueryRequest.class));
+    }
+
     @Test
     public void testGetDefaultTimeout() throws Exception {
         int defaultTimeout = catalogMgr.get_default_timeout();
@@ -189,6 +294,8 @@ public class TestCatalogMgrImpl extends TestNsiliCommon {
 
     @After
     public void tearDown() {
+        HitCountCache.setTtlSec(HitCountCache.DEFAULT_TTL_SEC);
+
         if (orbRunThread != null) {
             orbRunThread.interrupt();
             orbRunThread = null;
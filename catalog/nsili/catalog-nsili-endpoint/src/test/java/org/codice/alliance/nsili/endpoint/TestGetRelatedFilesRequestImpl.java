@@ -24,6 +24,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.http.Header;
 import org.apache.http.HeaderIterator;
@@ -156,6 +158,72 @@ public class TestGetRelatedFilesRequestImpl {
         assertValidStateNoLocs(state, locations);
     }
 
+    @Test
+    public void testConcurrentJpegUploads() throws Exception {
+        List<Metacard> testMetacards = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            MetacardImpl testMetacard = new MetacardImpl();
+            testMetacard.setId(UUID.randomUUID()
+                    .toString());
+            testMetacard.setThumbnail(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF,
+                    (byte) 0xE0});
+            testMetacards.add(testMetacard);
+        }
+
+        GetRelatedFilesRequestImpl request = new GetRelatedFilesRequestImpl(testMetacards,
+                getTestFileLocation(),
+                "THUMBNAIL",
+                TEST_PORT);
+        request.setHttpClient(mockHttpClient);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            request.setUploadExecutor(executor);
+            NameListHolder locations = new NameListHolder();
+            assertThat(request.complete(locations), is(State.COMPLETED));
+            assertThat(locations.value.length, is(4));
+            for (int i = 0; i < locations.value.length; i++) {
+                assertThat(locations.value[i], is(testMetacards.get(i)
+                        .getId() + "-THUMBNAIL.jpg"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedUploadKeepsOtherFileNames() throws Exception {
+        List<Metacard> testMetacards = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            MetacardImpl testMetacard = new MetacardImpl();
+            testMetacard.setId(UUID.randomUUID()
+                    .toString());
+            testMetacard.setThumbnail(new byte[] {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF,
+                    (byte) 0xE0});
+            testMetacards.add(testMetacard);
+        }
+
+        when(mockHttpClient.execute(any(HttpUriRequest.class)))
+                .thenThrow(new IllegalStateException("upload failed"))
+                .thenReturn(getGoodResponse(200));
+
+        GetRelatedFilesRequestImpl request = new GetRelatedFilesRequestImpl(testMetacards,
+                getTestFileLocation(),
+                "THUMBNAIL",
+                TEST_PORT);
+        request.setHttpClient(mockHttpClient);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            request.setUploadExecutor(executor);
+            NameListHolder locations = new NameListHolder();
+            assertThat(request.complete(locations), is(State.COMPLETED));
+            assertThat(locations.value.length, is(3));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test (expected = NO_IMPLEMENT.class)
     public void testRegisterCallback() throws Exception {
         relatedFilesRequest.register_callback(null);
@@ -17,18 +17,40 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
+import org.apache.commons.io.IOUtils;
+
+import org.codice.alliance.nsili.common.CB.Callback;
 import org.codice.alliance.nsili.common.GIAS.DelayEstimate;
 import org.codice.alliance.nsili.common.GIAS.DeliveryDetails;
 import org.codice.alliance.nsili.common.GIAS.DeliveryManifestHolder;
@@ -41,15 +63,18 @@ import org.codice.alliance.nsili.common.UCO.FileLocation;
 import org.codice.alliance.nsili.common.UCO.InvalidInputParameter;
 import org.codice.alliance.nsili.common.UCO.ProcessingFault;
 import org.codice.alliance.nsili.common.UCO.RequestDescription;
+import org.codice.alliance.nsili.common.UCO.State;
 import org.codice.alliance.nsili.common.UCO.Status;
 import org.codice.alliance.nsili.common.UCO.SystemFault;
 import org.codice.alliance.nsili.common.UID.Product;
 import org.codice.alliance.nsili.endpoint.managers.AccessManagerImpl;
 import org.codice.alliance.nsili.endpoint.requests.OrderRequestImpl;
+import org.codice.alliance.nsili.endpoint.requests.OrderRequestImpl.PackageWriter;
 import org.junit.Before;
 import org.junit.Test;
 import org.omg.CORBA.BAD_OPERATION;
 import org.omg.CORBA.NO_IMPLEMENT;
+import org.omg.PortableServer.POAPackage.WrongPolicy;
 
 import ddf.catalog.CatalogFramework;
 import ddf.catalog.data.Metacard;
@@ -85,8 +110,14 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
     }
 
     private void setupMocks() throws Exception {
-        doReturn(getTestMetacard()).when(accessManager)
-                .getMetacard(any(Product.class));
+        when(accessManager.getMetacards(anyListOf(Product.class))).thenAnswer(invocation -> {
+            int numProducts = ((List<?>) invocation.getArguments()[0]).size();
+            List<Metacard> metacards = new ArrayList<>(numProducts);
+            for (int i = 0; i < numProducts; i++) {
+                metacards.add(getTestMetacard());
+            }
+            return metacards;
+        });
         doReturn(mockResourceResponse).when(mockSubject)
                 .execute(any(Callable.class));
         doReturn(mockResource).when(mockResourceResponse)
@@ -115,7 +146,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -138,7 +169,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -161,7 +192,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -184,7 +215,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -207,7 +238,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -230,7 +261,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -253,7 +284,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -276,7 +307,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -298,7 +329,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -321,7 +352,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -344,7 +375,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -367,7 +398,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -390,7 +421,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -413,7 +444,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -436,7 +467,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -459,7 +490,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -485,7 +516,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -506,7 +537,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -532,7 +563,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -555,7 +586,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -576,7 +607,7 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
                 mockCatalogFramework) {
 
             @Override
-            protected void writeFile(FileLocation destination, InputStream fileData, long size,
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
                     String name, String contentType) throws IOException {
             }
         };
@@ -655,6 +686,290 @@ public class TestOrderRequestImpl extends TestNsiliCommon {
         orderRequest.cancel();
     }
 
+    @Test
+    public void testConcurrentProductRetrieval() throws Exception {
+        OrderContents order = getMultipleUncompressedTestOrder();
+        order.pSpec.packaging_format_and_compression = PackagingSpecFormatType.FILESZIP.name();
+
+        // both retrievals have to be in progress at the same time for either to return
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        doAnswer(invocation -> {
+            barrier.await(5, TimeUnit.SECONDS);
+            return mockResourceResponse;
+        }).when(mockSubject)
+                .execute(any(Callable.class));
+
+        List<String> sentFiles = new ArrayList<>();
+        OrderRequestImpl orderRequest = new OrderRequestImpl(order,
+                PROTOCOL,
+                PORT,
+                accessManager,
+                mockCatalogFramework) {
+
+            @Override
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
+                    String name, String contentType) throws IOException {
+                toByteArray(fileData);
+                sentFiles.add(name);
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            orderRequest.setRetrievalExecutor(executor);
+            DeliveryManifestHolder holder = new DeliveryManifestHolder();
+            assertThat(orderRequest.complete(holder), is(State.COMPLETED));
+            assertThat(holder.value.elements[0].files.length, is(1));
+            assertThat(sentFiles.size(), is(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testProductsRetrievedWhenPackaged() throws Exception {
+        OrderContents order = getMultipleUncompressedTestOrder();
+        order.pSpec.packaging_format_and_compression = PackagingSpecFormatType.FILESZIP.name();
+
+        OrderRequestImpl orderRequest = new OrderRequestImpl(order,
+                PROTOCOL,
+                PORT,
+                accessManager,
+                mockCatalogFramework) {
+
+            @Override
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
+                    String name, String contentType) throws IOException {
+                verify(mockSubject, never()).execute(any(Callable.class));
+                toByteArray(fileData);
+                verify(mockSubject, times(2)).execute(any(Callable.class));
+            }
+        };
+
+        DeliveryManifestHolder holder = new DeliveryManifestHolder();
+        assertThat(orderRequest.complete(holder), is(State.COMPLETED));
+        verify(mockResource, times(2)).getInputStream();
+    }
+
+    @Test
+    public void testPrefetchedProductClosedWhenOrderFails() throws Exception {
+        OrderContents order = getMultipleUncompressedTestOrder();
+        InputStream resourceStream = spy(new ByteArrayInputStream(mockResName.getBytes()));
+        when(mockResource.getInputStream()).thenReturn(resourceStream);
+
+        OrderRequestImpl orderRequest = new OrderRequestImpl(order,
+                PROTOCOL,
+                PORT,
+                accessManager,
+                mockCatalogFramework) {
+
+            @Override
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
+                    String name, String contentType) throws IOException {
+                toByteArray(fileData);
+                throw new IOException("Unable to PUT file");
+            }
+        };
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            orderRequest.setRetrievalExecutor(executor);
+            DeliveryManifestHolder holder = new DeliveryManifestHolder();
+            assertThat(orderRequest.complete(holder), is(State.ABORTED));
+            // the first product is closed once it has been read, the second one, which was
+            // retrieved while the first was being sent, is closed when the order fails
+            verify(resourceStream, timeout(5000).times(2)).close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMultipleDestinationsShareTarZipPackage() throws Exception {
+        OrderContents order = getMultipleUncompressedTestOrder();
+        order.pSpec.packaging_format_and_compression = PackagingSpecFormatType.TARZIP.name();
+        DeliveryDetails secondDelivery = new DeliveryDetails();
+        secondDelivery.dests = getTestDestination();
+        order.del_list = new DeliveryDetails[] {order.del_list[0], secondDelivery};
+
+        List<byte[]> sentPackages = Collections.synchronizedList(new ArrayList<>());
+        OrderRequestImpl orderRequest = new OrderRequestImpl(order,
+                PROTOCOL,
+                PORT,
+                accessManager,
+                mockCatalogFramework) {
+
+            @Override
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
+                    String name, String contentType) throws IOException {
+                assertThat(size, is(-1L));
+                sentPackages.add(toByteArray(fileData));
+            }
+        };
+
+        DeliveryManifestHolder holder = new DeliveryManifestHolder();
+        orderRequest.complete(holder);
+        assertThat(holder.value.elements.length, is(2));
+        assertThat(holder.value.elements[1].files[0], is("pkg1234.tar.zip"));
+        assertThat(sentPackages.size(), is(2));
+        assertThat(sentPackages.get(1), is(sentPackages.get(0)));
+        // the package is encoded once for both destinations
+        verify(mockResource, times(2)).getInputStream();
+
+        try (ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(sentPackages.get(
+                0)))) {
+            ZipEntry entry = zipIn.getNextEntry();
+            assertThat(entry.getName(), is("pkg1234.tar"));
+            assertThat(IOUtils.toByteArray(zipIn).length % 512, is(0));
+        }
+    }
+
+    @Test
+    public void testFailedDestinationAbortsOrder() throws Exception {
+        OrderContents order = getMultipleUncompressedTestOrder();
+        order.pSpec.packaging_format_and_compression = PackagingSpecFormatType.TARGZIP.name();
+        DeliveryDetails secondDelivery = new DeliveryDetails();
+        Destination unreachableDestination = getTestDestination();
+        FileLocation unreachableLocation = unreachableDestination.f_dest();
+        unreachableLocation.host_name = "unreachable";
+        secondDelivery.dests = unreachableDestination;
+        order.del_list = new DeliveryDetails[] {order.del_list[0], secondDelivery};
+
+        OrderRequestImpl orderRequest = new OrderRequestImpl(order,
+                PROTOCOL,
+                PORT,
+                accessManager,
+                mockCatalogFramework) {
+
+            @Override
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
+                    String name, String contentType) throws IOException {
+                if ("unreachable".equals(destination.host_name)) {
+                    throw new IOException("Unable to PUT file");
+                }
+                toByteArray(fileData);
+            }
+        };
+
+        DeliveryManifestHolder holder = new DeliveryManifestHolder();
+        assertThat(orderRequest.complete(holder), is(State.ABORTED));
+    }
+
+    @Test
+    public void testAsynchronousOrder() throws Exception {
+        OrderContents order = getMultipleUncompressedTestOrder();
+        order.pSpec.packaging_format_and_compression = PackagingSpecFormatType.FILESZIP.name();
+
+        List<byte[]> sentPackages = new ArrayList<>();
+        OrderRequestImpl orderRequest = new OrderRequestImpl(order,
+                PROTOCOL,
+                PORT,
+                accessManager,
+                mockCatalogFramework) {
+
+            @Override
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
+                    String name, String contentType) throws IOException {
+                sentPackages.add(toByteArray(fileData));
+            }
+        };
+
+        Callback callback = mock(Callback.class);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            orderRequest.setOrderExecutor(executor);
+            orderRequest.register_callback(callback);
+            orderRequest.start();
+
+            verify(callback, timeout(5000))._notify(eq(State.COMPLETED),
+                    any(RequestDescription.class));
+            assertThat(orderRequest.get_status().completion_state, is(State.COMPLETED));
+            assertThat(orderRequest.get_remaining_delay().valid_time_delay, is(true));
+
+            DeliveryManifestHolder holder = new DeliveryManifestHolder();
+            assertThat(orderRequest.complete(holder), is(State.COMPLETED));
+            assertThat(holder.value.elements[0].files[0], is("pkg1234.zip"));
+            assertThat(sentPackages.size(), is(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCancelWhileRunningNotifiesOnce() throws Exception {
+        OrderContents order = getUncompressedTestOrder();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(accessManager.getMetacards(anyListOf(Product.class))).thenAnswer(invocation -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                // the order keeps going after it has been cancelled
+            }
+            return Collections.singletonList(getTestMetacard());
+        });
+
+        OrderRequestImpl orderRequest = new OrderRequestImpl(order,
+                PROTOCOL,
+                PORT,
+                accessManager,
+                mockCatalogFramework) {
+
+            @Override
+            protected void writeFile(FileLocation destination, PackageWriter fileData, long size,
+                    String name, String contentType) throws IOException {
+            }
+        };
+
+        Callback callback = mock(Callback.class);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            orderRequest.setOrderExecutor(executor);
+            orderRequest.register_callback(callback);
+            orderRequest.start();
+            assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+
+            orderRequest.cancel();
+            release.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(5, TimeUnit.SECONDS), is(true));
+
+            verify(callback, times(1))._notify(any(State.class), any(RequestDescription.class));
+            verify(callback)._notify(eq(State.CANCELED), any(RequestDescription.class));
+
+            DeliveryManifestHolder holder = new DeliveryManifestHolder();
+            assertThat(orderRequest.complete(holder), is(State.CANCELED));
+            assertThat(holder.value.elements.length, is(0));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAbortedOrderStatus() throws Exception {
+        OrderContents order = getUncompressedTestOrder();
+        when(accessManager.getMetacards(anyListOf(Product.class))).thenThrow(new WrongPolicy());
+
+        OrderRequestImpl orderRequest = new OrderRequestImpl(order,
+                PROTOCOL,
+                PORT,
+                accessManager,
+                mockCatalogFramework);
+
+        DeliveryManifestHolder holder = new DeliveryManifestHolder();
+        assertThat(orderRequest.complete(holder), is(State.ABORTED));
+        Status status = orderRequest.get_status();
+        assertThat(status.completion_state, is(State.ABORTED));
+        assertThat(status.warning, is(false));
+    }
+
+    private static byte[] toByteArray(PackageWriter packageWriter) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        packageWriter.write(outputStream);
+        return outputStream.toByteArray();
+    }
+
     private Destination getTestDestination() {
         Destination destination = new Destination();
         FileLocation location = new FileLocation();
@@ -14,11 +14,14 @@
 
 package org.codice.alliance.nsili.orb.impl;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
 import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.codice.alliance.nsili.orb.api.CorbaOrb;
 import org.codice.alliance.nsili.orb.api.CorbaServiceListener;
 import org.omg.CORBA.ORB;
@@ -31,20 +34,81 @@ public class CorbaOrbImpl extends MaskableImpl implements CorbaOrb {
 
     public static final int DEFAULT_CORBA_PORT = 2809;
 
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 64;
+
+    public static final int DEFAULT_MAX_QUEUED_REQUESTS = 256;
+
+    public static final int DEFAULT_QUEUE_TIMEOUT_MILLIS = 1000;
+
+    public static final int DEFAULT_GIOP_BUFFER_SIZE = 65536;
+
+    public static final int DEFAULT_GIOP_FRAGMENT_SIZE = 65536;
+
+    public static final int DEFAULT_CONNECTION_HIGH_WATER_MARK = 240;
+
+    public static final int DEFAULT_CONNECTION_LOW_WATER_MARK = 100;
+
+    public static final int DEFAULT_CONNECTIONS_TO_RECLAIM = 5;
+
     public static final String CORBA_TIMEOUT = "corbaTimeout";
 
     public static final String CORBA_PORT = "corbaPort";
 
+    public static final String MAX_CONCURRENT_REQUESTS = "maxConcurrentRequests";
+
+    public static final String MAX_QUEUED_REQUESTS = "maxQueuedRequests";
+
+    public static final String QUEUE_TIMEOUT_MILLIS = "queueTimeoutMillis";
+
+    public static final String OPERATION_CONCURRENCY_LIMITS = "operationConcurrencyLimits";
+
+    public static final String GIOP_BUFFER_SIZE = "giopBufferSize";
+
+    public static final String GIOP_FRAGMENT_SIZE = "giopFragmentSize";
+
+    public static final String CONNECTION_HIGH_WATER_MARK = "connectionHighWaterMark";
+
+    public static final String CONNECTION_LOW_WATER_MARK = "connectionLowWaterMark";
+
+    public static final String CONNECTIONS_TO_RECLAIM = "connectionsToReclaim";
+
+    private static final String SUN_CORBA_PREFIX = "com.sun.CORBA.";
+
+    private static final String ORB_INITIALIZER_PREFIX =
+            "org.omg.PortableInterceptor.ORBInitializerClass.";
+
+    private static final int MIN_GIOP_FRAGMENT_SIZE = 32;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(CorbaOrbImpl.class);
 
     private int corbaPort = DEFAULT_CORBA_PORT;
 
     private int corbaTimeout;
 
+    private int maxConcurrentRequests = DEFAULT_MAX_CONCURRENT_REQUESTS;
+
+    private int maxQueuedRequests = DEFAULT_MAX_QUEUED_REQUESTS;
+
+    private int queueTimeoutMillis = DEFAULT_QUEUE_TIMEOUT_MILLIS;
+
+    private Map<String, Integer> operationConcurrencyLimits = new HashMap<>();
+
+    private int giopBufferSize = DEFAULT_GIOP_BUFFER_SIZE;
+
+    private int giopFragmentSize = DEFAULT_GIOP_FRAGMENT_SIZE;
+
+    private int connectionHighWaterMark = DEFAULT_CONNECTION_HIGH_WATER_MARK;
+
+    private int connectionLowWaterMark = DEFAULT_CONNECTION_LOW_WATER_MARK;
+
+    private int connectionsToReclaim = DEFAULT_CONNECTIONS_TO_RECLAIM;
+
     private ORB orb = null;
 
     private Thread orbRunThread = null;
 
+    private RequestLimiter requestLimiter;
+
     private Set<CorbaServiceListener> corbaServiceListeners = new HashSet<>(5);
 
     public int getCorbaPort() {
@@ -64,7 +128,110 @@ public class CorbaOrbImpl extends MaskableImpl implements CorbaOrb {
 
     public void setCorbaTimeout(int corbaTimeout) {
         this.corbaTimeout = corbaTimeout;
-        System.setProperty("com.sun.CORBA.transport.ORBTCPRadTimeouts", getCorbaWaitTime());
+    }
+
+    /**
+     * @param maxConcurrentRequests the maximum number of incoming requests dispatched at the same
+     *                              time, 0 for no limit
+     */
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    /**
+     * @param maxQueuedRequests the maximum number of incoming requests that wait to be
+     *                          dispatched once a limit is reached, further requests are rejected
+     */
+    public void setMaxQueuedRequests(int maxQueuedRequests) {
+        this.maxQueuedRequests = maxQueuedRequests;
+    }
+
+    /**
+     * @param queueTimeoutMillis the number of milliseconds a queued request waits to be
+     *                           dispatched before it is rejected
+     */
+    public void setQueueTimeoutMillis(int queueTimeoutMillis) {
+        this.queueTimeoutMillis = queueTimeoutMillis;
+    }
+
+    /**
+     * @param operationConcurrencyLimits entries of the form operation=limit, giving the maximum
+     *                                   number of concurrent requests for an operation
+     */
+    public void setOperationConcurrencyLimits(String[] operationConcurrencyLimits) {
+        Map<String, Integer> limits = new HashMap<>();
+        if (operationConcurrencyLimits != null) {
+            for (String operationLimit : operationConcurrencyLimits) {
+                String operation = StringUtils.trim(StringUtils.substringBefore(operationLimit,
+                        "="));
+                String limit = StringUtils.trim(StringUtils.substringAfter(operationLimit, "="));
+                try {
+                    if (StringUtils.isNotEmpty(operation)) {
+                        limits.put(operation, Integer.parseInt(limit));
+                    }
+                } catch (NumberFormatException e) {
+                    LOGGER.warn("Ignoring invalid operation concurrency limit: {}",
+                            operationLimit);
+                }
+            }
+        }
+        this.operationConcurrencyLimits = limits;
+    }
+
+    public void setGiopBufferSize(int giopBufferSize) {
+        this.giopBufferSize = giopBufferSize;
+    }
+
+    /**
+     * @param giopFragmentSize the GIOP fragment size in bytes, rounded down to a multiple of 8
+     */
+    public void setGiopFragmentSize(int giopFragmentSize) {
+        this.giopFragmentSize = giopFragmentSize;
+    }
+
+    /**
+     * @param connectionHighWaterMark the number of cached connections at which the ORB starts
+     *                                reclaiming idle connections
+     */
+    public void setConnectionHighWaterMark(int connectionHighWaterMark) {
+        this.connectionHighWaterMark = connectionHighWaterMark;
+    }
+
+    public void setConnectionLowWaterMark(int connectionLowWaterMark) {
+        this.connectionLowWaterMark = connectionLowWaterMark;
+    }
+
+    public void setConnectionsToReclaim(int connectionsToReclaim) {
+        this.connectionsToReclaim = connectionsToReclaim;
+    }
+
+    /**
+     * @return the number of incoming requests currently being dispatched
+     */
+    public int getInFlightRequests() {
+        return requestLimiter == null ? 0 : requestLimiter.getInFlightRequests();
+    }
+
+    /**
+     * @param operation an operation with a configured concurrency limit
+     * @return the number of incoming requests for the operation currently being dispatched
+     */
+    public int getInFlightRequests(String operation) {
+        return requestLimiter == null ? 0 : requestLimiter.getInFlightRequests(operation);
+    }
+
+    /**
+     * @return the number of incoming requests waiting to be dispatched
+     */
+    public int getQueuedRequests() {
+        return requestLimiter == null ? 0 : requestLimiter.getQueuedRequests();
+    }
+
+    /**
+     * @return the number of incoming requests rejected since the ORB was initialized
+     */
+    public long getRejectedRequests() {
+        return requestLimiter == null ? 0 : requestLimiter.getRejectedRequests();
     }
 
     @Override
@@ -100,33 +267,92 @@ public class CorbaOrbImpl extends MaskableImpl implements CorbaOrb {
             setCorbaPort(corbaPort);
         }
 
+        Integer maxConcurrentRequests = (Integer) configuration.get(MAX_CONCURRENT_REQUESTS);
+        if (maxConcurrentRequests != null) {
+            setMaxConcurrentRequests(maxConcurrentRequests);
+        }
+
+        Integer maxQueuedRequests = (Integer) configuration.get(MAX_QUEUED_REQUESTS);
+        if (maxQueuedRequests != null) {
+            setMaxQueuedRequests(maxQueuedRequests);
+        }
+
+        Integer queueTimeoutMillis = (Integer) configuration.get(QUEUE_TIMEOUT_MILLIS);
+        if (queueTimeoutMillis != null) {
+            setQueueTimeoutMillis(queueTimeoutMillis);
+        }
+
+        Object operationLimits = configuration.get(OPERATION_CONCURRENCY_LIMITS);
+        if (operationLimits instanceof String[]) {
+            setOperationConcurrencyLimits((String[]) operationLimits);
+        } else if (operationLimits instanceof String) {
+            setOperationConcurrencyLimits(((String) operationLimits).split(","));
+        }
+
+        Integer giopBufferSize = (Integer) configuration.get(GIOP_BUFFER_SIZE);
+        if (giopBufferSize != null) {
+            setGiopBufferSize(giopBufferSize);
+        }
+
+        Integer giopFragmentSize = (Integer) configuration.get(GIOP_FRAGMENT_SIZE);
+        if (giopFragmentSize != null) {
+            setGiopFragmentSize(giopFragmentSize);
+        }
+
+        Integer highWaterMark = (Integer) configuration.get(CONNECTION_HIGH_WATER_MARK);
+        if (highWaterMark != null) {
+            setConnectionHighWaterMark(highWaterMark);
+        }
+
+        Integer lowWaterMark = (Integer) configuration.get(CONNECTION_LOW_WATER_MARK);
+        if (lowWaterMark != null) {
+            setConnectionLowWaterMark(lowWaterMark);
+        }
+
+        Integer connectionsToReclaim = (Integer) configuration.get(CONNECTIONS_TO_RECLAIM);
+        if (connectionsToReclaim != null) {
+            setConnectionsToReclaim(connectionsToReclaim);
+        }
+
         init();
     }
 
     /**
-     * Initializes the Corba ORB with no additional arguments
+     * Initializes the Corba ORB with the configured port, timeouts, GIOP sizes, connection cache
+     * limits and request limits. The settings are passed to the ORB itself rather than set as
+     * system properties, so they don't leak into other ORBs in the same JVM.
      */
     public void init() {
         shutdown();
 
-        System.setProperty("com.sun.CORBA.POA.ORBPersistentServerPort", String.valueOf(corbaPort));
-        System.setProperty("com.sun.CORBA.ORBServerPort", String.valueOf(corbaPort));
-        System.setProperty("com.sun.CORBA.transport.ORBTCPReadTimeouts", getCorbaWaitTime());
+        requestLimiter = new RequestLimiter(maxConcurrentRequests,
+                maxQueuedRequests,
+                operationConcurrencyLimits,
+                queueTimeoutMillis);
+
+        Thread currentThread = Thread.currentThread();
+        ClassLoader contextClassLoader = currentThread.getContextClassLoader();
+        try {
+            // The ORB loads interceptor initializers by name through the context class loader
+            currentThread.setContextClassLoader(CorbaOrbImpl.class.getClassLoader());
+            RequestLimitOrbInitializer.setRequestLimiter(requestLimiter);
+            orb = org.omg.CORBA.ORB.init(new String[0], getOrbProperties());
+        } finally {
+            RequestLimitOrbInitializer.setRequestLimiter(null);
+            currentThread.setContextClassLoader(contextClassLoader);
+        }
 
-        orb = org.omg.CORBA.ORB.init(new String[0], null);
         if (orb != null) {
             LOGGER.debug("Successfully initialized CORBA orb on port: {}", corbaPort);
         } else {
             LOGGER.error("Unable to initialize CORBA orb on port: {}", corbaPort);
         }
 
-        orbRunThread = new Thread(() -> orb.run());
+        ORB runOrb = orb;
+        orbRunThread = new Thread(() -> runOrb.run(), "nsiliOrb-" + corbaPort);
+        orbRunThread.setDaemon(true);
         orbRunThread.start();
 
-        System.clearProperty("com.sun.CORBA.POA.ORBPersistentServerPort");
-        System.clearProperty("com.sun.CORBA.ORBServerPort");
-        System.clearProperty("com.sun.CORBA.transport.ORBTCPReadTimeouts");
-
         for (CorbaServiceListener listener : corbaServiceListeners) {
             listener.corbaInitialized();
         }
@@ -142,8 +368,49 @@ public class CorbaOrbImpl extends MaskableImpl implements CorbaOrb {
         corbaServiceListeners.remove(corbaServiceListener);
     }
 
+    Properties getOrbProperties() {
+        Properties properties = new Properties();
+        properties.setProperty(SUN_CORBA_PREFIX + "POA.ORBPersistentServerPort",
+                String.valueOf(corbaPort));
+        properties.setProperty(SUN_CORBA_PREFIX + "ORBServerPort", String.valueOf(corbaPort));
+        properties.setProperty(SUN_CORBA_PREFIX + "transport.ORBTCPReadTimeouts",
+                getCorbaWaitTime());
+
+        if (giopBufferSize > 0) {
+            properties.setProperty(SUN_CORBA_PREFIX + "giop.ORBBufferSize",
+                    String.valueOf(giopBufferSize));
+        }
+
+        if (giopFragmentSize > 0) {
+            int fragmentSize = Math.max(MIN_GIOP_FRAGMENT_SIZE,
+                    giopFragmentSize - giopFragmentSize % 8);
+            properties.setProperty(SUN_CORBA_PREFIX + "giop.ORBFragmentSize",
+                    String.valueOf(fragmentSize));
+        }
+
+        if (connectionHighWaterMark > 0) {
+            properties.setProperty(SUN_CORBA_PREFIX + "connection.ORBHighWaterMark",
+                    String.valueOf(connectionHighWaterMark));
+        }
+
+        if (connectionLowWaterMark > 0) {
+            properties.setProperty(SUN_CORBA_PREFIX + "connection.ORBLowWaterMark",
+                    String.valueOf(connectionLowWaterMark));
+        }
+
+        if (connectionsToReclaim > 0) {
+            properties.setProperty(SUN_CORBA_PREFIX + "connection.ORBNumberToReclaim",
+                    String.valueOf(connectionsToReclaim));
+        }
+
+        properties.setProperty(ORB_INITIALIZER_PREFIX + RequestLimitOrbInitializer.class.getName(),
+                "");
+
+        return properties;
+    }
+
     private String getCorbaWaitTime() {
         long waitTimeMillis = corbaTimeout * 1000;
         return "1:" + waitTimeMillis + ":" + waitTimeMillis + ":" + 1;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.orb.impl;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.omg.CORBA.CompletionStatus;
+import org.omg.CORBA.LocalObject;
+import org.omg.CORBA.TRANSIENT;
+import org.omg.PortableInterceptor.ServerRequestInfo;
+import org.omg.PortableInterceptor.ServerRequestInterceptor;
+
+/**
+ * Applies a {@link RequestLimiter} to every request the ORB dispatches. The permit is taken
+ * before the request reaches the servant and returned when the reply, exception or forward is
+ * sent, all of which happen on the dispatching thread. Rejected requests fail with TRANSIENT so
+ * that clients can retry.
+ */
+public class RequestLimitInterceptor extends LocalObject implements ServerRequestInterceptor {
+
+    private static final String NAME = "NsiliRequestLimitInterceptor";
+
+    private final transient RequestLimiter requestLimiter;
+
+    private final transient ThreadLocal<Deque<String>> dispatchedOperations =
+            ThreadLocal.withInitial(ArrayDeque::new);
+
+    public RequestLimitInterceptor(RequestLimiter requestLimiter) {
+        this.requestLimiter = requestLimiter;
+    }
+
+    @Override
+    public void receive_request_service_contexts(ServerRequestInfo ri) {
+        String operation = ri.operation();
+        if (!requestLimiter.acquire(operation)) {
+            throw new TRANSIENT("Too many concurrent requests for " + operation,
+                    0,
+                    CompletionStatus.COMPLETED_NO);
+        }
+        dispatchedOperations.get()
+                .push(operation);
+    }
+
+    @Override
+    public void receive_request(ServerRequestInfo ri) {
+    }
+
+    @Override
+    public void send_reply(ServerRequestInfo ri) {
+        release();
+    }
+
+    @Override
+    public void send_exception(ServerRequestInfo ri) {
+        release();
+    }
+
+    @Override
+    public void send_other(ServerRequestInfo ri) {
+        release();
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void destroy() {
+        dispatchedOperations.remove();
+    }
+
+    private void release() {
+        String operation = dispatchedOperations.get()
+                .poll();
+        if (operation != null) {
+            requestLimiter.release(operation);
+        }
+    }
+}
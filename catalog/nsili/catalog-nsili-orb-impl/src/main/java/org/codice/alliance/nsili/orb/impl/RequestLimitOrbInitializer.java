@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.orb.impl;
+
+import org.omg.CORBA.LocalObject;
+import org.omg.PortableInterceptor.ORBInitInfo;
+import org.omg.PortableInterceptor.ORBInitInfoPackage.DuplicateName;
+import org.omg.PortableInterceptor.ORBInitializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers the {@link RequestLimitInterceptor} with an ORB. The ORB creates initializers by
+ * class name, so the limiter is handed over through {@link #setRequestLimiter(RequestLimiter)} on
+ * the thread that calls ORB.init.
+ */
+public class RequestLimitOrbInitializer extends LocalObject implements ORBInitializer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestLimitOrbInitializer.class);
+
+    private static final ThreadLocal<RequestLimiter> REQUEST_LIMITER = new ThreadLocal<>();
+
+    /**
+     * @param requestLimiter the limiter used by the ORB initialized next on this thread, or null
+     *                       to clear it
+     */
+    public static void setRequestLimiter(RequestLimiter requestLimiter) {
+        if (requestLimiter == null) {
+            REQUEST_LIMITER.remove();
+        } else {
+            REQUEST_LIMITER.set(requestLimiter);
+        }
+    }
+
+    @Override
+    public void pre_init(ORBInitInfo info) {
+        RequestLimiter requestLimiter = REQUEST_LIMITER.get();
+        if (requestLimiter == null) {
+            return;
+        }
+
+        try {
+            info.add_server_request_interceptor(new RequestLimitInterceptor(requestLimiter));
+        } catch (DuplicateName e) {
+            LOGGER.debug("Request limit interceptor is already registered", e);
+        }
+    }
+
+    @Override
+    public void post_init(ORBInitInfo info) {
+    }
+}
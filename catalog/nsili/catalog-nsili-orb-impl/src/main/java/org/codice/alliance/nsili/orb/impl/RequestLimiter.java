@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.orb.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounds the number of incoming CORBA requests that are dispatched at the same time, both in
+ * total and per operation. A request over a limit takes one slot in the wait queue and waits for
+ * its permits until the queue timeout, which is separate from the ORB read timeout. When the
+ * queue is full the request is rejected right away, so it never ties up a dispatch thread.
+ * Limiting a slow operation such as complete_DAG_results keeps it from holding every dispatch
+ * thread.
+ */
+public class RequestLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestLimiter.class);
+
+    private final Semaphore requestPermits;
+
+    private final Map<String, Semaphore> operationPermits;
+
+    private final Map<String, AtomicInteger> operationsInFlight = new HashMap<>();
+
+    private final int maxQueuedRequests;
+
+    private final long queueTimeoutNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param maxConcurrentRequests the maximum number of requests dispatched at once, 0 for no
+     *                              limit
+     * @param maxQueuedRequests     the maximum number of requests waiting for a permit
+     * @param operationLimits       the maximum number of concurrent requests per operation name
+     * @param queueTimeoutMillis    how long a queued request waits for its permits before it is
+     *                              rejected
+     */
+    public RequestLimiter(int maxConcurrentRequests, int maxQueuedRequests,
+            Map<String, Integer> operationLimits, long queueTimeoutMillis) {
+        this.requestPermits =
+                maxConcurrentRequests > 0 ? new Semaphore(maxConcurrentRequests, true) : null;
+        this.maxQueuedRequests = Math.max(0, maxQueuedRequests);
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, queueTimeoutMillis));
+
+        Map<String, Semaphore> permits = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : operationLimits.entrySet()) {
+            if (entry.getValue() != null && entry.getValue() > 0) {
+                permits.put(entry.getKey(), new Semaphore(entry.getValue(), true));
+            }
+            operationsInFlight.put(entry.getKey(), new AtomicInteger());
+        }
+        this.operationPermits = Collections.unmodifiableMap(permits);
+    }
+
+    /**
+     * Waits for the permits needed to dispatch the operation.
+     *
+     * @param operation the operation name
+     * @return true if the request can be dispatched, in which case {@link #release(String)} must
+     * be called once it completes, or false if it was rejected
+     */
+    public boolean acquire(String operation) {
+        Semaphore operationSemaphore = operationPermits.get(operation);
+        boolean operationAcquired = tryAcquire(operationSemaphore);
+        if (!operationAcquired || !tryAcquire(requestPermits)) {
+            if (queued.incrementAndGet() > maxQueuedRequests) {
+                queued.decrementAndGet();
+                release(operationSemaphore, operationAcquired);
+                return reject(operation, "queue is full");
+            }
+
+            try {
+                long deadline = System.nanoTime() + queueTimeoutNanos;
+                if (!operationAcquired) {
+                    operationAcquired = tryAcquire(operationSemaphore, deadline);
+                }
+                if (!operationAcquired || !tryAcquire(requestPermits, deadline)) {
+                    release(operationSemaphore, operationAcquired);
+                    return reject(operation, "timed out waiting to be dispatched");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                        .interrupt();
+                release(operationSemaphore, operationAcquired);
+                return reject(operation, "interrupted waiting to be dispatched");
+            } finally {
+                queued.decrementAndGet();
+            }
+        }
+
+        inFlight.incrementAndGet();
+        AtomicInteger operationCount = operationsInFlight.get(operation);
+        if (operationCount != null) {
+            operationCount.incrementAndGet();
+        }
+
+        return true;
+    }
+
+    public void release(String operation) {
+        inFlight.decrementAndGet();
+        AtomicInteger operationCount = operationsInFlight.get(operation);
+        if (operationCount != null) {
+            operationCount.decrementAndGet();
+        }
+
+        if (requestPermits != null) {
+            requestPermits.release();
+        }
+
+        Semaphore operationSemaphore = operationPermits.get(operation);
+        if (operationSemaphore != null) {
+            operationSemaphore.release();
+        }
+    }
+
+    /**
+     * @return the number of requests currently being dispatched
+     */
+    public int getInFlightRequests() {
+        return inFlight.get();
+    }
+
+    /**
+     * @param operation the operation name, which must have a configured limit
+     * @return the number of requests for the operation currently being dispatched
+     */
+    public int getInFlightRequests(String operation) {
+        AtomicInteger operationCount = operationsInFlight.get(operation);
+        return operationCount == null ? 0 : operationCount.get();
+    }
+
+    /**
+     * @return the number of requests waiting for a permit
+     */
+    public int getQueuedRequests() {
+        return queued.get();
+    }
+
+    /**
+     * @return the number of requests rejected since the limiter was created
+     */
+    public long getRejectedRequests() {
+        return rejected.get();
+    }
+
+    private boolean tryAcquire(Semaphore semaphore) {
+        return semaphore == null || semaphore.tryAcquire();
+    }
+
+    private boolean tryAcquire(Semaphore semaphore, long deadline) throws InterruptedException {
+        long remainingNanos = Math.max(0, deadline - System.nanoTime());
+        return semaphore == null || semaphore.tryAcquire(remainingNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void release(Semaphore semaphore, boolean acquired) {
+        if (semaphore != null && acquired) {
+            semaphore.release();
+        }
+    }
+
+    private boolean reject(String operation, String reason) {
+        rejected.incrementAndGet();
+        LOGGER.debug("Rejecting CORBA request for {}: {} (in flight: {}, queued: {})",
+                operation,
+                reason,
+                inFlight.get(),
+                queued.get());
+        return false;
+    }
+}
@@ -19,6 +19,7 @@ import static org.hamcrest.core.IsNull.notNullValue;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 
 import org.codice.alliance.nsili.orb.api.CorbaServiceListener;
 import org.junit.Test;
@@ -127,4 +128,74 @@ public class TestCorbaOrbImpl {
         assertThat(orb, notNullValue());
         assertThat(listenerCallCounter, is(4));
     }
+
+    @Test
+    public void testRequestLimitRefresh() {
+        CorbaOrbImpl corbaOrb = new CorbaOrbImpl();
+        corbaOrb.setCorbaTimeout(100);
+        corbaOrb.setCorbaPort(0);
+        assertThat(corbaOrb.getInFlightRequests(), is(0));
+        assertThat(corbaOrb.getRejectedRequests(), is(0L));
+
+        Map<String, Object> props = new HashMap<>();
+        props.put(CorbaOrbImpl.MAX_CONCURRENT_REQUESTS, 8);
+        props.put(CorbaOrbImpl.MAX_QUEUED_REQUESTS, 16);
+        props.put(CorbaOrbImpl.QUEUE_TIMEOUT_MILLIS, 500);
+        props.put(CorbaOrbImpl.OPERATION_CONCURRENCY_LIMITS,
+                new String[] {"complete_DAG_results=2", "bad=limit", "=3"});
+        corbaOrb.refresh(props);
+        assertThat(corbaOrb.getOrb(), notNullValue());
+        assertThat(corbaOrb.getInFlightRequests(), is(0));
+        assertThat(corbaOrb.getInFlightRequests("complete_DAG_results"), is(0));
+        assertThat(corbaOrb.getQueuedRequests(), is(0));
+        assertThat(corbaOrb.getRejectedRequests(), is(0L));
+
+        props.put(CorbaOrbImpl.OPERATION_CONCURRENCY_LIMITS, "complete_DAG_results=4");
+        corbaOrb.refresh(props);
+        assertThat(corbaOrb.getOrb(), notNullValue());
+        corbaOrb.shutdown();
+    }
+
+    @Test
+    public void testOrbProperties() {
+        CorbaOrbImpl corbaOrb = new CorbaOrbImpl();
+        corbaOrb.setCorbaTimeout(10);
+        corbaOrb.setCorbaPort(0);
+
+        Map<String, Object> props = new HashMap<>();
+        props.put(CorbaOrbImpl.GIOP_BUFFER_SIZE, 4096);
+        props.put(CorbaOrbImpl.GIOP_FRAGMENT_SIZE, 1030);
+        props.put(CorbaOrbImpl.CONNECTION_HIGH_WATER_MARK, 50);
+        props.put(CorbaOrbImpl.CONNECTION_LOW_WATER_MARK, 20);
+        props.put(CorbaOrbImpl.CONNECTIONS_TO_RECLAIM, 2);
+        corbaOrb.refresh(props);
+        assertThat(corbaOrb.getOrb(), notNullValue());
+
+        Properties orbProperties = corbaOrb.getOrbProperties();
+        assertThat(orbProperties.getProperty("com.sun.CORBA.ORBServerPort"), is("0"));
+        assertThat(orbProperties.getProperty("com.sun.CORBA.transport.ORBTCPReadTimeouts"),
+                is("1:10000:10000:1"));
+        assertThat(orbProperties.getProperty("com.sun.CORBA.giop.ORBBufferSize"), is("4096"));
+        assertThat(orbProperties.getProperty("com.sun.CORBA.giop.ORBFragmentSize"), is("1024"));
+        assertThat(orbProperties.getProperty("com.sun.CORBA.connection.ORBHighWaterMark"),
+                is("50"));
+        assertThat(orbProperties.getProperty("com.sun.CORBA.connection.ORBLowWaterMark"),
+                is("20"));
+        assertThat(orbProperties.getProperty("com.sun.CORBA.connection.ORBNumberToReclaim"),
+                is("2"));
+        assertThat(orbProperties.containsKey(
+                "org.omg.PortableInterceptor.ORBInitializerClass."
+                        + RequestLimitOrbInitializer.class.getName()), is(true));
+        corbaOrb.shutdown();
+
+        corbaOrb.setGiopBufferSize(0);
+        corbaOrb.setGiopFragmentSize(0);
+        corbaOrb.setConnectionHighWaterMark(0);
+        corbaOrb.setConnectionLowWaterMark(0);
+        corbaOrb.setConnectionsToReclaim(0);
+        orbProperties = corbaOrb.getOrbProperties();
+        assertThat(orbProperties.containsKey("com.sun.CORBA.giop.ORBBufferSize"), is(false));
+        assertThat(orbProperties.containsKey("com.sun.CORBA.connection.ORBHighWaterMark"),
+                is(false));
+    }
 }
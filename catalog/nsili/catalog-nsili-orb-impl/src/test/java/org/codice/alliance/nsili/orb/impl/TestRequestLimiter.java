@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.orb.impl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.omg.CORBA.TRANSIENT;
+import org.omg.PortableInterceptor.ServerRequestInfo;
+
+public class TestRequestLimiter {
+
+    private static final String LIMITED_OPERATION = "complete_DAG_results";
+
+    private static final String OTHER_OPERATION = "get_number_of_hits";
+
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        executorService = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testNoLimits() {
+        RequestLimiter requestLimiter = new RequestLimiter(0, 0, Collections.emptyMap(), 0);
+        assertThat(requestLimiter.acquire(OTHER_OPERATION), is(true));
+        assertThat(requestLimiter.acquire(OTHER_OPERATION), is(true));
+        assertThat(requestLimiter.getInFlightRequests(), is(2));
+
+        requestLimiter.release(OTHER_OPERATION);
+        requestLimiter.release(OTHER_OPERATION);
+        assertThat(requestLimiter.getInFlightRequests(), is(0));
+        assertThat(requestLimiter.getRejectedRequests(), is(0L));
+    }
+
+    @Test
+    public void testRejectWhenQueueIsFull() {
+        RequestLimiter requestLimiter = new RequestLimiter(1, 0, Collections.emptyMap(), 1000);
+        assertThat(requestLimiter.acquire(OTHER_OPERATION), is(true));
+        assertThat(requestLimiter.acquire(OTHER_OPERATION), is(false));
+        assertThat(requestLimiter.getRejectedRequests(), is(1L));
+
+        requestLimiter.release(OTHER_OPERATION);
+        assertThat(requestLimiter.acquire(OTHER_OPERATION), is(true));
+    }
+
+    @Test
+    public void testRejectAfterTimeout() {
+        RequestLimiter requestLimiter = new RequestLimiter(1, 1, Collections.emptyMap(), 10);
+        assertThat(requestLimiter.acquire(OTHER_OPERATION), is(true));
+        assertThat(requestLimiter.acquire(OTHER_OPERATION), is(false));
+        assertThat(requestLimiter.getQueuedRequests(), is(0));
+        assertThat(requestLimiter.getRejectedRequests(), is(1L));
+    }
+
+    @Test
+    public void testQueuedRequestIsDispatchedOnRelease() throws Exception {
+        RequestLimiter requestLimiter = new RequestLimiter(1, 1, Collections.emptyMap(), 10000);
+        assertThat(requestLimiter.acquire(OTHER_OPERATION), is(true));
+
+        Future<Boolean> queuedRequest =
+                executorService.submit(() -> requestLimiter.acquire(OTHER_OPERATION));
+        waitForQueuedRequests(requestLimiter, 1);
+
+        requestLimiter.release(OTHER_OPERATION);
+        assertThat(queuedRequest.get(5, TimeUnit.SECONDS), is(true));
+        assertThat(requestLimiter.getInFlightRequests(), is(1));
+        assertThat(requestLimiter.getQueuedRequests(), is(0));
+    }
+
+    @Test
+    public void testInterruptedWhileQueued() throws Exception {
+        RequestLimiter requestLimiter = new RequestLimiter(1, 1, Collections.emptyMap(), 10000);
+        assertThat(requestLimiter.acquire(OTHER_OPERATION), is(true));
+
+        Future<Boolean> queuedRequest = executorService.submit(() -> {
+            Thread.currentThread()
+                    .interrupt();
+            return requestLimiter.acquire(OTHER_OPERATION);
+        });
+
+        assertThat(queuedRequest.get(5, TimeUnit.SECONDS), is(false));
+        assertThat(requestLimiter.getRejectedRequests(), is(1L));
+    }
+
+    @Test
+    public void testOperationLimit() {
+        RequestLimiter requestLimiter = new RequestLimiter(10,
+                0,
+                Collections.singletonMap(LIMITED_OPERATION, 1),
+                0);
+        assertThat(requestLimiter.acquire(LIMITED_OPERATION), is(true));
+        assertThat(requestLimiter.acquire(LIMITED_OPERATION), is(false));
+        assertThat(requestLimiter.acquire(OTHER_OPERATION), is(true));
+        assertThat(requestLimiter.getInFlightRequests(LIMITED_OPERATION), is(1));
+        assertThat(requestLimiter.getInFlightRequests(OTHER_OPERATION), is(0));
+        assertThat(requestLimiter.getInFlightRequests(), is(2));
+
+        requestLimiter.release(LIMITED_OPERATION);
+        assertThat(requestLimiter.getInFlightRequests(LIMITED_OPERATION), is(0));
+        assertThat(requestLimiter.acquire(LIMITED_OPERATION), is(true));
+    }
+
+    @Test
+    public void testOperationPermitReturnedWhenGlobalLimitRejects() {
+        RequestLimiter requestLimiter = new RequestLimiter(1,
+                0,
+                Collections.singletonMap(LIMITED_OPERATION, 1),
+                0);
+        assertThat(requestLimiter.acquire(OTHER_OPERATION), is(true));
+        assertThat(requestLimiter.acquire(LIMITED_OPERATION), is(false));
+
+        requestLimiter.release(OTHER_OPERATION);
+        assertThat(requestLimiter.acquire(LIMITED_OPERATION), is(true));
+    }
+
+    @Test
+    public void testRequestOverTwoLimitsTakesOneQueueSlot() throws Exception {
+        RequestLimiter requestLimiter = new RequestLimiter(1,
+                1,
+                Collections.singletonMap(LIMITED_OPERATION, 1),
+                10000);
+        assertThat(requestLimiter.acquire(LIMITED_OPERATION), is(true));
+
+        Future<Boolean> queuedRequest =
+                executorService.submit(() -> requestLimiter.acquire(LIMITED_OPERATION));
+        waitForQueuedRequests(requestLimiter, 1);
+
+        // the queue is full, so a further request is rejected without waiting
+        long start = System.nanoTime();
+        assertThat(requestLimiter.acquire(OTHER_OPERATION), is(false));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), lessThan(5000L));
+
+        requestLimiter.release(LIMITED_OPERATION);
+        assertThat(queuedRequest.get(5, TimeUnit.SECONDS), is(true));
+        assertThat(requestLimiter.getInFlightRequests(LIMITED_OPERATION), is(1));
+        assertThat(requestLimiter.getQueuedRequests(), is(0));
+    }
+
+    @Test
+    public void testInterceptor() {
+        RequestLimiter requestLimiter = new RequestLimiter(1, 0, Collections.emptyMap(), 0);
+        RequestLimitInterceptor interceptor = new RequestLimitInterceptor(requestLimiter);
+        ServerRequestInfo requestInfo = mock(ServerRequestInfo.class);
+        when(requestInfo.operation()).thenReturn(OTHER_OPERATION);
+
+        interceptor.receive_request_service_contexts(requestInfo);
+        interceptor.receive_request(requestInfo);
+        assertThat(requestLimiter.getInFlightRequests(), is(1));
+
+        interceptor.send_reply(requestInfo);
+        assertThat(requestLimiter.getInFlightRequests(), is(0));
+
+        interceptor.receive_request_service_contexts(requestInfo);
+        interceptor.send_exception(requestInfo);
+        interceptor.receive_request_service_contexts(requestInfo);
+        interceptor.send_other(requestInfo);
+        interceptor.send_other(requestInfo);
+        assertThat(requestLimiter.getInFlightRequests(), is(0));
+        assertThat(interceptor.name(), is("NsiliRequestLimitInterceptor"));
+        interceptor.destroy();
+    }
+
+    @Test(expected = TRANSIENT.class)
+    public void testInterceptorRejects() {
+        RequestLimiter requestLimiter = new RequestLimiter(1, 0, Collections.emptyMap(), 0);
+        RequestLimitInterceptor interceptor = new RequestLimitInterceptor(requestLimiter);
+        ServerRequestInfo requestInfo = mock(ServerRequestInfo.class);
+        when(requestInfo.operation()).thenReturn(OTHER_OPERATION);
+
+        interceptor.receive_request_service_contexts(requestInfo);
+        interceptor.receive_request_service_contexts(requestInfo);
+    }
+
+    private void waitForQueuedRequests(RequestLimiter requestLimiter, int queued)
+            throws InterruptedException {
+        for (int i = 0; i < 500 && requestLimiter.getQueuedRequests() < queued; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(requestLimiter.getQueuedRequests(), is(queued));
+    }
+}
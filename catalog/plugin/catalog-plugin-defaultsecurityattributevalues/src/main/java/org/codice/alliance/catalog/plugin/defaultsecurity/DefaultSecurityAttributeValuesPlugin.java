@@ -15,12 +15,14 @@ package org.codice.alliance.catalog.plugin.defaultsecurity;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.codice.alliance.catalog.core.api.impl.types.SecurityAttributes;
@@ -28,10 +30,14 @@ import org.codice.alliance.catalog.core.api.types.Security;
 import org.opensaml.core.xml.schema.XSString;
 import org.opensaml.saml.saml2.core.AttributeStatement;
 
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 
 import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
+import ddf.catalog.data.MetacardType;
 import ddf.catalog.data.impl.AttributeImpl;
 import ddf.catalog.data.impl.MetacardImpl;
 import ddf.catalog.data.impl.MetacardTypeImpl;
@@ -54,6 +60,21 @@ public class DefaultSecurityAttributeValuesPlugin implements PreIngestPlugin {
     private static final Map<String, Set<String>> SYS_HIGH_TO_METACARD_ATTRIBUTE_MAPPING =
             new HashMap<>();
 
+    private static final int MAX_METACARD_TYPES = 100;
+
+    /**
+     * The metacard type used for metacards of a given type once security attributes are added,
+     * which is the type itself if it already has security attributes.
+     */
+    private final Cache<MetacardType, MetacardType> securityMetacardTypes =
+            CacheBuilder.newBuilder()
+                    .maximumSize(MAX_METACARD_TYPES)
+                    .build();
+
+    private SecurityAssertion highwaterAssertion;
+
+    private Map<String, Attribute> highwaterMarkings;
+
     public DefaultSecurityAttributeValuesPlugin(SecurityAttributes securityAttributes) {
         this.securityAttributes = securityAttributes;
     }
@@ -72,10 +93,23 @@ public class DefaultSecurityAttributeValuesPlugin implements PreIngestPlugin {
      * attribute.
      */
     private Map<String, Attribute> getHighwaterSecurityMarkings() {
-        Map<String, Attribute> securityMarkings = new HashMap<>();
         Subject system = org.codice.ddf.security.common.Security.runAsAdmin(this::getSystemSubject);
         SecurityAssertion assertion = system.getPrincipals()
                 .oneByType(SecurityAssertion.class);
+        return getHighwaterSecurityMarkings(assertion);
+    }
+
+    /**
+     * The markings only change when the system subject is issued a new assertion, so they are
+     * kept until a different assertion is seen.
+     */
+    private synchronized Map<String, Attribute> getHighwaterSecurityMarkings(
+            SecurityAssertion assertion) {
+        if (assertion == highwaterAssertion && highwaterMarkings != null) {
+            return highwaterMarkings;
+        }
+
+        Map<String, Attribute> securityMarkings = new HashMap<>();
         List<AttributeStatement> attributeStatements = assertion.getAttributeStatements();
         for (AttributeStatement curStatement : attributeStatements) {
             for (org.opensaml.saml.saml2.core.Attribute attribute : curStatement.getAttributes()) {
@@ -103,7 +137,10 @@ public class DefaultSecurityAttributeValuesPlugin implements PreIngestPlugin {
                 }
             }
         }
-        return securityMarkings;
+
+        highwaterAssertion = assertion;
+        highwaterMarkings = Collections.unmodifiableMap(securityMarkings);
+        return highwaterMarkings;
     }
 
     /**
@@ -113,6 +150,11 @@ public class DefaultSecurityAttributeValuesPlugin implements PreIngestPlugin {
      * attribute.
      */
     public Metacard addDefaults(Metacard metacard) {
+        return addDefaults(metacard, this::getHighwaterSecurityMarkings);
+    }
+
+    private Metacard addDefaults(Metacard metacard,
+            Supplier<Map<String, Attribute>> highwaterMarkingsSupplier) {
 
         Map policyMap = (Map) metacard.getAttribute(Metacard.SECURITY)
                 .getValue();
@@ -120,18 +162,13 @@ public class DefaultSecurityAttributeValuesPlugin implements PreIngestPlugin {
             return metacard;
         }
 
+        MetacardType metacardType = metacard.getMetacardType();
+        MetacardType securityMetacardType = getSecurityMetacardType(metacardType);
+
         final Metacard extendedMetacard;
         MetacardImpl metacardImpl;
-        if (!securityAttributes.getAttributeDescriptors()
-                .stream()
-                .anyMatch(ad -> metacard.getMetacardType()
-                        .getAttributeDescriptors()
-                        .contains(ad))) {
-            metacardImpl = new MetacardImpl(metacard,
-                    new MetacardTypeImpl(metacard.getMetacardType()
-                            .getName(),
-                            metacard.getMetacardType(),
-                            securityAttributes.getAttributeDescriptors()));
+        if (securityMetacardType != metacardType) {
+            metacardImpl = new MetacardImpl(metacard, securityMetacardType);
         } else {
             metacardImpl = new MetacardImpl(metacard);
         }
@@ -140,17 +177,38 @@ public class DefaultSecurityAttributeValuesPlugin implements PreIngestPlugin {
         metacardImpl.setTags(updatedTags);
         extendedMetacard = metacardImpl;
 
-        Map<String, Attribute> securityMarkings = getHighwaterSecurityMarkings();
-        securityMarkings.keySet()
+        Map<String, Attribute> securityMarkings = highwaterMarkingsSupplier.get();
+        securityMarkings.values()
                 .stream()
-                .filter(securityMarking -> extendedMetacard.getMetacardType()
-                        .getAttributeDescriptor(securityMarking) != null)
-                .forEach(securityMarking -> {
-                    extendedMetacard.setAttribute(securityMarkings.get(securityMarking));
-                });
+                .filter(securityMarking -> securityMetacardType.getAttributeDescriptor(
+                        securityMarking.getName()) != null)
+                .forEach(securityMarking -> extendedMetacard.setAttribute(new AttributeImpl(
+                        securityMarking.getName(),
+                        securityMarking.getValues())));
         return extendedMetacard;
     }
 
+    private MetacardType getSecurityMetacardType(MetacardType metacardType) {
+        MetacardType securityMetacardType = securityMetacardTypes.getIfPresent(metacardType);
+        if (securityMetacardType != null) {
+            return securityMetacardType;
+        }
+
+        if (!securityAttributes.getAttributeDescriptors()
+                .stream()
+                .anyMatch(ad -> metacardType.getAttributeDescriptors()
+                        .contains(ad))) {
+            securityMetacardType = new MetacardTypeImpl(metacardType.getName(),
+                    metacardType,
+                    securityAttributes.getAttributeDescriptors());
+        } else {
+            securityMetacardType = metacardType;
+        }
+
+        securityMetacardTypes.put(metacardType, securityMetacardType);
+        return securityMetacardType;
+    }
+
     public void setClassification(String classification) {
         addMapping(classification, Security.CLASSIFICATION);
     }
@@ -162,6 +220,12 @@ public class DefaultSecurityAttributeValuesPlugin implements PreIngestPlugin {
                         new HashSet<>();
         metacardAttributes.add(metacardAttribute);
         SYS_HIGH_TO_METACARD_ATTRIBUTE_MAPPING.put(userAttribute, metacardAttributes);
+        clearHighwaterMarkings();
+    }
+
+    private synchronized void clearHighwaterMarkings() {
+        highwaterAssertion = null;
+        highwaterMarkings = null;
     }
 
     public void setReleasability(String releasability) {
@@ -187,10 +251,13 @@ public class DefaultSecurityAttributeValuesPlugin implements PreIngestPlugin {
     @Override
     public CreateRequest process(CreateRequest createRequest)
             throws PluginExecutionException, StopProcessingException {
+        //Look up the system high markings at most once per request
+        Supplier<Map<String, Attribute>> highwaterMarkingsSupplier =
+                Suppliers.memoize(this::getHighwaterSecurityMarkings)::get;
         List<Metacard> updatedMetacards = createRequest.getMetacards()
                 .stream()
                 .filter(Objects::nonNull)
-                .map(this::addDefaults)
+                .map(metacard -> addDefaults(metacard, highwaterMarkingsSupplier))
                 .collect(Collectors.toList());
         return new CreateRequestImpl(updatedMetacards,
                 createRequest.getProperties(),
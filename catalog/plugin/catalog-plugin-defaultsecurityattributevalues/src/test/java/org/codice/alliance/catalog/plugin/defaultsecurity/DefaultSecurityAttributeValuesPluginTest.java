@@ -217,6 +217,38 @@ public class DefaultSecurityAttributeValuesPluginTest {
         assertThat(createRequest, not(modifiedRequest));
     }
 
+    @Test
+    public void testProcessCreateRequestLooksUpMarkingsOnce() throws Exception {
+        when(createRequest.getMetacards()).thenReturn(Arrays.asList(unmarkedMetacard,
+                unmarkedMetacard,
+                unmarkedMetacard));
+        CreateRequest modifiedRequest = defaultSecurityAttributeValuesPlugin.process(createRequest);
+
+        assertThat(modifiedRequest.getMetacards()
+                .size(), is(3));
+        assertThat(modifiedRequest.getMetacards()
+                .get(0)
+                .getMetacardType(), is(modifiedRequest.getMetacards()
+                .get(2)
+                .getMetacardType()));
+        assertThat(modifiedRequest.getMetacards()
+                .get(2)
+                .getAttribute(Security.CLASSIFICATION)
+                .getValue(), is(CLASSIFICATION_ATTRIB_VAL));
+        verify(defaultSecurityAttributeValuesPlugin, times(1)).getSystemSubject();
+    }
+
+    @Test
+    public void testMarkingsReusedForSameAssertion() throws Exception {
+        defaultSecurityAttributeValuesPlugin.addDefaults(unmarkedMetacard);
+        defaultSecurityAttributeValuesPlugin.addDefaults(unmarkedMetacard);
+        verify(mockedAssertion, times(1)).getAttributeStatements();
+
+        defaultSecurityAttributeValuesPlugin.setClassification(USER_ATTRIB_1);
+        defaultSecurityAttributeValuesPlugin.addDefaults(unmarkedMetacard);
+        verify(mockedAssertion, times(2)).getAttributeStatements();
+    }
+
     @Test
     public void testProcessUpdateRequest() throws Exception {
         UpdateRequest modifiedRequest = defaultSecurityAttributeValuesPlugin.process(updateRequest);
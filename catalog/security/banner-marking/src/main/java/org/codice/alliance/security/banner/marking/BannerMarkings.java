@@ -18,6 +18,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -27,14 +28,37 @@ import java.util.stream.Collectors;
 
 import org.apache.commons.collections.CollectionUtils;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedMap;
 
+/**
+ * Parsed and validated banner markings. Instances are immutable once {@link #parseMarkings(String)}
+ * returns, so successfully parsed markings are held in a bounded cache shared by all callers,
+ * keyed by the banner line, and documents carrying the same banner are only parsed and validated
+ * once during bulk ingest.
+ */
 public class BannerMarkings implements Serializable {
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+
     private static final List<String> NATO_CLASS_QUALIFIERS = ImmutableList.of("ATOMAL", "BALK",
             "BOHEMIA");
 
+    private static final Pattern SEGMENT_SEPARATOR = Pattern.compile("[/][/]");
+
+    private static final Pattern SLASH = Pattern.compile("[/]");
+
+    private static final Pattern HYPHEN = Pattern.compile("[-]");
+
+    private static final Pattern SPACE = Pattern.compile(" ");
+
+    private static final Pattern COMMA = Pattern.compile(",");
+
+    private static volatile Cache<String, BannerMarkings> markingsCache = createCache(
+            DEFAULT_CACHE_SIZE);
+
     enum ClassificationLevel {
         UNCLASSIFIED("UNCLASSIFIED", "U"), RESTRICTED("RESTRICTED", "R"), CONFIDENTIAL(
                 "CONFIDENTIAL", "C"), SECRET("SECRET", "S"), TOP_SECRET("TOP SECRET", "TS");
@@ -87,6 +111,13 @@ public class BannerMarkings implements Serializable {
 
         private List<String> lookupNames;
 
+        private static final Map<String, DissemControl> LOOKUP_MAP = lookupMap(
+                DissemControl.values(), dc -> dc.lookupNames);
+
+        private static final Set<String> NAMES = Arrays.stream(DissemControl.values())
+                .map(DissemControl::getName)
+                .collect(Collectors.toSet());
+
         DissemControl(String... lookupNames) {
             this.lookupNames = ImmutableList.copyOf(lookupNames);
             name = lookupNames[0];
@@ -97,10 +128,11 @@ public class BannerMarkings implements Serializable {
         }
 
         public static DissemControl lookup(String name) {
-            return Arrays.stream(DissemControl.values())
-                    .filter(dc -> dc.lookupNames.contains(name))
-                    .findFirst()
-                    .orElse(null);
+            return LOOKUP_MAP.get(name);
+        }
+
+        static boolean isName(String value) {
+            return NAMES.contains(value);
         }
     }
 
@@ -116,6 +148,9 @@ public class BannerMarkings implements Serializable {
 
         private List<String> lookupNames;
 
+        private static final Map<String, OtherDissemControl> LOOKUP_MAP = lookupMap(
+                OtherDissemControl.values(), odc -> odc.lookupNames);
+
         OtherDissemControl(String... lookupNames) {
             this.lookupNames = ImmutableList.copyOf(lookupNames);
             name = lookupNames[0];
@@ -126,16 +161,16 @@ public class BannerMarkings implements Serializable {
         }
 
         public static OtherDissemControl lookup(String name) {
-            return Arrays.stream(OtherDissemControl.values())
-                    .filter(dc -> dc.lookupNames.contains(name))
-                    .findFirst()
-                    .orElse(null);
+            return LOOKUP_MAP.get(name);
         }
 
         public static boolean prefixMatch(String value) {
-            return Arrays.stream(OtherDissemControl.values())
-                    .flatMap(odc -> odc.lookupNames.stream())
-                    .anyMatch(value::startsWith);
+            for (String lookupName : LOOKUP_MAP.keySet()) {
+                if (value.startsWith(lookupName)) {
+                    return true;
+                }
+            }
+            return false;
         }
     }
 
@@ -159,7 +194,7 @@ public class BannerMarkings implements Serializable {
         private final Map<String, List<String>> compartments;
 
         private SciControl(String marking) {
-            String[] split = marking.split("[-]");
+            String[] split = HYPHEN.split(marking);
             control = split[0];
 
             if (split.length == 1) {
@@ -169,7 +204,7 @@ public class BannerMarkings implements Serializable {
 
             Map<String, List<String>> tempCompartments = new HashMap<>();
             for (int i = 1; i < split.length; i++) {
-                String[] compartment = split[i].split(" ");
+                String[] compartment = SPACE.split(split[i]);
                 List<String> subComps;
                 if (compartment.length > 1) {
                     subComps = ImmutableList.copyOf(
@@ -200,9 +235,7 @@ public class BannerMarkings implements Serializable {
         private List<String> programs;
 
         private SapControl(String programString) {
-            programs = ImmutableList.copyOf(Pattern.compile("[/]")
-                    .splitAsStream(programString)
-                    .collect(Collectors.toList()));
+            programs = ImmutableList.copyOf(SLASH.split(programString));
 
             multiple = (programs.size() == 1 && programs.contains("MULTIPLE PROGRAMS"));
             if (multiple) {
@@ -262,7 +295,7 @@ public class BannerMarkings implements Serializable {
                 type = AeaType.FRD;
             }
 
-            String[] split = marking.split("[-]");
+            String[] split = HYPHEN.split(marking);
             if (split.length == 1) {
                 cnwdi = false;
                 sigmas = ImmutableList.of();
@@ -271,9 +304,9 @@ public class BannerMarkings implements Serializable {
                 sigmas = ImmutableList.of();
             } else {
                 cnwdi = false;
-                sigmas = ImmutableList.copyOf(Pattern.compile(" ")
-                        .splitAsStream(split[1].substring("SIGMA".length())
-                                .trim())
+                sigmas = ImmutableList.copyOf(SPACE.splitAsStream(split[1].substring(
+                        "SIGMA".length())
+                        .trim())
                         .map(Integer::parseInt)
                         .collect(Collectors.toList()));
             }
@@ -359,7 +392,7 @@ public class BannerMarkings implements Serializable {
             }
             break;
         case FGI:
-            fgiAuthority = classificationSegment.split(" ")[0];
+            fgiAuthority = SPACE.split(classificationSegment)[0];
             classification = ClassificationLevel.lookup(
                     classificationSegment.substring(fgiAuthority.length())
                             .trim());
@@ -383,9 +416,7 @@ public class BannerMarkings implements Serializable {
             }
             suffix = suffix.substring(classification.getName()
                     .length());
-            jointAuthorities = ImmutableList.copyOf(Pattern.compile(" ")
-                    .splitAsStream(suffix)
-                    .collect(Collectors.toList()));
+            jointAuthorities = ImmutableList.copyOf(SPACE.split(suffix));
             break;
         default:
             break;
@@ -465,7 +496,66 @@ public class BannerMarkings implements Serializable {
                 fgiAuthority)));
     }
 
+    /**
+     * Parses and validates the given banner line. Markings that parse successfully are cached, so
+     * the same instance is returned for repeated banners; banners that fail validation are not
+     * cached and are reported on every call.
+     *
+     * @param markings the banner line
+     * @return the parsed markings
+     * @throws MarkingsValidationException if the markings are malformed or invalid
+     */
     public static BannerMarkings parseMarkings(String markings) throws MarkingsValidationException {
+        Cache<String, BannerMarkings> cache = markingsCache;
+        BannerMarkings bannerMarkings = cache.getIfPresent(markings);
+        if (bannerMarkings != null) {
+            return bannerMarkings;
+        }
+
+        bannerMarkings = parse(markings);
+        cache.put(markings, bannerMarkings);
+        return bannerMarkings;
+    }
+
+    /**
+     * Sets the maximum number of parsed markings held in the shared cache. A size of zero
+     * disables caching. Changing the size discards all cached markings.
+     *
+     * @param maxEntries maximum number of cached markings
+     */
+    public static void setCacheSize(int maxEntries) {
+        markingsCache = createCache(Math.max(0, maxEntries));
+    }
+
+    public static long getCacheHitCount() {
+        return markingsCache.stats()
+                .hitCount();
+    }
+
+    public static long getCacheMissCount() {
+        return markingsCache.stats()
+                .missCount();
+    }
+
+    private static Cache<String, BannerMarkings> createCache(int maxEntries) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+    }
+
+    private static <T extends Enum<T>> Map<String, T> lookupMap(T[] values,
+            Function<T, List<String>> lookupNames) {
+        Map<String, T> lookup = new LinkedHashMap<>();
+        for (T value : values) {
+            for (String lookupName : lookupNames.apply(value)) {
+                lookup.putIfAbsent(lookupName, value);
+            }
+        }
+        return ImmutableMap.copyOf(lookup);
+    }
+
+    private static BannerMarkings parse(String markings) throws MarkingsValidationException {
         MarkingType type;
         String trimmedMarkings;
         if (markings.startsWith("//JOINT")) {
@@ -479,29 +569,11 @@ public class BannerMarkings implements Serializable {
             trimmedMarkings = markings;
         }
 
-        String[] split = trimmedMarkings.split("[/][/]");
+        String[] split = SEGMENT_SEPARATOR.split(trimmedMarkings);
         BannerMarkings bannerMarkings = new BannerMarkings(type, split[0], markings);
 
-        List<Function<String, Boolean>> processors = new ArrayList<>();
-        if (type == MarkingType.FGI) {
-            processors.add(bannerMarkings::processNato);
-        }
-
-        processors.add(bannerMarkings::processUsFgi);
-        processors.add(bannerMarkings::processSap);
-        processors.add(bannerMarkings::processAea);
-        processors.add(bannerMarkings::processDodUcni);
-        processors.add(bannerMarkings::processDoeUcni);
-        processors.add(bannerMarkings::processOtherDissem);
-        processors.add(bannerMarkings::processDisseminationControls);
-        processors.add(bannerMarkings::processSciControls);
-
         for (int i = 1; i < split.length; i++) {
-            for (Function<String, Boolean> processor : processors) {
-                if (processor.apply(split[i])) {
-                    break;
-                }
-            }
+            bannerMarkings.processSegment(split[i]);
         }
 
         // Ensure that all Collection types have been initialized
@@ -526,6 +598,23 @@ public class BannerMarkings implements Serializable {
         return collection == null ? ImmutableList.of() : collection;
     }
 
+    /**
+     * Hands the segment to the first processor that accepts it, in banner order.
+     */
+    private void processSegment(String segment) {
+        if (type == MarkingType.FGI && processNato(segment)) {
+            return;
+        }
+
+        if (processUsFgi(segment) || processSap(segment) || processAea(segment)
+                || processDodUcni(segment) || processDoeUcni(segment)
+                || processOtherDissem(segment) || processDisseminationControls(segment)) {
+            return;
+        }
+
+        processSciControls(segment);
+    }
+
     private boolean processSap(String segment) {
         if ((sapControl != null) || (!segment.startsWith("SAR-") && !segment.startsWith(
                 "SPECIAL ACCESS REQUIRED-") && !segment.equals("HVSACO"))) {
@@ -535,7 +624,7 @@ public class BannerMarkings implements Serializable {
         if (segment.equals("HVSACO")) {
             sapControl = new SapControl();
         } else {
-            sapControl = new SapControl(segment.split("[-]")[1]);
+            sapControl = new SapControl(HYPHEN.split(segment)[1]);
         }
         return true;
 
@@ -581,9 +670,7 @@ public class BannerMarkings implements Serializable {
         if (suffix.isEmpty()) {
             usFgiCountryCodes = ImmutableList.of();
         } else {
-            usFgiCountryCodes = ImmutableList.copyOf(Pattern.compile(" ")
-                    .splitAsStream(suffix)
-                    .collect(Collectors.toList()));
+            usFgiCountryCodes = ImmutableList.copyOf(SPACE.split(suffix));
         }
         return true;
     }
@@ -604,7 +691,7 @@ public class BannerMarkings implements Serializable {
 
         // Process each OtherDissem control sequentially. If ACCM- is found, attempt to process
         // the next tokens as ACCM markers unless they are in the OTHER_DISSEM set
-        String[] tokens = segment.split("[/]");
+        String[] tokens = SLASH.split(segment);
         HashSet<OtherDissemControl> tempOther = new HashSet<>();
         HashSet<String> tempAccm = new HashSet<>();
         boolean processingAccm = false;
@@ -634,12 +721,10 @@ public class BannerMarkings implements Serializable {
     }
 
     private boolean processDisseminationControls(String segment) {
-        String[] split = segment.split("[/]");
+        String[] split = SLASH.split(segment);
 
         if (disseminationControls != null || !(split[0].startsWith("REL TO") ||
-                split[0].startsWith("DISPLAY ONLY") || Arrays.stream(DissemControl.values())
-                .map(DissemControl::getName)
-                .anyMatch(split[0]::equals))) {
+                split[0].startsWith("DISPLAY ONLY") || DissemControl.isName(split[0]))) {
             return false;
         }
 
@@ -648,14 +733,12 @@ public class BannerMarkings implements Serializable {
         for (String s : split) {
             if (s.startsWith("REL TO")) {
                 String suffix = s.substring("REL TO".length());
-                relTo = ImmutableList.copyOf(Pattern.compile(",")
-                        .splitAsStream(suffix)
+                relTo = ImmutableList.copyOf(COMMA.splitAsStream(suffix)
                         .map(String::trim)
                         .collect(Collectors.toList()));
             } else if (s.startsWith("DISPLAY ONLY")) {
                 String suffix = s.substring("DISPLAY ONLY".length());
-                displayOnly = ImmutableList.copyOf(Pattern.compile(",")
-                        .splitAsStream(suffix)
+                displayOnly = ImmutableList.copyOf(COMMA.splitAsStream(suffix)
                         .map(String::trim)
                         .collect(Collectors.toList()));
             } else {
@@ -667,7 +750,7 @@ public class BannerMarkings implements Serializable {
     }
 
     private boolean processSciControls(String segment) {
-        String[] split = segment.split("[/]");
+        String[] split = SLASH.split(segment);
 
         List<SciControl> tempSci = new ArrayList<>();
         for (String s : split) {
@@ -14,6 +14,8 @@
 package org.codice.alliance.security.banner.marking
 
 import org.codice.alliance.security.banner.marking.BannerMarkings.SciControl
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
 import spock.lang.Specification
 import spock.lang.Unroll
 
@@ -27,6 +29,27 @@ import static org.codice.alliance.security.banner.marking.BannerMarkings.Marking
 import static org.codice.alliance.security.banner.marking.BannerMarkings.OtherDissemControl.*
 
 class BannerMarkingsTest extends Specification {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BannerMarkingsTest.class)
+
+    private static final List<String> BENCHMARK_CORPUS = [
+            'TOP SECRET',
+            'SECRET//FGI FRA',
+            '//COSMIC TOP SECRET//BOHEMIA',
+            '//JOINT SECRET CAN DEU USA NATO//TK//RELIDO',
+            'TOP SECRET//TK-ABC X Y Z/COMINT//ORCON',
+            'SECRET//TK//SAR-BP/GB/TC//NOFORN',
+            'SECRET//TK//RD-N//NOFORN',
+            'SECRET//DOD UNCLASSIFIED CONTROLLED NUCLEAR INFORMATION',
+            'SECRET//ORCON/PROPIN/NOFORN',
+            'SECRET//ACCM-FOOBAR/BAZ/LIMITED DISTRIBUTION/SBU NOFORN',
+            'TOP SECRET//FGI DEU GBR NATO//REL TO USA, DEU/DISPLAY ONLY NZL']
+
+    private static final int BENCHMARK_ITERATIONS = 200
+
+    def cleanup() {
+        BannerMarkings.setCacheSize(BannerMarkings.DEFAULT_CACHE_SIZE)
+    }
+
     def 'test type and classification'() {
         when:
         def bannerMarkings = BannerMarkings.parseMarkings(markings)
@@ -574,4 +597,78 @@ class BannerMarkingsTest extends Specification {
         'SECRET//REL TO CAN//EXDIS' | ['1.c.']
         'SECRET//REL TO CAN//NODIS' | ['2.d.']
     }
+
+    def 'test parsed markings are cached'() {
+        setup:
+        BannerMarkings.setCacheSize(BannerMarkings.DEFAULT_CACHE_SIZE)
+
+        when:
+        def first = BannerMarkings.parseMarkings('SECRET//TK//RD-N//NOFORN')
+        def second = BannerMarkings.parseMarkings('SECRET//TK//RD-N//NOFORN')
+
+        then:
+        second.is(first)
+        BannerMarkings.cacheMissCount == 1
+        BannerMarkings.cacheHitCount == 1
+    }
+
+    def 'test invalid markings are not cached'() {
+        setup:
+        BannerMarkings.setCacheSize(BannerMarkings.DEFAULT_CACHE_SIZE)
+
+        when:
+        BannerMarkings.parseMarkings('//NATO TOP SECRET')
+
+        then:
+        thrown(MarkingsValidationException)
+
+        when:
+        BannerMarkings.parseMarkings('//NATO TOP SECRET')
+
+        then:
+        thrown(MarkingsValidationException)
+        BannerMarkings.cacheHitCount == 0
+    }
+
+    def 'test disabled cache'() {
+        setup:
+        BannerMarkings.setCacheSize(0)
+
+        when:
+        def first = BannerMarkings.parseMarkings('SECRET//NOFORN')
+        def second = BannerMarkings.parseMarkings('SECRET//NOFORN')
+
+        then:
+        !second.is(first)
+        second.classification == first.classification
+        second.disseminationControls == first.disseminationControls
+        BannerMarkings.cacheHitCount == 0
+    }
+
+    def 'test parsing throughput'() {
+        setup:
+        BannerMarkings.setCacheSize(0)
+        parseCorpus()
+
+        when:
+        def uncachedMillis = parseCorpus()
+        BannerMarkings.setCacheSize(BannerMarkings.DEFAULT_CACHE_SIZE)
+        def cachedMillis = parseCorpus()
+
+        then:
+        LOGGER.info("Parsed {} banners: {} ms uncached, {} ms cached",
+                BENCHMARK_CORPUS.size() * BENCHMARK_ITERATIONS, uncachedMillis, cachedMillis)
+        BannerMarkings.cacheHitCount ==
+                (long) BENCHMARK_CORPUS.size() * (BENCHMARK_ITERATIONS - 1)
+    }
+
+    private static long parseCorpus() {
+        long start = System.nanoTime()
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            for (String markings : BENCHMARK_CORPUS) {
+                assert BannerMarkings.parseMarkings(markings) != null
+            }
+        }
+        return (System.nanoTime() - start).intdiv(1000000)
+    }
 }
@@ -29,6 +29,7 @@ import java.util.Optional;
 import org.codice.alliance.video.stream.mpegts.filename.FilenameGenerator;
 import org.codice.alliance.video.stream.mpegts.metacard.MetacardUpdater;
 import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
+import org.codice.alliance.video.stream.mpegts.netty.VideographerSubjectService;
 import org.codice.alliance.video.stream.mpegts.plugins.StreamCreationPlugin;
 import org.codice.alliance.video.stream.mpegts.plugins.StreamShutdownPlugin;
 import org.codice.alliance.video.stream.mpegts.rollover.RolloverCondition;
@@ -53,6 +54,7 @@ import io.netty.channel.socket.nio.NioDatagramChannel;
  * <li>{@link #setFilenameGenerator(FilenameGenerator)}
  * <li>{@link #setMetacardTypeList(List)}
  * <li>{@link #setCatalogFramework(CatalogFramework)}
+ * <li>{@link #setVideographerSubjectService(VideographerSubjectService)}
  * </ul>
  */
 public class UdpStreamMonitor implements StreamMonitor {
@@ -310,6 +312,15 @@ public class UdpStreamMonitor implements StreamMonitor {
         udpStreamProcessor.setCatalogFramework(catalogFramework);
     }
 
+    /**
+     * @param videographerSubjectService must be non-null
+     */
+    public void setVideographerSubjectService(
+            VideographerSubjectService videographerSubjectService) {
+        notNull(videographerSubjectService, "videographerSubjectService must be non-null");
+        udpStreamProcessor.setVideographerSubjectService(videographerSubjectService);
+    }
+
     /**
      * Called by osgi to destroy the monitor.
      *
@@ -17,16 +17,8 @@ import static org.apache.commons.lang3.Validate.notNull;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 
 import org.codice.alliance.libs.mpegts.Constants;
-import org.codice.alliance.video.security.token.videographer.VideographerAuthenticationToken;
-import org.codice.ddf.security.common.Security;
-import org.codice.ddf.security.handler.api.BaseAuthenticationToken;
-import org.osgi.framework.Bundle;
-import org.osgi.framework.BundleContext;
-import org.osgi.framework.FrameworkUtil;
-import org.osgi.framework.ServiceReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.taktik.mpegts.MTSPacket;
@@ -35,9 +27,6 @@ import org.taktik.mpegts.sources.ResettableMTSSource;
 
 import com.google.common.io.ByteSource;
 
-import ddf.security.Subject;
-import ddf.security.service.SecurityManager;
-import ddf.security.service.SecurityServiceException;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.socket.DatagramPacket;
@@ -55,11 +44,6 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
 
     public static final int TS_PACKET_SIZE = Constants.TS_PACKET_SIZE;
 
-    /**
-     * Milliseconds to wait until checking the subject token for expiration.
-     */
-    public static final long TOKEN_CHECK_PERIOD = TimeUnit.SECONDS.toMillis(5);
-
     private static final Logger LOGGER =
             LoggerFactory.getLogger(RawUdpDataToMTSPacketDecoder.class);
 
@@ -69,21 +53,24 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
 
     private MTSParser mtsParser = MTSSources::from;
 
-    private UdpStreamProcessor udpStreamProcessor;
-
-    /**
-     * Milliseconds since the subject token was checked for expiration.
-     */
-    private long lastTokenCheck = 0;
+    private VideographerSubjectRenewer subjectRenewer;
 
     public RawUdpDataToMTSPacketDecoder(PacketBuffer packetBuffer,
             UdpStreamProcessor udpStreamProcessor) {
+        this(packetBuffer,
+                new VideographerSubjectRenewer(udpStreamProcessor,
+                        udpStreamProcessor.getVideographerSubjectService()));
+    }
+
+    RawUdpDataToMTSPacketDecoder(PacketBuffer packetBuffer,
+            VideographerSubjectRenewer subjectRenewer) {
         this.packetBuffer = packetBuffer;
-        this.udpStreamProcessor = udpStreamProcessor;
+        this.subjectRenewer = subjectRenewer;
     }
 
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        subjectRenewer.stop();
         if (byteBuf != null) {
             byteBuf.release();
         }
@@ -95,46 +82,6 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
                 .buffer(BUFFER_SIZE);
     }
 
-    private Subject getSecuritySubject(String ipAddress) throws SecurityServiceException {
-        Subject subject = null;
-        VideographerAuthenticationToken token = new VideographerAuthenticationToken(
-                BaseAuthenticationToken.DEFAULT_REALM,
-                ipAddress);
-        LOGGER.debug("Getting new videographer user token for ip address {}: token={}",
-                ipAddress,
-                token);
-
-        SecurityManager securityManager = getSecurityManager();
-        if (securityManager != null) {
-            subject = securityManager.getSubject(token);
-        }
-
-        return subject;
-    }
-
-    private SecurityManager getSecurityManager() {
-        BundleContext context = getBundleContext();
-        if (context != null) {
-            ServiceReference securityManagerRef =
-                    context.getServiceReference(SecurityManager.class);
-            return (SecurityManager) context.getService(securityManagerRef);
-        }
-        LOGGER.warn("Unable to get Security Manager");
-        return null;
-    }
-
-    private BundleContext getBundleContext() {
-        Bundle bundle = FrameworkUtil.getBundle(Security.class);
-        if (bundle != null) {
-            return bundle.getBundleContext();
-        }
-        return null;
-    }
-
-    private boolean isTokenCheck() {
-        return System.currentTimeMillis() - lastTokenCheck > TOKEN_CHECK_PERIOD;
-    }
-
     @Override
     protected void decode(ChannelHandlerContext ctx, DatagramPacket msg, List<Object> outputList)
             throws Exception {
@@ -143,7 +90,8 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
         notNull(msg, "msg must be non-null");
         notNull(outputList, "outputList must be non-null");
 
-        checkSecuritySubject(msg);
+        //The subject is acquired and renewed in the background, never on the event loop
+        subjectRenewer.update(msg.sender());
 
         byteBuf.writeBytes(msg.content());
 
@@ -176,25 +124,6 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
 
     }
 
-    private void checkSecuritySubject(DatagramPacket msg) throws SecurityServiceException {
-        Subject subject = udpStreamProcessor.getSubject();
-
-        if (subject == null || (isTokenCheck() && Security.getInstance()
-                .tokenAboutToExpire(subject))) {
-            String ip = getIpAddress(msg);
-            subject = getSecuritySubject(ip);
-            LOGGER.debug("setting the subject: ip={} subject={}", ip, subject);
-            udpStreamProcessor.setSubject(subject);
-            lastTokenCheck = System.currentTimeMillis();
-        }
-    }
-
-    private String getIpAddress(DatagramPacket msg) {
-        return msg.sender()
-                .getAddress()
-                .getHostAddress();
-    }
-
     private void skipToSyncByte() {
 
         int bytesBefore;
@@ -103,7 +103,7 @@ public class UdpStreamProcessor implements StreamProcessor {
 
     private StreamShutdownPlugin streamShutdownPlugin;
 
-    private Subject subject = null;
+    private volatile Subject subject = null;
 
     private Subject streamCreationSubject;
 
@@ -111,6 +111,8 @@ public class UdpStreamProcessor implements StreamProcessor {
 
     private Double distanceTolerance;
 
+    private VideographerSubjectService videographerSubjectService;
+
     public UdpStreamProcessor(StreamMonitor streamMonitor) {
         this.streamMonitor = streamMonitor;
         context = new Context(this);
@@ -409,6 +411,19 @@ public class UdpStreamProcessor implements StreamProcessor {
         this.metacardTypeList = metacardTypeList;
     }
 
+    public VideographerSubjectService getVideographerSubjectService() {
+        return videographerSubjectService;
+    }
+
+    /**
+     * @param videographerSubjectService must be non-null
+     */
+    public void setVideographerSubjectService(
+            VideographerSubjectService videographerSubjectService) {
+        notNull(videographerSubjectService, "videographerSubjectService must be non-null");
+        this.videographerSubjectService = videographerSubjectService;
+    }
+
     public Timer getTimer() {
         return timer;
     }
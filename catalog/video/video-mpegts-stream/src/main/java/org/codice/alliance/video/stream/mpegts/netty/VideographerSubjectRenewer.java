@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.netty;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.codice.ddf.security.common.Security;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ddf.security.Subject;
+import ddf.security.service.SecurityServiceException;
+
+/**
+ * Acquires and renews the videographer security subject of a UDP stream on a background
+ * scheduler, so the Netty event loop never waits on the security manager. The subject is checked
+ * periodically and replaced as soon as its token is about to expire, ahead of the actual expiry.
+ */
+class VideographerSubjectRenewer {
+
+    /**
+     * Milliseconds between checks of the subject token for expiration.
+     */
+    public static final long TOKEN_CHECK_PERIOD = TimeUnit.SECONDS.toMillis(5);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VideographerSubjectRenewer.class);
+
+    private final UdpStreamProcessor udpStreamProcessor;
+
+    private final SubjectFactory subjectFactory;
+
+    private final Predicate<Subject> tokenAboutToExpire;
+
+    private final ScheduledExecutorService scheduler;
+
+    private volatile InetSocketAddress sender;
+
+    private volatile boolean started;
+
+    private ScheduledFuture<?> renewalTask;
+
+    VideographerSubjectRenewer(UdpStreamProcessor udpStreamProcessor,
+            VideographerSubjectService subjectService) {
+        this(udpStreamProcessor,
+                subjectService::getSubject,
+                subject -> Security.getInstance()
+                        .tokenAboutToExpire(subject),
+                subjectService.getScheduler());
+    }
+
+    VideographerSubjectRenewer(UdpStreamProcessor udpStreamProcessor,
+            SubjectFactory subjectFactory, Predicate<Subject> tokenAboutToExpire,
+            ScheduledExecutorService scheduler) {
+        this.udpStreamProcessor = udpStreamProcessor;
+        this.subjectFactory = subjectFactory;
+        this.tokenAboutToExpire = tokenAboutToExpire;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Records the sender of the stream and starts the background renewal the first time it is
+     * called. Never blocks, so it is safe to call for every datagram.
+     *
+     * @param sender the address the stream is received from
+     */
+    void update(InetSocketAddress sender) {
+        this.sender = sender;
+        if (!started) {
+            start();
+        }
+    }
+
+    synchronized void stop() {
+        if (renewalTask != null) {
+            renewalTask.cancel(false);
+            renewalTask = null;
+        }
+        started = false;
+    }
+
+    private synchronized void start() {
+        if (started) {
+            return;
+        }
+        renewalTask = scheduler.scheduleWithFixedDelay(this::renew,
+                0,
+                TOKEN_CHECK_PERIOD,
+                TimeUnit.MILLISECONDS);
+        started = true;
+    }
+
+    void renew() {
+        try {
+            Subject subject = udpStreamProcessor.getSubject();
+            if (subject != null && !tokenAboutToExpire.test(subject)) {
+                return;
+            }
+
+            String ipAddress = getIpAddress();
+            Subject newSubject = subjectFactory.getSubject(ipAddress);
+            if (newSubject != null) {
+                LOGGER.debug("setting the subject: ip={} subject={}", ipAddress, newSubject);
+                udpStreamProcessor.setSubject(newSubject);
+            }
+        } catch (SecurityServiceException | RuntimeException e) {
+            LOGGER.debug("Unable to get the videographer subject, will retry", e);
+        }
+    }
+
+    private String getIpAddress() {
+        InetSocketAddress currentSender = sender;
+        if (currentSender == null || currentSender.getAddress() == null) {
+            return null;
+        }
+        return currentSender.getAddress()
+                .getHostAddress();
+    }
+
+    interface SubjectFactory {
+        Subject getSubject(String ipAddress) throws SecurityServiceException;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.netty;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import org.codice.alliance.video.security.token.videographer.VideographerAuthenticationToken;
+import org.codice.ddf.security.handler.api.BaseAuthenticationToken;
+import org.osgi.framework.BundleContext;
+import org.osgi.util.tracker.ServiceTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import ddf.security.Subject;
+import ddf.security.service.SecurityManager;
+import ddf.security.service.SecurityServiceException;
+
+/**
+ * Shared resources of the {@link VideographerSubjectRenewer}s of all UDP streams: the scheduler
+ * the renewals run on and the tracker of the security manager the subjects are requested from.
+ * The owning blueprint container calls {@link #init()} and {@link #destroy()}.
+ */
+public class VideographerSubjectService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VideographerSubjectService.class);
+
+    private static final int SCHEDULER_THREADS = 2;
+
+    private final ServiceTracker<SecurityManager, SecurityManager> securityManagerTracker;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * @param bundleContext context used to track the security manager
+     */
+    public VideographerSubjectService(BundleContext bundleContext) {
+        this.securityManagerTracker = new ServiceTracker<>(bundleContext,
+                SecurityManager.class,
+                null);
+        this.scheduler = new ScheduledThreadPoolExecutor(SCHEDULER_THREADS,
+                new ThreadFactoryBuilder().setNameFormat("videographerSubjectRenewer-%d")
+                        .setDaemon(true)
+                        .build());
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    public void init() {
+        securityManagerTracker.open();
+    }
+
+    /**
+     * Cancels all pending renewals and stops tracking the security manager.
+     */
+    public void destroy() {
+        scheduler.shutdownNow();
+        securityManagerTracker.close();
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @param ipAddress the address of the videographer, may be null
+     * @return the videographer subject, or null if the security manager is not available
+     * @throws SecurityServiceException if the security manager is unable to create the subject
+     */
+    public Subject getSubject(String ipAddress) throws SecurityServiceException {
+        VideographerAuthenticationToken token = new VideographerAuthenticationToken(
+                BaseAuthenticationToken.DEFAULT_REALM,
+                ipAddress);
+        LOGGER.debug("Getting new videographer user token for ip address {}: token={}",
+                ipAddress,
+                token);
+
+        SecurityManager securityManager = securityManagerTracker.getService();
+        if (securityManager == null) {
+            LOGGER.warn("Unable to get Security Manager");
+            return null;
+        }
+
+        return securityManager.getSubject(token);
+    }
+}
@@ -16,12 +16,14 @@ package org.codice.alliance.video.stream.mpegts.netty;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.junit.Test;
@@ -41,8 +43,13 @@ public class TestRawUdpDataToMTSPacketDecoder {
 
         PacketBuffer packetBuffer = mock(PacketBuffer.class);
 
+        VideographerSubjectService subjectService = mock(VideographerSubjectService.class);
+        when(subjectService.getScheduler()).thenReturn(mock(ScheduledExecutorService.class));
+        UdpStreamProcessor udpStreamProcessor = mock(UdpStreamProcessor.class);
+        when(udpStreamProcessor.getVideographerSubjectService()).thenReturn(subjectService);
+
         EmbeddedChannel channel = new EmbeddedChannel(new RawUdpDataToMTSPacketDecoder(packetBuffer,
-                mock(UdpStreamProcessor.class)));
+                udpStreamProcessor));
 
         datagramPackets.forEach(channel::writeInbound);
 
@@ -57,6 +57,7 @@ public class TestUdpStreamProcessor {
         udpStreamProcessor.setStreamShutdownPlugin(mock(StreamShutdownPlugin.class));
         udpStreamProcessor.setStreamCreationSubject(new SimpleSubject());
         udpStreamProcessor.setParentMetacardUpdater(mock(MetacardUpdater.class));
+        udpStreamProcessor.setVideographerSubjectService(mock(VideographerSubjectService.class));
 
         udpStreamProcessor.init();
         try {
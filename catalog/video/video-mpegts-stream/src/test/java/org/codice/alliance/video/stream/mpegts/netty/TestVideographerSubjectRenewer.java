@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.netty;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.codice.alliance.video.stream.mpegts.StreamMonitor;
+import org.junit.Before;
+import org.junit.Test;
+
+import ddf.security.Subject;
+import ddf.security.service.SecurityServiceException;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+
+public class TestVideographerSubjectRenewer {
+
+    private static final String IP_ADDRESS = "127.0.0.1";
+
+    private UdpStreamProcessor udpStreamProcessor;
+
+    private VideographerSubjectRenewer.SubjectFactory subjectFactory;
+
+    private Subject subject;
+
+    private boolean tokenAboutToExpire;
+
+    @Before
+    public void setup() throws SecurityServiceException {
+        udpStreamProcessor = new UdpStreamProcessor(mock(StreamMonitor.class));
+        subjectFactory = mock(VideographerSubjectRenewer.SubjectFactory.class);
+        subject = mock(Subject.class);
+        when(subjectFactory.getSubject(IP_ADDRESS)).thenReturn(subject);
+        tokenAboutToExpire = false;
+    }
+
+    @Test
+    public void testAcquireSubject() throws Exception {
+        VideographerSubjectRenewer renewer = createRenewer(mock(ScheduledExecutorService.class));
+        renewer.update(createSender());
+        renewer.renew();
+
+        assertThat(udpStreamProcessor.getSubject(), is(subject));
+    }
+
+    @Test
+    public void testSubjectNotRenewedBeforeExpiry() throws Exception {
+        udpStreamProcessor.setSubject(subject);
+        VideographerSubjectRenewer renewer = createRenewer(mock(ScheduledExecutorService.class));
+        renewer.update(createSender());
+        renewer.renew();
+
+        verify(subjectFactory, never()).getSubject(any(String.class));
+    }
+
+    @Test
+    public void testSubjectRenewedAheadOfExpiry() throws Exception {
+        Subject expiringSubject = mock(Subject.class);
+        udpStreamProcessor.setSubject(expiringSubject);
+        tokenAboutToExpire = true;
+        VideographerSubjectRenewer renewer = createRenewer(mock(ScheduledExecutorService.class));
+        renewer.update(createSender());
+        renewer.renew();
+
+        assertThat(udpStreamProcessor.getSubject(), is(subject));
+    }
+
+    @Test
+    public void testFailedRenewalKeepsSubject() throws Exception {
+        Subject expiringSubject = mock(Subject.class);
+        udpStreamProcessor.setSubject(expiringSubject);
+        tokenAboutToExpire = true;
+        when(subjectFactory.getSubject(IP_ADDRESS)).thenThrow(new SecurityServiceException());
+        VideographerSubjectRenewer renewer = createRenewer(mock(ScheduledExecutorService.class));
+        renewer.update(createSender());
+        renewer.renew();
+
+        assertThat(udpStreamProcessor.getSubject(), is(expiringSubject));
+    }
+
+    @Test
+    public void testScheduledOnceAndStopped() throws Exception {
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        ScheduledFuture renewalTask = mock(ScheduledFuture.class);
+        when(scheduler.scheduleWithFixedDelay(any(Runnable.class),
+                eq(0L),
+                anyLong(),
+                eq(TimeUnit.MILLISECONDS))).thenReturn(renewalTask);
+        VideographerSubjectRenewer renewer = createRenewer(scheduler);
+
+        renewer.update(createSender());
+        renewer.update(createSender());
+        verify(scheduler, times(1)).scheduleWithFixedDelay(any(Runnable.class),
+                eq(0L),
+                eq(VideographerSubjectRenewer.TOKEN_CHECK_PERIOD),
+                eq(TimeUnit.MILLISECONDS));
+
+        renewer.stop();
+        verify(renewalTask).cancel(false);
+    }
+
+    @Test(timeout = 10000)
+    public void testDecodeDoesNotWaitForSubject() throws Exception {
+        CountDownLatch securityManagerResponse = new CountDownLatch(1);
+        when(subjectFactory.getSubject(IP_ADDRESS)).thenAnswer(invocation -> {
+            securityManagerResponse.await();
+            return subject;
+        });
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            EmbeddedChannel channel = new EmbeddedChannel(new RawUdpDataToMTSPacketDecoder(mock(
+                    PacketBuffer.class), createRenewer(scheduler)));
+
+            byte[] payload = new byte[RawUdpDataToMTSPacketDecoder.TS_PACKET_SIZE];
+            payload[0] = RawUdpDataToMTSPacketDecoder.TS_SYNC;
+            channel.writeInbound(new DatagramPacket(Unpooled.wrappedBuffer(payload),
+                    null,
+                    createSender()));
+
+            assertThat(NettyUtility.read(channel)
+                    .size(), is(1));
+            assertThat(udpStreamProcessor.getSubject(), is(nullValue()));
+
+            securityManagerResponse.countDown();
+            while (udpStreamProcessor.getSubject() == null) {
+                Thread.sleep(10);
+            }
+            assertThat(udpStreamProcessor.getSubject(), is(subject));
+        } finally {
+            securityManagerResponse.countDown();
+            scheduler.shutdownNow();
+        }
+    }
+
+    private VideographerSubjectRenewer createRenewer(ScheduledExecutorService scheduler) {
+        return new VideographerSubjectRenewer(udpStreamProcessor,
+                subjectFactory,
+                s -> tokenAboutToExpire,
+                scheduler);
+    }
+
+    private InetSocketAddress createSender() throws UnknownHostException {
+        return new InetSocketAddress(InetAddress.getByName(IP_ADDRESS), 50000);
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.netty;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceListener;
+
+public class TestVideographerSubjectService {
+
+    private BundleContext bundleContext;
+
+    private VideographerSubjectService subjectService;
+
+    @Before
+    public void setup() {
+        bundleContext = mock(BundleContext.class);
+        subjectService = new VideographerSubjectService(bundleContext);
+        subjectService.init();
+    }
+
+    @Test
+    public void testSubjectWithoutSecurityManager() throws Exception {
+        try {
+            assertThat(subjectService.getSubject("127.0.0.1"), is(nullValue()));
+        } finally {
+            subjectService.destroy();
+        }
+    }
+
+    @Test
+    public void testDestroy() {
+        subjectService.destroy();
+
+        assertThat(subjectService.getScheduler()
+                .isShutdown(), is(true));
+        verify(bundleContext).removeServiceListener(any(ServiceListener.class));
+    }
+}
@@ -77,6 +77,11 @@ public class MpegTsInputTransformer implements InputTransformer {
 
     private Integer subsampleCount = DEFAULT_SUBSAMPLE_COUNT;
 
+    /**
+     * When false, only the klv data elements that have a dedicated handler are decoded.
+     */
+    private boolean decodeAllKlvElements = false;
+
     private Function<MpegStreamType, String> streamTypeToString = MpegStreamType::toString;
 
     /**
@@ -115,6 +120,14 @@ public class MpegTsInputTransformer implements InputTransformer {
         this.subsampleCount = subsampleCount;
     }
 
+    /**
+     * @param decodeAllKlvElements if true, decode every supported klv data element, including
+     *                             those that only reach the default handler
+     */
+    public void setDecodeAllKlvElements(Boolean decodeAllKlvElements) {
+        this.decodeAllKlvElements = Boolean.TRUE.equals(decodeAllKlvElements);
+    }
+
     /**
      * @param distanceTolerance may be null, must be non-negative
      */
@@ -126,6 +139,14 @@ public class MpegTsInputTransformer implements InputTransformer {
         klvProcessor.accept(new SetDistanceToleranceVisitor(distanceTolerance));
     }
 
+    /**
+     * @param precisionScale grid cells per degree the location footprints are snapped to before
+     *                       they are merged, null or 0 keeps the full floating precision
+     */
+    public void setPrecisionScale(Double precisionScale) {
+        klvProcessor.accept(new SetPrecisionScaleVisitor(precisionScale));
+    }
+
     @Override
     public Metacard transform(InputStream inputStream)
             throws IOException, CatalogTransformerException {
@@ -212,7 +233,11 @@ public class MpegTsInputTransformer implements InputTransformer {
     private void extractStanag4609Metadata(MetacardImpl metacard,
             TemporaryFileBackedOutputStream fbos) throws IOException, CatalogTransformerException {
 
-        Stanag4609Parser stanag4609Parser = stanagParserFactory.createParser(fbos.asByteSource());
+        Map<String, KlvHandler> handlers = klvHandlerFactory.createStanag4609Handlers();
+
+        Stanag4609Parser stanag4609Parser = decodeAllKlvElements ?
+                stanagParserFactory.createParser(fbos.asByteSource()) :
+                stanagParserFactory.createParser(fbos.asByteSource(), handlers.keySet());
 
         Map<Integer, List<DecodedKLVMetadataPacket>> decodedMetadata;
         try {
@@ -221,8 +246,6 @@ public class MpegTsInputTransformer implements InputTransformer {
             throw new CatalogTransformerException("failed to extract STANAG 4609 metadata", e);
         }
 
-        Map<String, KlvHandler> handlers = klvHandlerFactory.createStanag4609Handlers();
-
         stanag4609Processor.handle(handlers, defaultKlvHandler, decodedMetadata);
 
         KlvProcessor.Configuration klvProcessConfiguration = new KlvProcessor.Configuration();
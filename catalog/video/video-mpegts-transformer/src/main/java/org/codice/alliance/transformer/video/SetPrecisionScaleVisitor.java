@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.video;
+
+import org.codice.alliance.libs.klv.ClassifyingCountryKlvProcessor;
+import org.codice.alliance.libs.klv.CopyPresentKlvProcessor;
+import org.codice.alliance.libs.klv.DistinctKlvProcessor;
+import org.codice.alliance.libs.klv.DistinctSingleKlvProcessor;
+import org.codice.alliance.libs.klv.FrameCenterKlvProcessor;
+import org.codice.alliance.libs.klv.GeometryOperator;
+import org.codice.alliance.libs.klv.GeometryReducer;
+import org.codice.alliance.libs.klv.KlvProcessor;
+import org.codice.alliance.libs.klv.LocationKlvProcessor;
+import org.codice.alliance.libs.klv.NormalizeGeometry;
+import org.codice.alliance.libs.klv.SensorAltitudeKlvProcessor;
+import org.codice.alliance.libs.klv.SetDatesKlvProcessor;
+import org.codice.alliance.libs.klv.SimplifyGeometryFunction;
+import org.codice.alliance.libs.klv.UnionKlvProcessor;
+
+/**
+ * Call {@link GeometryReducer#setPrecisionScale(Double)} on the reducers that run before the
+ * location footprints are merged.
+ */
+class SetPrecisionScaleVisitor implements KlvProcessor.Visitor {
+
+    private final Double precisionScale;
+
+    private final GeometryOperator.Visitor geometryFunctionVisitor =
+            new GeometryOperator.Visitor() {
+
+                @Override
+                public void visit(GeometryReducer geometryReducer) {
+                    geometryReducer.setPrecisionScale(precisionScale);
+                }
+
+                @Override
+                public void visit(SimplifyGeometryFunction function) {
+
+                }
+
+                @Override
+                public void visit(NormalizeGeometry function) {
+
+                }
+            };
+
+    public SetPrecisionScaleVisitor(Double precisionScale) {
+        this.precisionScale = precisionScale;
+    }
+
+    @Override
+    public void visit(DistinctKlvProcessor distinctKlvProcessor) {
+
+    }
+
+    @Override
+    public void visit(DistinctSingleKlvProcessor distinctSingleKlvProcessor) {
+
+    }
+
+    @Override
+    public void visit(CopyPresentKlvProcessor copyPresentKlvProcessor) {
+
+    }
+
+    @Override
+    public void visit(FrameCenterKlvProcessor frameCenterKlvProcessor) {
+
+    }
+
+    @Override
+    public void visit(LocationKlvProcessor locationKlvProcessor) {
+        locationKlvProcessor.getPreUnionGeometryOperator()
+                .accept(geometryFunctionVisitor);
+    }
+
+    @Override
+    public void visit(SetDatesKlvProcessor setDatesKlvProcessor) {
+
+    }
+
+    @Override
+    public void visit(ClassifyingCountryKlvProcessor classifyingCountryKlvProcessor) {
+        
+    }
+
+    @Override
+    public void visit(UnionKlvProcessor abstractUnionKlvProcessor) {
+
+    }
+
+    @Override
+    public void visit(SensorAltitudeKlvProcessor sensorAltitudeKlvProcessor) {
+
+    }
+}
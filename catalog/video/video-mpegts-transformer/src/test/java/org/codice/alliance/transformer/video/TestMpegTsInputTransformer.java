@@ -17,7 +17,10 @@ import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
@@ -26,9 +29,11 @@ import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.codice.alliance.libs.klv.FrameCenterKlvProcessor;
 import org.codice.alliance.libs.klv.GeometryOperator;
+import org.codice.alliance.libs.klv.GeometryReducer;
 import org.codice.alliance.libs.klv.KlvHandler;
 import org.codice.alliance.libs.klv.KlvHandlerFactory;
 import org.codice.alliance.libs.klv.KlvProcessor;
@@ -36,6 +41,7 @@ import org.codice.alliance.libs.klv.ListKlvProcessor;
 import org.codice.alliance.libs.klv.LocationKlvProcessor;
 import org.codice.alliance.libs.klv.SimplifyGeometryFunction;
 import org.codice.alliance.libs.klv.Stanag4609ParseException;
+import org.codice.alliance.libs.klv.Stanag4609Parser;
 import org.codice.alliance.libs.klv.Stanag4609Processor;
 import org.codice.alliance.libs.klv.StanagParserFactory;
 import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
@@ -85,15 +91,15 @@ public class TestMpegTsInputTransformer {
         stanagParserFactory = mock(StanagParserFactory.class);
         klvProcessor = mock(KlvProcessor.class);
         when(inputTransformer.transform(any(), any())).thenReturn(metacard);
-        when(stanagParserFactory.createParser(any())).thenReturn(() -> {
-                    try {
-                        return streamParser.parse();
-                    } catch (Exception e) {
-                        throw new Stanag4609ParseException(e);
-                    }
-                }
-
-        );
+        Stanag4609Parser stanag4609Parser = () -> {
+            try {
+                return streamParser.parse();
+            } catch (Exception e) {
+                throw new Stanag4609ParseException(e);
+            }
+        };
+        when(stanagParserFactory.createParser(any())).thenReturn(stanag4609Parser);
+        when(stanagParserFactory.createParser(any(), any())).thenReturn(stanag4609Parser);
     }
 
     @Test
@@ -160,6 +166,55 @@ public class TestMpegTsInputTransformer {
 
     }
 
+    @Test
+    public void testDecodeOnlyHandledKlvElements() throws Exception {
+
+        Map<String, KlvHandler> handlers =
+                Collections.singletonMap(Stanag4609TransportStreamParser.CORNER_LATITUDE_1,
+                        mock(KlvHandler.class));
+        when(klvHandlerFactory.createStanag4609Handlers()).thenReturn(handlers);
+        when(streamParser.parse()).thenReturn(Collections.emptyMap());
+
+        MpegTsInputTransformer t = new MpegTsInputTransformer(inputTransformer,
+                metacardTypes,
+                stanag4609Processor,
+                klvHandlerFactory,
+                defaultKlvHandler,
+                stanagParserFactory,
+                klvProcessor);
+
+        try (InputStream inputStream = new ByteArrayInputStream(new byte[] {})) {
+            t.transform(inputStream);
+        }
+
+        verify(stanagParserFactory).createParser(any(), eq(handlers.keySet()));
+        verify(stanagParserFactory, never()).createParser(any());
+
+    }
+
+    @Test
+    public void testDecodeAllKlvElements() throws Exception {
+
+        when(streamParser.parse()).thenReturn(Collections.emptyMap());
+
+        MpegTsInputTransformer t = new MpegTsInputTransformer(inputTransformer,
+                metacardTypes,
+                stanag4609Processor,
+                klvHandlerFactory,
+                defaultKlvHandler,
+                stanagParserFactory,
+                klvProcessor);
+        t.setDecodeAllKlvElements(true);
+
+        try (InputStream inputStream = new ByteArrayInputStream(new byte[] {})) {
+            t.transform(inputStream);
+        }
+
+        verify(stanagParserFactory).createParser(any());
+        verify(stanagParserFactory, never()).createParser(any(), any());
+
+    }
+
     @Test
     public void testSetDistanceTolerance() {
         SimplifyGeometryFunction geometryFunction1 = new SimplifyGeometryFunction();
@@ -184,4 +239,21 @@ public class TestMpegTsInputTransformer {
                 .get(), closeTo(value, 0.1));
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSetPrecisionScale() {
+        GeometryReducer geometryReducer = new GeometryReducer();
+        LocationKlvProcessor locationKlvProcessor = new LocationKlvProcessor(geometryReducer,
+                GeometryOperator.IDENTITY);
+        MpegTsInputTransformer t = new MpegTsInputTransformer(inputTransformer,
+                metacardTypes,
+                stanag4609Processor,
+                klvHandlerFactory,
+                defaultKlvHandler,
+                stanagParserFactory,
+                new ListKlvProcessor(Collections.singletonList(locationKlvProcessor)));
+        t.setPrecisionScale(1000.0);
+        assertThat(geometryReducer.getPrecisionScale()
+                .get(), closeTo(1000, 0.1));
+    }
+}
@@ -14,8 +14,8 @@
 package org.codice.alliance.libs.klv;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 
@@ -39,7 +39,7 @@ public abstract class BaseKlvHandler implements KlvHandler {
         if (col.isEmpty()) {
             return Optional.empty();
         }
-        List<Serializable> serials = new LinkedList<>(col);
+        List<Serializable> serials = new ArrayList<>(col);
         return Optional.of(new AttributeImpl(getAttributeName(), serials));
     }
 
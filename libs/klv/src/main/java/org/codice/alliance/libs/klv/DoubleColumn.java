@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.common.primitives.Doubles;
+
+/**
+ * A growable column of primitive double values. KLV handlers accumulate one value per frame for
+ * the length of a stream, so values are not boxed or linked.
+ */
+final class DoubleColumn {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private double[] values;
+
+    private int size;
+
+    DoubleColumn() {
+        this(INITIAL_CAPACITY);
+    }
+
+    DoubleColumn(int capacity) {
+        values = new double[Math.max(1, capacity)];
+    }
+
+    void add(double value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size++] = value;
+    }
+
+    double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index = " + index + ", size = " + size);
+        }
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Drop the values after the first {@code newSize} values.
+     */
+    void truncate(int newSize) {
+        if (newSize < size) {
+            size = Math.max(0, newSize);
+        }
+    }
+
+    /**
+     * Pick {@code count} evenly spaced values. The column is returned unchanged if it does not
+     * hold more than {@code count} values.
+     */
+    DoubleColumn subsample(int count) {
+        if (size <= count) {
+            return this;
+        }
+        return subsample(count, size);
+    }
+
+    /**
+     * Pick {@code count} evenly spaced values from the first {@code length} values, so columns of
+     * different sizes that are sampled with the same length stay aligned by index.
+     */
+    DoubleColumn subsample(int count, int length) {
+        int sampled = Math.min(length, size);
+        int outSize = Math.min(count, sampled);
+        DoubleColumn out = new DoubleColumn(outSize);
+        for (int i = 0; i < outSize; i++) {
+            out.add(values[(int) ((long) i * sampled / outSize)]);
+        }
+        return out;
+    }
+
+    static int minimumSize(Collection<DoubleColumn> columns) {
+        return columns.stream()
+                .mapToInt(DoubleColumn::size)
+                .min()
+                .orElse(0);
+    }
+
+    /**
+     * @return an unmodifiable copy of the current values, unaffected by later changes
+     */
+    List<Double> asList() {
+        return Collections.unmodifiableList(Doubles.asList(Arrays.copyOf(values, size)));
+    }
+}
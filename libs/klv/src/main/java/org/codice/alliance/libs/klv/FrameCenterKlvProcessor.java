@@ -65,12 +65,35 @@ public class FrameCenterKlvProcessor extends MultipleFieldKlvProcessor {
         return geometryOperator;
     }
 
+    /**
+     * Geometry handlers hand over their coordinates directly, so the frame center WKT is only
+     * written for the final line string.
+     */
+    @Override
+    protected void doProcess(KlvHandler handler, Metacard metacard) {
+        if (!(handler instanceof GeometryKlvHandler)) {
+            super.doProcess(handler, metacard);
+            return;
+        }
+
+        List<Coordinate> coordinates = ((GeometryKlvHandler) handler).asGeometries()
+                .stream()
+                .map(Geometry::getCoordinate)
+                .collect(Collectors.toList());
+
+        if (!coordinates.isEmpty()) {
+            process(listToArray(coordinates), metacard);
+        }
+    }
+
     @Override
     protected void doProcess(Attribute attribute, Metacard metacard) {
         List<String> points = getAttributeStrings(attribute);
 
-        Coordinate[] coordinates = listToArray(convertWktToCoordinates(points));
+        process(listToArray(convertWktToCoordinates(points)), metacard);
+    }
 
+    private void process(Coordinate[] coordinates, Metacard metacard) {
         LineString lineString = convertCoordinatesToLineString(coordinates);
 
         String wkt = convertLineStringToWkt(geometryOperator.apply(lineString));
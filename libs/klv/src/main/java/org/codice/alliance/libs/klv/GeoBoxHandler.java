@@ -14,6 +14,8 @@
 package org.codice.alliance.libs.klv;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,15 +26,22 @@ import org.codice.ddf.libs.klv.data.numerical.KlvIntegerEncodedFloatingPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LinearRing;
+
 import ddf.catalog.data.Attribute;
 
 /**
  * This handler expects four latitude-longitude pairs. It generates a WKT polygon for each four-pair set.
  */
-public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
+public class GeoBoxHandler extends BaseKlvHandler implements GeometryKlvHandler, Trimmable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GeoBoxHandler.class);
 
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
     private String latitude1;
 
     private String longitude1;
@@ -49,7 +58,7 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
 
     private String longitude4;
 
-    private Map<String, List<Double>> map = new HashMap<>();
+    private Map<String, DoubleColumn> columns = new HashMap<>();
 
     /**
      * @param attributeName the name of the metacard attribute being generated
@@ -113,8 +122,20 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
         return longitude4;
     }
 
+    /**
+     * @return unmodifiable copies of the values accepted so far, keyed by field name
+     */
     public Map<String, List<Double>> getRawGeoData() {
-        return map;
+        Map<String, List<Double>> rawGeoData = new HashMap<>();
+        columns.forEach((fieldName, column) -> rawGeoData.put(fieldName, column.asList()));
+        return rawGeoData;
+    }
+
+    /**
+     * @return the number of complete corner sets accepted so far
+     */
+    public int size() {
+        return getMinimumListSize();
     }
 
     @Override
@@ -122,53 +143,127 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
 
         int minimumListSize = getMinimumListSize();
 
-        List<String> polygonsWkts = new ArrayList<>();
+        if (minimumListSize == 0) {
+            return Optional.empty();
+        }
+
+        DoubleColumn lat1 = columns.get(latitude1);
+        DoubleColumn lon1 = columns.get(longitude1);
+        DoubleColumn lat2 = columns.get(latitude2);
+        DoubleColumn lon2 = columns.get(longitude2);
+        DoubleColumn lat3 = columns.get(latitude3);
+        DoubleColumn lon3 = columns.get(longitude3);
+        DoubleColumn lat4 = columns.get(latitude4);
+        DoubleColumn lon4 = columns.get(longitude4);
+
+        List<String> polygonsWkts = new ArrayList<>(minimumListSize);
 
         for (int i = 0; i < minimumListSize; i++) {
             polygonsWkts.add(String.format("POLYGON ((%f %f, %f %f, %f %f, %f %f, %f %f))",
-                    map.get(longitude1)
-                            .get(i),
-                    map.get(latitude1)
-                            .get(i),
-                    map.get(longitude2)
-                            .get(i),
-                    map.get(latitude2)
-                            .get(i),
-                    map.get(longitude3)
-                            .get(i),
-                    map.get(latitude3)
-                            .get(i),
-                    map.get(longitude4)
-                            .get(i),
-                    map.get(latitude4)
-                            .get(i),
-                    map.get(longitude1)
-                            .get(i),
-                    map.get(latitude1)
-                            .get(i)));
+                    lon1.get(i),
+                    lat1.get(i),
+                    lon2.get(i),
+                    lat2.get(i),
+                    lon3.get(i),
+                    lat3.get(i),
+                    lon4.get(i),
+                    lat4.get(i),
+                    lon1.get(i),
+                    lat1.get(i)));
         }
 
         return asAttribute(polygonsWkts);
     }
 
+    @Override
+    public List<Geometry> asGeometries() {
+
+        int minimumListSize = getMinimumListSize();
+
+        if (minimumListSize == 0) {
+            return Collections.emptyList();
+        }
+
+        DoubleColumn lat1 = columns.get(latitude1);
+        DoubleColumn lon1 = columns.get(longitude1);
+        DoubleColumn lat2 = columns.get(latitude2);
+        DoubleColumn lon2 = columns.get(longitude2);
+        DoubleColumn lat3 = columns.get(latitude3);
+        DoubleColumn lon3 = columns.get(longitude3);
+        DoubleColumn lat4 = columns.get(latitude4);
+        DoubleColumn lon4 = columns.get(longitude4);
+
+        List<Geometry> polygons = new ArrayList<>(minimumListSize);
+
+        for (int i = 0; i < minimumListSize; i++) {
+            Coordinate first = new Coordinate(lon1.get(i), lat1.get(i));
+            LinearRing shell = GEOMETRY_FACTORY.createLinearRing(new Coordinate[] {first,
+                    new Coordinate(lon2.get(i), lat2.get(i)),
+                    new Coordinate(lon3.get(i), lat3.get(i)),
+                    new Coordinate(lon4.get(i), lat4.get(i)),
+                    new Coordinate(first)});
+            polygons.add(GEOMETRY_FACTORY.createPolygon(shell, null));
+        }
+
+        return polygons;
+    }
+
+    /**
+     * Create a handler holding {@code count} evenly spaced corner sets picked from this handler.
+     * This handler is returned unchanged if it does not hold more than {@code count} sets.
+     *
+     * @param count the number of corner sets to keep (must be positive)
+     * @return the subsampled handler
+     */
+    public GeoBoxHandler subsample(int count) {
+        int minimumListSize = getMinimumListSize();
+        if (columns.isEmpty() || minimumListSize <= count) {
+            return this;
+        }
+
+        GeoBoxHandler out = new GeoBoxHandler(getAttributeName(),
+                latitude1,
+                longitude1,
+                latitude2,
+                longitude2,
+                latitude3,
+                longitude3,
+                latitude4,
+                longitude4);
+
+        columns.forEach((fieldName, column) -> out.columns.put(fieldName,
+                column.subsample(count, minimumListSize)));
+
+        return out;
+    }
+
     /**
      * Trim the arrays of lat and lon values to the same length.
      */
     @Override
     public void trim() {
 
-        int minListSize = getMinimumListSize();
+        int minListSize = DoubleColumn.minimumSize(columns.values());
 
-        map.keySet()
-                .forEach(key -> map.computeIfPresent(key,
-                        (fieldName, list) -> list.size() > minListSize ?
-                                list.subList(0, minListSize) :
-                                list));
+        columns.values()
+                .forEach(column -> column.truncate(minListSize));
 
     }
 
     private int getMinimumListSize() {
-        return getMinimumListSize(map.values());
+        for (String fieldName : Arrays.asList(latitude1,
+                longitude1,
+                latitude2,
+                longitude2,
+                latitude3,
+                longitude3,
+                latitude4,
+                longitude4)) {
+            if (!columns.containsKey(fieldName)) {
+                return 0;
+            }
+        }
+        return DoubleColumn.minimumSize(columns.values());
     }
 
     @Override
@@ -187,12 +282,11 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
 
     @Override
     public void reset() {
-        map.clear();
+        columns.clear();
     }
 
-    public void accept(String name, Double value) {
-        map.putIfAbsent(name, new ArrayList<>());
-        map.get(name)
+    public void accept(String name, double value) {
+        columns.computeIfAbsent(name, fieldName -> new DoubleColumn())
                 .add(value);
     }
 }
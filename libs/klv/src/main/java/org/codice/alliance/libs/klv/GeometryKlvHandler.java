@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import java.util.List;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * A {@link KlvHandler} that builds geometries from the incoming KLV metadata. Processors that
+ * operate on the geometries should call {@link #asGeometries()} instead of parsing the WKT values
+ * returned by {@link #asAttribute()}.
+ */
+public interface GeometryKlvHandler extends KlvHandler {
+
+    /**
+     * After {@link #accept(org.codice.ddf.libs.klv.KlvDataElement)} has been called with all of
+     * the incoming data, this method will convert it to geometries, one per complete set of
+     * values. The list is empty if there is insufficient data.
+     *
+     * @return list of geometries (non-null)
+     */
+    List<Geometry> asGeometries();
+}
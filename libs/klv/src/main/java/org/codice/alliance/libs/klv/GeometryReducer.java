@@ -13,22 +13,68 @@
  */
 package org.codice.alliance.libs.klv;
 
+import java.util.Optional;
+
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.PrecisionModel;
 import com.vividsolutions.jts.precision.GeometryPrecisionReducer;
 
+/**
+ * Reduce the precision of a geometry. By default the full floating precision is kept; a fixed
+ * precision scale snaps the coordinates to a grid before the geometries are merged, which keeps
+ * the union of many nearly identical footprints small.
+ */
 public class GeometryReducer implements GeometryOperator {
 
-    private GeometryPrecisionReducer geometryPrecisionReducer =
-            new GeometryPrecisionReducer(new PrecisionModel(PrecisionModel.FLOATING));
+    private volatile Optional<Double> precisionScale = Optional.empty();
+
+    private volatile GeometryPrecisionReducer geometryPrecisionReducer =
+            createReducer(Optional.empty());
+
+    public GeometryReducer() {
+    }
+
+    /**
+     * @param scale the number of grid cells per coordinate unit (e.g. 100000 snaps degrees to
+     *              roughly one meter), must be positive
+     */
+    public GeometryReducer(double scale) {
+        setPrecisionScale(scale);
+    }
+
+    public Optional<Double> getPrecisionScale() {
+        return precisionScale;
+    }
+
+    /**
+     * @param precisionScale the number of grid cells per coordinate unit, null or a value less
+     *                       than or equal to 0 keeps the full floating precision
+     */
+    public synchronized void setPrecisionScale(Double precisionScale) {
+        this.precisionScale = Optional.ofNullable(precisionScale)
+                .filter(scale -> scale > 0);
+        this.geometryPrecisionReducer = createReducer(this.precisionScale);
+    }
 
     @Override
     public Geometry apply(Geometry geometry) {
         return geometryPrecisionReducer.reduce(geometry);
     }
 
+    @Override
+    public String toString() {
+        return "GeometryReducer{" +
+                "precisionScale=" + precisionScale +
+                '}';
+    }
+
     @Override
     public void accept(Visitor visitor) {
         visitor.visit(this);
     }
+
+    private static GeometryPrecisionReducer createReducer(Optional<Double> precisionScale) {
+        return new GeometryPrecisionReducer(precisionScale.map(PrecisionModel::new)
+                .orElseGet(() -> new PrecisionModel(PrecisionModel.FLOATING)));
+    }
 }
@@ -13,16 +13,24 @@
  */
 package org.codice.alliance.libs.klv;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Polygonal;
+import com.vividsolutions.jts.geom.util.PolygonExtracter;
+import com.vividsolutions.jts.index.quadtree.Quadtree;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKTReader;
 import com.vividsolutions.jts.io.WKTWriter;
+import com.vividsolutions.jts.operation.union.CascadedPolygonUnion;
 
 import ddf.catalog.data.Attribute;
 
@@ -63,19 +71,93 @@ public class GeometryUtility {
             WKTWriter wktWriter, Attribute attribute,
             UnaryOperator<Geometry> postUnionGeometryOperator,
             UnaryOperator<Geometry> preUnionGeometryOperator) {
-        return attribute.getValues()
-                .stream()
-                .filter(String.class::isInstance)
-                .map(String.class::cast)
-                .map(wkt -> wktToGeometry(wkt, wktReader))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .map(preUnionGeometryOperator)
-                .reduce(Geometry::union)
-                .map(postUnionGeometryOperator)
+        return createUnionOfGeometries(wktWriter,
+                attribute.getValues()
+                        .stream()
+                        .filter(String.class::isInstance)
+                        .map(String.class::cast)
+                        .map(wkt -> wktToGeometry(wkt, wktReader))
+                        .filter(Optional::isPresent)
+                        .map(Optional::get)
+                        .collect(Collectors.toList()),
+                postUnionGeometryOperator,
+                preUnionGeometryOperator);
+    }
+
+    /**
+     * Create the union of the geometries and write it as WKT. If the union cannot be computed,
+     * then this method returns {@link Optional#empty()}. Polygonal geometries (e.g. frame
+     * footprints) that are contained in an earlier footprint are dropped, and the rest are merged
+     * with a cascaded union, which runs in near-linear time instead of the quadratic time of
+     * folding them one at a time.
+     *
+     * @param wktWriter                 non-null
+     * @param geometries                non-null
+     * @param postUnionGeometryOperator non-null, transform the geometry (e.g. simplify or normalize)
+     * @param preUnionGeometryOperator  non-null, transform the geometry just before the union operation (e.g. reduce precision)
+     * @return optional wkt string
+     */
+    public static Optional<String> createUnionOfGeometries(WKTWriter wktWriter,
+            Collection<Geometry> geometries, UnaryOperator<Geometry> postUnionGeometryOperator,
+            UnaryOperator<Geometry> preUnionGeometryOperator) {
+        List<Geometry> preparedGeometries = new ArrayList<>(geometries.size());
+        for (Geometry geometry : geometries) {
+            preparedGeometries.add(preUnionGeometryOperator.apply(geometry));
+        }
+
+        return union(preparedGeometries).map(postUnionGeometryOperator)
                 .map(wktWriter::write);
     }
 
+    static Optional<Geometry> union(List<Geometry> geometries) {
+        if (geometries.isEmpty()) {
+            return Optional.empty();
+        }
+
+        if (!geometries.stream()
+                .allMatch(Polygonal.class::isInstance)) {
+            return geometries.stream()
+                    .reduce(Geometry::union);
+        }
+
+        List<Geometry> polygons = new ArrayList<>(geometries.size());
+        for (Geometry geometry : geometries) {
+            PolygonExtracter.getPolygons(geometry, polygons);
+        }
+
+        return Optional.ofNullable(CascadedPolygonUnion.union(removeContained(polygons)));
+    }
+
+    /**
+     * Drop the polygons that are contained in an earlier polygon. Consecutive video frames
+     * overlap heavily, so this removes a large share of the footprints before the union without
+     * changing the result.
+     */
+    static List<Geometry> removeContained(List<Geometry> polygons) {
+        Quadtree index = new Quadtree();
+        List<Geometry> remaining = new ArrayList<>(polygons.size());
+
+        for (Geometry polygon : polygons) {
+            if (!isContained(polygon, index.query(polygon.getEnvelopeInternal()))) {
+                index.insert(polygon.getEnvelopeInternal(), polygon);
+                remaining.add(polygon);
+            }
+        }
+
+        return remaining;
+    }
+
+    private static boolean isContained(Geometry polygon, List<?> candidates) {
+        for (Object candidate : candidates) {
+            Geometry container = (Geometry) candidate;
+            if (container.getEnvelopeInternal()
+                    .contains(polygon.getEnvelopeInternal()) && container.contains(polygon)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static Optional<Geometry> wktToGeometry(String wkt, WKTReader wktReader) {
         try {
             return Optional.of(wktReader.read(wkt));
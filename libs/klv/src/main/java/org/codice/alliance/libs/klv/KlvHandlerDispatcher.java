@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Resolves the {@link KlvHandler} for each KLV data element name once per processing run. Decoded
+ * data elements share their name instance with the element in the decoding context, so after the
+ * first packet every lookup is an identity probe rather than a string hash and comparison.
+ * <p>
+ * Instances are not thread-safe and are meant to live for the duration of a single call.
+ */
+final class KlvHandlerDispatcher {
+
+    private final Map<String, KlvHandler> handlers;
+
+    private final KlvHandler defaultHandler;
+
+    private final Map<String, KlvHandler> resolved = new IdentityHashMap<>();
+
+    KlvHandlerDispatcher(Map<String, KlvHandler> handlers, KlvHandler defaultHandler) {
+        this.handlers = handlers;
+        this.defaultHandler = defaultHandler;
+    }
+
+    /**
+     * @param name klv data element name
+     * @return the handler registered for the name, otherwise the default handler
+     */
+    KlvHandler resolve(String name) {
+        KlvHandler handler = resolved.get(name);
+        if (handler == null) {
+            handler = handlers.getOrDefault(name, defaultHandler);
+            resolved.put(name, handler);
+        }
+        return handler;
+    }
+
+}
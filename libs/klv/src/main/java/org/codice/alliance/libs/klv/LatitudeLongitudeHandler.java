@@ -14,6 +14,7 @@
 package org.codice.alliance.libs.klv;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,16 +25,23 @@ import org.codice.ddf.libs.klv.data.numerical.KlvIntegerEncodedFloatingPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
 import ddf.catalog.data.Attribute;
 
 /**
  * This handler expects pairs of latitude and longitude values. It generates WKT Points.
  */
-public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmable {
+public class LatitudeLongitudeHandler extends BaseKlvHandler
+        implements GeometryKlvHandler, Trimmable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LatitudeLongitudeHandler.class);
 
-    private Map<String, List<Double>> map = new HashMap<>();
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    private Map<String, DoubleColumn> columns = new HashMap<>();
 
     private String latitudeFieldName;
 
@@ -54,8 +62,13 @@ public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmabl
         return latitudeFieldName;
     }
 
+    /**
+     * @return unmodifiable copies of the values accepted so far, keyed by field name
+     */
     public Map<String, List<Double>> getRawGeoData() {
-        return map;
+        Map<String, List<Double>> rawGeoData = new HashMap<>();
+        columns.forEach((fieldName, column) -> rawGeoData.put(fieldName, column.asList()));
+        return rawGeoData;
     }
 
     @Override
@@ -63,21 +76,63 @@ public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmabl
 
         int minimumListSize = getMinimumListSize();
 
-        List<String> pairs = new ArrayList<>();
+        if (minimumListSize == 0) {
+            return Optional.empty();
+        }
+
+        DoubleColumn longitudes = columns.get(longitudeFieldName);
+        DoubleColumn latitudes = columns.get(latitudeFieldName);
+
+        List<String> pairs = new ArrayList<>(minimumListSize);
 
         for (int i = 0; i < minimumListSize; i++) {
-            pairs.add(String.format("POINT (%f %f)",
-                    map.get(longitudeFieldName)
-                            .get(i),
-                    map.get(latitudeFieldName)
-                            .get(i)));
+            pairs.add(String.format("POINT (%f %f)", longitudes.get(i), latitudes.get(i)));
         }
 
         return asAttribute(pairs);
     }
 
+    /**
+     * @return the accepted latitude and longitude pairs as (x=longitude, y=latitude) coordinates
+     */
+    public Coordinate[] asCoordinates() {
+        int minimumListSize = getMinimumListSize();
+
+        Coordinate[] coordinates = new Coordinate[minimumListSize];
+        if (minimumListSize == 0) {
+            return coordinates;
+        }
+
+        DoubleColumn longitudes = columns.get(longitudeFieldName);
+        DoubleColumn latitudes = columns.get(latitudeFieldName);
+
+        for (int i = 0; i < minimumListSize; i++) {
+            coordinates[i] = new Coordinate(longitudes.get(i), latitudes.get(i));
+        }
+
+        return coordinates;
+    }
+
+    @Override
+    public List<Geometry> asGeometries() {
+        Coordinate[] coordinates = asCoordinates();
+        if (coordinates.length == 0) {
+            return Collections.emptyList();
+        }
+
+        List<Geometry> points = new ArrayList<>(coordinates.length);
+        for (Coordinate coordinate : coordinates) {
+            points.add(GEOMETRY_FACTORY.createPoint(coordinate));
+        }
+        return points;
+    }
+
     private int getMinimumListSize() {
-        return getMinimumListSize(map.values());
+        if (!columns.containsKey(latitudeFieldName) || !columns.containsKey(
+                longitudeFieldName)) {
+            return 0;
+        }
+        return DoubleColumn.minimumSize(columns.values());
     }
 
     /**
@@ -85,13 +140,10 @@ public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmabl
      */
     @Override
     public void trim() {
-        int minListSize = getMinimumListSize();
+        int minListSize = DoubleColumn.minimumSize(columns.values());
 
-        map.keySet()
-                .forEach(key -> map.computeIfPresent(key,
-                        (fieldName, list) -> list.size() > minListSize ?
-                                list.subList(0, minListSize) :
-                                list));
+        columns.values()
+                .forEach(column -> column.truncate(minListSize));
     }
 
     @Override
@@ -103,14 +155,13 @@ public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmabl
                     klvDataElement);
             return;
         }
-        map.putIfAbsent(klvDataElement.getName(), new ArrayList<>());
-        map.get(klvDataElement.getName())
+        columns.computeIfAbsent(klvDataElement.getName(), fieldName -> new DoubleColumn())
                 .add(((KlvIntegerEncodedFloatingPoint) klvDataElement).getValue());
     }
 
     @Override
     public void reset() {
-        map.clear();
+        columns.clear();
     }
 
 }
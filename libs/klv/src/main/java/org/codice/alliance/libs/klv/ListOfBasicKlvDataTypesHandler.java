@@ -14,7 +14,7 @@
 package org.codice.alliance.libs.klv;
 
 import java.io.Serializable;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -36,7 +36,7 @@ class ListOfBasicKlvDataTypesHandler<T extends Serializable> extends BaseKlvHand
 
     private Class<? extends KlvDataElement<T>> clazz;
 
-    private List<T> list = new LinkedList<>();
+    private List<T> list = new ArrayList<>();
 
     public ListOfBasicKlvDataTypesHandler(String attributeName,
             Class<? extends KlvDataElement<T>> clazz) {
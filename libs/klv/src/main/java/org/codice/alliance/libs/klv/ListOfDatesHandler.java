@@ -13,8 +13,8 @@
  */
 package org.codice.alliance.libs.klv;
 
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
@@ -33,7 +33,7 @@ class ListOfDatesHandler extends BaseKlvHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ListOfDatesHandler.class);
 
-    private List<Date> dateList = new LinkedList<>();
+    private LongColumn microseconds = new LongColumn();
 
     public ListOfDatesHandler(String attributeName) {
         super(attributeName);
@@ -41,6 +41,10 @@ class ListOfDatesHandler extends BaseKlvHandler {
 
     @Override
     public Optional<Attribute> asAttribute() {
+        List<Date> dateList = new ArrayList<>(microseconds.size());
+        for (int i = 0; i < microseconds.size(); i++) {
+            dateList.add(new Date(TimeUnit.MICROSECONDS.toMillis(microseconds.get(i))));
+        }
         return asAttribute(dateList);
     }
 
@@ -53,12 +57,12 @@ class ListOfDatesHandler extends BaseKlvHandler {
                     klvDataElement);
             return;
         }
-        dateList.add(new Date(TimeUnit.MICROSECONDS.toMillis(((KlvLong) klvDataElement).getValue())));
+        microseconds.add(((KlvLong) klvDataElement).getValue());
     }
 
     @Override
     public void reset() {
-        dateList.clear();
+        microseconds.clear();
     }
 
 }
@@ -15,16 +15,17 @@ package org.codice.alliance.libs.klv;
 
 import static org.apache.commons.lang3.Validate.notNull;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.vividsolutions.jts.io.WKTReader;
+import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.io.WKTWriter;
 
-import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.impl.AttributeImpl;
 
@@ -63,7 +64,19 @@ public class LocationKlvProcessor implements KlvProcessor {
         return postUnionGeometryOperator;
     }
 
+    public GeometryOperator getPreUnionGeometryOperator() {
+        return preUnionGeometryOperator;
+    }
+
+    /**
+     * The corner handler is registered under each of the corner coordinate names, so check that
+     * entry directly before falling back to a scan of every handler.
+     */
     private Optional<KlvHandler> find(Map<String, KlvHandler> handlers, String name) {
+        KlvHandler cornerHandler = handlers.get(Stanag4609TransportStreamParser.CORNER_LATITUDE_1);
+        if (cornerHandler != null && name.equals(cornerHandler.getAttributeName())) {
+            return Optional.of(cornerHandler);
+        }
         return handlers.values()
                 .stream()
                 .filter(handler -> handler.getAttributeName()
@@ -87,9 +100,9 @@ public class LocationKlvProcessor implements KlvProcessor {
 
         find(handlers, AttributeNameConstants.CORNER).ifPresent(cornerHandler -> {
             if (cornerHandler instanceof GeoBoxHandler) {
-                subsample((GeoBoxHandler) cornerHandler, subsampleCount).asAttribute()
-                        .ifPresent(attribute -> setLocationFromCornerAttribute(metacard,
-                                attribute));
+                setLocationFromCorners(metacard,
+                        subsample((GeoBoxHandler) cornerHandler,
+                                subsampleCount).asGeometries());
             }
         });
 
@@ -100,13 +113,9 @@ public class LocationKlvProcessor implements KlvProcessor {
         visitor.visit(this);
     }
 
-    private void setLocationFromCornerAttribute(Metacard metacard, Attribute attribute) {
-        WKTReader wktReader = new WKTReader();
-        WKTWriter wktWriter = new WKTWriter();
-
-        GeometryUtility.createUnionOfGeometryAttribute(wktReader,
-                wktWriter,
-                attribute,
+    private void setLocationFromCorners(Metacard metacard, List<Geometry> corners) {
+        GeometryUtility.createUnionOfGeometries(new WKTWriter(),
+                corners,
                 postUnionGeometryOperator,
                 preUnionGeometryOperator)
                 .ifPresent(location -> metacard.setAttribute(new AttributeImpl(
@@ -116,38 +125,7 @@ public class LocationKlvProcessor implements KlvProcessor {
     }
 
     GeoBoxHandler subsample(GeoBoxHandler geoBoxHandler, Integer subsampleCount) {
-
-        if (geoBoxHandler.getRawGeoData()
-                .isEmpty()) {
-            return geoBoxHandler;
-        }
-
-        int size = geoBoxHandler.getRawGeoData()
-                .get(geoBoxHandler.getLatitude1())
-                .size();
-
-        if (size <= subsampleCount) {
-            return geoBoxHandler;
-        }
-
-        GeoBoxHandler out = new GeoBoxHandler(geoBoxHandler.getAttributeName(),
-                geoBoxHandler.getLatitude1(),
-                geoBoxHandler.getLongitude1(),
-                geoBoxHandler.getLatitude2(),
-                geoBoxHandler.getLongitude2(),
-                geoBoxHandler.getLatitude3(),
-                geoBoxHandler.getLongitude3(),
-                geoBoxHandler.getLatitude4(),
-                geoBoxHandler.getLongitude4());
-
-        geoBoxHandler.getRawGeoData()
-                .forEach((key, value) -> {
-                    for (int i = 0; i < subsampleCount; i++) {
-                        out.accept(key, value.get(i * size / subsampleCount));
-                    }
-                });
-
-        return out;
+        return geoBoxHandler.subsample(subsampleCount);
     }
 
 }
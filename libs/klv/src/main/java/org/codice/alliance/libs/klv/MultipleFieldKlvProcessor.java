@@ -43,8 +43,7 @@ public abstract class MultipleFieldKlvProcessor implements KlvProcessor {
     private void callFirstHandler(Metacard metacard, List<KlvHandler> stanagHandlers) {
         stanagHandlers.stream()
                 .findFirst()
-                .ifPresent(handler -> handler.asAttribute()
-                        .ifPresent(attribute -> doProcess(attribute, metacard)));
+                .ifPresent(handler -> doProcess(handler, metacard));
     }
 
     private boolean areAllHandlersFound(List<KlvHandler> stanagHandlers) {
@@ -59,5 +58,14 @@ public abstract class MultipleFieldKlvProcessor implements KlvProcessor {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Process the first handler found for the stanag fields. By default, this converts the handler
+     * to an attribute and calls {@link #doProcess(Attribute, Metacard)}.
+     */
+    protected void doProcess(KlvHandler handler, Metacard metacard) {
+        handler.asAttribute()
+                .ifPresent(attribute -> doProcess(attribute, metacard));
+    }
+
     protected abstract void doProcess(Attribute attribute, Metacard metacard);
 }
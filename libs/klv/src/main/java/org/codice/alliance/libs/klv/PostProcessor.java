@@ -26,7 +26,8 @@ public interface PostProcessor {
 
     /**
      * A typical implementation would search dataElements for specific instances, calculate a new
-     * value, and then call the KlvHandler in handlers that corresponds to the new data.
+     * value, and then call the KlvHandler in handlers that corresponds to the new data. The
+     * dataElements map is reused for the next packet, so implementations must not retain it.
      *
      * @param dataElements map of klv data element names to klv data elements that were retrieved from the current klv metadata packet
      * @param handlers     map of klv data element names to the handlers that process the klv data elements
@@ -31,8 +31,9 @@ public class Stanag4609ProcessorImpl implements Stanag4609Processor {
     }
 
     /**
-     * Iterate through the STANAG 4609 metadata and pass each {@link DecodedKLVMetadataPacket}
-     * to {@link #handle(Map, KlvHandler, KlvContext, Map)}.
+     * Iterate through the STANAG 4609 metadata and dispatch each {@link DecodedKLVMetadataPacket}
+     * to its handlers. Handlers are resolved once per call, and a single data element map is
+     * cleared and reused for every packet, so the {@link PostProcessor} must not retain it.
      *
      * @param handlers       map of klv handers
      * @param stanagMetadata list of klv metadata packets
@@ -41,21 +42,19 @@ public class Stanag4609ProcessorImpl implements Stanag4609Processor {
     public void handle(Map<String, KlvHandler> handlers, KlvHandler defaultHander,
             Map<Integer, List<DecodedKLVMetadataPacket>> stanagMetadata) {
 
-        stanagMetadata.values()
-                .stream()
-                .flatMap(List::stream)
-                .forEach(decodedKLVMetadataPacket -> {
+        KlvHandlerDispatcher dispatcher = new KlvHandlerDispatcher(handlers, defaultHander);
 
-                    Map<String, KlvDataElement> dataElements = new HashMap<>();
+        Map<String, KlvDataElement> dataElements = new HashMap<>();
 
-                    handle(handlers,
-                            defaultHander,
-                            decodedKLVMetadataPacket.getDecodedKLV(),
-                            dataElements);
+        for (List<DecodedKLVMetadataPacket> packets : stanagMetadata.values()) {
+            for (DecodedKLVMetadataPacket decodedKLVMetadataPacket : packets) {
+                dataElements.clear();
 
-                    postProcessor.postProcess(dataElements, handlers);
+                dispatch(dispatcher, decodedKLVMetadataPacket.getDecodedKLV(), dataElements);
 
-                });
+                postProcessor.postProcess(dataElements, handlers);
+            }
+        }
 
     }
 
@@ -68,12 +67,7 @@ public class Stanag4609ProcessorImpl implements Stanag4609Processor {
     @Override
     public void handle(Map<String, KlvHandler> handlers, KlvHandler defaultHandler,
             KlvContext klvContext, Map<String, KlvDataElement> dataElements) {
-        klvContext.getDataElements()
-                .values()
-                .forEach(klvDataElement -> handle(handlers,
-                        defaultHandler,
-                        klvDataElement,
-                        dataElements));
+        dispatch(new KlvHandlerDispatcher(handlers, defaultHandler), klvContext, dataElements);
     }
 
     /**
@@ -86,11 +80,7 @@ public class Stanag4609ProcessorImpl implements Stanag4609Processor {
     @Override
     public void handle(Map<String, KlvHandler> handlers, KlvHandler defaultHandler,
             KlvDataElement klvDataElement, Map<String, KlvDataElement> dataElements) {
-        if (klvDataElement instanceof KlvLocalSet) {
-            handle(handlers, defaultHandler, (KlvLocalSet) klvDataElement, dataElements);
-        } else if (!klvDataElement.isErrorIndicated()) {
-            callDataElementHandlers(handlers, defaultHandler, klvDataElement, dataElements);
-        }
+        dispatch(new KlvHandlerDispatcher(handlers, defaultHandler), klvDataElement, dataElements);
     }
 
     /**
@@ -120,4 +110,24 @@ public class Stanag4609ProcessorImpl implements Stanag4609Processor {
         handle(handlers, defaultHandler, klvLocalSet.getValue(), dataElements);
     }
 
+    private void dispatch(KlvHandlerDispatcher dispatcher, KlvContext klvContext,
+            Map<String, KlvDataElement> dataElements) {
+        for (KlvDataElement klvDataElement : klvContext.getDataElements()
+                .values()) {
+            dispatch(dispatcher, klvDataElement, dataElements);
+        }
+    }
+
+    private void dispatch(KlvHandlerDispatcher dispatcher, KlvDataElement klvDataElement,
+            Map<String, KlvDataElement> dataElements) {
+        if (klvDataElement instanceof KlvLocalSet) {
+            dispatch(dispatcher, ((KlvLocalSet) klvDataElement).getValue(), dataElements);
+        } else if (!klvDataElement.isErrorIndicated()) {
+            String name = klvDataElement.getName();
+            dispatcher.resolve(name)
+                    .accept(klvDataElement);
+            dataElements.put(name, klvDataElement);
+        }
+    }
+
 }
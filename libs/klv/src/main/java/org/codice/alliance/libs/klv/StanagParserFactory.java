@@ -13,10 +13,29 @@
  */
 package org.codice.alliance.libs.klv;
 
+import java.util.Collection;
+
 import com.google.common.io.ByteSource;
 
 public interface StanagParserFactory {
 
+    /**
+     * Create a parser that decodes every supported klv data element.
+     *
+     * @param byteSource transport stream bytes
+     * @return parser
+     */
     Stanag4609Parser createParser(ByteSource byteSource);
 
+    /**
+     * Create a parser that only decodes the named klv data elements, such as the keys of the map
+     * returned by {@link KlvHandlerFactory#createStanag4609Handlers()}. All other data elements
+     * are skipped.
+     *
+     * @param byteSource       transport stream bytes
+     * @param dataElementNames names of the klv data elements to decode
+     * @return parser
+     */
+    Stanag4609Parser createParser(ByteSource byteSource, Collection<String> dataElementNames);
+
 }
@@ -13,7 +13,10 @@
  */
 package org.codice.alliance.libs.klv;
 
+import java.util.Collection;
+
 import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.codice.ddf.libs.klv.KlvContext;
 
 import com.google.common.io.ByteSource;
 
@@ -33,4 +36,18 @@ public class StanagParserFactoryImpl implements StanagParserFactory {
         };
     }
 
+    @Override
+    public Stanag4609Parser createParser(ByteSource byteSource,
+            Collection<String> dataElementNames) {
+        KlvContext decodingContext =
+                Stanag4609TransportStreamParser.createDecodingContext(dataElementNames);
+        return () -> {
+            try {
+                return new Stanag4609TransportStreamParser(byteSource, decodingContext).parse();
+            } catch (Exception e) {
+                throw new Stanag4609ParseException("unable to parse stanag 4609 data", e);
+            }
+        };
+    }
+
 }
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestDoubleColumn {
+
+    private static final double EPSILON = 0.0001;
+
+    private DoubleColumn column;
+
+    @Before
+    public void setup() {
+        column = new DoubleColumn(2);
+    }
+
+    @Test
+    public void testAddBeyondCapacity() {
+        for (int i = 0; i < 100; i++) {
+            column.add(i);
+        }
+
+        assertThat(column.size(), is(100));
+        assertThat(column.get(99), is(closeTo(99, EPSILON)));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfRange() {
+        column.add(1);
+        column.get(1);
+    }
+
+    @Test
+    public void testTruncate() {
+        column.add(1);
+        column.add(2);
+        column.add(3);
+
+        column.truncate(1);
+        column.truncate(5);
+
+        assertThat(column.asList(), contains(1.0));
+    }
+
+    @Test
+    public void testSubsample() {
+        for (int i = 0; i < 7; i++) {
+            column.add(i);
+        }
+
+        assertThat(column.subsample(3)
+                .asList(), contains(0.0, 2.0, 4.0));
+        assertThat(column.subsample(7), is(column));
+    }
+
+    @Test
+    public void testSubsampleLength() {
+        for (int i = 0; i < 10; i++) {
+            column.add(i);
+        }
+
+        assertThat(column.subsample(3, 6)
+                .asList(), contains(0.0, 2.0, 4.0));
+        assertThat(column.subsample(5, 3)
+                .asList(), contains(0.0, 1.0, 2.0));
+    }
+
+    @Test
+    public void testListIsCopy() {
+        column.add(1);
+        List<Double> values = column.asList();
+        column.truncate(0);
+        column.add(2);
+
+        assertThat(values, contains(1.0));
+    }
+
+    @Test
+    public void testMinimumSize() {
+        DoubleColumn other = new DoubleColumn();
+        other.add(1);
+        column.add(1);
+        column.add(2);
+
+        assertThat(DoubleColumn.minimumSize(Arrays.asList(column, other)), is(1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testListIsUnmodifiable() {
+        column.add(1);
+        assertThat(column.asList(), hasSize(1));
+        column.asList()
+                .add(2.0);
+    }
+}
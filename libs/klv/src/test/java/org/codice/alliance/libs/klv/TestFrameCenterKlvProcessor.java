@@ -13,6 +13,7 @@
  */
 package org.codice.alliance.libs.klv;
 
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
@@ -25,10 +26,12 @@ import java.util.Map;
 import java.util.Optional;
 
 import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.codice.ddf.libs.klv.KlvDecodingException;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
+import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKTReader;
 import com.vividsolutions.jts.io.WKTWriter;
@@ -38,6 +41,8 @@ import ddf.catalog.data.Metacard;
 
 public class TestFrameCenterKlvProcessor {
 
+    private static final double EPSILON = 0.0001;
+
     private FrameCenterKlvProcessor frameCenterKlvProcessor;
 
     @Before
@@ -77,6 +82,48 @@ public class TestFrameCenterKlvProcessor {
 
     }
 
+    @Test
+    public void testGeometryHandler() throws ParseException, KlvDecodingException {
+
+        LatitudeLongitudeHandler klvHandler = new LatitudeLongitudeHandler(
+                AttributeNameConstants.FRAME_CENTER,
+                Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE,
+                Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE);
+
+        for (int i = 0; i < 3; i++) {
+            klvHandler.accept(KlvUtilities.createTestFloat(
+                    Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE,
+                    i));
+            klvHandler.accept(KlvUtilities.createTestFloat(
+                    Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE,
+                    i));
+        }
+
+        Map<String, KlvHandler> handlerMap = new HashMap<>();
+        handlerMap.put(Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE, klvHandler);
+        handlerMap.put(Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE, klvHandler);
+
+        Metacard metacard = mock(Metacard.class);
+
+        frameCenterKlvProcessor.process(handlerMap,
+                metacard,
+                new KlvProcessor.Configuration());
+
+        ArgumentCaptor<Attribute> argumentCaptor = ArgumentCaptor.forClass(Attribute.class);
+
+        verify(metacard).setAttribute(argumentCaptor.capture());
+
+        Coordinate[] coordinates = new WKTReader().read((String) argumentCaptor.getValue()
+                .getValue())
+                .getCoordinates();
+
+        assertThat(coordinates.length, is(3));
+        for (int i = 0; i < coordinates.length; i++) {
+            assertThat(coordinates[i].x, is(closeTo(i, EPSILON)));
+            assertThat(coordinates[i].y, is(closeTo(i, EPSILON)));
+        }
+    }
+
     private String normalize(String wkt) throws ParseException {
         return new WKTWriter().write(new WKTReader().read(wkt)
                 .norm());
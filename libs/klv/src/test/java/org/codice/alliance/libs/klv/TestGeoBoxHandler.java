@@ -19,6 +19,8 @@ import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -26,9 +28,17 @@ import org.codice.ddf.libs.klv.KlvDecodingException;
 import org.codice.ddf.libs.klv.data.numerical.KlvInt;
 import org.junit.Before;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
 
 public class TestGeoBoxHandler {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestGeoBoxHandler.class);
+
     private static final String LAT1 = "lat1";
 
     private static final String LON1 = "lon1";
@@ -47,6 +57,15 @@ public class TestGeoBoxHandler {
 
     private static final double EPSILON = 0.01;
 
+    /**
+     * One hour of corner data at 30 frames per second.
+     */
+    private static final int BENCHMARK_FRAMES = 30 * 60 * 60;
+
+    private static final int BENCHMARK_SUBSAMPLE_COUNT = 50;
+
+    private static final String[] FIELDS = {LAT1, LON1, LAT2, LON2, LAT3, LON3, LAT4, LON4};
+
     private GeoBoxHandler geoBoxHandler;
 
     @Before
@@ -195,4 +214,126 @@ public class TestGeoBoxHandler {
         assertThat(data.get(LON4)
                 .get(0), is(closeTo(8, EPSILON)));
     }
+
+    @Test
+    public void testSubsample() {
+        for (int i = 0; i < 10; i++) {
+            for (String field : FIELDS) {
+                geoBoxHandler.accept(field, i);
+            }
+        }
+
+        GeoBoxHandler subsampled = geoBoxHandler.subsample(5);
+
+        assertThat(subsampled.size(), is(5));
+        assertThat(subsampled.getAttributeName(), is(geoBoxHandler.getAttributeName()));
+        assertThat(subsampled.getRawGeoData()
+                .get(LAT1)
+                .get(1), is(closeTo(2, EPSILON)));
+        assertThat(geoBoxHandler.size(), is(10));
+    }
+
+    @Test
+    public void testSubsampleSmallerThanCount() {
+        geoBoxHandler.accept(LAT1, 1);
+
+        assertThat(geoBoxHandler.subsample(5), is(geoBoxHandler));
+    }
+
+    @Test
+    public void testSubsampleColumnsOfDifferentSizes() {
+        for (int i = 0; i < 10; i++) {
+            for (String field : FIELDS) {
+                geoBoxHandler.accept(field, i);
+            }
+        }
+        for (int i = 10; i < 20; i++) {
+            geoBoxHandler.accept(LAT1, i);
+            geoBoxHandler.accept(LON1, i);
+        }
+
+        Map<String, List<Double>> data = geoBoxHandler.subsample(5)
+                .getRawGeoData();
+
+        for (String field : FIELDS) {
+            assertThat(data.get(field), is(data.get(LAT2)));
+        }
+    }
+
+    /**
+     * Feeds a long synthetic corner stream through the handler and through the boxed list storage
+     * the handler used to have, and logs the time and approximate heap used by each.
+     */
+    @Test
+    public void testLongStreamAccumulation() {
+        System.gc();
+        long boxedStart = System.nanoTime();
+        long boxedHeapStart = usedHeap();
+        Map<String, List<Double>> boxed = new HashMap<>();
+        for (int frame = 0; frame < BENCHMARK_FRAMES; frame++) {
+            for (String field : FIELDS) {
+                boxed.computeIfAbsent(field, name -> new ArrayList<>())
+                        .add((double) frame);
+            }
+        }
+        long boxedHeap = usedHeap() - boxedHeapStart;
+        Map<String, List<Double>> boxedSubsample = new HashMap<>();
+        boxed.forEach((field, values) -> {
+            for (int i = 0; i < BENCHMARK_SUBSAMPLE_COUNT; i++) {
+                boxedSubsample.computeIfAbsent(field, name -> new ArrayList<>())
+                        .add(values.get(i * values.size() / BENCHMARK_SUBSAMPLE_COUNT));
+            }
+        });
+        long boxedMillis = (System.nanoTime() - boxedStart) / 1_000_000;
+        boxed.clear();
+
+        System.gc();
+        long columnStart = System.nanoTime();
+        long columnHeapStart = usedHeap();
+        for (int frame = 0; frame < BENCHMARK_FRAMES; frame++) {
+            for (String field : FIELDS) {
+                geoBoxHandler.accept(field, frame);
+            }
+        }
+        long columnHeap = usedHeap() - columnHeapStart;
+        GeoBoxHandler subsampled = geoBoxHandler.subsample(BENCHMARK_SUBSAMPLE_COUNT);
+        long columnMillis = (System.nanoTime() - columnStart) / 1_000_000;
+
+        LOGGER.info("Accumulated and subsampled {} frames: boxed lists {} ms (~{} KB), "
+                        + "primitive columns {} ms (~{} KB)",
+                BENCHMARK_FRAMES,
+                boxedMillis,
+                boxedHeap / 1024,
+                columnMillis,
+                columnHeap / 1024);
+
+        assertThat(subsampled.size(), is(BENCHMARK_SUBSAMPLE_COUNT));
+        assertThat(subsampled.getRawGeoData()
+                        .get(LAT1),
+                is(boxedSubsample.get(LAT1)));
+    }
+
+    private long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    public void testAsGeometries() throws ParseException {
+        geoBoxHandler.accept(LAT1, 0);
+        geoBoxHandler.accept(LON1, 0);
+        geoBoxHandler.accept(LAT2, 0);
+        geoBoxHandler.accept(LON2, 5);
+        geoBoxHandler.accept(LAT3, 5);
+        geoBoxHandler.accept(LON3, 5);
+        geoBoxHandler.accept(LAT4, 5);
+        geoBoxHandler.accept(LON4, 0);
+
+        List<Geometry> geometries = geoBoxHandler.asGeometries();
+
+        assertThat(geometries, hasSize(1));
+        assertThat(geometries.get(0)
+                .norm(), is(new WKTReader().read("POLYGON ((0 0, 5 0, 5 5, 0 5, 0 0))")
+                .norm()));
+    }
 }
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class TestGeometryReducer {
+
+    private WKTReader wktReader = new WKTReader();
+
+    @Test
+    public void testFloatingPrecision() throws ParseException {
+        GeometryReducer geometryReducer = new GeometryReducer();
+
+        assertThat(geometryReducer.apply(wktReader.read("POINT (1.123456789 2.987654321)")),
+                is(wktReader.read("POINT (1.123456789 2.987654321)")));
+    }
+
+    @Test
+    public void testFixedPrecision() throws ParseException {
+        GeometryReducer geometryReducer = new GeometryReducer(1000);
+
+        assertThat(geometryReducer.apply(wktReader.read("POINT (1.123456789 2.987654321)")),
+                is(wktReader.read("POINT (1.123 2.988)")));
+    }
+
+    @Test
+    public void testSetPrecisionScale() throws ParseException {
+        GeometryReducer geometryReducer = new GeometryReducer();
+        geometryReducer.setPrecisionScale(10.0);
+
+        assertThat(geometryReducer.apply(wktReader.read("POINT (1.123456789 2.987654321)")),
+                is(wktReader.read("POINT (1.1 3)")));
+
+        geometryReducer.setPrecisionScale(0.0);
+
+        assertThat(geometryReducer.getPrecisionScale()
+                .isPresent(), is(false));
+        assertThat(geometryReducer.apply(wktReader.read("POINT (1.123456789 2.987654321)")),
+                is(wktReader.read("POINT (1.123456789 2.987654321)")));
+    }
+}
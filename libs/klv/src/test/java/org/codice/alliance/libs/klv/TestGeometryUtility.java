@@ -13,17 +13,26 @@
  */
 package org.codice.alliance.libs.klv;
 
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKTReader;
 import com.vividsolutions.jts.io.WKTWriter;
@@ -33,6 +42,23 @@ import ddf.catalog.data.impl.AttributeImpl;
 
 public class TestGeometryUtility {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestGeometryUtility.class);
+
+    private static final int UNION_FOOTPRINT_COUNT = 100;
+
+    private static final int[] BENCHMARK_FOOTPRINT_COUNTS = {100, 1000, 10000};
+
+    /**
+     * Folding the footprints one at a time is quadratic, so the baseline is only timed up to
+     * this many footprints to keep the test fast.
+     */
+    private static final int BENCHMARK_SEQUENTIAL_LIMIT = 1000;
+
+    /**
+     * Number of frames per sensor orbit in the synthetic footprint track.
+     */
+    private static final int FRAMES_PER_ORBIT = 900;
+
     private static final String FIELD = "field";
 
     private WKTReader wktReader;
@@ -150,4 +176,145 @@ public class TestGeometryUtility {
 
     }
 
+
+    @Test
+    public void testUnionOfGeometries() throws ParseException {
+
+        Optional<String> optionalWkt = GeometryUtility.createUnionOfGeometries(wktWriter,
+                Arrays.asList(wktReader.read("POLYGON (( 0 0, 10 0, 10 10, 0 10, 0 0))"),
+                        wktReader.read("POLYGON (( 5 5, 15 5, 15 15, 5 15, 5 5))")),
+                UnaryOperator.identity(),
+                UnaryOperator.identity());
+
+        Geometry actual = wktReader.read(optionalWkt.get())
+                .norm();
+
+        Geometry expected = wktReader.read(
+                "POLYGON (( 0 0, 10 0, 10 5, 15 5, 15 15, 5 15, 5 10, 0 10, 0 0 ))")
+                .norm();
+
+        assertThat(actual, is(expected));
+    }
+
+    @Test
+    public void testRemoveContained() throws ParseException {
+        Geometry outer = wktReader.read("POLYGON (( 0 0, 10 0, 10 10, 0 10, 0 0))");
+        Geometry inner = wktReader.read("POLYGON (( 2 2, 8 2, 8 8, 2 8, 2 2))");
+        Geometry overlapping = wktReader.read("POLYGON (( 5 5, 15 5, 15 15, 5 15, 5 5))");
+
+        List<Geometry> remaining = GeometryUtility.removeContained(Arrays.asList(outer,
+                inner,
+                overlapping));
+
+        assertThat(remaining, is(Arrays.asList(outer, overlapping)));
+    }
+
+    @Test
+    public void testUnionOfContainedGeometries() throws ParseException {
+
+        Optional<String> optionalWkt = GeometryUtility.createUnionOfGeometries(wktWriter,
+                Arrays.asList(wktReader.read("POLYGON (( 0 0, 10 0, 10 10, 0 10, 0 0))"),
+                        wktReader.read("POLYGON (( 2 2, 8 2, 8 8, 2 8, 2 2))")),
+                UnaryOperator.identity(),
+                UnaryOperator.identity());
+
+        assertThat(wktReader.read(optionalWkt.get())
+                .norm(), is(wktReader.read("POLYGON (( 0 0, 10 0, 10 10, 0 10, 0 0))")
+                .norm()));
+    }
+
+    @Test
+    public void testUnionOfPoints() throws ParseException {
+
+        Optional<String> optionalWkt = GeometryUtility.createUnionOfGeometries(wktWriter,
+                Arrays.asList(wktReader.read("POINT (0 0)"), wktReader.read("POINT (1 1)")),
+                UnaryOperator.identity(),
+                UnaryOperator.identity());
+
+        assertThat(wktReader.read(optionalWkt.get())
+                .getNumPoints(), is(2));
+    }
+
+    @Test
+    public void testCascadedUnionMatchesSequentialUnion() {
+        List<Geometry> footprints = createFootprints(UNION_FOOTPRINT_COUNT);
+
+        Geometry cascaded = GeometryUtility.union(footprints)
+                .get();
+        Geometry sequential = footprints.stream()
+                .reduce(Geometry::union)
+                .get();
+
+        assertThat(cascaded.isValid(), is(true));
+        assertThat(cascaded.getArea(), is(closeTo(sequential.getArea(), 1e-7)));
+    }
+
+    /**
+     * Merges synthetic frame footprints from a sensor orbiting a target with the cascaded union
+     * and with the sequential union it replaced, and logs the time taken by each.
+     */
+    @Test
+    public void testUnionThroughput() {
+        for (int count : BENCHMARK_FOOTPRINT_COUNTS) {
+            List<Geometry> footprints = createFootprints(count);
+
+            long cascadedStart = System.nanoTime();
+            Geometry cascaded = GeometryUtility.union(footprints)
+                    .get();
+            long cascadedMillis = (System.nanoTime() - cascadedStart) / 1_000_000;
+
+            if (count <= BENCHMARK_SEQUENTIAL_LIMIT) {
+                long sequentialStart = System.nanoTime();
+                Geometry sequential = footprints.stream()
+                        .reduce(Geometry::union)
+                        .get();
+                long sequentialMillis = (System.nanoTime() - sequentialStart) / 1_000_000;
+
+                LOGGER.info("Union of {} footprints: sequential {} ms, cascaded {} ms",
+                        count,
+                        sequentialMillis,
+                        cascadedMillis);
+                assertThat(cascaded.getArea(), is(closeTo(sequential.getArea(), 1e-7)));
+            } else {
+                LOGGER.info("Union of {} footprints: cascaded {} ms", count, cascadedMillis);
+            }
+
+            assertThat(cascaded.isValid(), is(true));
+        }
+    }
+
+    @Test
+    public void testFootprintsAreDistinct() {
+        assertThat(GeometryUtility.removeContained(createFootprints(FRAMES_PER_ORBIT)),
+                hasSize(FRAMES_PER_ORBIT));
+    }
+
+    /**
+     * Create square footprints, rotated with the sensor heading, that circle a target while the
+     * orbit slowly drifts east.
+     */
+    private List<Geometry> createFootprints(int count) {
+        GeometryFactory geometryFactory = new GeometryFactory();
+        List<Geometry> footprints = new ArrayList<>(count);
+        double halfWidth = 0.01;
+
+        for (int i = 0; i < count; i++) {
+            double heading = 2 * Math.PI * i / FRAMES_PER_ORBIT;
+            double centerX = 0.05 * Math.cos(heading) + 0.00001 * i;
+            double centerY = 0.05 * Math.sin(heading);
+
+            Coordinate[] ring = new Coordinate[5];
+            for (int corner = 0; corner < 4; corner++) {
+                double angle = heading + Math.PI / 4 + corner * Math.PI / 2;
+                ring[corner] = new Coordinate(centerX + halfWidth * Math.cos(angle),
+                        centerY + halfWidth * Math.sin(angle));
+            }
+            ring[4] = new Coordinate(ring[0]);
+
+            footprints.add(geometryFactory.createPolygon(geometryFactory.createLinearRing(ring),
+                    null));
+        }
+
+        return footprints;
+    }
 }
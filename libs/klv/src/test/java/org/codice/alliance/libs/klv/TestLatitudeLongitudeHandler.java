@@ -29,6 +29,9 @@ import org.codice.ddf.libs.klv.data.numerical.KlvInt;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+
 public class TestLatitudeLongitudeHandler {
 
     private static final String LAT = "lat";
@@ -128,4 +131,27 @@ public class TestLatitudeLongitudeHandler {
         assertThat(data.get(LON)
                 .get(0), is(closeTo(lon, EPSILON)));
     }
+
+    @Test
+    public void testAsGeometries() throws KlvDecodingException {
+        klvHandler.accept(KlvUtilities.createTestFloat(LAT, 33));
+        klvHandler.accept(KlvUtilities.createTestFloat(LON, -112));
+
+        List<Geometry> geometries = klvHandler.asGeometries();
+
+        assertThat(geometries, hasSize(1));
+        Coordinate coordinate = geometries.get(0)
+                .getCoordinate();
+        assertThat(coordinate.x, is(closeTo(-112, EPSILON)));
+        assertThat(coordinate.y, is(closeTo(33, EPSILON)));
+    }
+
+    @Test
+    public void testAsGeometriesMissingLongitude() throws KlvDecodingException {
+        klvHandler.accept(KlvUtilities.createTestFloat(LAT, 33));
+
+        assertThat(klvHandler.asGeometries(), hasSize(0));
+        assertThat(klvHandler.asAttribute()
+                .isPresent(), is(false));
+    }
 }
@@ -17,20 +17,23 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+
 import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.impl.BasicTypes;
@@ -53,7 +56,7 @@ public class TestLocationKlvProcessor {
     private GeometryOperator geometryFunction;
 
     @Before
-    public void setup() {
+    public void setup() throws ParseException {
         wkt = "POLYGON ((0 0, 5 0, 5 5, 0 5, 0 0))";
         geometryFunction = GeometryOperator.IDENTITY;
         locationKlvProcessor = new LocationKlvProcessor(GeometryOperator.IDENTITY,
@@ -62,7 +65,10 @@ public class TestLocationKlvProcessor {
         Attribute attribute = mock(Attribute.class);
         when(attribute.getValues()).thenReturn(Collections.singletonList(wkt));
         when(klvHandler.asAttribute()).thenReturn(Optional.of(attribute));
+        when(klvHandler.asGeometries()).thenReturn(Collections.singletonList(new WKTReader().read(
+                wkt)));
         when(klvHandler.getAttributeName()).thenReturn(AttributeNameConstants.CORNER);
+        when(klvHandler.subsample(anyInt())).thenReturn(klvHandler);
         metacard = new MetacardImpl(BasicTypes.BASIC_METACARD);
         klvConfiguration = new KlvProcessor.Configuration();
         handlers = Collections.singletonMap(AttributeNameConstants.CORNER, klvHandler);
@@ -91,6 +97,19 @@ public class TestLocationKlvProcessor {
 
     }
 
+    @Test
+    public void testProcessWithCornerCoordinateKeys() {
+
+        klvConfiguration.set(KlvProcessor.Configuration.SUBSAMPLE_COUNT, 50);
+
+        locationKlvProcessor.process(Collections.singletonMap(
+                Stanag4609TransportStreamParser.CORNER_LATITUDE_1,
+                klvHandler), metacard, klvConfiguration);
+
+        assertThat(metacard.getLocation(), is(wkt));
+
+    }
+
     /**
      * Test where the subsample count is missing from the configuration.
      */
@@ -139,42 +158,30 @@ public class TestLocationKlvProcessor {
         int start = subsampleCount + 1;
         int end = subsampleCount * 10;
 
-        when(klvHandler.getLatitude1()).thenReturn(lat1);
-        when(klvHandler.getLongitude1()).thenReturn(lon1);
-        when(klvHandler.getLatitude2()).thenReturn(lat2);
-        when(klvHandler.getLongitude2()).thenReturn(lon2);
-        when(klvHandler.getLatitude3()).thenReturn(lat3);
-        when(klvHandler.getLongitude3()).thenReturn(lon3);
-        when(klvHandler.getLatitude4()).thenReturn(lat4);
-        when(klvHandler.getLongitude4()).thenReturn(lon4);
-
         for (int originalSize = start; originalSize < end; originalSize++) {
 
-            Map<String, List<Double>> rawData = new HashMap<>();
-
-            when(klvHandler.getRawGeoData()).thenReturn(rawData);
-
-            rawData.put(lat1, new ArrayList<>());
-            rawData.put(lon1, new ArrayList<>());
-            rawData.put(lat2, new ArrayList<>());
-            rawData.put(lon2, new ArrayList<>());
-            rawData.put(lat3, new ArrayList<>());
-            rawData.put(lon3, new ArrayList<>());
-            rawData.put(lat4, new ArrayList<>());
-            rawData.put(lon4, new ArrayList<>());
+            GeoBoxHandler geoBoxHandler = new GeoBoxHandler(AttributeNameConstants.CORNER,
+                    lat1,
+                    lon1,
+                    lat2,
+                    lon2,
+                    lat3,
+                    lon3,
+                    lat4,
+                    lon4);
 
             for (int i = 0; i < originalSize; i++) {
-                add(rawData, lat1, i);
-                add(rawData, lon1, i);
-                add(rawData, lat2, i);
-                add(rawData, lon2, i);
-                add(rawData, lat3, i);
-                add(rawData, lon3, i);
-                add(rawData, lat4, i);
-                add(rawData, lon4, i);
+                geoBoxHandler.accept(lat1, i);
+                geoBoxHandler.accept(lon1, i);
+                geoBoxHandler.accept(lat2, i);
+                geoBoxHandler.accept(lon2, i);
+                geoBoxHandler.accept(lat3, i);
+                geoBoxHandler.accept(lon3, i);
+                geoBoxHandler.accept(lat4, i);
+                geoBoxHandler.accept(lon4, i);
             }
 
-            GeoBoxHandler subsampledGeoBoxHandler = locationKlvProcessor.subsample(klvHandler,
+            GeoBoxHandler subsampledGeoBoxHandler = locationKlvProcessor.subsample(geoBoxHandler,
                     subsampleCount);
 
             Map<String, List<Double>> newRawData = subsampledGeoBoxHandler.getRawGeoData();
@@ -191,11 +198,6 @@ public class TestLocationKlvProcessor {
         }
     }
 
-    private void add(Map<String, List<Double>> rawData, String name, int value) {
-        rawData.get(name)
-                .add((double) value);
-    }
-
     private void assertThatCount(Map<String, List<Double>> rawData, String name, int count) {
         assertThat(rawData.get(name), hasSize(count));
     }
@@ -13,15 +13,22 @@
  */
 package org.codice.alliance.libs.klv;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 
 import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
 import org.codice.ddf.libs.klv.KlvContext;
@@ -32,11 +39,22 @@ import org.codice.ddf.libs.klv.data.numerical.KlvIntegerEncodedFloatingPoint;
 import org.codice.ddf.libs.klv.data.set.KlvLocalSet;
 import org.junit.Before;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class TestStanag4609ProcessorImpl {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestStanag4609ProcessorImpl.class);
+
     private static final String FIELD_NAME = "field";
 
+    /**
+     * Roughly ten minutes of 30 Hz video with one metadata packet per frame.
+     */
+    private static final int BENCHMARK_PACKETS = 30 * 60 * 10;
+
+    private static final int BENCHMARK_FIELDS = 20;
+
     private Stanag4609Processor stanag4609Processor;
 
     private KlvHandler klvHandler;
@@ -144,4 +162,110 @@ public class TestStanag4609ProcessorImpl {
 
     }
 
+    @Test
+    public void testDataElementsAreScopedToEachPacket() throws KlvDecodingException {
+
+        KlvIntegerEncodedFloatingPoint otherKlvIntegerEncodedFloatingPoint =
+                KlvUtilities.createTestFloat("someOtherField", 100);
+
+        List<List<String>> seen = new ArrayList<>();
+        Stanag4609Processor processor =
+                new Stanag4609ProcessorImpl((elements, handlers) -> seen.add(new ArrayList<>(
+                        elements.keySet())));
+
+        Map<Integer, List<DecodedKLVMetadataPacket>> stanag = Collections.singletonMap(1,
+                Arrays.asList(createPacket(klvIntegerEncodedFloatingPoint),
+                        createPacket(otherKlvIntegerEncodedFloatingPoint)));
+
+        processor.handle(Collections.singletonMap(FIELD_NAME, klvHandler),
+                defaultKlvHandler,
+                stanag);
+
+        assertThat(seen.get(0), contains(FIELD_NAME));
+        assertThat(seen.get(1), contains("someOtherField"));
+        verify(klvHandler).accept(klvIntegerEncodedFloatingPoint);
+        verify(defaultKlvHandler).accept(otherKlvIntegerEncodedFloatingPoint);
+
+    }
+
+    /**
+     * Compares the per-packet map allocation and name lookup that the processor used to do against
+     * {@link Stanag4609ProcessorImpl#handle(Map, KlvHandler, Map)}. Timings are logged rather than
+     * asserted; the test checks that both paths hand the same data to the handlers.
+     */
+    @Test
+    public void testHandleThroughput() throws KlvDecodingException {
+
+        List<KlvDataElement> fields = new ArrayList<>();
+        for (int i = 0; i < BENCHMARK_FIELDS; i++) {
+            fields.add(KlvUtilities.createTestFloat(FIELD_NAME + i, i));
+        }
+
+        List<DecodedKLVMetadataPacket> packets = new ArrayList<>(BENCHMARK_PACKETS);
+        for (int i = 0; i < BENCHMARK_PACKETS; i++) {
+            packets.add(createPacket(fields.toArray(new KlvDataElement[fields.size()])));
+        }
+        Map<Integer, List<DecodedKLVMetadataPacket>> stanag = Collections.singletonMap(1, packets);
+
+        PostProcessor postProcessor = mock(PostProcessor.class);
+        Stanag4609Processor processor = new Stanag4609ProcessorImpl(postProcessor);
+
+        Map<String, KlvHandler> baselineHandlers = createHandlers(fields);
+        long baselineStart = System.nanoTime();
+        for (DecodedKLVMetadataPacket packet : packets) {
+            Map<String, KlvDataElement> elements = new HashMap<>();
+            packet.getDecodedKLV()
+                    .getDataElements()
+                    .values()
+                    .forEach(element -> processor.callDataElementHandlers(baselineHandlers,
+                            defaultKlvHandler,
+                            element,
+                            elements));
+            postProcessor.postProcess(elements, baselineHandlers);
+        }
+        long baselineMillis = (System.nanoTime() - baselineStart) / 1_000_000;
+
+        Map<String, KlvHandler> dispatchHandlers = createHandlers(fields);
+        long dispatchStart = System.nanoTime();
+        processor.handle(dispatchHandlers, defaultKlvHandler, stanag);
+        long dispatchMillis = (System.nanoTime() - dispatchStart) / 1_000_000;
+
+        LOGGER.info("dispatched {} packets of {} fields: per-packet map {} ms, dispatcher {} ms",
+                BENCHMARK_PACKETS,
+                BENCHMARK_FIELDS,
+                baselineMillis,
+                dispatchMillis);
+
+        assertThat(new TreeSet<>(dispatchHandlers.keySet()),
+                is(new TreeSet<>(baselineHandlers.keySet())));
+        for (String name : dispatchHandlers.keySet()) {
+            assertThat(dispatchHandlers.get(name)
+                    .asAttribute()
+                    .get()
+                    .getValues(), is(baselineHandlers.get(name)
+                    .asAttribute()
+                    .get()
+                    .getValues()));
+        }
+
+    }
+
+    private static DecodedKLVMetadataPacket createPacket(KlvDataElement... dataElements) {
+        DecodedKLVMetadataPacket packet = mock(DecodedKLVMetadataPacket.class);
+        when(packet.getDecodedKLV()).thenReturn(new KlvContext(Klv.KeyLength.OneByte,
+                Klv.LengthEncoding.OneByte,
+                new LinkedHashSet<>(Arrays.asList(dataElements))));
+        return packet;
+    }
+
+    private static Map<String, KlvHandler> createHandlers(List<KlvDataElement> fields) {
+        Map<String, KlvHandler> handlers = new HashMap<>();
+        for (KlvDataElement field : fields) {
+            handlers.put(field.getName(),
+                    new ListOfBasicKlvDataTypesHandler<>(field.getName(),
+                            KlvIntegerEncodedFloatingPoint.class));
+        }
+        return handlers;
+    }
+
 }
@@ -17,6 +17,9 @@ import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 
+import java.util.Collections;
+
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
 import org.junit.Test;
 
 import com.google.common.io.ByteSource;
@@ -32,4 +35,15 @@ public class TestStanagParserFactoryImpl {
 
     }
 
+    @Test
+    public void testCreateSelectiveParser() {
+
+        StanagParserFactoryImpl stanagParserFactory = new StanagParserFactoryImpl();
+
+        assertThat(stanagParserFactory.createParser(mock(ByteSource.class),
+                Collections.singleton(Stanag4609TransportStreamParser.CORNER_LATITUDE_1)),
+                notNullValue());
+
+    }
+
 }
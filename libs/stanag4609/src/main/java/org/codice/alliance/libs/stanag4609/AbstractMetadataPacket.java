@@ -15,14 +15,21 @@ package org.codice.alliance.libs.stanag4609;
 
 import java.util.Arrays;
 
-import org.codice.ddf.libs.klv.KlvContext;
 import org.codice.ddf.libs.klv.KlvDecoder;
 import org.codice.ddf.libs.klv.KlvDecodingException;
-import org.codice.ddf.libs.klv.data.numerical.KlvUnsignedShort;
-import org.codice.ddf.libs.klv.data.set.KlvLocalSet;
 import org.jcodec.containers.mps.MPSDemuxer.PESPacket;
 
 abstract class AbstractMetadataPacket {
+    /**
+     * The checksum is the last item of the local set: a 1-byte tag, a 1-byte length and the 2-byte
+     * value.
+     */
+    private static final int CHECKSUM_ITEM_LENGTH = 4;
+
+    private static final int CHECKSUM_TAG = 1;
+
+    private static final int CHECKSUM_LENGTH = 2;
+
     protected final byte[] pesPacketBytes;
 
     protected final PESPacket pesHeader;
@@ -36,52 +43,93 @@ abstract class AbstractMetadataPacket {
         this.decoder = decoder;
     }
 
-    private boolean validateChecksum(final KlvContext klvContext, final byte[] klvBytes)
-            throws KlvDecodingException {
-        if (!klvContext.hasDataElement(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET)) {
-            throw new KlvDecodingException("KLV did not contain the UAS Datalink Local Set");
+    private boolean isUasDatalinkLocalSet(final int klvOffset, final int klvLength) {
+        final byte[] key = Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_KEY;
+
+        if (klvLength < key.length) {
+            return false;
         }
 
-        final KlvContext localSetContext = ((KlvLocalSet) klvContext.getDataElementByName(
-                Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET)).getValue();
+        for (int i = 0; i < key.length; ++i) {
+            if (pesPacketBytes[klvOffset + i] != key[i]) {
+                return false;
+            }
+        }
 
-        if (localSetContext.hasDataElement(Stanag4609TransportStreamParser.CHECKSUM)) {
-            final int packetChecksum = ((KlvUnsignedShort) localSetContext.getDataElementByName(
-                    Stanag4609TransportStreamParser.CHECKSUM)).getValue();
+        return true;
+    }
 
-            short calculatedChecksum = 0;
-            // Checksum is calculated by a 16-bit sum from the beginning of the KLV set to the 1-byte
-            // checksum length (the checksum value is 2 bytes, which is why we subtract 2).
-            for (int i = 0; i < klvBytes.length - 2; ++i) {
-                calculatedChecksum += (klvBytes[i] & 0xFF) << (8 * ((i + 1) % 2));
-            }
+    private boolean hasChecksum(final int klvOffset, final int klvLength) {
+        final int checksumItem = klvOffset + klvLength - CHECKSUM_ITEM_LENGTH;
+        return klvLength >= Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_KEY.length
+                + CHECKSUM_ITEM_LENGTH && pesPacketBytes[checksumItem] == CHECKSUM_TAG
+                && pesPacketBytes[checksumItem + 1] == CHECKSUM_LENGTH;
+    }
 
-            return (calculatedChecksum & 0xFFFF) == packetChecksum;
+    private boolean validateChecksum(final int klvOffset, final int klvLength) {
+        final int klvEnd = klvOffset + klvLength;
+        final int packetChecksum =
+                ((pesPacketBytes[klvEnd - 2] & 0xFF) << 8) | (pesPacketBytes[klvEnd - 1] & 0xFF);
+
+        short calculatedChecksum = 0;
+        // Checksum is calculated by a 16-bit sum from the beginning of the KLV set to the 1-byte
+        // checksum length (the checksum value is 2 bytes, which is why we subtract 2).
+        for (int i = 0; i < klvLength - 2; ++i) {
+            calculatedChecksum +=
+                    (pesPacketBytes[klvOffset + i] & 0xFF) << (8 * ((i + 1) % 2));
         }
 
-        throw new KlvDecodingException(
-                "Decoded KLV packet didn't contain checksum (which is required).");
+        return (calculatedChecksum & 0xFFFF) == packetChecksum;
     }
 
-    protected final byte[] getPESPacketPayload(final int packetLength,
+    /**
+     * @return the number of payload bytes that follow the header, limited to the bytes that are
+     * actually present in the PES packet
+     */
+    protected final int getPESPacketPayloadLength(final int packetLength,
             final int expectedHeaderLength) {
         final int payloadEnd = Math.min(pesPacketBytes.length, expectedHeaderLength + packetLength);
-        return Arrays.copyOfRange(pesPacketBytes, expectedHeaderLength, payloadEnd);
+        return Math.max(0, payloadEnd - expectedHeaderLength);
     }
 
-    protected abstract byte[] getKLVBytes();
-
+    /**
+     * @return the offset of the KLV bytes within {@link #pesPacketBytes}
+     */
+    protected abstract int getKLVOffset();
+
+    /**
+     * @return the number of KLV bytes starting at {@link #getKLVOffset()}, or 0 if the packet does
+     * not carry any
+     */
+    protected abstract int getKLVLength();
+
+    /**
+     * The UAS Datalink Local Set key and checksum are verified on the raw PES bytes, so corrupt
+     * packets are rejected before anything is copied or decoded.
+     */
     final DecodedKLVMetadataPacket decodeKLV() throws KlvDecodingException {
-        final byte[] klvBytes = getKLVBytes();
+        final int klvLength = getKLVLength();
 
-        if (klvBytes != null && klvBytes.length > 0) {
-            final KlvContext decodedKLV = decoder.decode(klvBytes);
+        if (klvLength > 0) {
+            final int klvOffset = getKLVOffset();
+
+            if (!isUasDatalinkLocalSet(klvOffset, klvLength)) {
+                throw new KlvDecodingException("KLV did not contain the UAS Datalink Local Set");
+            }
 
-            if (validateChecksum(decodedKLV, klvBytes)) {
-                return new DecodedKLVMetadataPacket(pesHeader.pts, decodedKLV);
-            } else {
+            if (!hasChecksum(klvOffset, klvLength)) {
+                throw new KlvDecodingException(
+                        "KLV packet didn't contain checksum (which is required).");
+            }
+
+            if (!validateChecksum(klvOffset, klvLength)) {
                 throw new KlvDecodingException("KLV packet checksum does not match.");
             }
+
+            return new DecodedKLVMetadataPacket(pesHeader.pts,
+                    decoder.decode(Arrays.copyOfRange(pesPacketBytes,
+                            klvOffset,
+                            klvOffset + klvLength)));
         }
 
         return null;
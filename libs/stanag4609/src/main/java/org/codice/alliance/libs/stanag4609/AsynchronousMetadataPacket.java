@@ -25,10 +25,16 @@ class AsynchronousMetadataPacket extends AbstractMetadataPacket {
     }
 
     @Override
-    protected byte[] getKLVBytes() {
+    protected int getKLVOffset() {
+        return ASYNCHRONOUS_PES_PACKET_HEADER_LENGTH;
+    }
+
+    @Override
+    protected int getKLVLength() {
         // For asynchronous metadata streams, the header is supposed to be 9 bytes long. The header's
         // length field gives the number of bytes in the packet following it, so we need to skip
         // the 3 header bytes after the length field to get the true length of the payload.
-        return getPESPacketPayload(pesHeader.length - 3, ASYNCHRONOUS_PES_PACKET_HEADER_LENGTH);
+        return getPESPacketPayloadLength(pesHeader.length - 3,
+                ASYNCHRONOUS_PES_PACKET_HEADER_LENGTH);
     }
 }
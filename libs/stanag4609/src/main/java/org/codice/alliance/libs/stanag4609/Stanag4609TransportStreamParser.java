@@ -17,6 +17,7 @@ import static org.codice.ddf.libs.klv.data.Klv.KeyLength;
 import static org.codice.ddf.libs.klv.data.Klv.LengthEncoding;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +25,7 @@ import java.util.Optional;
 import java.util.function.BiConsumer;
 
 import org.codice.ddf.libs.klv.KlvContext;
+import org.codice.ddf.libs.klv.KlvDataElement;
 import org.codice.ddf.libs.klv.KlvDecoder;
 import org.codice.ddf.libs.klv.KlvDecodingException;
 import org.codice.ddf.libs.klv.data.numerical.KlvInt;
@@ -147,14 +149,22 @@ public class Stanag4609TransportStreamParser {
     private static final Logger LOGGER =
             LoggerFactory.getLogger(Stanag4609TransportStreamParser.class);
 
+    /**
+     * Universal key of the UAS Datalink Local Set (MISB ST 0601).
+     */
+    static final byte[] UAS_DATALINK_LOCAL_SET_KEY =
+            {0x06, 0x0E, 0x2B, 0x34, 0x02, 0x0B, 0x01, 0x01, 0x0E, 0x01, 0x03, 0x01, 0x01, 0x00,
+                    0x00, 0x00};
+
+    private static final byte[] SECURITY_LOCAL_METADATA_SET_KEY = {48};
+
     private static final int MAX_UNSIGNED_SHORT = (1 << 16) - 1;
 
     private static final long MAX_UNSIGNED_INT = (1L << 32) - 1;
 
     static {
         final KlvContext localSetContext = new KlvContext(KeyLength.OneByte, LengthEncoding.BER);
-        final KlvLocalSet outerSet = new KlvLocalSet(new byte[] {0x06, 0x0E, 0x2B, 0x34, 0x02, 0x0B,
-                0x01, 0x01, 0x0E, 0x01, 0x03, 0x01, 0x01, 0x00, 0x00, 0x00},
+        final KlvLocalSet outerSet = new KlvLocalSet(UAS_DATALINK_LOCAL_SET_KEY,
                 UAS_DATALINK_LOCAL_SET,
                 localSetContext);
 
@@ -347,7 +357,7 @@ public class Stanag4609TransportStreamParser {
         securityLocalSetContext.addDataElement(new KlvString(new byte[] {13},
                 OBJECT_COUNTRY_CODES));
 
-        localSetContext.addDataElement(new KlvLocalSet(new byte[] {48},
+        localSetContext.addDataElement(new KlvLocalSet(SECURITY_LOCAL_METADATA_SET_KEY,
                 SECURITY_LOCAL_METADATA_SET,
                 securityLocalSetContext));
 
@@ -360,13 +370,78 @@ public class Stanag4609TransportStreamParser {
 
     /**
      * Constructs a {@code Stanag4609TransportStreamParser} with the given {@link ByteSource} as the
-     * provider of the transport stream bytes.
+     * provider of the transport stream bytes. Every supported data element is decoded.
      *
      * @param byteSource the {@code ByteSource} providing the transport stream bytes
      */
     public Stanag4609TransportStreamParser(final ByteSource byteSource) {
+        this(byteSource, UAS_DATALINK_LOCAL_SET_CONTEXT);
+    }
+
+    /**
+     * Constructs a {@code Stanag4609TransportStreamParser} that decodes the transport stream bytes
+     * with the given {@link KlvContext}, typically one built by
+     * {@link #createDecodingContext(Collection)}.
+     *
+     * @param byteSource the {@code ByteSource} providing the transport stream bytes
+     * @param klvContext the context describing the data elements to decode
+     */
+    public Stanag4609TransportStreamParser(final ByteSource byteSource,
+            final KlvContext klvContext) {
         extractor = new MpegTransportStreamMetadataExtractor(byteSource);
-        decoder = new KlvDecoder(UAS_DATALINK_LOCAL_SET_CONTEXT);
+        decoder = new KlvDecoder(klvContext);
+    }
+
+    /**
+     * Creates a decoding context that only contains the named data elements of the UAS Datalink
+     * Local Set and its Security Local Metadata Set. The decoder skips the tags of every other data
+     * element using their BER lengths and never builds data element objects for them. The checksum
+     * is always decoded since every packet must carry one.
+     *
+     * @param dataElementNames names of the data elements to decode, such as
+     *                         {@link #CORNER_LATITUDE_1}
+     * @return a context for {@link #Stanag4609TransportStreamParser(ByteSource, KlvContext)}
+     */
+    public static KlvContext createDecodingContext(final Collection<String> dataElementNames) {
+        final KlvContext fullLocalSetContext = ((KlvLocalSet) UAS_DATALINK_LOCAL_SET_CONTEXT
+                .getDataElementByName(UAS_DATALINK_LOCAL_SET)).getValue();
+        final KlvContext fullSecurityLocalSetContext =
+                ((KlvLocalSet) fullLocalSetContext.getDataElementByName(
+                        SECURITY_LOCAL_METADATA_SET)).getValue();
+
+        final KlvContext localSetContext = selectDataElements(fullLocalSetContext,
+                dataElementNames);
+        final KlvContext securityLocalSetContext = selectDataElements(fullSecurityLocalSetContext,
+                dataElementNames);
+
+        if (!securityLocalSetContext.getDataElements()
+                .isEmpty()) {
+            localSetContext.addDataElement(new KlvLocalSet(SECURITY_LOCAL_METADATA_SET_KEY,
+                    SECURITY_LOCAL_METADATA_SET,
+                    securityLocalSetContext));
+        }
+
+        final KlvContext decodingContext = new KlvContext(KeyLength.SixteenBytes,
+                LengthEncoding.BER);
+        decodingContext.addDataElement(new KlvLocalSet(UAS_DATALINK_LOCAL_SET_KEY,
+                UAS_DATALINK_LOCAL_SET,
+                localSetContext));
+        return decodingContext;
+    }
+
+    private static KlvContext selectDataElements(final KlvContext localSetContext,
+            final Collection<String> dataElementNames) {
+        final KlvContext selectedContext = new KlvContext(KeyLength.OneByte, LengthEncoding.BER);
+
+        for (final KlvDataElement dataElement : localSetContext.getDataElements()
+                .values()) {
+            if (!(dataElement instanceof KlvLocalSet) && (CHECKSUM.equals(dataElement.getName())
+                    || dataElementNames.contains(dataElement.getName()))) {
+                selectedContext.addDataElement(dataElement);
+            }
+        }
+
+        return selectedContext;
     }
 
     /**
@@ -13,8 +13,6 @@
  */
 package org.codice.alliance.libs.stanag4609;
 
-import java.util.Arrays;
-
 import org.codice.ddf.libs.klv.KlvDecoder;
 import org.jcodec.containers.mps.MPSDemuxer.PESPacket;
 
@@ -29,27 +27,26 @@ class SynchronousMetadataPacket extends AbstractMetadataPacket {
     }
 
     @Override
-    protected byte[] getKLVBytes() {
+    protected int getKLVOffset() {
+        return SYNCHRONOUS_PES_PACKET_HEADER_LENGTH + METADATA_ACCESS_UNIT_HEADER_LENGTH;
+    }
+
+    @Override
+    protected int getKLVLength() {
         // For synchronous metadata streams, the header is supposed to be 14 bytes long. The header's
         // length field gives the number of bytes in the packet following it, so we need to skip
         // the 8 header bytes after the length field to get the true length of the payload.
-        final byte[] metadataAccessUnit = getPESPacketPayload(pesHeader.length - 8,
+        final int metadataAccessUnitLength = getPESPacketPayloadLength(pesHeader.length - 8,
                 SYNCHRONOUS_PES_PACKET_HEADER_LENGTH);
 
-        if (metadataAccessUnit.length > METADATA_ACCESS_UNIT_HEADER_LENGTH) {
-            return getKLVPayloadFromMetadataAccessUnit(metadataAccessUnit);
+        if (metadataAccessUnitLength > METADATA_ACCESS_UNIT_HEADER_LENGTH) {
+            final int payloadLengthOffset = SYNCHRONOUS_PES_PACKET_HEADER_LENGTH + 3;
+            final int payloadLength = ((pesPacketBytes[payloadLengthOffset] & 0xFF) << 8)
+                    | (pesPacketBytes[payloadLengthOffset + 1] & 0xFF);
+            return Math.min(metadataAccessUnitLength - METADATA_ACCESS_UNIT_HEADER_LENGTH,
+                    payloadLength);
         }
 
-        return null;
-    }
-
-    private byte[] getKLVPayloadFromMetadataAccessUnit(final byte[] metadataAccessUnit) {
-        final int payloadLength =
-                ((metadataAccessUnit[3] & 0xFF) << 8) | (metadataAccessUnit[4] & 0xFF);
-        final int payloadEnd = Math.min(metadataAccessUnit.length,
-                METADATA_ACCESS_UNIT_HEADER_LENGTH + payloadLength);
-        return Arrays.copyOfRange(metadataAccessUnit,
-                METADATA_ACCESS_UNIT_HEADER_LENGTH,
-                payloadEnd);
+        return 0;
     }
 }
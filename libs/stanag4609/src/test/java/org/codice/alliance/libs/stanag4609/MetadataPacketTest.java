@@ -18,6 +18,11 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.Matchers.lessThan;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 import java.nio.ByteBuffer;
 
@@ -127,4 +132,45 @@ public class MetadataPacketTest {
                 new KlvDecoder(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT));
         packet.decodeKLV();
     }
+
+    @Test
+    public void testWrongChecksumIsRejectedBeforeDecoding() throws Exception {
+        final byte[] pesPacketBytes =
+                new byte[] {0x00, 0x00, 0x01, (byte) 0xBD, 0x00, 0x18, (byte) 0x85, (byte) 0x00,
+                        0x00, 0x06, 0x0E, 0x2B, 0x34, 0x02, 0x0B, 0x01, 0x01, 0x0E, 0x01, 0x03,
+                        0x01, 0x01, 0x00, 0x00, 0x00, 0x04, 0x01, 0x02, 0x4C, 0x52};
+
+        final KlvDecoder decoder = mock(KlvDecoder.class);
+
+        final AsynchronousMetadataPacket packet = new AsynchronousMetadataPacket(pesPacketBytes,
+                MPSUtils.readPESHeader(ByteBuffer.wrap(pesPacketBytes), 0),
+                decoder);
+
+        try {
+            packet.decodeKLV();
+            fail("expected the checksum to be rejected");
+        } catch (KlvDecodingException e) {
+            verify(decoder, never()).decode(any(byte[].class));
+        }
+    }
+
+    @Test
+    public void testTruncatedPacketIsRejected() throws Exception {
+        final byte[] pesPacketBytes =
+                new byte[] {0x00, 0x00, 0x01, (byte) 0xBD, 0x00, 0x18, (byte) 0x85, (byte) 0x00,
+                        0x00, 0x06, 0x0E, 0x2B, 0x34, 0x02, 0x0B, 0x01, 0x01, 0x0E, 0x01, 0x03};
+
+        final KlvDecoder decoder = mock(KlvDecoder.class);
+
+        final AsynchronousMetadataPacket packet = new AsynchronousMetadataPacket(pesPacketBytes,
+                MPSUtils.readPESHeader(ByteBuffer.wrap(pesPacketBytes), 0),
+                decoder);
+
+        try {
+            packet.decodeKLV();
+            fail("expected the truncated packet to be rejected");
+        } catch (KlvDecodingException e) {
+            verify(decoder, never()).decode(any(byte[].class));
+        }
+    }
 }
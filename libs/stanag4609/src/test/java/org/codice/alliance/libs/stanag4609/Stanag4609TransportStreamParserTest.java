@@ -15,6 +15,7 @@ package org.codice.alliance.libs.stanag4609;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasKey;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.eq;
@@ -23,6 +24,8 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -65,12 +68,13 @@ public class Stanag4609TransportStreamParserTest {
         EXPECTED_VALUES.put(Stanag4609TransportStreamParser.CHECKSUM, 7263);
     }
 
-    private Stanag4609TransportStreamParser getParser() throws IOException {
-        final ByteSource byteSource =
-                ByteSource.wrap(IOUtils.toByteArray(getClass().getClassLoader()
-                        .getResourceAsStream("dayflight.mpg")));
+    private ByteSource getByteSource() throws IOException {
+        return ByteSource.wrap(IOUtils.toByteArray(getClass().getClassLoader()
+                .getResourceAsStream("dayflight.mpg")));
+    }
 
-        return new Stanag4609TransportStreamParser(byteSource);
+    private Stanag4609TransportStreamParser getParser() throws IOException {
+        return new Stanag4609TransportStreamParser(getByteSource());
     }
 
     @Test
@@ -138,4 +142,51 @@ public class Stanag4609TransportStreamParserTest {
             }
         });
     }
+
+    @Test
+    public void testParseTransportStreamWithSelectedDataElements() throws Exception {
+        final Stanag4609TransportStreamParser parser = new Stanag4609TransportStreamParser(
+                getByteSource(),
+                Stanag4609TransportStreamParser.createDecodingContext(Arrays.asList(
+                        Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE,
+                        Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE,
+                        Stanag4609TransportStreamParser.SECURITY_CLASSIFICATION)));
+
+        final List<DecodedKLVMetadataPacket> decodedPackets = parser.parse()
+                .get(497);
+        assertThat(decodedPackets.size(), is(1));
+
+        final KlvContext localSetContext = ((KlvLocalSet) decodedPackets.get(0)
+                .getDecodedKLV()
+                .getDataElementByName(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET))
+                .getValue();
+        final Map<String, KlvDataElement> localSetDataElements = localSetContext.getDataElements();
+
+        assertThat(localSetDataElements.keySet(),
+                containsInAnyOrder(Stanag4609TransportStreamParser.CHECKSUM,
+                        Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE,
+                        Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE));
+        localSetDataElements.forEach((name, dataElement) -> {
+            if (dataElement.getValue() instanceof Double) {
+                assertThat((Double) dataElement.getValue(),
+                        is(closeTo((Double) EXPECTED_VALUES.get(name), 1e-6)));
+            } else {
+                assertThat(dataElement.getValue(), is(EXPECTED_VALUES.get(name)));
+            }
+        });
+    }
+
+    @Test
+    public void testCreateDecodingContextOmitsUnusedSecurityLocalSet() {
+        final KlvContext decodingContext = Stanag4609TransportStreamParser.createDecodingContext(
+                Collections.singleton(Stanag4609TransportStreamParser.CORNER_LATITUDE_1));
+
+        final KlvContext localSetContext = ((KlvLocalSet) decodingContext.getDataElementByName(
+                Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET)).getValue();
+
+        assertThat(localSetContext.getDataElements()
+                        .keySet(),
+                containsInAnyOrder(Stanag4609TransportStreamParser.CHECKSUM,
+                        Stanag4609TransportStreamParser.CORNER_LATITUDE_1));
+    }
 }